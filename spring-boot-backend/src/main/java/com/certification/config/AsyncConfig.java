@@ -1,5 +1,6 @@
 package com.certification.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -48,5 +49,21 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+    
+    /**
+     * AI智能审核并行判断线程池
+     * 每次批量审核最多同时提交 app.ai-audit.parallelism 条，多个批量审核共用该线程池
+     */
+    @Bean(name = "aiAuditExecutor")
+    public Executor aiAuditExecutor(@Value("${app.ai-audit.parallelism:4}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, parallelism));
+        executor.setMaxPoolSize(Math.max(1, parallelism));
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("AIAudit-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
 }
-
@@ -24,9 +24,9 @@ public class DeviceCrawlerConfig {
     private Integer defaultMaxRecords = 200;
     
     /**
-     * 是否启用爬取后自动AI判断
+     * 是否启用爬取后自动AI判断（新增数据进入AI判断队列，按次计费，默认关闭）
      */
-    private Boolean enableAutoAi = true;
+    private Boolean enableAutoAi = false;
     
     /**
      * 是否异步执行AI判断
@@ -1,5 +1,10 @@
 package com.certification.config;
 
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.cache.DataVersionStatementInspector;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
@@ -11,5 +16,13 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 @EnableJpaAuditing
 @EnableJpaRepositories(basePackages = {"com.certification.repository", "com.certification.standards"})
 public class JpaConfig {
-    
+
+    /**
+     * 注册写语句检查器，数据写入时递增统计缓存的数据版本
+     */
+    @Bean
+    public HibernatePropertiesCustomizer dataVersionStatementInspectorCustomizer(DataVersionService dataVersionService) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new DataVersionStatementInspector(dataVersionService));
+    }
 }
@@ -33,6 +33,26 @@ public class MedcertCrawlerConfig {
      */
     private CrawlConfig crawl = new CrawlConfig();
     
+    /**
+     * HTTP条件请求缓存配置
+     */
+    private HttpCacheConfig httpCache = new HttpCacheConfig();
+    
+    /**
+     * 无头浏览器会话池配置
+     */
+    private BrowserPoolConfig browserPool = new BrowserPoolConfig();
+    
+    /**
+     * 台湾FDA验证码预取池配置
+     */
+    private CaptchaPoolConfig captchaPool = new CaptchaPoolConfig();
+    
+    /**
+     * 爬虫分阶段流水线配置
+     */
+    private PipelineConfig pipeline = new PipelineConfig();
+    
     @Data
     public static class RetryConfig {
         /**
@@ -80,6 +100,93 @@ public class MedcertCrawlerConfig {
          * 小批量保存大小（用于某些特殊场景）
          */
         private int smallSaveSize = 20;
+        
+        /**
+         * 是否启用JDBC多行INSERT批量写入（IDENTITY主键下saveAll为逐行插入，回填时建议开启）
+         */
+        private boolean bulkWriteEnabled = false;
+        
+        /**
+         * 批量写入时单条INSERT语句包含的行数
+         */
+        private int bulkWriteRows = 500;
+    }
+    
+    @Data
+    public static class HttpCacheConfig {
+        /**
+         * 是否启用磁盘响应缓存（ETag/Last-Modified/内容哈希）
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 缓存目录
+         */
+        private String directory = "./cache/http";
+    }
+    
+    @Data
+    public static class BrowserPoolConfig {
+        /**
+         * 同时存活的浏览器数量上限
+         */
+        private int maxBrowsers = 2;
+        
+        /**
+         * 单个浏览器加载页面数达到该值后回收重建
+         */
+        private int maxPagesPerSession = 50;
+        
+        /**
+         * 空闲浏览器最长保留时间（秒），超过后关闭
+         */
+        private int maxIdleSeconds = 300;
+        
+        /**
+         * 借用浏览器的最长等待时间（秒）
+         */
+        private int borrowTimeoutSeconds = 300;
+        
+        /**
+         * 是否拦截图片、字体和样式表
+         */
+        private boolean blockResources = true;
+    }
+    
+    @Data
+    public static class CaptchaPoolConfig {
+        /**
+         * 是否启用验证码预取
+         */
+        private boolean enabled = true;
+        
+        /**
+         * 预取会话数量上限
+         */
+        private int maxSize = 3;
+        
+        /**
+         * 统计需求量的时间窗口（秒），窗口内无人取用时不再预取
+         */
+        private int demandWindowSeconds = 600;
+        
+        /**
+         * 距离过期不足该秒数的会话视为失效并替换
+         */
+        private int refreshMarginSeconds = 60;
+    }
+    
+    @Data
+    public static class PipelineConfig {
+        /**
+         * 阶段之间的队列容量，队列满时上游阻塞（背压）
+         */
+        private int queueCapacity = 200;
+        
+        /**
+         * 加工阶段（查重、转换、翻译）的并行度
+         */
+        private int enrichParallelism = 4;
     }
     
     @Data
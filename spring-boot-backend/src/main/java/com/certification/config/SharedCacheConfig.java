@@ -0,0 +1,68 @@
+package com.certification.config;
+
+import com.certification.service.cache.InMemorySharedCacheTier;
+import com.certification.service.cache.RedisSharedCacheTier;
+import com.certification.service.cache.SharedCacheTier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+
+/**
+ * 两级缓存共享层配置
+ * app.cache.shared.type:
+ * - none（默认）：只使用本地缓存
+ * - redis：使用 spring.data.redis 配置的Redis作为共享层（Redis自动配置已排除，这里单独创建连接）
+ * - memory：进程内共享层，用于本地调试
+ */
+@Configuration
+public class SharedCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.shared.type", havingValue = "redis")
+    public LettuceConnectionFactory sharedCacheRedisConnectionFactory(
+            @Value("${spring.data.redis.host:localhost}") String host,
+            @Value("${spring.data.redis.port:6379}") int port,
+            @Value("${spring.data.redis.password:}") String password,
+            @Value("${spring.data.redis.database:0}") int database,
+            @Value("${spring.data.redis.timeout:2000ms}") Duration timeout) {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        configuration.setDatabase(database);
+        if (!password.isEmpty()) {
+            configuration.setPassword(RedisPassword.of(password));
+        }
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(timeout)
+                .build();
+        return new LettuceConnectionFactory(configuration, clientConfiguration);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.shared.type", havingValue = "redis")
+    public RedisMessageListenerContainer sharedCacheListenerContainer(RedisConnectionFactory sharedCacheRedisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(sharedCacheRedisConnectionFactory);
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.shared.type", havingValue = "redis")
+    public SharedCacheTier redisSharedCacheTier(RedisConnectionFactory sharedCacheRedisConnectionFactory,
+                                                RedisMessageListenerContainer sharedCacheListenerContainer) {
+        return new RedisSharedCacheTier(sharedCacheRedisConnectionFactory, sharedCacheListenerContainer);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.shared.type", havingValue = "memory")
+    public SharedCacheTier inMemorySharedCacheTier() {
+        return new InMemorySharedCacheTier();
+    }
+}
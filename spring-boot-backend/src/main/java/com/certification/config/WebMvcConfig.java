@@ -0,0 +1,21 @@
+package com.certification.config;
+
+import com.certification.service.monitor.DbCallerInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web MVC配置
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * 注册数据库调用方拦截器，SQL统计按接口方法归类
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DbCallerInterceptor());
+    }
+}
@@ -1,6 +1,7 @@
 package com.certification.controller;
 
 import com.certification.service.DailyCountryRiskStatsService;
+import com.certification.service.cache.TwoTierCache;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +28,9 @@ public class CertNewsDailyRiskStatsController {
     @Autowired
     private DailyCountryRiskStatsService dailyCountryRiskStatsService;
 
+    @Autowired
+    private TwoTierCache twoTierCache;
+
     /**
      * 获取指定日期范围内各国高风险数据统计
      */
@@ -888,4 +892,15 @@ public class CertNewsDailyRiskStatsController {
             return ResponseEntity.status(500).body(response);
         }
     }
+
+    /**
+     * 获取统计缓存命中情况
+     */
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", twoTierCache.getStats());
+        return ResponseEntity.ok(response);
+    }
 }
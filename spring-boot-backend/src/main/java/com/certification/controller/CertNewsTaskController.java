@@ -2,6 +2,7 @@ package com.certification.controller;
 
 import com.certification.entity.common.CertNewsTaskConfig;
 import com.certification.entity.common.CertNewsTaskLog;
+import com.certification.service.certnews.CertNewsScheduledExecutor;
 import com.certification.service.certnews.CertNewsTaskService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,9 @@ public class CertNewsTaskController {
     @Autowired
     private CertNewsTaskService taskService;
 
+    @Autowired
+    private CertNewsScheduledExecutor scheduledExecutor;
+
     /**
      * 获取所有任务配置
      */
@@ -103,6 +107,7 @@ public class CertNewsTaskController {
     public ResponseEntity<Map<String, Object>> createTask(@RequestBody CertNewsTaskConfig task) {
         try {
             CertNewsTaskConfig savedTask = taskService.saveTask(task);
+            scheduledExecutor.scheduleTask(savedTask);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -129,6 +134,7 @@ public class CertNewsTaskController {
         try {
             task.setId(id);
             CertNewsTaskConfig savedTask = taskService.saveTask(task);
+            scheduledExecutor.scheduleTask(savedTask);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -152,6 +158,7 @@ public class CertNewsTaskController {
     public ResponseEntity<Map<String, Object>> deleteTask(@PathVariable Long id) {
         try {
             taskService.deleteTask(id);
+            scheduledExecutor.cancelTask(id);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -174,6 +181,7 @@ public class CertNewsTaskController {
     public ResponseEntity<Map<String, Object>> enableTask(@PathVariable Long id) {
         try {
             taskService.enableTask(id);
+            scheduledExecutor.updateScheduledTask(id);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -196,6 +204,7 @@ public class CertNewsTaskController {
     public ResponseEntity<Map<String, Object>> disableTask(@PathVariable Long id) {
         try {
             taskService.disableTask(id);
+            scheduledExecutor.cancelTask(id);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -0,0 +1,109 @@
+package com.certification.controller;
+
+import com.certification.service.export.DataExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据导出Controller
+ * 设备数据、认证新闻数据的流式导出（CSV / Excel）
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/data-export")
+@Tag(name = "数据导出", description = "设备数据和认证新闻数据的流式导出接口")
+public class DataExportController {
+
+    @Autowired
+    private DataExportService exportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 获取可导出的数据集及字段
+     * GET /api/data-export/datasets
+     */
+    @GetMapping("/datasets")
+    @Operation(summary = "获取可导出的数据集", description = "返回数据集名称及可导出字段，large=true 的字段默认不导出")
+    public ResponseEntity<Map<String, Object>> getDatasets() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", exportService.getDatasets());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 流式导出数据
+     * GET /api/data-export/{dataset}
+     */
+    @GetMapping("/{dataset}")
+    @Operation(summary = "流式导出数据",
+               description = "从数据库逐行读取并直接写入响应，支持CSV（可gzip压缩）和Excel；columns为空时不导出大字段")
+    public void export(
+            @Parameter(description = "数据集", example = "device-event")
+            @PathVariable String dataset,
+            @Parameter(description = "导出格式：csv / xlsx", example = "csv")
+            @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "是否gzip压缩（仅CSV）")
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @Parameter(description = "导出字段，逗号分隔", example = "id,report_number,brand_name")
+            @RequestParam(required = false) String columns,
+            @Parameter(description = "国家代码", example = "US")
+            @RequestParam(required = false) String country,
+            HttpServletResponse response) throws IOException {
+
+        // 参数校验失败时抛出异常，由全局异常处理器返回错误信息
+        DataExportService.ExportPlan plan = exportService.plan(dataset, format, gzip, columns, country);
+
+        response.setContentType(plan.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(plan.fileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        OutputStream out = response.getOutputStream();
+        try {
+            exportService.export(plan, out);
+            out.flush();
+        } catch (DataExportService.ExportLimitExceededException e) {
+            // 尚未写出任何内容，改为返回429和错误信息
+            log.warn("数据导出被拒绝: 数据集={}, 原因={}", dataset, e.getMessage());
+            response.reset();
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            Map<String, Object> body = new HashMap<>();
+            body.put("success", false);
+            body.put("message", e.getMessage());
+            objectMapper.writeValue(response.getOutputStream(), body);
+        } catch (UncheckedIOException e) {
+            // 客户端中断下载
+            log.warn("数据导出中断: 数据集={}, 原因={}", dataset, e.getMessage());
+        } catch (Exception e) {
+            log.error("数据导出失败: 数据集={}", dataset, e);
+            if (!response.isCommitted()) {
+                response.reset();
+                throw e;
+            }
+        }
+    }
+}
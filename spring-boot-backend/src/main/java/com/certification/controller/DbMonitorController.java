@@ -0,0 +1,94 @@
+package com.certification.controller;
+
+import com.certification.service.monitor.DruidPoolMetrics;
+import com.certification.service.monitor.SqlHotspotRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据库监控Controller
+ * 连接池状态、按调用方（接口、爬虫、定时任务）统计的SQL热点
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/db-monitor")
+@Tag(name = "数据库监控", description = "连接池状态和SQL热点统计接口")
+public class DbMonitorController {
+
+    @Autowired
+    private SqlHotspotRegistry sqlHotspotRegistry;
+
+    @Autowired
+    private DruidPoolMetrics druidPoolMetrics;
+
+    /**
+     * 按调用方获取总耗时最高的SQL
+     * GET /api/db-monitor/sql-hotspots
+     */
+    @GetMapping("/sql-hotspots")
+    @Operation(summary = "SQL热点", description = "按调用方（接口方法、爬虫、定时任务）列出总耗时最高的SQL，调用方按总耗时倒序")
+    public ResponseEntity<Map<String, Object>> getSqlHotspots(
+            @Parameter(description = "每个调用方返回的SQL条数", example = "10")
+            @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "调用方过滤（包含匹配）", example = "crawler:")
+            @RequestParam(required = false) String caller) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", sqlHotspotRegistry.getHotspots(limit, caller));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取统一任务执行日志的SQL汇总
+     * GET /api/db-monitor/task-logs/{logId}
+     */
+    @GetMapping("/task-logs/{logId}")
+    @Operation(summary = "任务执行的SQL汇总", description = "返回最近执行的统一任务的SQL次数、耗时、行数和连接占用时间")
+    public ResponseEntity<Map<String, Object>> getTaskLogSummary(@PathVariable Long logId) {
+        Map<String, Object> summary = sqlHotspotRegistry.getTaskSummary(logId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", summary != null);
+        if (summary != null) {
+            response.put("data", summary);
+        } else {
+            response.put("message", "没有该执行日志的SQL统计（仅保留最近的任务执行）");
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取连接池状态
+     * GET /api/db-monitor/pool
+     */
+    @GetMapping("/pool")
+    @Operation(summary = "连接池状态", description = "活跃、空闲、等待连接数及累计等待时间")
+    public ResponseEntity<Map<String, Object>> getPoolStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", druidPoolMetrics.getPoolStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 清空SQL热点统计
+     * POST /api/db-monitor/sql-hotspots/reset
+     */
+    @PostMapping("/sql-hotspots/reset")
+    @Operation(summary = "清空SQL热点统计")
+    public ResponseEntity<Map<String, Object>> resetSqlHotspots() {
+        sqlHotspotRegistry.reset();
+        log.info("SQL热点统计已清空");
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "SQL热点统计已清空");
+        return ResponseEntity.ok(response);
+    }
+}
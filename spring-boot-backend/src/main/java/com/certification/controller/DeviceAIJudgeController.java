@@ -11,10 +11,18 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 设备数据AI判断控制器
@@ -38,6 +46,13 @@ public class DeviceAIJudgeController {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    @Qualifier("aiJudgeExecutor")
+    private Executor aiJudgeExecutor;
+
+    @Value("${app.ai-audit.preview-stream-timeout-minutes:30}")
+    private long previewStreamTimeoutMinutes;
+    
     /**
      * 预览AI判断结果
      */
@@ -261,18 +276,7 @@ public class DeviceAIJudgeController {
             // 构建响应
             response.put("success", result.isSuccess());
             response.put("message", result.getMessage());
-            response.put("data", Map.of(
-                "totalCount", result.getTotal(),
-                "blacklistFiltered", result.getBlacklistFiltered(),
-                "aiJudged", result.getAiJudged(),
-                "aiKept", result.getAiKept(),
-                "aiDowngraded", result.getAiDowngraded(),
-                "keptCount", result.getKeptCount(),
-                "downgradedCount", result.getDowngradedCount(),
-                "failedCount", result.getFailedCount(),
-                "auditItems", result.getAuditItems(),
-                "estimatedCost", calculateEstimatedCost(result.getAiJudged())
-            ));
+            response.put("data", buildBlacklistPreviewData(result, true));
             
             return ResponseEntity.ok(response);
             
@@ -284,6 +288,108 @@ public class DeviceAIJudgeController {
         }
     }
     
+    /**
+     * 带黑名单预检查的AI判断预览（流式）
+     * SSE推送：每完成一条推送 item 事件（审核项），全部完成后推送 done 事件（统计，不含审核项列表），
+     * 大批量预览时前端不必等待全部判断完成
+     */
+    @PostMapping(value = "/preview-with-blacklist/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "流式预览AI判断（带黑名单检查）", description = "参数同 /preview-with-blacklist，逐条推送 item 事件，结束时推送 done 事件")
+    public SseEmitter previewWithBlacklistStream(@RequestBody Map<String, Object> params) {
+        log.info("收到流式AI判断预览请求（带黑名单）: {}", params);
+        
+        String country = (String) params.get("country");
+        @SuppressWarnings("unchecked")
+        List<String> entityTypes = (List<String>) params.get("entityTypes");
+        String riskLevel = (String) params.get("riskLevel");
+        Integer limit = params.get("limit") != null ? ((Number) params.get("limit")).intValue() : null;
+        Boolean judgeAll = params.get("judgeAll") != null ? (Boolean) params.get("judgeAll") : false;
+        
+        // 客户端断开、连接超时或推送失败时中断执行线程，停止后续AI调用（AIAuditRunner 响应中断并取消未完成的调用）
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(previewStreamTimeoutMinutes));
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        Runnable stop = () -> {
+            if (stopped.compareAndSet(false, true)) {
+                synchronized (worker) {
+                    Thread thread = worker.get();
+                    if (thread != null) {
+                        log.info("流式AI判断预览已停止（客户端断开或超时）");
+                        thread.interrupt();
+                    }
+                }
+            }
+        };
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(e -> stop.run());
+
+        aiJudgeExecutor.execute(() -> {
+            synchronized (worker) {
+                if (stopped.get()) {
+                    return;
+                }
+                worker.set(Thread.currentThread());
+            }
+            try {
+                SmartAuditResult result = aiSmartAuditService.previewWithBlacklistCheck(
+                    country, entityTypes, riskLevel, limit, judgeAll,
+                    item -> {
+                        if (stopped.get()) {
+                            return;
+                        }
+                        try {
+                            emitter.send(SseEmitter.event().name("item").data(item));
+                        } catch (Exception e) {
+                            log.debug("推送预览结果失败，停止预览: {}", e.getMessage());
+                            stop.run();
+                        }
+                    });
+                if (stopped.get()) {
+                    return;
+                }
+                Map<String, Object> done = new HashMap<>();
+                done.put("success", result.isSuccess());
+                done.put("message", result.getMessage());
+                done.put("data", buildBlacklistPreviewData(result, false));
+                emitter.send(SseEmitter.event().name("done").data(done));
+                emitter.complete();
+            } catch (Exception e) {
+                if (!stopped.get()) {
+                    log.error("流式预览AI判断失败", e);
+                    emitter.completeWithError(e);
+                }
+            } finally {
+                synchronized (worker) {
+                    worker.set(null);
+                }
+                // 清除停止时设置的中断标记，线程归还线程池
+                Thread.interrupted();
+            }
+        });
+        return emitter;
+    }
+    
+    /**
+     * 带黑名单预览的统计数据
+     */
+    private Map<String, Object> buildBlacklistPreviewData(SmartAuditResult result, boolean includeItems) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("totalCount", result.getTotal());
+        data.put("blacklistFiltered", result.getBlacklistFiltered());
+        data.put("aiJudged", result.getAiJudged());
+        data.put("aiKept", result.getAiKept());
+        data.put("aiDowngraded", result.getAiDowngraded());
+        data.put("keptCount", result.getKeptCount());
+        data.put("downgradedCount", result.getDowngradedCount());
+        data.put("failedCount", result.getFailedCount());
+        if (includeItems) {
+            data.put("auditItems", result.getAuditItems());
+        }
+        data.put("estimatedCost", calculateEstimatedCost(result.getAiJudged()));
+        return data;
+    }
+    
     /**
      * 新接口：执行AI判断并更新黑名单
      */
@@ -640,5 +746,43 @@ public class DeviceAIJudgeController {
             return ResponseEntity.status(500).body(result);
         }
     }
+    
+    // ========== 爬取后AI判断队列 ==========
+    
+    @Autowired
+    private com.certification.service.ai.AIJudgeQueueService aiJudgeQueueService;
+    
+    /**
+     * 查询AI判断队列状态
+     */
+    @GetMapping("/queue/status")
+    @Operation(summary = "查询AI判断队列状态", description = "查询爬取后自动AI判断队列各模块的积压数量、延迟和处理线程状态")
+    public ResponseEntity<Map<String, Object>> getQueueStatus() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", aiJudgeQueueService.getStatus());
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 重试AI判断队列中失败的数据
+     */
+    @PostMapping("/queue/retry-failed")
+    @Operation(summary = "重试失败的队列数据", description = "把超过重试次数的队列数据重新放回等待状态")
+    public ResponseEntity<Map<String, Object>> retryFailedQueueItems() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            int count = aiJudgeQueueService.retryFailed();
+            result.put("success", true);
+            result.put("message", "已重新排队 " + count + " 条数据");
+            result.put("data", count);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            log.error("重试AI判断队列失败: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("error", "重试失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(result);
+        }
+    }
 }
 
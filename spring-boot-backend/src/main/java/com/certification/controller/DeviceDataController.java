@@ -3,6 +3,7 @@ package com.certification.controller;
 import com.certification.entity.common.*;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.*;
+import com.certification.service.device.DeviceDataUpdateService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -45,6 +46,9 @@ public class DeviceDataController {
     @Autowired
     private FDAGuidanceDocumentRepository guidanceDocumentRepository;
 
+    @Autowired
+    private DeviceDataUpdateService deviceDataUpdateService;
+
 
     /**
      * 根据关键词搜索设备数据
@@ -1466,126 +1470,7 @@ public class DeviceDataController {
     @Operation(summary = "重置所有数据为中等风险", description = "将所有设备数据的风险等级重置为MEDIUM")
     public ResponseEntity<Map<String, Object>> resetAllDataToMediumRisk() {
         log.info("收到重置所有数据为中等风险的请求");
-        
-        Map<String, Object> result = new HashMap<>();
-        
-        try {
-            int totalUpdated = 0;
-            
-            // 重置各种实体类型的数据
-            totalUpdated += resetDevice510KToMediumRisk();
-            totalUpdated += resetDeviceEventReportToMediumRisk();
-            totalUpdated += resetDeviceRecallRecordToMediumRisk();
-            totalUpdated += resetDeviceRegistrationRecordToMediumRisk();
-            totalUpdated += resetCustomsCaseToMediumRisk();
-            totalUpdated += resetGuidanceDocumentToMediumRisk();
-            
-            result.put("success", true);
-            result.put("message", "所有数据已重置为中等风险");
-            result.put("totalUpdated", totalUpdated);
-            
-            log.info("重置完成: 共更新 {} 条记录", totalUpdated);
-            
-            return ResponseEntity.ok(result);
-            
-        } catch (Exception e) {
-            log.error("重置所有数据失败: {}", e.getMessage(), e);
-            result.put("success", false);
-            result.put("message", "重置失败: " + e.getMessage());
-            return ResponseEntity.internalServerError().body(result);
-        }
-    }
-
-
-    // 重置各种实体类型为中等风险的方法
-    private int resetDevice510KToMediumRisk() {
-        try {
-            List<Device510K> devices = device510KRepository.findAll();
-            for (Device510K device : devices) {
-                device.setRiskLevel(RiskLevel.MEDIUM);
-                device.setKeywords("[]");
-            }
-            device510KRepository.saveAll(devices);
-            return devices.size();
-        } catch (Exception e) {
-            log.error("重置Device510K失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetDeviceEventReportToMediumRisk() {
-        try {
-            List<DeviceEventReport> events = deviceEventReportRepository.findAll();
-            for (DeviceEventReport event : events) {
-                event.setRiskLevel(RiskLevel.MEDIUM);
-                event.setKeywords("[]");
-            }
-            deviceEventReportRepository.saveAll(events);
-            return events.size();
-        } catch (Exception e) {
-            log.error("重置DeviceEventReport失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetDeviceRecallRecordToMediumRisk() {
-        try {
-            List<DeviceRecallRecord> recalls = deviceRecallRecordRepository.findAll();
-            for (DeviceRecallRecord recall : recalls) {
-                recall.setRiskLevel(RiskLevel.MEDIUM);
-                recall.setKeywords("[]");
-            }
-            deviceRecallRecordRepository.saveAll(recalls);
-            return recalls.size();
-        } catch (Exception e) {
-            log.error("重置DeviceRecallRecord失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetDeviceRegistrationRecordToMediumRisk() {
-        try {
-            List<DeviceRegistrationRecord> registrations = deviceRegistrationRecordRepository.findAll();
-            for (DeviceRegistrationRecord registration : registrations) {
-                registration.setRiskLevel(RiskLevel.MEDIUM);
-                registration.setKeywords("[]");
-            }
-            deviceRegistrationRecordRepository.saveAll(registrations);
-            return registrations.size();
-        } catch (Exception e) {
-            log.error("重置DeviceRegistrationRecord失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetCustomsCaseToMediumRisk() {
-        try {
-            List<CustomsCase> cases = customsCaseRepository.findAll();
-            for (CustomsCase caseItem : cases) {
-                caseItem.setRiskLevel(RiskLevel.MEDIUM);
-                caseItem.setKeywords("[]");
-            }
-            customsCaseRepository.saveAll(cases);
-            return cases.size();
-        } catch (Exception e) {
-            log.error("重置CustomsCase失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetGuidanceDocumentToMediumRisk() {
-        try {
-            List<GuidanceDocument> documents = guidanceDocumentRepository.findAll();
-            for (GuidanceDocument document : documents) {
-                document.setRiskLevel(RiskLevel.MEDIUM);
-                document.setKeywords("[]");
-            }
-            guidanceDocumentRepository.saveAll(documents);
-            return documents.size();
-        } catch (Exception e) {
-            log.error("重置GuidanceDocument失败: {}", e.getMessage());
-            return 0;
-        }
+        return deviceDataUpdateService.resetAllToMedium();
     }
 
     /**
@@ -2260,32 +2145,6 @@ public class DeviceDataController {
             @RequestBody(required = false) Map<String, Object> requestBody) {
         
         log.info("收到重置所有数据为中等风险的请求");
-        
-        Map<String, Object> result = new HashMap<>();
-        
-        try {
-            // 暂时返回成功响应，实际的重置逻辑可以后续实现
-            result.put("success", true);
-            result.put("message", "所有数据已重置为中等风险");
-            result.put("totalUpdated", 0);
-            result.put("details", Map.of(
-                "device510K", 0,
-                "eventReport", 0,
-                "recallRecord", 0,
-                "registrationRecord", 0,
-                "customsCase", 0,
-                "guidanceDocument", 0
-            ));
-            
-            log.info("重置所有数据为中等风险完成");
-            
-        } catch (Exception e) {
-            log.error("重置所有数据为中等风险失败: {}", e.getMessage(), e);
-            result.put("success", false);
-            result.put("message", "重置失败: " + e.getMessage());
-            result.put("totalUpdated", 0);
-        }
-        
-        return ResponseEntity.ok(result);
+        return deviceDataUpdateService.resetAllToMedium();
     }
 }
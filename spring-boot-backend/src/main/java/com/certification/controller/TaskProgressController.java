@@ -0,0 +1,60 @@
+package com.certification.controller;
+
+import com.certification.service.monitor.TaskProgressHub;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 任务实时进度Controller
+ * 通过SSE推送爬虫执行和AI判断任务的实时进度，替代轮询执行日志和任务进度接口
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/progress")
+@Tag(name = "任务实时进度", description = "爬虫执行和AI判断任务进度的SSE推送接口")
+public class TaskProgressController {
+
+    @Autowired
+    private TaskProgressHub taskProgressHub;
+
+    /**
+     * 订阅进度推送
+     * GET /api/progress/stream
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅任务进度", description = "SSE推送：连接后先推送 snapshot 事件（当前全部任务），之后推送 progress 事件（有变化的任务）。"
+            + "每条进度包含已获取、已保存、已跳过、失败数、当前页、速率和预计剩余时间")
+    public SseEmitter stream(
+            @Parameter(description = "任务类型：CRAWLER / AI_JUDGE / BULK_UPDATE，为空时不过滤", example = "CRAWLER")
+            @RequestParam(required = false) String type,
+            @Parameter(description = "只订阅单个任务，如 crawler:123、ai-judge:abc", example = "crawler:123")
+            @RequestParam(required = false) String key) {
+        return taskProgressHub.subscribe(type, key);
+    }
+
+    /**
+     * 获取当前进度快照
+     * GET /api/progress/snapshot
+     */
+    @GetMapping("/snapshot")
+    @Operation(summary = "任务进度快照", description = "返回本实例正在执行和最近结束的任务进度")
+    public ResponseEntity<Map<String, Object>> snapshot(
+            @Parameter(description = "任务类型：CRAWLER / AI_JUDGE / BULK_UPDATE，为空时返回全部", example = "AI_JUDGE")
+            @RequestParam(required = false) String type) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", taskProgressHub.getSnapshot(type));
+        response.put("subscriberCount", taskProgressHub.getSubscriberCount());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,6 +1,7 @@
 package com.certification.controller;
 
 import com.certification.crawler.countrydata.tw.TwCaptchaService;
+import com.certification.crawler.countrydata.tw.TwCaptchaSessionPool;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +25,9 @@ public class TwCaptchaTestController {
     @Autowired
     private TwCaptchaService captchaService;
 
+    @Autowired
+    private TwCaptchaSessionPool captchaPool;
+
     /**
      * 测试验证码服务
      *
@@ -174,7 +178,7 @@ public class TwCaptchaTestController {
      * @return 统计信息
      */
     @GetMapping("/stats")
-    @Operation(summary = "获取统计信息", description = "查看验证码缓存统计信息")
+    @Operation(summary = "获取统计信息", description = "查看验证码缓存及预取池统计信息")
     public ResponseEntity<Map<String, Object>> getStatistics() {
         log.info("收到统计信息请求");
 
@@ -185,6 +189,7 @@ public class TwCaptchaTestController {
 
             response.put("success", true);
             response.put("statistics", stats);
+            response.put("pool", captchaPool.getStatus());
 
             return ResponseEntity.ok(response);
 
@@ -1,7 +1,10 @@
 package com.certification.controller;
 
+import com.certification.crawler.common.CrawlPipeline;
 import com.certification.entity.UnifiedTaskConfig;
 import com.certification.entity.UnifiedTaskLog;
+import com.certification.entity.UnifiedTaskShard;
+import com.certification.service.cluster.TaskLeaseService;
 import com.certification.service.crawler.*;
 import com.certification.service.crawler.schema.CrawlerSchema;
 import com.certification.service.crawler.schema.CrawlerSchemaRegistry;
@@ -52,6 +55,15 @@ public class UnifiedCrawlerController {
     @Autowired
     private CrawlerMonitorService monitorService;
     
+    @Autowired
+    private TaskLeaseService taskLeaseService;
+    
+    @Autowired
+    private TaskShardService taskShardService;
+    
+    @Autowired
+    private CrawlTaskDispatcher taskDispatcher;
+    
     @Autowired
     private ObjectMapper objectMapper;
     
@@ -197,7 +209,7 @@ public class UnifiedCrawlerController {
             log.info("最终测试参数: {}", params);
 
             // 执行爬虫
-            CrawlerResult crawlerResult = crawler.execute(params);
+            CrawlerResult crawlerResult = executeManual(crawler, params);
 
             result.put("success", crawlerResult.getSuccess());
             result.put("message", crawlerResult.getMessage());
@@ -265,7 +277,7 @@ public class UnifiedCrawlerController {
             CrawlerParams params = objectMapper.readValue(paramsJson, CrawlerParams.class);
 
             // 执行爬虫
-            CrawlerResult crawlerResult = crawler.execute(params);
+            CrawlerResult crawlerResult = executeManual(crawler, params);
 
             result.put("success", crawlerResult.getSuccess());
             result.put("message", crawlerResult.getMessage());
@@ -312,7 +324,7 @@ public class UnifiedCrawlerController {
                         CrawlerParams params = new CrawlerParams();
                         params.setMaxRecords(10);
 
-                        CrawlerResult crawlerResult = crawler.execute(params);
+                        CrawlerResult crawlerResult = executeManual(crawler, params);
                         testResult.put("success", crawlerResult.getSuccess());
                         testResult.put("message", crawlerResult.getMessage());
                     }
@@ -371,7 +383,7 @@ public class UnifiedCrawlerController {
                             params.setMaxRecords(maxRecords);
                         }
 
-                        CrawlerResult crawlerResult = crawler.execute(params);
+                        CrawlerResult crawlerResult = executeManual(crawler, params);
                         execResult.put("success", crawlerResult.getSuccess());
                         execResult.put("message", crawlerResult.getMessage());
                     }
@@ -871,6 +883,93 @@ public class UnifiedCrawlerController {
         }
     }
     
+    /**
+     * 重试失败的执行（分片执行的任务只重新执行失败的分片）
+     */
+    @PostMapping("/logs/{logId}/retry")
+    @Operation(summary = "重试失败的执行", description = "分片执行的任务只重新执行失败的分片，其他任务重新执行整个任务")
+    public ResponseEntity<Map<String, Object>> retryFailedTask(
+        @Parameter(description = "执行日志ID") @PathVariable Long logId
+    ) {
+        log.info("重试失败的执行: 日志ID={}", logId);
+        
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            CrawlerResult crawlerResult = executionService.retryFailedTask(logId);
+            
+            result.put("success", crawlerResult.getSuccess());
+            result.put("message", crawlerResult.getMessage());
+            result.put("data", crawlerResult);
+            
+            return ResponseEntity.ok(result);
+            
+        } catch (Exception e) {
+            log.error("重试失败的执行出错: 日志ID={}", logId, e);
+            result.put("success", false);
+            result.put("message", "重试失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+    
+    /**
+     * 取消正在进行的执行
+     */
+    @PostMapping("/logs/{logId}/cancel")
+    @Operation(summary = "取消执行", description = "停止本实例正在进行的任务执行：爬虫在下一个批次、等待或请求前结束，已抓取的数据照常保存，执行日志状态为 CANCELLED")
+    public ResponseEntity<Map<String, Object>> cancelExecution(
+        @Parameter(description = "执行日志ID") @PathVariable Long logId,
+        @Parameter(description = "取消原因") @RequestParam(required = false) String reason
+    ) {
+        log.info("取消执行: 日志ID={}, 原因={}", logId, reason);
+        
+        Map<String, Object> result = new HashMap<>();
+        boolean cancelled = executionService.cancelRunning(logId, reason != null && !reason.isBlank() ? reason : "手动取消");
+        result.put("success", cancelled);
+        result.put("message", cancelled ? "已发送取消请求，爬虫将在下一个检查点停止" : "执行不存在或未在本实例运行");
+        result.put("data", executionService.getRunningLogIds());
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 取消任务正在进行的全部执行
+     */
+    @PostMapping("/tasks/{id}/cancel-running")
+    @Operation(summary = "取消任务执行", description = "停止指定任务在本实例正在进行的全部执行，不影响后续定时触发")
+    public ResponseEntity<Map<String, Object>> cancelRunningTask(
+        @Parameter(description = "任务ID") @PathVariable Long id,
+        @Parameter(description = "取消原因") @RequestParam(required = false) String reason
+    ) {
+        log.info("取消任务执行: 任务ID={}, 原因={}", id, reason);
+        
+        Map<String, Object> result = new HashMap<>();
+        List<Long> cancelled = executionService.cancelRunningByTask(id, reason != null && !reason.isBlank() ? reason : "手动取消");
+        result.put("success", !cancelled.isEmpty());
+        result.put("message", cancelled.isEmpty() ? "任务没有在本实例执行" : "已发送取消请求: " + cancelled.size() + " 个执行");
+        result.put("data", cancelled);
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 获取执行日志的分片
+     */
+    @GetMapping("/logs/{logId}/shards")
+    @Operation(summary = "获取执行分片", description = "获取分片执行任务的各分片状态、重试次数和数据量")
+    public ResponseEntity<Map<String, Object>> getTaskShards(
+        @Parameter(description = "执行日志ID") @PathVariable Long logId
+    ) {
+        Map<String, Object> result = new HashMap<>();
+        
+        List<UnifiedTaskShard> shards = taskShardService.getShards(logId);
+        result.put("success", true);
+        result.put("data", shards);
+        result.put("count", shards.size());
+        
+        return ResponseEntity.ok(result);
+    }
+    
     /**
      * 暂停任务
      */
@@ -1052,8 +1151,56 @@ public class UnifiedCrawlerController {
         }
     }
     
+    /**
+     * 获取爬虫流水线阶段指标
+     */
+    @GetMapping("/monitor/pipelines")
+    @Operation(summary = "获取流水线指标", description = "获取正在运行和最近一次运行的爬虫流水线各阶段吞吐、失败数和忙碌率")
+    public ResponseEntity<Map<String, Object>> getPipelineStats() {
+        Map<String, Object> result = new HashMap<>();
+        
+        List<Map<String, Object>> pipelines = CrawlPipeline.snapshot();
+        result.put("success", true);
+        result.put("data", pipelines);
+        result.put("count", pipelines.size());
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 获取集群调度状态
+     */
+    @GetMapping("/monitor/cluster")
+    @Operation(summary = "获取集群调度状态", description = "获取本实例节点标识、存活节点列表和当前持有的定时任务租约")
+    public ResponseEntity<Map<String, Object>> getClusterStatus() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", taskLeaseService.getStatus());
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * 获取爬虫调度队列状态
+     */
+    @GetMapping("/monitor/queue")
+    @Operation(summary = "获取调度队列状态", description = "获取按优先级排队和正在执行的爬虫任务，以及各国家、各爬虫占用的执行名额")
+    public ResponseEntity<Map<String, Object>> getDispatchQueue() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", taskDispatcher.snapshot());
+        return ResponseEntity.ok(result);
+    }
+    
     // ==================== 辅助方法 ====================
     
+    /**
+     * 以手动优先级经调度队列执行爬虫，等待执行结束
+     */
+    private CrawlerResult executeManual(ICrawlerExecutor crawler, CrawlerParams params) {
+        return taskDispatcher.submitAndWait("execute:" + crawler.getCrawlerName(), CrawlTaskDispatcher.Priority.MANUAL,
+            crawler.getCountryCode(), crawler.getCrawlerName(), () -> CrawlerProgressContext.execute(crawler, params));
+    }
+    
     /**
      * 从爬虫名称提取爬虫类型
      * 例如: US_510K -> 510K, KR_Registration -> REGISTRATION
@@ -173,6 +173,26 @@ public class DeviceDataQueryController {
         return searchService.getCustomsCases(page, size, keyword, countryCode);
     }
 
+    /**
+     * 游标分页获取设备记录
+     * GET /device-data/query/scroll
+     */
+    @GetMapping("/scroll")
+    @Operation(summary = "游标分页获取设备记录",
+               description = "按ID倒序的keyset分页，适合深度翻页和无限滚动；传入上一页返回的nextCursor获取下一页，总数为缓存值")
+    public ResponseEntity<Map<String, Object>> scrollRecords(
+            @Parameter(description = "实体类型", example = "Device510K")
+            @RequestParam(defaultValue = "Device510K") String entityType,
+            @Parameter(description = "游标（上一页返回的nextCursor），首页不传")
+            @RequestParam(required = false) Long cursor,
+            @Parameter(description = "每页大小", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "国家代码")
+            @RequestParam(required = false) String countryCode) {
+
+        return searchService.scrollRecords(entityType, cursor, size, countryCode);
+    }
+
     /**
      * 获取支持的实体类型列表
      * GET /device-data/query/supported-entity-types
@@ -5,6 +5,7 @@ import com.certification.crawler.certification.base.CrawlerResult;
 import com.certification.entity.common.CertNewsData;
 import com.certification.service.DateFormatService;
 // import com.certification.service.SystemLogService; // 已删除
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.standards.CrawlerDataService;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
@@ -907,7 +908,7 @@ public class BeiceCrawler implements BaseCrawler {
                         log.debug("成功爬取新闻: {}", item.getTitle());
                         
                         // 添加延迟
-                        Thread.sleep(1000);
+                        CrawlerCancellationToken.sleep(1000);
                         
                     } catch (Exception e) {
                         log.warn("处理新闻项失败: {} - {}", item.getTitle(), e.getMessage());
@@ -918,7 +919,7 @@ public class BeiceCrawler implements BaseCrawler {
                 page++;
                 
                 // 页面间延迟
-                Thread.sleep(2000);
+                CrawlerCancellationToken.sleep(2000);
                 
             } catch (Exception e) {
                 log.error("爬取第 {} 页失败: {}", page, e.getMessage());
@@ -1206,7 +1207,7 @@ public class BeiceCrawler implements BaseCrawler {
                             log.debug("成功爬取新闻: {}", item.getTitle());
                             
                             // 添加延迟
-                            Thread.sleep(1000);
+                            CrawlerCancellationToken.sleep(1000);
                             
                         } catch (Exception e) {
                             log.warn("处理新闻项失败: {} - {}", item.getTitle(), e.getMessage());
@@ -1273,7 +1274,7 @@ public class BeiceCrawler implements BaseCrawler {
                     page++;
                     
                     // 页面间延迟
-                    Thread.sleep(2000);
+                    CrawlerCancellationToken.sleep(2000);
                     
                 } catch (Exception e) {
                     log.error("爬取第 {} 页失败: {}", page, e.getMessage());
@@ -1495,7 +1496,7 @@ public class BeiceCrawler implements BaseCrawler {
                             log.debug("成功爬取新闻: {}", item.getTitle());
                             
                             // 添加延迟
-                            Thread.sleep(1000);
+                            CrawlerCancellationToken.sleep(1000);
                             
                         } catch (Exception e) {
                             log.warn("处理新闻项失败: {} - {}", item.getTitle(), e.getMessage());
@@ -1530,7 +1531,7 @@ public class BeiceCrawler implements BaseCrawler {
                     page++;
                     
                     // 页面间延迟
-                    Thread.sleep(2000);
+                    CrawlerCancellationToken.sleep(2000);
                     
                 } catch (Exception e) {
                     log.error("爬取第 {} 页失败: {}", page, e.getMessage());
@@ -2,9 +2,13 @@ package com.certification.crawler.certification;
 
 import com.certification.crawler.certification.base.BaseCrawler;
 import com.certification.crawler.certification.base.CrawlerResult;
+import com.certification.crawler.common.CrawlResultSink;
 import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CertNewsData;
 import com.certification.service.DateFormatService;
+import com.certification.service.crawler.CrawlerBatchMetrics;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 // import com.certification.service.SystemLogService; // 已删除
 import com.certification.standards.CrawlerDataService;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -331,6 +335,10 @@ public class SgsCrawler implements BaseCrawler {
      * @throws Exception 网络异常
      */
     public String sendPostRequest(int page, String keyword) throws Exception {
+        CrawlerProgressContext.yieldPoint();
+        if (!CrawlerCancellationToken.current().recordRequest()) {
+            throw new IllegalStateException("爬虫任务已停止: " + CrawlerCancellationToken.current().getCancelReason());
+        }
         System.out.println("开始发送POST请求: page=" + page + ", keyword=" + keyword);
 
         HttpClient client = HttpClient.newBuilder()
@@ -361,7 +369,9 @@ public class SgsCrawler implements BaseCrawler {
 //        System.out.println("发送HTTP请求到: " + API_URL);
 
         // 使用字节处理器来处理压缩响应
+        long startNanos = System.nanoTime();
         HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        HttpUtils.afterResponse(startNanos, response.body().length);
         System.out.println("收到HTTP响应，状态码: " + response.statusCode() + ", 长度: " + response.body().length);
 
         // 处理不同的状态码
@@ -520,6 +530,11 @@ public class SgsCrawler implements BaseCrawler {
         return crawlWithFilters(keyword, totalCount, null, null, null);
     }
 
+    @Override
+    public void crawl(String keyword, int totalCount, CrawlResultSink<CrawlerResult> sink) throws Exception {
+        crawlWithFilters(keyword, totalCount, null, null, null, 1, Integer.MAX_VALUE, sink);
+    }
+
     /**
      * 爬取 SGS 新闻页面内容，支持过滤条件
      *
@@ -550,16 +565,39 @@ public class SgsCrawler implements BaseCrawler {
      */
     public List<CrawlerResult> crawlWithFilters(String keyword, int totalCount, String newsType, String dateRange, List<String> topics, int startPage, int maxPages) throws Exception {
         List<CrawlerResult> result = new ArrayList<>();
+        crawlWithFilters(keyword, totalCount, newsType, dateRange, topics, startPage, maxPages, CrawlResultSink.collectTo(result));
+        return result;
+    }
+
+    /**
+     * 流式爬取 SGS 新闻页面内容，每页结果立即交给接收器，不在内存中累积
+     *
+     * @param keyword    搜索关键词
+     * @param totalCount 需要爬取的内容总数
+     * @param newsType   新闻类型值（可选）
+     * @param dateRange  日期范围值（可选）
+     * @param topics     主题值列表（可选）
+     * @param startPage  起始页码
+     * @param maxPages   最大页数
+     * @param sink       结果接收器，返回false时停止爬取
+     * @return 交给接收器的结果总数
+     * @throws Exception 网络异常、解析异常或接收器抛出的异常
+     */
+    public int crawlWithFilters(String keyword, int totalCount, String newsType, String dateRange, List<String> topics, int startPage, int maxPages,
+                                CrawlResultSink<CrawlerResult> sink) throws Exception {
+        int delivered = 0;
         int page = startPage;
         int consecutiveFailures = 0;
         final int MAX_CONSECUTIVE_FAILURES = 5;
         int pagesProcessed = 0;
 
-        while (result.size() < totalCount && consecutiveFailures < MAX_CONSECUTIVE_FAILURES && pagesProcessed < maxPages) {
+        while (delivered < totalCount && consecutiveFailures < MAX_CONSECUTIVE_FAILURES && pagesProcessed < maxPages
+                && !CrawlerCancellationToken.current().isCancelled()) {
             System.out.println("正在爬取第 " + page + " 页，关键词: " + (keyword != null ? keyword : ""));
 
             int retry = 0;
             boolean success = false;
+            List<CrawlerResult> pageResults = null;
             while (retry < 3 && !success) {
                 try {
                     String jsonResponse;
@@ -569,20 +607,7 @@ public class SgsCrawler implements BaseCrawler {
                         jsonResponse = sendPostRequest(page, keyword);
                     }
 
-                    List<CrawlerResult> pageResults = parseApiResponse(jsonResponse);
-
-                    if (pageResults.isEmpty()) {
-                        System.out.println("第 " + page + " 页没有更多数据，停止爬取");
-                        success = true;
-                        break;
-                    }
-
-                    for (CrawlerResult crawlerResult : pageResults) {
-                        result.add(crawlerResult);
-                        if (result.size() >= totalCount) {
-                            break;
-                        }
-                    }
+                    pageResults = parseApiResponse(jsonResponse);
                     success = true;
                     consecutiveFailures = 0; // 重置连续失败计数
                 } catch (Exception e) {
@@ -605,9 +630,9 @@ public class SgsCrawler implements BaseCrawler {
                         break;
                     }
                     try {
-                        Thread.sleep(delayTime); // 递增等待时间
+                        CrawlerCancellationToken.sleep(delayTime); // 递增等待时间
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         break;
                     }
                 }
@@ -618,12 +643,27 @@ public class SgsCrawler implements BaseCrawler {
                 pagesProcessed++;
                 continue;
             }
+            if (pageResults.isEmpty()) {
+                System.out.println("第 " + page + " 页没有更多数据，停止爬取");
+                break;
+            }
+
+            // 接收器在重试循环之外调用，处理异常不会触发重新请求
+            if (pageResults.size() > totalCount - delivered) {
+                pageResults = new ArrayList<>(pageResults.subList(0, totalCount - delivered));
+            }
+            delivered += pageResults.size();
+            if (!sink.accept(pageResults)) {
+                System.out.println("接收器要求停止，已爬取 " + delivered + " 条数据");
+                break;
+            }
+
             page++;
             pagesProcessed++;
             try {
-                Thread.sleep(2000); // 请求间隔，防止被封
+                CrawlerCancellationToken.sleep(2000); // 请求间隔，防止被封
             } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
+                CrawlerCancellationToken.restoreInterrupt();
                 break;
             }
         }
@@ -632,8 +672,8 @@ public class SgsCrawler implements BaseCrawler {
             System.err.println("连续失败次数过多，停止爬取");
         }
 
-        System.out.println("总共爬取到 " + result.size() + " 条数据");
-        return result;
+        System.out.println("总共爬取到 " + delivered + " 条数据");
+        return delivered;
     }
 
     /**
@@ -648,6 +688,10 @@ public class SgsCrawler implements BaseCrawler {
      * @throws Exception 网络异常
      */
     private String sendPostRequestWithFilters(int page, String keyword, String newsType, String dateRange, List<String> topics) throws Exception {
+        CrawlerProgressContext.yieldPoint();
+        if (!CrawlerCancellationToken.current().recordRequest()) {
+            throw new IllegalStateException("爬虫任务已停止: " + CrawlerCancellationToken.current().getCancelReason());
+        }
         String postData = buildPostDataWithFilters(page, keyword, newsType, dateRange, topics);
 
         HttpClient client = HttpClient.newBuilder()
@@ -670,7 +714,9 @@ public class SgsCrawler implements BaseCrawler {
                 .POST(HttpRequest.BodyPublishers.ofString(postData))
                 .build();
 
+        long startNanos = System.nanoTime();
         HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        HttpUtils.afterResponse(startNanos, response.body().length);
 
         if (response.statusCode() == 200) {
             String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("");
@@ -914,7 +960,7 @@ public class SgsCrawler implements BaseCrawler {
                     page++;
                     
                     // 页面间延迟（减少延迟时间）
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                     
                 } catch (Exception e) {
                     log.error("爬取第 {} 页失败: {}", page, e.getMessage(), e);
@@ -1173,74 +1219,73 @@ public class SgsCrawler implements BaseCrawler {
             // 记录爬取前的数据数量
             long beforeCount = crawlerDataService.getCountBySourceName("SGS");
 
-            // 执行爬虫（带过滤条件）
-            List<CrawlerResult> crawlerResults = crawlWithFilters(keyword, count, newsType, dateRange, topics);
-
-            // 转换为CrawlerData实体
-            List<CertNewsData> certNewsDataList = convertToCrawlerData(crawlerResults);
-
-            // 检查是否全部重复
-            if (certNewsDataList.isEmpty()) {
-                result.put("success", true);
-                result.put("message", "没有爬取到任何数据");
-                result.put("crawledCount", 0);
-                result.put("savedCount", 0);
-                result.put("duplicateCount", 0);
-                result.put("allDuplicates", true);
-                result.put("stoppedEarly", true);
-                result.put("executionTime", System.currentTimeMillis() - startTime);
-                result.put("timestamp", LocalDateTime.now().toString());
-
-                log.info("SGS爬虫执行完成，关键词: {}，没有爬取到任何数据", keyword);
-                return result;
-            }
+            // 流式执行爬虫（带过滤条件）：每页结果立即查重入库，不在内存中累积全部结果
+            int[] crawledCount = {0};
+            int[] savedCount = {0};
+            long[] duplicateCount = {0};
+            Map<String, Long> statusCounts = new HashMap<>();
+            // 批次耗时按距上一批次的时间计算（含该页的抓取和入库）
+            long[] lastBatchMillis = {System.currentTimeMillis()};
+            crawlWithFilters(keyword, count, newsType, dateRange, topics, 1, Integer.MAX_VALUE, batch -> {
+                List<CertNewsData> certNewsDataList = convertToCrawlerData(batch);
+                Map<String, Object> pageStats = crawlerDataService.getDuplicateUrlStats(certNewsDataList);
+                long pageDuplicates = pageStats.get("duplicateCount") == null ? 0L : ((Number) pageStats.get("duplicateCount")).longValue();
+
+                // 使用安全的批量保存（自动去重），每30条数据一批
+                List<CertNewsData> savedDataList = pageDuplicates == certNewsDataList.size()
+                        ? Collections.emptyList()
+                        : crawlerDataService.safeSaveCrawlerDataList(certNewsDataList, 30);
+
+                // 记录数据变更日志并统计各状态的数据数量
+                for (CertNewsData data : savedDataList) {
+                    log.info("SGS爬虫创建新数据: ID={}, 标题={}, URL={}, 关键词={}",
+                            data.getId(), data.getTitle(), data.getUrl(), keyword);
+                    statusCounts.merge(data.getStatus().name(), 1L, Long::sum);
+                }
 
-            // 获取去重统计信息
-            Map<String, Object> duplicateStats = crawlerDataService.getDuplicateUrlStats(certNewsDataList);
-            long duplicateCount = duplicateStats.get("duplicateCount") == null ? 0L : ((Number)duplicateStats.get("duplicateCount")).longValue();
+                crawledCount[0] += batch.size();
+                savedCount[0] += savedDataList.size();
+                duplicateCount[0] += pageDuplicates;
+                long now = System.currentTimeMillis();
+                CrawlerProgressContext.current().onBatch(CrawlerBatchMetrics
+                        .of(batch.size(), savedDataList.size(), batch.size() - savedDataList.size(), 0)
+                        .setElapsedMs(now - lastBatchMillis[0]));
+                lastBatchMillis[0] = now;
+                return true;
+            });
 
-            // 检查是否全部重复
-            boolean allDuplicates = duplicateCount == certNewsDataList.size();
-            if (allDuplicates) {
+            // 检查是否没有数据或全部重复
+            if (crawledCount[0] == 0 || duplicateCount[0] == crawledCount[0]) {
+                boolean empty = crawledCount[0] == 0;
                 result.put("success", true);
-                result.put("message", "爬取的数据全部与数据库重复，停止爬取");
-                result.put("crawledCount", certNewsDataList.size());
+                result.put("message", empty ? "没有爬取到任何数据" : "爬取的数据全部与数据库重复，停止爬取");
+                result.put("crawledCount", crawledCount[0]);
                 result.put("savedCount", 0);
-                result.put("duplicateCount", duplicateCount);
+                result.put("duplicateCount", duplicateCount[0]);
                 result.put("allDuplicates", true);
                 result.put("stoppedEarly", true);
                 result.put("executionTime", System.currentTimeMillis() - startTime);
                 result.put("timestamp", LocalDateTime.now().toString());
 
-                log.info("SGS爬虫执行完成，关键词: {}，爬取 {} 条数据全部重复，停止爬取", keyword, certNewsDataList.size());
+                log.info("SGS爬虫执行完成，关键词: {}，爬取 {} 条数据，没有新数据", keyword, crawledCount[0]);
                 return result;
             }
 
-            // 使用安全的批量保存（自动去重），每30条数据一批
-            List<CertNewsData> savedDataList = crawlerDataService.safeSaveCrawlerDataList(certNewsDataList, 30);
+            // 去重统计信息（逐页累计，不再保留重复URL列表）
+            Map<String, Object> duplicateStats = new HashMap<>();
+            duplicateStats.put("totalCount", crawledCount[0]);
+            duplicateStats.put("duplicateCount", duplicateCount[0]);
+            duplicateStats.put("newCount", crawledCount[0] - duplicateCount[0]);
 
             // 记录爬取后的数据数量
             long afterCount = crawlerDataService.getCountBySourceName("SGS");
             long newDataCount = afterCount - beforeCount;
 
-            // 记录数据变更日志
-            for (CertNewsData data : savedDataList) {
-                log.info("SGS爬虫创建新数据: ID={}, 标题={}, URL={}, 关键词={}",
-                        data.getId(), data.getTitle(), data.getUrl(), keyword);
-            }
-
-            // 统计各状态的数据数量
-            Map<String, Long> statusCounts = new HashMap<>();
-            for (CertNewsData data : savedDataList) {
-                String status = data.getStatus().name();
-                statusCounts.put(status, statusCounts.getOrDefault(status, 0L) + 1);
-            }
-
             long executionTime = System.currentTimeMillis() - startTime;
 
             // 记录成功日志
             log.info("SGS爬虫执行完成，关键词: {}，爬取 {} 条数据，新增 {} 条，重复 {} 条，耗时 {} ms",
-                    keyword, crawlerResults.size(), newDataCount, duplicateCount, executionTime);
+                    keyword, crawledCount[0], newDataCount, duplicateCount[0], executionTime);
 
             // 构建返回结果
             result.put("success", true);
@@ -1251,8 +1296,8 @@ public class SgsCrawler implements BaseCrawler {
             result.put("dateRange", dateRange);
             result.put("topics", topics);
             result.put("requestedCount", count);
-            result.put("crawledCount", crawlerResults.size());
-            result.put("savedCount", savedDataList.size());
+            result.put("crawledCount", crawledCount[0]);
+            result.put("savedCount", savedCount[0]);
             result.put("newDataCount", newDataCount);
             result.put("totalDataCount", afterCount);
             result.put("statusCounts", statusCounts);
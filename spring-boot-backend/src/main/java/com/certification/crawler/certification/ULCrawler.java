@@ -2,9 +2,12 @@ package com.certification.crawler.certification;
 
 import com.certification.crawler.certification.base.BaseCrawler;
 import com.certification.crawler.certification.base.CrawlerResult;
+import com.certification.crawler.common.CrawlResultSink;
 import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CertNewsData;
 import com.certification.service.DateFormatService;
+import com.certification.service.crawler.CrawlerBatchMetrics;
+import com.certification.service.crawler.CrawlerProgressContext;
 import com.certification.standards.CrawlerDataService;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
@@ -20,6 +23,7 @@ import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +84,11 @@ public class ULCrawler implements BaseCrawler {
         return crawlWithBatchSave(keyword, totalCount, 10, 0);
     }
     
+    @Override
+    public void crawl(String keyword, int totalCount, CrawlResultSink<CrawlerResult> sink) throws Exception {
+        crawlWithBatchSave(keyword, totalCount, 10, 0, sink);
+    }
+    
     /**
      * 带分批保存的爬取方法
      * @param keyword 关键词
@@ -91,6 +100,25 @@ public class ULCrawler implements BaseCrawler {
      */
     public List<CrawlerResult> crawlWithBatchSave(String keyword, int totalCount, int batchSize, int startIndex) throws Exception {
         List<CrawlerResult> result = new ArrayList<>();
+        crawlWithBatchSave(keyword, totalCount, batchSize, startIndex, CrawlResultSink.collectTo(result));
+        return result;
+    }
+    
+    /**
+     * 带分批保存的流式爬取方法
+     * 每保存一批就把对应的爬取结果交给接收器，方法内部最多只保留一批结果和正文
+     * @param keyword 关键词
+     * @param totalCount 总爬取数量
+     * @param batchSize 每批保存和交付的数量
+     * @param startIndex 开始爬取的索引位置
+     * @param sink 结果接收器，返回false时停止爬取
+     * @return 爬取的结果数量
+     * @throws Exception 爬取异常或接收器抛出的异常
+     */
+    public int crawlWithBatchSave(String keyword, int totalCount, int batchSize, int startIndex, CrawlResultSink<CrawlerResult> sink) throws Exception {
+        List<CrawlerResult> pending = new ArrayList<>();
+        int produced = 0;
+        boolean stopped = false;
         List<CertNewsData> certNewsDataList = new ArrayList<>();
         String url = config.getBaseUrl() + "/gma/";
         
@@ -109,7 +137,7 @@ public class ULCrawler implements BaseCrawler {
                 continue;
             }
             
-            if (result.size() >= totalCount) break;
+            if (stopped || produced >= totalCount) break;
             
             String type = extractType(item);
             String country = extractCountry(item);
@@ -126,7 +154,8 @@ public class ULCrawler implements BaseCrawler {
             crawlerResult.setCategory("certification");
             crawlerResult.setType(type);
             crawlerResult.setCountry(country);
-            result.add(crawlerResult);
+            pending.add(crawlerResult);
+            produced++;
             
             // 爬取具体内容
             String detailedContent = "";
@@ -200,6 +229,8 @@ public class ULCrawler implements BaseCrawler {
                 } catch (Exception e) {
                     System.err.println("批量保存爬虫数据到数据库失败: " + e.getMessage());
                 }
+                stopped = !pending.isEmpty() && !sink.accept(pending);
+                pending = new ArrayList<>();
             }
             
             currentIndex++;
@@ -214,7 +245,7 @@ public class ULCrawler implements BaseCrawler {
                 continue;
             }
             
-            if (result.size() >= totalCount) break;
+            if (stopped || produced >= totalCount) break;
             
             String country = extractCountryFromHidden(item);
             String title = "";
@@ -230,7 +261,8 @@ public class ULCrawler implements BaseCrawler {
             crawlerResult.setCategory("certification");
             crawlerResult.setType("announcement");
             crawlerResult.setCountry(country);
-            result.add(crawlerResult);
+            pending.add(crawlerResult);
+            produced++;
             
             // 爬取具体内容
             String detailedContent = "";
@@ -318,6 +350,8 @@ public class ULCrawler implements BaseCrawler {
                 } catch (Exception e) {
                     System.err.println("批量保存爬虫数据到数据库失败: " + e.getMessage());
                 }
+                stopped = !pending.isEmpty() && !sink.accept(pending);
+                pending = new ArrayList<>();
             }
             
             currentIndex++;
@@ -332,12 +366,12 @@ public class ULCrawler implements BaseCrawler {
                 continue;
             }
             
-            if (result.size() >= totalCount) break;
+            if (stopped || produced >= totalCount) break;
             
             // 提取details标签中的链接
             Elements detailLinks = detailsItem.select("a");
             for (Element linkElement : detailLinks) {
-                if (result.size() >= totalCount) break;
+                if (stopped || produced >= totalCount) break;
                 
                 String title = linkElement.text();
                 String link = linkElement.attr("href");
@@ -349,7 +383,8 @@ public class ULCrawler implements BaseCrawler {
                 crawlerResult.setCategory("certification");
                 crawlerResult.setType("announcement");
                 crawlerResult.setCountry(country);
-                result.add(crawlerResult);
+                pending.add(crawlerResult);
+                produced++;
                 
                 // 爬取具体内容
                 String detailedContent = "";
@@ -436,6 +471,8 @@ public class ULCrawler implements BaseCrawler {
                     } catch (Exception e) {
                         System.err.println("批量保存爬虫数据到数据库失败: " + e.getMessage());
                     }
+                    stopped = !pending.isEmpty() && !sink.accept(pending);
+                    pending = new ArrayList<>();
                 }
                 
                 currentIndex++;
@@ -452,8 +489,11 @@ public class ULCrawler implements BaseCrawler {
                 System.err.println("保存剩余爬虫数据到数据库失败: " + e.getMessage());
             }
         }
+        if (!stopped && !pending.isEmpty()) {
+            sink.accept(pending);
+        }
         
-        return result;
+        return produced;
     }
     
     /**
@@ -1125,105 +1165,7 @@ public class ULCrawler implements BaseCrawler {
      * @return 执行结果
      */
     public Map<String, Object> executeULCrawlerAndSave(int count) {
-        Map<String, Object> result = new HashMap<>();
-        long startTime = System.currentTimeMillis();
-        
-        try {
-            // 记录开始日志
-            log.info("UL爬虫开始执行，计划爬取 {} 条数据", count);
-            
-            // 记录爬取前的数据数量
-            long beforeCount = crawlerDataService.getCountBySourceName("UL Solutions");
-            
-            // 执行爬虫
-            List<CrawlerResult> crawlerResults = crawl("", count);
-
-            // 转换为CrawlerData实体
-            List<CertNewsData> certNewsDataList = convertToCrawlerData(crawlerResults);
-
-            // 检查是否全部重复
-            if (certNewsDataList.isEmpty()) {
-                result.put("success", true);
-                result.put("message", "没有爬取到任何数据");
-                result.put("crawledCount", 0);
-                result.put("savedCount", 0);
-                result.put("duplicateCount", 0);
-                result.put("allDuplicates", true);
-                result.put("stoppedEarly", true);
-                result.put("executionTime", System.currentTimeMillis() - startTime);
-                result.put("timestamp", LocalDateTime.now().toString());
-                
-                log.info("UL爬虫执行完成，没有爬取到任何数据");
-                return result;
-            }
-
-            // 获取去重统计信息
-            Map<String, Object> duplicateStats = crawlerDataService.getDuplicateUrlStats(certNewsDataList);
-            long duplicateCount = duplicateStats.get("duplicateCount") == null ? 0L : ((Number)duplicateStats.get("duplicateCount")).longValue();
-            
-            // 检查是否全部重复
-            boolean allDuplicates = duplicateCount == certNewsDataList.size();
-            if (allDuplicates) {
-                result.put("success", true);
-                result.put("message", "爬取的数据全部与数据库重复，停止爬取");
-                result.put("crawledCount", certNewsDataList.size());
-                result.put("savedCount", 0);
-                result.put("duplicateCount", duplicateCount);
-                result.put("allDuplicates", true);
-                result.put("stoppedEarly", true);
-                result.put("executionTime", System.currentTimeMillis() - startTime);
-                result.put("timestamp", LocalDateTime.now().toString());
-                
-                log.info("UL爬虫执行完成，爬取 {} 条数据全部重复，停止爬取", certNewsDataList.size());
-                return result;
-            }
-            
-            // 使用安全的批量保存（自动去重），每30条数据一批
-            List<CertNewsData> savedDataList = crawlerDataService.safeSaveCrawlerDataList(certNewsDataList, 30);
-            
-            // 记录爬取后的数据数量
-            long afterCount = crawlerDataService.getCountBySourceName("UL Solutions");
-            long newDataCount = afterCount - beforeCount;
-            
-            // 统计各状态的数据数量
-            Map<String, Long> statusCounts = new HashMap<>();
-            for (CertNewsData data : savedDataList) {
-                String status = data.getStatus().name();
-                statusCounts.put(status, statusCounts.getOrDefault(status, 0L) + 1);
-            }
-            
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            // 记录成功日志
-            log.info("UL爬虫执行完成，爬取 {} 条数据，新增 {} 条，重复 {} 条，耗时 {} ms", 
-                crawlerResults.size(), newDataCount, duplicateCount, executionTime);
-            
-            // 构建返回结果
-            result.put("success", true);
-            result.put("requestedCount", count);
-            result.put("crawledCount", crawlerResults.size());
-            result.put("savedCount", savedDataList.size());
-            result.put("newDataCount", newDataCount);
-            result.put("totalDataCount", afterCount);
-            result.put("statusCounts", statusCounts);
-            result.put("duplicateStats", duplicateStats);
-            result.put("executionTime", executionTime);
-            result.put("timestamp", LocalDateTime.now().toString());
-            result.put("message", "UL爬虫执行成功");
-            
-        } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            
-            // 记录错误日志
-            log.error("UL爬虫执行失败: {}", e.getMessage(), e);
-            
-            result.put("success", false);
-            result.put("error", "UL爬虫执行失败: " + e.getMessage());
-            result.put("executionTime", executionTime);
-            result.put("timestamp", LocalDateTime.now().toString());
-        }
-        
-        return result;
+        return executeAndSave(null, count);
     }
     
     /**
@@ -1233,85 +1175,101 @@ public class ULCrawler implements BaseCrawler {
      * @return 执行结果
      */
     public Map<String, Object> executeULCrawlerWithKeywordAndSave(String keyword, int count) {
+        return executeAndSave(keyword, count);
+    }
+    
+    /**
+     * 流式执行UL爬虫并保存：每批结果立即查重入库，不在内存中累积全部结果和正文
+     * @param keyword 搜索关键词，为null时不带关键词
+     * @param count 爬取数量
+     * @return 执行结果
+     */
+    private Map<String, Object> executeAndSave(String keyword, int count) {
         Map<String, Object> result = new HashMap<>();
         long startTime = System.currentTimeMillis();
+        String keywordLog = keyword != null ? "，关键词: " + keyword : "";
         
         try {
             // 记录开始日志
-            log.info("UL爬虫开始执行（关键词搜索），关键词: {}，计划爬取 {} 条数据", keyword, count);
+            log.info("UL爬虫开始执行{}，计划爬取 {} 条数据", keywordLog, count);
             
             // 记录爬取前的数据数量
             long beforeCount = crawlerDataService.getCountBySourceName("UL Solutions");
             
-            // 执行爬虫（带关键词）
-            List<CrawlerResult> crawlerResults = crawl(keyword, count);
-
-            // 转换为CrawlerData实体
-            List<CertNewsData> certNewsDataList = convertToCrawlerData(crawlerResults);
-
-            // 检查是否全部重复
-            if (certNewsDataList.isEmpty()) {
-                result.put("success", true);
-                result.put("message", "没有爬取到任何数据");
-                result.put("crawledCount", 0);
-                result.put("savedCount", 0);
-                result.put("duplicateCount", 0);
-                result.put("allDuplicates", true);
-                result.put("stoppedEarly", true);
-                result.put("executionTime", System.currentTimeMillis() - startTime);
-                result.put("timestamp", LocalDateTime.now().toString());
+            // 流式执行爬虫：每批结果立即查重入库
+            int[] crawledCount = {0};
+            int[] savedCount = {0};
+            long[] duplicateCount = {0};
+            Map<String, Long> statusCounts = new HashMap<>();
+            // 批次耗时按距上一批次的时间计算（含该批的抓取和入库）
+            long[] lastBatchMillis = {System.currentTimeMillis()};
+            crawl(keyword != null ? keyword : "", count, batch -> {
+                List<CertNewsData> certNewsDataList = convertToCrawlerData(batch);
+                Map<String, Object> batchStats = crawlerDataService.getDuplicateUrlStats(certNewsDataList);
+                long batchDuplicates = batchStats.get("duplicateCount") == null ? 0L : ((Number) batchStats.get("duplicateCount")).longValue();
                 
-                log.info("UL爬虫执行完成，关键词: {}，没有爬取到任何数据", keyword);
-                return result;
-            }
-
-            // 获取去重统计信息
-            Map<String, Object> duplicateStats = crawlerDataService.getDuplicateUrlStats(certNewsDataList);
-            long duplicateCount = duplicateStats.get("duplicateCount") == null ? 0L : ((Number)duplicateStats.get("duplicateCount")).longValue();
+                // 使用安全的批量保存（自动去重），每30条数据一批
+                List<CertNewsData> savedDataList = batchDuplicates == certNewsDataList.size()
+                        ? Collections.emptyList()
+                        : crawlerDataService.safeSaveCrawlerDataList(certNewsDataList, 30);
+                
+                // 统计各状态的数据数量
+                for (CertNewsData data : savedDataList) {
+                    statusCounts.merge(data.getStatus().name(), 1L, Long::sum);
+                }
+                
+                crawledCount[0] += batch.size();
+                savedCount[0] += savedDataList.size();
+                duplicateCount[0] += batchDuplicates;
+                long now = System.currentTimeMillis();
+                CrawlerProgressContext.current().onBatch(CrawlerBatchMetrics
+                        .of(batch.size(), savedDataList.size(), batch.size() - savedDataList.size(), 0)
+                        .setElapsedMs(now - lastBatchMillis[0]));
+                lastBatchMillis[0] = now;
+                return true;
+            });
             
-            // 检查是否全部重复
-            boolean allDuplicates = duplicateCount == certNewsDataList.size();
-            if (allDuplicates) {
+            // 检查是否没有数据或全部重复
+            if (crawledCount[0] == 0 || duplicateCount[0] == crawledCount[0]) {
+                boolean empty = crawledCount[0] == 0;
                 result.put("success", true);
-                result.put("message", "爬取的数据全部与数据库重复，停止爬取");
-                result.put("crawledCount", certNewsDataList.size());
+                result.put("message", empty ? "没有爬取到任何数据" : "爬取的数据全部与数据库重复，停止爬取");
+                result.put("crawledCount", crawledCount[0]);
                 result.put("savedCount", 0);
-                result.put("duplicateCount", duplicateCount);
+                result.put("duplicateCount", duplicateCount[0]);
                 result.put("allDuplicates", true);
                 result.put("stoppedEarly", true);
                 result.put("executionTime", System.currentTimeMillis() - startTime);
                 result.put("timestamp", LocalDateTime.now().toString());
                 
-                log.info("UL爬虫执行完成，关键词: {}，爬取 {} 条数据全部重复，停止爬取", keyword, certNewsDataList.size());
+                log.info("UL爬虫执行完成{}，爬取 {} 条数据，没有新数据", keywordLog, crawledCount[0]);
                 return result;
             }
             
-            // 使用安全的批量保存（自动去重），每30条数据一批
-            List<CertNewsData> savedDataList = crawlerDataService.safeSaveCrawlerDataList(certNewsDataList, 30);
+            // 去重统计信息（逐批累计，不再保留重复URL列表）
+            Map<String, Object> duplicateStats = new HashMap<>();
+            duplicateStats.put("totalCount", crawledCount[0]);
+            duplicateStats.put("duplicateCount", duplicateCount[0]);
+            duplicateStats.put("newCount", crawledCount[0] - duplicateCount[0]);
             
             // 记录爬取后的数据数量
             long afterCount = crawlerDataService.getCountBySourceName("UL Solutions");
             long newDataCount = afterCount - beforeCount;
             
-            // 统计各状态的数据数量
-            Map<String, Long> statusCounts = new HashMap<>();
-            for (CertNewsData data : savedDataList) {
-                String status = data.getStatus().name();
-                statusCounts.put(status, statusCounts.getOrDefault(status, 0L) + 1);
-            }
-            
             long executionTime = System.currentTimeMillis() - startTime;
             
             // 记录成功日志
-            log.info("UL爬虫执行完成，关键词: {}，爬取 {} 条数据，新增 {} 条，重复 {} 条，耗时 {} ms", 
-                keyword, crawlerResults.size(), newDataCount, duplicateCount, executionTime);
+            log.info("UL爬虫执行完成{}，爬取 {} 条数据，新增 {} 条，重复 {} 条，耗时 {} ms", 
+                keywordLog, crawledCount[0], newDataCount, duplicateCount[0], executionTime);
             
             // 构建返回结果
             result.put("success", true);
-            result.put("keyword", keyword);
+            if (keyword != null) {
+                result.put("keyword", keyword);
+            }
             result.put("requestedCount", count);
-            result.put("crawledCount", crawlerResults.size());
-            result.put("savedCount", savedDataList.size());
+            result.put("crawledCount", crawledCount[0]);
+            result.put("savedCount", savedCount[0]);
             result.put("newDataCount", newDataCount);
             result.put("totalDataCount", afterCount);
             result.put("statusCounts", statusCounts);
@@ -1324,7 +1282,7 @@ public class ULCrawler implements BaseCrawler {
             long executionTime = System.currentTimeMillis() - startTime;
             
             // 记录错误日志
-            log.error("UL爬虫执行失败，关键词: {}，错误: {}", keyword, e.getMessage(), e);
+            log.error("UL爬虫执行失败{}，错误: {}", keywordLog, e.getMessage(), e);
             
             result.put("success", false);
             result.put("error", "UL爬虫执行失败: " + e.getMessage());
@@ -1,5 +1,6 @@
 package com.certification.crawler.certification.base;
 
+import com.certification.crawler.common.CrawlResultSink;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -27,6 +28,28 @@ public interface BaseCrawler {
      */
     List<CrawlerResult> crawlLatest(int totalCount) throws Exception;
     
+    /**
+     * 流式爬取指定关键词的内容，每抓取一批就交给接收器处理
+     * 默认实现先完整爬取再分批交付，逐页抓取的爬虫应覆盖此方法
+     * @param keyword 搜索关键词
+     * @param totalCount 需要爬取的内容总数
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawl(String keyword, int totalCount, CrawlResultSink<CrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawl(keyword, totalCount), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
+    /**
+     * 流式爬取指定数量的最新内容
+     * @param totalCount 需要爬取的内容总数
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawlLatest(int totalCount, CrawlResultSink<CrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawlLatest(totalCount), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
     /**
      * 获取爬虫名称
      * @return 爬虫名称
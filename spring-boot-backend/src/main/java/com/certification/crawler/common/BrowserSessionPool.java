@@ -0,0 +1,363 @@
+package com.certification.crawler.common;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.certification.config.MedcertCrawlerConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * 无头浏览器会话池
+ * 供基于Selenium的爬虫（US_Guidance、Eu_BTI、Eu_recall）复用浏览器，避免每次运行都冷启动ChromeDriver：
+ * - 同时存活的浏览器数量受 maxBrowsers 限制，超出时借用方阻塞等待
+ * - 借出前做健康检查，失效的浏览器直接丢弃重建
+ * - 单个浏览器加载页面数达到 maxPagesPerSession 后回收，防止内存持续增长
+ * - 默认拦截图片、字体和样式表
+ * - 支持直接抓取页面发出的XHR/JSON响应，避免解析DOM
+ */
+@Slf4j
+@Component
+public class BrowserSessionPool {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+
+    /**
+     * 拦截的资源类型（CDP Network.setBlockedURLs 通配符）
+     */
+    private static final List<String> BLOCKED_URL_PATTERNS = List.of(
+            "*.png", "*.jpg", "*.jpeg", "*.gif", "*.webp", "*.svg", "*.ico",
+            "*.woff", "*.woff2", "*.ttf", "*.otf", "*.eot",
+            "*.css");
+
+    private final MedcertCrawlerConfig crawlerConfig;
+    private final BlockingDeque<BrowserSession> idleSessions = new LinkedBlockingDeque<>();
+    private final AtomicInteger liveBrowsers = new AtomicInteger();
+    private final Semaphore permits;
+    private volatile boolean shuttingDown = false;
+
+    @Autowired
+    public BrowserSessionPool(MedcertCrawlerConfig crawlerConfig) {
+        this.crawlerConfig = crawlerConfig;
+        this.permits = new Semaphore(Math.max(1, crawlerConfig.getBrowserPool().getMaxBrowsers()), true);
+        locateChromeDriver();
+    }
+
+    /**
+     * 借用浏览器会话，使用完毕后必须调用 {@link #release(BrowserSession)}
+     */
+    public BrowserSession borrow() throws InterruptedException {
+        MedcertCrawlerConfig.BrowserPoolConfig config = crawlerConfig.getBrowserPool();
+        if (!permits.tryAcquire(config.getBorrowTimeoutSeconds(), TimeUnit.SECONDS)) {
+            throw new IllegalStateException("等待浏览器会话超时，当前存活浏览器: " + liveBrowsers.get());
+        }
+
+        try {
+            BrowserSession session;
+            while ((session = idleSessions.pollFirst()) != null) {
+                if (session.isHealthy()) {
+                    session.lastUsedAt = System.currentTimeMillis();
+                    log.debug("复用浏览器会话 #{}，已加载页面: {}", session.getId(), session.getPageCount());
+                    return session;
+                }
+                log.info("浏览器会话 #{} 健康检查失败，丢弃", session.getId());
+                destroy(session);
+            }
+            return createSession();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还浏览器会话
+     */
+    public void release(BrowserSession session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            int maxPages = crawlerConfig.getBrowserPool().getMaxPagesPerSession();
+            if (shuttingDown || session.getPageCount() >= maxPages || !session.isHealthy()) {
+                log.debug("回收浏览器会话 #{}，已加载页面: {}", session.getId(), session.getPageCount());
+                destroy(session);
+            } else {
+                session.reset();
+                idleSessions.offerFirst(session);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 关闭空闲超时的浏览器
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleSessions() {
+        long maxIdleMillis = crawlerConfig.getBrowserPool().getMaxIdleSeconds() * 1000L;
+        long now = System.currentTimeMillis();
+        Iterator<BrowserSession> it = idleSessions.iterator();
+        while (it.hasNext()) {
+            BrowserSession session = it.next();
+            if (now - session.lastUsedAt > maxIdleMillis && idleSessions.remove(session)) {
+                log.debug("关闭空闲浏览器会话 #{}", session.getId());
+                destroy(session);
+            }
+        }
+    }
+
+    /**
+     * 获取池状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("liveBrowsers", liveBrowsers.get());
+        status.put("idleBrowsers", idleSessions.size());
+        status.put("maxBrowsers", crawlerConfig.getBrowserPool().getMaxBrowsers());
+        status.put("waitingBorrowers", permits.getQueueLength());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        BrowserSession session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            destroy(session);
+        }
+    }
+
+    private BrowserSession createSession() {
+        MedcertCrawlerConfig.BrowserPoolConfig config = crawlerConfig.getBrowserPool();
+
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless=new");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--window-size=1920,1080");
+        options.addArguments("--user-agent=" + USER_AGENT);
+        options.addArguments("--disable-blink-features=AutomationControlled");
+        options.addArguments("--disable-extensions");
+        options.addArguments("--disable-plugins");
+        options.addArguments("--no-first-run");
+        options.addArguments("--no-default-browser-check");
+        options.setExperimentalOption("excludeSwitches", new String[]{"enable-automation"});
+        options.setExperimentalOption("useAutomationExtension", false);
+
+        if (config.isBlockResources()) {
+            Map<String, Object> prefs = new HashMap<>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            prefs.put("profile.managed_default_content_settings.fonts", 2);
+            options.setExperimentalOption("prefs", prefs);
+        }
+
+        // 开启性能日志以便抓取XHR/JSON响应
+        LoggingPreferences loggingPrefs = new LoggingPreferences();
+        loggingPrefs.enable(LogType.PERFORMANCE, Level.ALL);
+        options.setCapability("goog:loggingPrefs", loggingPrefs);
+
+        long start = System.currentTimeMillis();
+        ChromeDriver driver = new ChromeDriver(options);
+        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(crawlerConfig.getTimeout().getPageLoadTimeoutSeconds()));
+
+        if (config.isBlockResources()) {
+            try {
+                driver.executeCdpCommand("Network.enable", new HashMap<>());
+                driver.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", BLOCKED_URL_PATTERNS));
+            } catch (Exception e) {
+                log.warn("设置资源拦截失败，继续使用默认加载: {}", e.getMessage());
+            }
+        }
+
+        BrowserSession session = new BrowserSession(driver);
+        liveBrowsers.incrementAndGet();
+        log.info("创建浏览器会话 #{}，耗时 {} ms，当前存活: {}", session.getId(), System.currentTimeMillis() - start, liveBrowsers.get());
+        return session;
+    }
+
+    private void destroy(BrowserSession session) {
+        try {
+            session.getDriver().quit();
+        } catch (Exception e) {
+            log.debug("关闭浏览器会话 #{} 失败: {}", session.getId(), e.getMessage());
+        } finally {
+            liveBrowsers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 在工作目录中定位ChromeDriver，未找到时交由Selenium Manager自动解析
+     */
+    private void locateChromeDriver() {
+        if (System.getProperty("webdriver.chrome.driver") != null) {
+            return;
+        }
+        String projectRoot = System.getProperty("user.dir");
+        for (String name : new String[]{"chromedriver.exe", "chromedriver"}) {
+            if (Files.exists(Paths.get(projectRoot, name))) {
+                String path = Paths.get(projectRoot, name).toString();
+                System.setProperty("webdriver.chrome.driver", path);
+                log.info("使用ChromeDriver路径: {}", path);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 页面发出的网络响应
+     */
+    @Data
+    public static class CapturedResponse {
+        private String url;
+        private int status;
+        private String mimeType;
+        private String body;
+    }
+
+    /**
+     * 浏览器会话
+     */
+    public static class BrowserSession {
+
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        private final int id;
+        private final ChromeDriver driver;
+        private int pageCount = 0;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        BrowserSession(ChromeDriver driver) {
+            this.id = SEQUENCE.incrementAndGet();
+            this.driver = driver;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        /**
+         * 打开页面（计入回收计数）
+         */
+        public void open(String url) {
+            pageCount++;
+            driver.get(url);
+        }
+
+        /**
+         * 在当前页面上下文中请求URL（携带页面的Cookie与会话），直接返回响应文本
+         * 适用于页面数据来自XHR/JSON接口的场景
+         */
+        public String fetchInPage(String url) {
+            Object result = driver.executeAsyncScript(
+                    "var done = arguments[arguments.length - 1];" +
+                    "fetch(arguments[0], {credentials: 'include'})" +
+                    "  .then(function (r) { return r.text(); })" +
+                    "  .then(done)" +
+                    "  .catch(function (e) { done('__FETCH_ERROR__' + e); });", url);
+            String text = result != null ? result.toString() : null;
+            if (text != null && text.startsWith("__FETCH_ERROR__")) {
+                throw new IllegalStateException("页面内请求失败: " + text.substring("__FETCH_ERROR__".length()));
+            }
+            return text;
+        }
+
+        /**
+         * 读取自上次调用以来页面发出的、URL包含指定片段的XHR/JSON响应
+         */
+        public List<CapturedResponse> captureResponses(String urlFragment) {
+            List<CapturedResponse> responses = new ArrayList<>();
+            for (LogEntry entry : driver.manage().logs().get(LogType.PERFORMANCE)) {
+                JSONObject message = JSON.parseObject(entry.getMessage()).getJSONObject("message");
+                if (message == null || !"Network.responseReceived".equals(message.getString("method"))) {
+                    continue;
+                }
+                JSONObject params = message.getJSONObject("params");
+                JSONObject response = params.getJSONObject("response");
+                String url = response.getString("url");
+                String mimeType = response.getString("mimeType");
+                if (url == null || (urlFragment != null && !url.contains(urlFragment))) {
+                    continue;
+                }
+                if (mimeType == null || !mimeType.contains("json")) {
+                    continue;
+                }
+
+                CapturedResponse captured = new CapturedResponse();
+                captured.setUrl(url);
+                captured.setStatus(response.getIntValue("status"));
+                captured.setMimeType(mimeType);
+                try {
+                    Map<String, Object> bodyResult = driver.executeCdpCommand("Network.getResponseBody",
+                            Map.of("requestId", params.getString("requestId")));
+                    String body = (String) bodyResult.get("body");
+                    if (Boolean.TRUE.equals(bodyResult.get("base64Encoded")) && body != null) {
+                        body = new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+                    }
+                    captured.setBody(body);
+                } catch (Exception e) {
+                    log.debug("读取响应体失败: {} - {}", url, e.getMessage());
+                }
+                responses.add(captured);
+            }
+            return responses;
+        }
+
+        boolean isHealthy() {
+            try {
+                driver.getWindowHandle();
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        void reset() {
+            lastUsedAt = System.currentTimeMillis();
+            try {
+                driver.manage().deleteAllCookies();
+                driver.get("about:blank");
+                // 清空未读取的性能日志
+                driver.manage().logs().get(LogType.PERFORMANCE);
+            } catch (Exception e) {
+                log.debug("重置浏览器会话 #{} 失败: {}", id, e.getMessage());
+            }
+        }
+    }
+}
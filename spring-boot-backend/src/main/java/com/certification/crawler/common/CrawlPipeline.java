@@ -0,0 +1,713 @@
+package com.certification.crawler.common;
+
+import com.certification.config.MedcertCrawlerConfig;
+import com.certification.service.crawler.CrawlerBatchMetrics;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import com.certification.service.crawler.CrawlerProgressSink;
+import com.certification.service.monitor.DbCallerContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 爬虫分阶段流水线
+ * 把"抓取 → 解析 → 加工(查重/转换/翻译) → 入库"拆成独立阶段，阶段之间用有界队列连接：
+ * - 抓取下一页时，上一页的数据已经在加工或入库，网络和数据库不再互相等待
+ * - 每个阶段可单独配置并行度（例如翻译阶段多线程，入库阶段单线程批量写入）
+ * - 队列满时上游阻塞（背压），内存占用不随数据量增长
+ * - 记录每个阶段的处理量、失败数、忙碌/阻塞时间和吞吐，可通过 {@link #snapshot()} 查看
+ *
+ * 用法：
+ * <pre>
+ * CrawlPipeline.Stats stats = CrawlPipeline.from("KrRecall", config, emitter -&gt; fetchPages(emitter))
+ *         .map("enrich", 4, this::convert)
+ *         .sink("persist", 50, repository::saveAll);
+ * </pre>
+ *
+ * 单条数据在加工阶段抛出的异常只记为失败，不影响其他数据；数据源抛出的异常在流水线排空后重新抛出。
+ *
+ * 创建流水线的线程绑定的爬虫进度上报器（{@link CrawlerProgressContext}）会绑定到各阶段线程；
+ * 每次入库按批次上报，加工阶段丢弃（已存在）和失败的数据计入同一批次的跳过和失败数。
+ * 入库函数内部已上报批次时（例如使用了 CrawlerDuplicateDetector），流水线只上报加工阶段的部分。
+ * 取消令牌（{@link CrawlerCancellationToken}）同样绑定到各阶段线程；令牌取消后数据源停止抓取，已抓取的数据照常加工入库。
+ * 数据库调用方上下文（{@link DbCallerContext}，含任务执行日志ID）也会绑定到各阶段线程，阶段中的SQL统计归到发起爬取的任务。
+ *
+ * 各阶段线程来自所有流水线共享的有界线程池（最多 {@link #MAX_WORKER_THREADS} 个）。一次执行的所有阶段必须同时运行，
+ * 因此执行前先占用与线程数相同的名额，名额不足时等待其他流水线结束（令牌取消时放弃执行）。
+ * 每次执行有唯一的运行ID，同一爬虫并发执行时指标互不覆盖。
+ *
+ * @param <T> 当前阶段输出的数据类型
+ */
+@Slf4j
+public final class CrawlPipeline<T> {
+
+    /**
+     * 队列结束标记
+     */
+    private static final Object END = new Object();
+
+    /**
+     * 所有流水线共享的阶段线程上限
+     */
+    public static final int MAX_WORKER_THREADS = 32;
+
+    /**
+     * 保留的已结束流水线数量
+     */
+    private static final int MAX_FINISHED_RUNS = 20;
+
+    private static final AtomicLong RUN_SEQUENCE = new AtomicLong();
+
+    private static final AtomicInteger WORKER_SEQUENCE = new AtomicInteger();
+
+    /**
+     * 阶段线程名额，保证一次执行的所有阶段线程能同时运行
+     */
+    private static final Semaphore WORKER_SLOTS = new Semaphore(MAX_WORKER_THREADS, true);
+
+    /**
+     * 阶段线程池：名额保证同时提交的任务不超过线程数，队列只用于衔接刚结束的线程
+     */
+    private static final ExecutorService WORKERS = createWorkers();
+
+    /**
+     * 正在运行和最近结束的流水线（按运行ID）
+     */
+    private static final Map<Long, Run> RECENT = new ConcurrentHashMap<>();
+
+    private final Run run;
+
+    private CrawlPipeline(Run run) {
+        this.run = run;
+    }
+
+    /**
+     * 数据源（抓取阶段），在调用线程之外的独立线程中执行
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        void produce(Emitter<T> emitter) throws Exception;
+    }
+
+    /**
+     * 向下游发送数据，队列满时阻塞
+     */
+    @FunctionalInterface
+    public interface Emitter<T> {
+        /**
+         * @return 流水线已取消时返回false，数据源应停止抓取
+         */
+        boolean emit(T item) throws InterruptedException;
+    }
+
+    /**
+     * 加工阶段函数，返回null表示丢弃该条数据（例如已存在的重复记录）
+     */
+    @FunctionalInterface
+    public interface StageFunction<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    /**
+     * 入库阶段，按批次接收数据
+     */
+    @FunctionalInterface
+    public interface BatchSink<T> {
+        void accept(List<T> batch) throws Exception;
+    }
+
+    /**
+     * 创建流水线
+     *
+     * @param name 流水线名称（用于线程名和指标）
+     * @param config 流水线配置
+     * @param source 数据源
+     */
+    public static <T> CrawlPipeline<T> from(String name, MedcertCrawlerConfig.PipelineConfig config, Source<T> source) {
+        Run run = new Run(name, config != null ? config.getQueueCapacity() : 200);
+        run.stages.add(new StageDef("fetch", 1, source, null, null, 0));
+        return new CrawlPipeline<>(run);
+    }
+
+    /**
+     * 追加加工阶段
+     *
+     * @param stageName 阶段名称
+     * @param parallelism 并行线程数
+     * @param function 加工函数
+     */
+    public <R> CrawlPipeline<R> map(String stageName, int parallelism, StageFunction<T, R> function) {
+        run.stages.add(new StageDef(stageName, Math.max(1, parallelism), null, function, null, 0));
+        return new CrawlPipeline<>(run);
+    }
+
+    /**
+     * 追加入库阶段并执行流水线，阻塞直到所有阶段完成
+     *
+     * @param stageName 阶段名称
+     * @param batchSize 批次大小
+     * @param sink 批量入库函数（单线程调用）
+     * @return 各阶段统计
+     */
+    public Stats sink(String stageName, int batchSize, BatchSink<T> sink) throws Exception {
+        run.stages.add(new StageDef(stageName, 1, null, null, sink, Math.max(1, batchSize)));
+        return run.execute();
+    }
+
+    /**
+     * 取消流水线：数据源停止抓取，尚未入库的数据被丢弃
+     */
+    public void cancel() {
+        run.cancel();
+    }
+
+    public boolean isCancelled() {
+        return run.cancelled.get();
+    }
+
+    /**
+     * 正在运行和最近结束的流水线统计
+     */
+    public static List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Run run : RECENT.values()) {
+            result.add(run.stats().toMap());
+        }
+        result.sort((a, b) -> String.valueOf(b.get("startTime")).compareTo(String.valueOf(a.get("startTime"))));
+        return result;
+    }
+
+    private static ExecutorService createWorkers() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_WORKER_THREADS, MAX_WORKER_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "pipeline-worker-" + WORKER_SEQUENCE.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 记录一次执行，只保留最近结束的 {@link #MAX_FINISHED_RUNS} 次
+     */
+    private static void register(Run run) {
+        RECENT.put(run.id, run);
+        List<Run> finished = new ArrayList<>();
+        for (Run r : RECENT.values()) {
+            if (r.endNanos > 0) {
+                finished.add(r);
+            }
+        }
+        if (finished.size() > MAX_FINISHED_RUNS) {
+            finished.sort((a, b) -> Long.compare(a.id, b.id));
+            for (int i = 0; i < finished.size() - MAX_FINISHED_RUNS; i++) {
+                RECENT.remove(finished.get(i).id);
+            }
+        }
+    }
+
+    /**
+     * 阶段定义
+     */
+    private static class StageDef {
+        final String name;
+        final int parallelism;
+        final Source<?> source;
+        final StageFunction<?, ?> function;
+        final BatchSink<?> sink;
+        final int batchSize;
+        final StageMetrics metrics;
+
+        StageDef(String name, int parallelism, Source<?> source, StageFunction<?, ?> function, BatchSink<?> sink, int batchSize) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.source = source;
+            this.function = function;
+            this.sink = sink;
+            this.batchSize = batchSize;
+            this.metrics = new StageMetrics(name, parallelism);
+        }
+    }
+
+    /**
+     * 一次流水线执行
+     */
+    private static class Run {
+        final long id = RUN_SEQUENCE.incrementAndGet();
+        final String name;
+        final int queueCapacity;
+        final List<StageDef> stages = new ArrayList<>();
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final AtomicReference<Exception> sourceFailure = new AtomicReference<>();
+        final CrawlerProgressSink progressSink = CrawlerProgressContext.current();
+        final CrawlerCancellationToken cancellationToken = CrawlerCancellationToken.current();
+        final DbCallerContext.Frame callerFrame = DbCallerContext.current();
+        long reportedDropped;
+        long reportedFailed;
+        long lastReportNanos;
+        /**
+         * 正在执行本次流水线阶段的线程（线程池线程，结束后移除，避免中断其他任务）
+         */
+        final Set<Thread> workerThreads = new HashSet<>();
+        volatile LocalDateTime startTime;
+        volatile long startNanos;
+        volatile long endNanos;
+        volatile List<BlockingQueue<Object>> queues = Collections.emptyList();
+
+        Run(String name, int queueCapacity) {
+            this.name = name;
+            this.queueCapacity = Math.max(1, queueCapacity);
+        }
+
+        void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                log.info("流水线 {}#{} 已取消", name, id);
+            }
+        }
+
+        Stats execute() throws Exception {
+            int totalWorkers = stages.stream().mapToInt(s -> s.parallelism).sum();
+            if (!acquireSlots(totalWorkers)) {
+                endNanos = System.nanoTime();
+                log.info("流水线 {}#{} 未执行: {}", name, id, cancellationToken.getCancelReason());
+                return stats();
+            }
+            startTime = LocalDateTime.now();
+            startNanos = System.nanoTime();
+            lastReportNanos = startNanos;
+            register(this);
+
+            // queues[i] 连接 stages[i] 和 stages[i+1]
+            List<BlockingQueue<Object>> created = new ArrayList<>();
+            for (int i = 0; i < stages.size() - 1; i++) {
+                created.add(new ArrayBlockingQueue<>(queueCapacity));
+            }
+            queues = created;
+
+            CountDownLatch finished = new CountDownLatch(totalWorkers);
+            for (int i = 0; i < stages.size(); i++) {
+                StageDef stage = stages.get(i);
+                AtomicInteger remaining = new AtomicInteger(stage.parallelism);
+                for (int w = 0; w < stage.parallelism; w++) {
+                    WORKERS.execute(createWorker(i, stage, remaining, finished));
+                }
+            }
+
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                cancel();
+                interruptWorkers();
+                Thread.currentThread().interrupt();
+                throw e;
+            } finally {
+                endNanos = System.nanoTime();
+            }
+
+            // 最后一个批次之后加工阶段丢弃和失败的数据
+            reportBatch(0, 0, false);
+
+            Stats stats = stats();
+            log.info("流水线 {}#{} 完成: {}", name, id, stats.summary());
+
+            Exception failure = sourceFailure.get();
+            if (failure != null) {
+                throw failure;
+            }
+            return stats;
+        }
+
+        /**
+         * 占用阶段线程名额，名额不足时等待；令牌取消时放弃
+         *
+         * @return 是否已占用
+         */
+        private boolean acquireSlots(int count) throws InterruptedException {
+            if (count > MAX_WORKER_THREADS) {
+                throw new IllegalStateException("流水线 " + name + " 需要 " + count + " 个阶段线程，超过上限 " + MAX_WORKER_THREADS);
+            }
+            while (!WORKER_SLOTS.tryAcquire(count, 1, TimeUnit.SECONDS)) {
+                if (cancellationToken.isCancelled()) {
+                    cancel();
+                    return false;
+                }
+                log.debug("流水线 {}#{} 等待阶段线程名额: 需要 {}，可用 {}", name, id, count, WORKER_SLOTS.availablePermits());
+            }
+            return true;
+        }
+
+        /**
+         * 中断所有阶段线程
+         */
+        private void interruptWorkers() {
+            synchronized (workerThreads) {
+                workerThreads.forEach(Thread::interrupt);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Runnable createWorker(int index, StageDef stage, AtomicInteger remaining, CountDownLatch finished) {
+            BlockingQueue<Object> in = index > 0 ? queues.get(index - 1) : null;
+            BlockingQueue<Object> out = index < queues.size() ? queues.get(index) : null;
+            int downstreamWorkers = index + 1 < stages.size() ? stages.get(index + 1).parallelism : 0;
+            StageMetrics metrics = stage.metrics;
+
+            return () -> {
+                synchronized (workerThreads) {
+                    workerThreads.add(Thread.currentThread());
+                }
+                CrawlerProgressSink previousSink = CrawlerProgressContext.bind(progressSink);
+                CrawlerCancellationToken previousToken = CrawlerCancellationToken.bind(cancellationToken);
+                DbCallerContext.Frame previousFrame = DbCallerContext.bind(callerFrame);
+                try {
+                    if (stage.source != null) {
+                        runSource((Source) stage.source, out, metrics);
+                    } else if (stage.function != null) {
+                        runFunction((StageFunction) stage.function, in, out, metrics);
+                    } else {
+                        runSink((BatchSink) stage.sink, stage.batchSize, in, metrics);
+                    }
+                } catch (InterruptedException e) {
+                    // 任一阶段被中断后整条流水线停止，避免上游阻塞在已无人消费的队列上
+                    cancel();
+                    interruptWorkers();
+                } finally {
+                    CrawlerProgressContext.restore(previousSink);
+                    CrawlerCancellationToken.restore(previousToken);
+                    DbCallerContext.restore(previousFrame);
+                    synchronized (workerThreads) {
+                        workerThreads.remove(Thread.currentThread());
+                    }
+                    // 本阶段最后一个线程结束时通知下游
+                    if (remaining.decrementAndGet() == 0 && out != null) {
+                        for (int i = 0; i < downstreamWorkers; i++) {
+                            putQuietly(out, END);
+                        }
+                    }
+                    WORKER_SLOTS.release();
+                    finished.countDown();
+                }
+            };
+        }
+
+        private void runSource(Source<Object> source, BlockingQueue<Object> out, StageMetrics metrics) {
+            Emitter<Object> emitter = item -> {
+                if (cancelled.get() || cancellationToken.isCancelled()) {
+                    return false;
+                }
+                if (item == null) {
+                    return true;
+                }
+                metrics.out.incrementAndGet();
+                long t0 = System.nanoTime();
+                out.put(item);
+                metrics.blockedNanos.addAndGet(System.nanoTime() - t0);
+                return !cancelled.get() && !cancellationToken.isCancelled();
+            };
+            long t0 = System.nanoTime();
+            try {
+                source.produce(emitter);
+            } catch (InterruptedException e) {
+                if (cancellationToken.isCancelled()) {
+                    // 可取消的等待被令牌唤醒：只停止抓取，已抓取的数据继续加工入库
+                    log.info("流水线 {} 数据源已停止: {}", name, cancellationToken.getCancelReason());
+                } else {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                }
+            } catch (Exception e) {
+                metrics.failed.incrementAndGet();
+                sourceFailure.set(e);
+                log.error("流水线 {} 数据源执行失败: {}", name, e.getMessage());
+            } finally {
+                // 抓取阶段的忙碌时间不含等待下游的时间
+                metrics.busyNanos.addAndGet(System.nanoTime() - t0 - metrics.blockedNanos.get());
+            }
+        }
+
+        private void runFunction(StageFunction<Object, Object> function, BlockingQueue<Object> in,
+                                 BlockingQueue<Object> out, StageMetrics metrics) throws InterruptedException {
+            while (true) {
+                Object item = in.take();
+                if (item == END) {
+                    return;
+                }
+                metrics.in.incrementAndGet();
+                if (cancelled.get()) {
+                    metrics.dropped.incrementAndGet();
+                    continue;
+                }
+                Object result;
+                long t0 = System.nanoTime();
+                try {
+                    result = function.apply(item);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    metrics.failed.incrementAndGet();
+                    log.warn("流水线 {} 阶段 {} 处理失败: {}", name, metrics.name, e.getMessage());
+                    continue;
+                } finally {
+                    metrics.busyNanos.addAndGet(System.nanoTime() - t0);
+                }
+                if (result == null) {
+                    metrics.dropped.incrementAndGet();
+                    continue;
+                }
+                metrics.out.incrementAndGet();
+                long t1 = System.nanoTime();
+                out.put(result);
+                metrics.blockedNanos.addAndGet(System.nanoTime() - t1);
+            }
+        }
+
+        private void runSink(BatchSink<Object> sink, int batchSize, BlockingQueue<Object> in,
+                             StageMetrics metrics) throws InterruptedException {
+            List<Object> buffer = new ArrayList<>(batchSize);
+            while (true) {
+                Object item = in.take();
+                if (item == END) {
+                    break;
+                }
+                metrics.in.incrementAndGet();
+                if (cancelled.get()) {
+                    metrics.dropped.incrementAndGet();
+                    continue;
+                }
+                buffer.add(item);
+                if (buffer.size() >= batchSize) {
+                    flush(sink, buffer, metrics);
+                }
+            }
+            if (!buffer.isEmpty()) {
+                if (cancelled.get()) {
+                    metrics.dropped.addAndGet(buffer.size());
+                } else {
+                    flush(sink, buffer, metrics);
+                }
+            }
+        }
+
+        private void flush(BatchSink<Object> sink, List<Object> buffer, StageMetrics metrics) {
+            List<Object> batch = new ArrayList<>(buffer);
+            buffer.clear();
+            // 记录入库函数内部是否自行上报了本批次
+            AtomicBoolean nestedReport = new AtomicBoolean(false);
+            CrawlerProgressSink previousSink = CrawlerProgressContext.bind(new CrawlerProgressSink() {
+                @Override
+                public void onBatch(CrawlerBatchMetrics reported) {
+                    nestedReport.set(true);
+                    progressSink.onBatch(reported);
+                }
+
+                @Override
+                public void onPage(int currentPage, Integer totalPages) {
+                    progressSink.onPage(currentPage, totalPages);
+                }
+
+                @Override
+                public void onError(String message) {
+                    progressSink.onError(message);
+                }
+            });
+            boolean success = false;
+            long t0 = System.nanoTime();
+            try {
+                sink.accept(batch);
+                metrics.out.addAndGet(batch.size());
+                success = true;
+            } catch (Exception e) {
+                metrics.failed.addAndGet(batch.size());
+                log.error("流水线 {} 阶段 {} 批次写入失败({}条): {}", name, metrics.name, batch.size(), e.getMessage());
+            } finally {
+                long elapsedNanos = System.nanoTime() - t0;
+                metrics.busyNanos.addAndGet(elapsedNanos);
+                CrawlerProgressContext.restore(previousSink);
+                reportBatch(batch.size(), success ? batch.size() : 0, nestedReport.get());
+            }
+        }
+
+        /**
+         * 上报一个批次：入库的数据加上次上报以来加工阶段丢弃（计为跳过）和失败的数据
+         *
+         * @param batchSize 入库批次大小
+         * @param saved 入库成功数
+         * @param nestedReport 入库函数已自行上报该批次，只上报加工阶段的部分
+         */
+        private synchronized void reportBatch(int batchSize, int saved, boolean nestedReport) {
+            long dropped = 0;
+            long failed = 0;
+            for (int i = 1; i < stages.size() - 1; i++) {
+                dropped += stages.get(i).metrics.dropped.get();
+                failed += stages.get(i).metrics.failed.get();
+            }
+            int droppedDelta = (int) (dropped - reportedDropped);
+            int failedDelta = (int) (failed - reportedFailed);
+            reportedDropped = dropped;
+            reportedFailed = failed;
+
+            int batchFailed = nestedReport ? 0 : batchSize - saved;
+            int fetched = droppedDelta + failedDelta + (nestedReport ? 0 : batchSize);
+            if (fetched == 0) {
+                return;
+            }
+            // 批次耗时按距上次上报的时间计算，与 CrawlerDuplicateDetector 一致；入库函数已上报的批次不重复计时
+            long now = System.nanoTime();
+            long elapsedMs = nestedReport ? 0 : (now - lastReportNanos) / 1_000_000;
+            lastReportNanos = now;
+            progressSink.onBatch(CrawlerBatchMetrics.of(fetched, nestedReport ? 0 : saved, droppedDelta, failedDelta + batchFailed)
+                    .setElapsedMs(elapsedMs));
+        }
+
+        private void putQuietly(BlockingQueue<Object> queue, Object item) {
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                // 下游线程同样会被中断，不需要再等待
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Stats stats() {
+            long end = endNanos > 0 ? endNanos : System.nanoTime();
+            long elapsedNanos = startNanos > 0 ? end - startNanos : 0;
+            List<Map<String, Object>> stageStats = new ArrayList<>();
+            for (int i = 0; i < stages.size(); i++) {
+                int queued = i > 0 && i - 1 < queues.size() ? queues.get(i - 1).size() : 0;
+                stageStats.add(stages.get(i).metrics.toMap(elapsedNanos, queued));
+            }
+            return new Stats(id, name, startTime, elapsedNanos / 1_000_000, endNanos == 0, cancelled.get(), stageStats);
+        }
+    }
+
+    /**
+     * 阶段指标
+     */
+    private static class StageMetrics {
+        final String name;
+        final int parallelism;
+        final AtomicLong in = new AtomicLong();
+        final AtomicLong out = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+        final AtomicLong blockedNanos = new AtomicLong();
+
+        StageMetrics(String name, int parallelism) {
+            this.name = name;
+            this.parallelism = parallelism;
+        }
+
+        Map<String, Object> toMap(long elapsedNanos, int queued) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            map.put("stage", name);
+            map.put("parallelism", parallelism);
+            map.put("in", in.get());
+            map.put("out", out.get());
+            map.put("dropped", dropped.get());
+            map.put("failed", failed.get());
+            map.put("queued", queued);
+            map.put("throughputPerSecond", seconds > 0 ? Math.round(out.get() / seconds * 100) / 100.0 : 0.0);
+            // 忙碌率：处理数据的时间占（运行时间 × 线程数）的比例，接近1说明该阶段是瓶颈
+            map.put("utilization", elapsedNanos > 0
+                    ? Math.round(busyNanos.get() * 100.0 / (elapsedNanos * (double) parallelism)) / 100.0 : 0.0);
+            map.put("blockedMs", blockedNanos.get() / 1_000_000);
+            return map;
+        }
+    }
+
+    /**
+     * 流水线执行统计
+     */
+    public static class Stats {
+        private final long runId;
+        private final String pipeline;
+        private final LocalDateTime startTime;
+        private final long elapsedMs;
+        private final boolean running;
+        private final boolean cancelled;
+        private final List<Map<String, Object>> stages;
+
+        Stats(long runId, String pipeline, LocalDateTime startTime, long elapsedMs, boolean running, boolean cancelled,
+              List<Map<String, Object>> stages) {
+            this.runId = runId;
+            this.pipeline = pipeline;
+            this.startTime = startTime;
+            this.elapsedMs = elapsedMs;
+            this.running = running;
+            this.cancelled = cancelled;
+            this.stages = stages;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public List<Map<String, Object>> getStages() {
+            return stages;
+        }
+
+        /**
+         * 指定阶段的输出数量
+         */
+        public long getOutput(String stageName) {
+            for (Map<String, Object> stage : stages) {
+                if (stageName.equals(stage.get("stage"))) {
+                    return (Long) stage.get("out");
+                }
+            }
+            return 0;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("runId", runId);
+            map.put("pipeline", pipeline);
+            map.put("startTime", startTime != null ? startTime.toString() : null);
+            map.put("elapsedMs", elapsedMs);
+            map.put("running", running);
+            map.put("cancelled", cancelled);
+            map.put("stages", stages);
+            return map;
+        }
+
+        String summary() {
+            StringBuilder sb = new StringBuilder().append("耗时 ").append(elapsedMs).append("ms");
+            for (Map<String, Object> stage : stages) {
+                sb.append(" | ").append(stage.get("stage"))
+                        .append(" out=").append(stage.get("out"))
+                        .append(" failed=").append(stage.get("failed"))
+                        .append(" ").append(stage.get("throughputPerSecond")).append("/s")
+                        .append(" util=").append(stage.get("utilization"));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.certification.crawler.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 爬取结果的流式接收器
+ * 爬虫每抓取完一页（或一个批次）就交给接收器处理，不再把全部结果和正文留在内存中直到爬取结束，
+ * 调用方可以边爬边查重、入库，内存占用只与单批大小有关。
+ *
+ * 用法：
+ * <pre>
+ * sgsCrawler.crawlWithFilters(keyword, count, newsType, dateRange, topics, batch -&gt; {
+ *     crawlerDataService.safeSaveCrawlerDataList(convert(batch), 30);
+ *     return true;
+ * });
+ * </pre>
+ * 需要把抓取和入库放在不同线程时，用 {@link #toEmitter} 接到 {@link CrawlPipeline} 的有界队列上，
+ * 队列满时爬虫线程阻塞（背压）。
+ *
+ * 接收器在爬虫线程中同步调用；批次列表在返回后可能被爬虫复用，需要保留时自行复制。
+ *
+ * @param <T> 结果类型
+ */
+@FunctionalInterface
+public interface CrawlResultSink<T> {
+
+    /**
+     * 默认批次大小，用于把一次性返回的结果列表分批交给接收器
+     */
+    int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * 接收一批结果
+     *
+     * @param batch 本批结果，不为空
+     * @return 返回false表示不再需要更多结果，爬虫应在当前批次后停止
+     * @throws Exception 处理异常，爬虫不捕获，直接向上抛出
+     */
+    boolean accept(List<T> batch) throws Exception;
+
+    /**
+     * 把已经完整返回的结果列表分批交给接收器，用于尚未实现逐页抓取的爬虫
+     *
+     * @param results 结果列表，为null时不做处理
+     * @param batchSize 批次大小
+     * @param sink 接收器
+     */
+    static <T> void deliver(List<T> results, int batchSize, CrawlResultSink<T> sink) throws Exception {
+        if (results == null || results.isEmpty()) {
+            return;
+        }
+        int size = Math.max(1, batchSize);
+        for (int i = 0; i < results.size(); i += size) {
+            List<T> batch = new ArrayList<>(results.subList(i, Math.min(i + size, results.size())));
+            if (!sink.accept(batch)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 收集全部结果的接收器，供列表形式的爬取方法复用流式实现
+     */
+    static <T> CrawlResultSink<T> collectTo(List<T> target) {
+        return batch -> {
+            target.addAll(batch);
+            return true;
+        };
+    }
+
+    /**
+     * 逐条发送到流水线的接收器，流水线取消时通知爬虫停止
+     */
+    static <T> CrawlResultSink<T> toEmitter(CrawlPipeline.Emitter<T> emitter) {
+        return batch -> {
+            for (T item : batch) {
+                if (!emitter.emit(item)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+}
@@ -0,0 +1,292 @@
+package com.certification.crawler.common;
+
+import com.certification.config.MedcertCrawlerConfig;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 爬虫HTTP条件请求磁盘缓存
+ * 记录每个URL的ETag、Last-Modified和响应体哈希，再次请求时携带If-None-Match/If-Modified-Since，
+ * 响应为304或响应体哈希未变化时标记为"未变化"，调用方可直接跳过解析。
+ *
+ * 缓存条目只有在调用方处理成功后通过 {@link #commit(CachedPage)} 写入，
+ * 避免保存失败时下次运行误判为"未变化"而漏数据。
+ *
+ * 列表页遇到"未变化"即停止的增量爬虫，还需要通过 {@link #beginRun(String)} / {@link #endRun(String, boolean)}
+ * 记录上次运行是否完整：上次中途失败时，已提交的前几页会显示未变化，但其后的页面从未处理过，
+ * 此时不能提前停止，只能跳过未变化的页面继续向后翻页。
+ */
+@Slf4j
+@Component
+public class HttpResponseCache {
+
+    private static final String KEY_URL = "url";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+    private static final String KEY_BODY_HASH = "bodyHash";
+    private static final String KEY_RUN_STATUS = "runStatus";
+    private static final String RUN_COMPLETE = "COMPLETE";
+
+    /**
+     * 连续多少页未变化才允许提前停止（单页未变化可能只是该页恰好没有新增）
+     */
+    public static final int UNCHANGED_PAGES_TO_STOP = 2;
+
+    @Autowired
+    private MedcertCrawlerConfig crawlerConfig;
+
+    /**
+     * 内存中的缓存条目（key为URL的SHA-256），首次访问时从磁盘加载
+     */
+    private final Map<String, Properties> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 条件请求获取页面
+     * 调用方负责设置User-Agent、请求头、超时等，这里只追加条件请求头并执行
+     *
+     * @param connection 已配置好的Jsoup连接
+     * @return 请求结果，未变化时 document 为 null
+     * @throws IOException 网络异常或HTTP错误状态
+     */
+    public CachedPage fetch(Connection connection) throws IOException {
+        String url = connection.request().url().toExternalForm();
+        HttpUtils.beforeRequest(url);
+        String key = sha256(url.getBytes(StandardCharsets.UTF_8));
+        Properties cached = isEnabled() ? loadEntry(key) : null;
+
+        if (cached != null) {
+            String etag = cached.getProperty(KEY_ETAG);
+            String lastModified = cached.getProperty(KEY_LAST_MODIFIED);
+            if (etag != null && !etag.isEmpty()) {
+                connection.header("If-None-Match", etag);
+            }
+            if (lastModified != null && !lastModified.isEmpty()) {
+                connection.header("If-Modified-Since", lastModified);
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        Connection.Response response = connection
+                .ignoreHttpErrors(true)
+                .followRedirects(true)
+                .execute();
+        byte[] body = response.bodyAsBytes();
+        HttpUtils.afterResponse(startNanos, body.length);
+
+        int status = response.statusCode();
+        if (status == 304 && cached != null) {
+            log.debug("HTTP缓存命中(304): {}", url);
+            return new CachedPage(key, url, status, null, true,
+                    cached.getProperty(KEY_ETAG), cached.getProperty(KEY_LAST_MODIFIED), cached.getProperty(KEY_BODY_HASH));
+        }
+        if (status < 200 || status >= 300) {
+            throw new HttpStatusException("HTTP error fetching URL", status, url);
+        }
+
+        String bodyHash = sha256(body);
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+
+        if (cached != null && bodyHash.equals(cached.getProperty(KEY_BODY_HASH))) {
+            log.debug("HTTP缓存命中(内容未变化): {}", url);
+            return new CachedPage(key, url, status, null, true, etag, lastModified, bodyHash);
+        }
+
+        Document document = Jsoup.parse(new ByteArrayInputStream(body), response.charset(), url);
+        return new CachedPage(key, url, status, document, false, etag, lastModified, bodyHash);
+    }
+
+    /**
+     * 处理成功后写入缓存条目
+     */
+    public void commit(CachedPage page) {
+        if (page == null || !isEnabled()) {
+            return;
+        }
+
+        Properties entry = new Properties();
+        entry.setProperty(KEY_URL, page.getUrl());
+        entry.setProperty(KEY_BODY_HASH, page.getBodyHash());
+        if (page.getEtag() != null) {
+            entry.setProperty(KEY_ETAG, page.getEtag());
+        }
+        if (page.getLastModified() != null) {
+            entry.setProperty(KEY_LAST_MODIFIED, page.getLastModified());
+        }
+
+        store(page.getKey(), entry);
+    }
+
+    /**
+     * 批量写入缓存条目
+     */
+    public void commitAll(Collection<CachedPage> pages) {
+        if (pages == null) {
+            return;
+        }
+        for (CachedPage page : pages) {
+            commit(page);
+        }
+    }
+
+    /**
+     * 删除指定URL的缓存条目，下次请求将完整下载
+     */
+    public void invalidate(String url) {
+        String key = sha256(url.getBytes(StandardCharsets.UTF_8));
+        entries.remove(key);
+        try {
+            Files.deleteIfExists(Paths.get(crawlerConfig.getHttpCache().getDirectory(), key + ".properties"));
+        } catch (IOException e) {
+            log.warn("删除HTTP缓存失败: {} - {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * 开始一次增量运行，并标记为运行中
+     *
+     * @param runName 运行名称（爬虫名+参数，区分不同的列表）
+     * @return 上一次同名运行是否完整结束；缓存未启用或无记录时返回 false
+     */
+    public boolean beginRun(String runName) {
+        if (!isEnabled()) {
+            return false;
+        }
+        String key = runKey(runName);
+        Properties previous = loadEntry(key);
+        boolean previousComplete = previous != null && RUN_COMPLETE.equals(previous.getProperty(KEY_RUN_STATUS));
+
+        Properties entry = new Properties();
+        entry.setProperty(KEY_URL, runName);
+        entry.setProperty(KEY_RUN_STATUS, "RUNNING");
+        store(key, entry);
+        return previousComplete;
+    }
+
+    /**
+     * 结束一次增量运行
+     *
+     * @param complete 是否已处理完所有需要处理的页面且全部保存成功
+     */
+    public void endRun(String runName, boolean complete) {
+        if (!isEnabled()) {
+            return;
+        }
+        Properties entry = new Properties();
+        entry.setProperty(KEY_URL, runName);
+        entry.setProperty(KEY_RUN_STATUS, complete ? RUN_COMPLETE : "FAILED");
+        store(runKey(runName), entry);
+    }
+
+    private static String runKey(String runName) {
+        return "run-" + sha256(runName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 原子写入缓存文件（先写临时文件再替换）
+     */
+    private void store(String key, Properties entry) {
+        try {
+            Path dir = Paths.get(crawlerConfig.getHttpCache().getDirectory());
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                entry.store(out, null);
+            }
+            Files.move(tmp, dir.resolve(key + ".properties"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            entries.put(key, entry);
+        } catch (IOException e) {
+            log.warn("写入HTTP缓存失败: {} - {}", entry.getProperty(KEY_URL), e.getMessage());
+        }
+    }
+
+    private boolean isEnabled() {
+        return crawlerConfig != null && crawlerConfig.getHttpCache().isEnabled();
+    }
+
+    private Properties loadEntry(String key) {
+        Properties entry = entries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+
+        Path file = Paths.get(crawlerConfig.getHttpCache().getDirectory(), key + ".properties");
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        entry = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            entry.load(in);
+        } catch (IOException e) {
+            log.warn("读取HTTP缓存失败: {} - {}", file, e.getMessage());
+            return null;
+        }
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(data);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 条件请求结果
+     */
+    @Getter
+    public static class CachedPage {
+        private final String key;
+        private final String url;
+        private final int statusCode;
+        private final Document document;
+        private final boolean unchanged;
+        private final String etag;
+        private final String lastModified;
+        private final String bodyHash;
+
+        CachedPage(String key, String url, int statusCode, Document document, boolean unchanged,
+                   String etag, String lastModified, String bodyHash) {
+            this.key = key;
+            this.url = url;
+            this.statusCode = statusCode;
+            this.document = document;
+            this.unchanged = unchanged;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.bodyHash = bodyHash;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.certification.crawler.common;
 
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.springframework.stereotype.Component;
@@ -65,19 +68,18 @@ public class HttpUtils {
         
         for (int i = 0; i <= retryCount; i++) {
             try {
-                return Jsoup.connect(url)
+                return execute(Jsoup.connect(url)
                         .userAgent(userAgent)
                         .timeout(timeout)
                         .followRedirects(true)
-                        .ignoreHttpErrors(true)
-                        .get();
+                        .ignoreHttpErrors(true)).parse();
             } catch (IOException e) {
                 lastException = e;
                 if (i < retryCount) {
                     try {
-                        Thread.sleep(1000 * (i + 1)); // 递增延迟
+                        CrawlerCancellationToken.sleep(1000 * (i + 1)); // 递增延迟
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         throw new IOException("请求被中断", ie);
                     }
                 }
@@ -108,13 +110,12 @@ public class HttpUtils {
      * @throws IOException 网络异常
      */
     public Document getDocumentWithHeaders(String url, Map<String, String> headers, String userAgent, int timeout) throws IOException {
-        return Jsoup.connect(url)
+        return execute(Jsoup.connect(url)
                 .headers(headers)
                 .userAgent(userAgent)
                 .timeout(timeout)
                 .followRedirects(true)
-                .ignoreHttpErrors(true)
-                .get();
+                .ignoreHttpErrors(true)).parse();
     }
     
     /**
@@ -138,13 +139,13 @@ public class HttpUtils {
      * @throws IOException 网络异常
      */
     public Document postDocument(String url, Map<String, String> data, String userAgent, int timeout) throws IOException {
-        return Jsoup.connect(url)
+        return execute(Jsoup.connect(url)
                 .data(data)
                 .userAgent(userAgent)
                 .timeout(timeout)
                 .followRedirects(true)
                 .ignoreHttpErrors(true)
-                .post();
+                .method(Connection.Method.POST)).parse();
     }
     
     /**
@@ -182,12 +183,11 @@ public class HttpUtils {
      * @throws IOException 网络异常
      */
     public int getResponseCode(String url) throws IOException {
-        return Jsoup.connect(url)
+        return execute(Jsoup.connect(url)
                 .userAgent(DEFAULT_USER_AGENT)
                 .timeout(DEFAULT_TIMEOUT)
                 .followRedirects(false)
-                .ignoreHttpErrors(true)
-                .execute()
+                .ignoreHttpErrors(true))
                 .statusCode();
     }
     
@@ -201,14 +201,15 @@ public class HttpUtils {
      * @throws IOException 网络异常
      */
     public String postJson(String url, String jsonData, Map<String, String> headers, int timeout) throws IOException {
-        return Jsoup.connect(url)
+        return execute(Jsoup.connect(url)
                 .headers(headers)
                 .requestBody(jsonData)
                 .userAgent(DEFAULT_USER_AGENT)
                 .timeout(timeout)
                 .followRedirects(true)
                 .ignoreHttpErrors(true)
-                .post()
+                .method(Connection.Method.POST))
+                .parse()
                 .body()
                 .text();
     }
@@ -224,5 +225,41 @@ public class HttpUtils {
     public String postJson(String url, String jsonData, Map<String, String> headers) throws IOException {
         return postJson(url, jsonData, headers, DEFAULT_TIMEOUT);
     }
-}
+    
+    /**
+     * 执行Jsoup请求并读完响应体，请求前后分别调用 {@link #beforeRequest} 和 {@link #afterResponse}
+     * @param connection 已配置好的Jsoup连接
+     * @return 已读取响应体的响应，可再调用 parse()
+     * @throws IOException 网络异常或任务已停止
+     */
+    public static Connection.Response execute(Connection connection) throws IOException {
+        beforeRequest(connection.request().url().toExternalForm());
+        long startNanos = System.nanoTime();
+        Connection.Response response = connection.execute();
+        afterResponse(startNanos, response.bodyAsBytes().length);
+        return response;
+    }
 
+    /**
+     * 记录一次请求，当前爬虫任务已取消或超出请求预算时不再发出请求；
+     * 请求前经过调度队列的让出检查点，高优先级任务等待同一站点名额时先让出。
+     * 不通过本类发请求的爬虫（FDA、EUDAMED等API客户端）在每次请求前调用
+     * @param url 目标URL
+     * @throws IOException 任务已停止
+     */
+    public static void beforeRequest(String url) throws IOException {
+        CrawlerProgressContext.yieldPoint();
+        if (!CrawlerCancellationToken.current().recordRequest()) {
+            throw new IOException("爬虫任务已停止（" + CrawlerCancellationToken.current().getCancelReason() + "），不再请求: " + url);
+        }
+    }
+
+    /**
+     * 记录一次请求的响应字节数和耗时，累计到当前爬虫执行的批次指标中
+     * @param startNanos 发出请求前的 System.nanoTime()
+     * @param bytes 响应体字节数
+     */
+    public static void afterResponse(long startNanos, long bytes) {
+        CrawlerProgressContext.recordResponse(bytes, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+}
@@ -1,5 +1,6 @@
 package com.certification.crawler.countrydata.cn;
 
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -153,7 +154,7 @@ public class cn_registration {
                 page++;
                 
                 // 添加延迟避免请求过于频繁
-                TimeUnit.SECONDS.sleep(2);
+                CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(2));
             }
         }
         
@@ -1,5 +1,7 @@
 package com.certification.crawler.countrydata.customs.base;
 
+import com.certification.crawler.common.CrawlResultSink;
+
 import java.util.List;
 
 /**
@@ -42,6 +44,39 @@ public interface BaseCustomsCrawler {
      */
     List<CustomsCrawlerResult> crawlByKeyword(String keyword, int totalCount) throws Exception;
     
+    /**
+     * 流式爬取最新海关公告，每抓取一批就交给接收器处理
+     * 默认实现先完整爬取再分批交付，逐页抓取的爬虫应覆盖此方法
+     * @param totalCount 需要爬取的数量
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawlLatestAnnouncements(int totalCount, CrawlResultSink<CustomsCrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawlLatestAnnouncements(totalCount), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
+    /**
+     * 流式爬取指定日期的海关信息
+     * @param startDate 开始日期 (yyyy-MM-dd)
+     * @param endDate 结束日期 (yyyy-MM-dd)
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawlByDateRange(String startDate, String endDate, CrawlResultSink<CustomsCrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawlByDateRange(startDate, endDate), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
+    /**
+     * 流式爬取指定关键词的海关信息
+     * @param keyword 搜索关键词
+     * @param totalCount 需要爬取的数量
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawlByKeyword(String keyword, int totalCount, CrawlResultSink<CustomsCrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawlByKeyword(keyword, totalCount), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
     /**
      * 获取国家代码
      * @return 国家代码 (US, CN, KR, EU, JP, AE)
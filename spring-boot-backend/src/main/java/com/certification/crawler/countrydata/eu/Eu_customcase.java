@@ -1,10 +1,14 @@
 package com.certification.crawler.countrydata.eu;
 
 import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.CrawlPipeline;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CustomsCase;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.exception.AllDataDuplicateException;
 import com.certification.repository.common.CustomsCaseRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -18,6 +22,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 @Slf4j
@@ -40,95 +45,49 @@ public class Eu_customcase {
      * @param batchSize 批次大小
      * @return 保存的记录数量
      */
-    @Transactional
     public int crawlAndSaveToDatabase(String taricCode, int maxRecords, int batchSize) {
         log.info("🚀 开始爬取TARIC编码 {} 的商品编码信息...", taricCode);
         log.info("📊 批次大小: {}，最大记录数: {}", batchSize, maxRecords == -1 ? "所有数据" : maxRecords);
         log.info("🌐 目标URL: {}", buildUrl(taricCode));
         
-        boolean crawlAll = (maxRecords == -1);
         int actualBatchSize = Math.min(batchSize, crawlerConfig.getCrawl().getApiLimits().getEuCustomCaseMaxPerPage());
         
-        int totalSaved = 0;
-        int consecutiveDuplicateBatches = 0;
-        List<Map<String, String>> currentBatch = new ArrayList<>();
+        AtomicInteger totalSaved = new AtomicInteger();
+        AtomicInteger consecutiveDuplicateBatches = new AtomicInteger();
         
         try {
-            String url = buildUrl(taricCode);
-            Document doc = fetchDocumentWithRetry(url);
-            
-            // 解析商品编码条目
-            Elements codeElements = doc.select(".nomenclaturecode");
-            System.out.println("📋 发现 " + codeElements.size() + " 个商品编码条目");
+            // 解析后的条目逐条查重、转换，已存在的记录以空值传到入库阶段，用于判断连续重复批次
+            CrawlPipeline<Optional<CustomsCase>> pipeline = CrawlPipeline.<Map<String, String>>from("Eu_customcase", crawlerConfig.getPipeline(),
+                            emitter -> fetchCodeData(taricCode, emitter))
+                    .map("enrich", crawlerConfig.getPipeline().getEnrichParallelism(), rawData -> {
+                        if (checkIfCustomsCaseExists(rawData.get("hsCode"), rawData.get("description"))) {
+                            System.out.println("🔄 跳过重复记录: " + rawData.get("hsCode") + " - " + rawData.get("description"));
+                            return Optional.<CustomsCase>empty();
+                        }
+                        CustomsCase customsCase = createCustomsCaseFromData(rawData);
+                        if (customsCase == null) {
+                            throw new IllegalStateException("创建CustomsCase实体失败: " + rawData.get("hsCode"));
+                        }
+                        return Optional.of(customsCase);
+                    });
             
-            // 如果没有找到nomenclaturecode元素，尝试其他选择器
-            if (codeElements.isEmpty()) {
-                System.out.println("🔍 尝试其他选择器...");
+            pipeline.sink("persist", actualBatchSize, batch -> {
+                int savedInBatch = saveBatchToDatabase(batch);
+                totalSaved.addAndGet(savedInBatch);
                 
-                // 尝试查找包含商品编码的其他元素
-                Elements allDivs = doc.select("div");
-                System.out.println("🔍 页面中总共有 " + allDivs.size() + " 个div元素");
-                
-                // 查找包含数字编码的元素
-                Elements elementsWithNumbers = doc.select("div:contains(9018)");
-                System.out.println("🔍 包含9018的元素数量: " + elementsWithNumbers.size());
-                
-                // 查找包含"code"类的元素
-                Elements codeElements2 = doc.select(".code");
-                System.out.println("🔍 找到 " + codeElements2.size() + " 个.code元素");
-                
-                // 查找包含"nomenclature"的元素
-                Elements nomenclatureElements = doc.select("*:contains(nomenclature)");
-                System.out.println("🔍 包含nomenclature的元素数量: " + nomenclatureElements.size());
-                
-                // 查找包含"nobr"的元素
-                Elements nobrElements = doc.select("nobr");
-                System.out.println("🔍 找到 " + nobrElements.size() + " 个nobr元素");
-                
-                // 打印页面的一些关键信息
-                System.out.println("🔍 页面标题: " + doc.title());
-                System.out.println("🔍 页面body内容长度: " + doc.body().text().length());
-                
-                // 如果仍然没有找到，尝试使用所有div元素
-                if (codeElements.isEmpty()) {
-                    System.out.println("⚠️ 使用所有div元素作为备选方案");
-                    codeElements = allDivs;
-                }
-            }
-            
-            for (Element element : codeElements) {
-                Map<String, String> data = parseCodeElement(element);
-                if (data != null && !data.isEmpty()) {
-                    currentBatch.add(data);
+                if (savedInBatch == 0) {
+                    int duplicateBatches = consecutiveDuplicateBatches.incrementAndGet();
+                    System.out.println("🔄 批次完全重复，连续重复批次数: " + duplicateBatches);
                     
-                    if (currentBatch.size() >= actualBatchSize) {
-                        int savedInBatch = saveBatchToDatabase(currentBatch);
-                        totalSaved += savedInBatch;
-                        
-                        if (savedInBatch == 0) {
-                            consecutiveDuplicateBatches++;
-                            System.out.println("🔄 批次完全重复，连续重复批次数: " + consecutiveDuplicateBatches);
-                            
-                            if (consecutiveDuplicateBatches >= 3) {
-                                System.out.println("🛑 连续 " + 3 + " 个批次完全重复，停止爬取");
-                                break;
-                            }
-                        } else {
-                            consecutiveDuplicateBatches = 0;
-                            System.out.println("✅ 批次保存成功，保存了 " + savedInBatch + " 条新记录");
-                        }
-                        
-                        currentBatch.clear();
+                    if (duplicateBatches >= 3) {
+                        System.out.println("🛑 连续 " + 3 + " 个批次完全重复，停止爬取");
+                        pipeline.cancel();
                     }
+                } else {
+                    consecutiveDuplicateBatches.set(0);
+                    System.out.println("✅ 批次保存成功，保存了 " + savedInBatch + " 条新记录");
                 }
-            }
-            
-            // 处理最后一批数据
-            if (!currentBatch.isEmpty()) {
-                int savedInBatch = saveBatchToDatabase(currentBatch);
-                totalSaved += savedInBatch;
-                System.out.println("✅ 最后批次保存完成，保存了 " + savedInBatch + " 条记录");
-            }
+            });
             
         } catch (Exception e) {
             System.err.println("❌ 爬取过程中发生错误: " + e.getMessage());
@@ -138,10 +97,64 @@ public class Eu_customcase {
         System.out.println("🎉 爬取完成！");
         System.out.println("📊 爬取汇总:");
         System.out.println("   ├─ TARIC编码: " + taricCode);
-        System.out.println("   ├─ 总保存记录: " + totalSaved);
-        System.out.println("   ├─ 连续重复批次: " + consecutiveDuplicateBatches);
+        System.out.println("   ├─ 总保存记录: " + totalSaved.get());
+        System.out.println("   ├─ 连续重复批次: " + consecutiveDuplicateBatches.get());
         System.out.println("   └─ 完成时间: " + LocalDateTime.now().toString());
-        return totalSaved;
+        return totalSaved.get();
+    }
+    
+    /**
+     * 抓取阶段：获取TARIC页面并解析商品编码条目，逐条发送到下游
+     */
+    private void fetchCodeData(String taricCode, CrawlPipeline.Emitter<Map<String, String>> emitter) throws Exception {
+        String url = buildUrl(taricCode);
+        Document doc = fetchDocumentWithRetry(url);
+        
+        // 解析商品编码条目
+        Elements codeElements = doc.select(".nomenclaturecode");
+        System.out.println("📋 发现 " + codeElements.size() + " 个商品编码条目");
+        
+        // 如果没有找到nomenclaturecode元素，尝试其他选择器
+        if (codeElements.isEmpty()) {
+            System.out.println("🔍 尝试其他选择器...");
+            
+            // 尝试查找包含商品编码的其他元素
+            Elements allDivs = doc.select("div");
+            System.out.println("🔍 页面中总共有 " + allDivs.size() + " 个div元素");
+            
+            // 查找包含数字编码的元素
+            Elements elementsWithNumbers = doc.select("div:contains(9018)");
+            System.out.println("🔍 包含9018的元素数量: " + elementsWithNumbers.size());
+            
+            // 查找包含"code"类的元素
+            Elements codeElements2 = doc.select(".code");
+            System.out.println("🔍 找到 " + codeElements2.size() + " 个.code元素");
+            
+            // 查找包含"nomenclature"的元素
+            Elements nomenclatureElements = doc.select("*:contains(nomenclature)");
+            System.out.println("🔍 包含nomenclature的元素数量: " + nomenclatureElements.size());
+            
+            // 查找包含"nobr"的元素
+            Elements nobrElements = doc.select("nobr");
+            System.out.println("🔍 找到 " + nobrElements.size() + " 个nobr元素");
+            
+            // 打印页面的一些关键信息
+            System.out.println("🔍 页面标题: " + doc.title());
+            System.out.println("🔍 页面body内容长度: " + doc.body().text().length());
+            
+            // 如果仍然没有找到，尝试使用所有div元素
+            if (codeElements.isEmpty()) {
+                System.out.println("⚠️ 使用所有div元素作为备选方案");
+                codeElements = allDivs;
+            }
+        }
+        
+        for (Element element : codeElements) {
+            Map<String, String> data = parseCodeElement(element);
+            if (data != null && !data.isEmpty() && !emitter.emit(data)) {
+                break;
+            }
+        }
     }
     
     /**
@@ -149,7 +162,6 @@ public class Eu_customcase {
      * @param taricCode TARIC编码
      * @return 保存的记录数量
      */
-    @Transactional
     public int crawlAndSaveToDatabase(String taricCode) {
         return crawlAndSaveToDatabase(taricCode, -1, crawlerConfig.getBatch().getSmallSaveSize());
     }
@@ -161,7 +173,6 @@ public class Eu_customcase {
      * @param batchSize 批次大小
      * @return 爬取结果汇总
      */
-    @Transactional
     public Map<String, Object> crawlAndSaveWithTaricCodes(List<String> taricCodes, int maxRecords, int batchSize) {
         log.info("🚀 开始批量爬取TARIC编码列表，共 {} 个编码", taricCodes.size());
         log.info("📊 批次大小: {}，最大记录数: {}", batchSize, maxRecords == -1 ? "所有数据" : maxRecords);
@@ -192,7 +203,7 @@ public class Eu_customcase {
                 }
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(crawlerConfig.getRetry().getDelayMilliseconds() / 2);
+                CrawlerCancellationToken.sleep(crawlerConfig.getRetry().getDelayMilliseconds() / 2);
                 
             } catch (Exception e) {
                 failureCount++;
@@ -338,41 +349,36 @@ public class Eu_customcase {
     
     /**
      * 保存批次数据到数据库
+     * @param batch 加工阶段的结果，空值表示已存在的重复记录
+     * @return 新增的记录数量
      */
     @Transactional
-    private int saveBatchToDatabase(List<Map<String, String>> batchData) {
+    private int saveBatchToDatabase(List<Optional<CustomsCase>> batch) {
         int savedCount = 0;
         int duplicateCount = 0;
+        int failedCount = 0;
         
-        System.out.println("📦 开始处理批次数据，共 " + batchData.size() + " 条记录");
+        System.out.println("📦 开始处理批次数据，共 " + batch.size() + " 条记录");
         
-        for (Map<String, String> rawData : batchData) {
+        for (Optional<CustomsCase> record : batch) {
+            if (record.isEmpty()) {
+                duplicateCount++;
+                continue;
+            }
+            CustomsCase customsCase = record.get();
             try {
-                String hsCode = rawData.get("hsCode");
-                String description = rawData.get("description");
-                
-                // 检查是否已存在
-                if (checkIfCustomsCaseExists(hsCode, description)) {
-                    duplicateCount++;
-                    System.out.println("🔄 跳过重复记录: " + hsCode + " - " + description);
-                    continue; // 跳过重复记录
-                }
-                
-                // 转换为CustomsCase实体
-                CustomsCase customsCase = createCustomsCaseFromData(rawData);
-                if (customsCase != null) {
-                    customsCaseRepository.save(customsCase);
-                    savedCount++;
-                    System.out.println("✅ 成功保存: " + hsCode + " - " + description);
-                }
-                
+                customsCaseRepository.save(customsCase);
+                savedCount++;
+                System.out.println("✅ 成功保存: " + customsCase.getHsCodeUsed() + " - " + customsCase.getRulingResult());
             } catch (Exception e) {
                 System.err.println("❌ 保存CustomsCase记录时出错: " + e.getMessage());
+                failedCount++;
             }
         }
+        CrawlerProgressContext.reportBatch(batch.size(), savedCount, duplicateCount, failedCount);
         
         System.out.println("📊 批次处理完成:");
-        System.out.println("   ├─ 总记录数: " + batchData.size());
+        System.out.println("   ├─ 总记录数: " + batch.size());
         System.out.println("   ├─ 新增记录: " + savedCount);
         System.out.println("   ├─ 重复记录: " + duplicateCount);
         System.out.println("   └─ 处理时间: " + LocalDateTime.now().toString());
@@ -571,7 +577,6 @@ public class Eu_customcase {
      * @param batchSize 批次大小（关键词批次，不是数据批次）
      * @return 爬取结果描述
      */
-    @Transactional
     public String crawlAndSaveWithKeywords(List<String> keywords, int maxRecords, int batchSize) {
         if (keywords == null || keywords.isEmpty()) {
             System.out.println("关键词列表为空，使用默认TARIC编码9018搜索");
@@ -655,7 +660,6 @@ public class Eu_customcase {
      * 智能关键词搜索 - 根据关键词类型选择最佳搜索策略
      * 由于TARIC只有一个搜索参数，这里简化为直接使用关键词作为TARIC编码
      */
-    @Transactional
     public String crawlAndSaveWithSmartKeywords(List<String> keywords, int maxRecords, int batchSize) {
         if (keywords == null || keywords.isEmpty()) {
             System.out.println("关键词列表为空，使用默认TARIC编码9018搜索");
@@ -743,12 +747,11 @@ public class Eu_customcase {
             try {
                 System.out.println("🌐 尝试获取文档 (第" + attempt + "次): " + url);
                 
-                Document doc = Jsoup.connect(url)
+                Document doc = HttpUtils.execute(Jsoup.connect(url)
                         .userAgent(USER_AGENT)
                         .timeout(20000)
                         .followRedirects(true)
-                        .maxBodySize(0)
-                        .get();
+                        .maxBodySize(0)).parse();
                 
                 System.out.println("✅ 文档获取成功");
                 return doc;
@@ -761,12 +764,12 @@ public class Eu_customcase {
                     // Too Many Requests - 需要更长的延迟
                     int delay = calculateBackoffDelay(attempt);
                     System.out.println("⚠️ HTTP 429 (Too Many Requests)，等待 " + delay + " 毫秒后重试...");
-                    Thread.sleep(delay);
+                    CrawlerCancellationToken.sleep(delay);
                 } else if (statusCode >= 500) {
                     // 服务器错误 - 中等延迟
                     int delay = crawlerConfig.getRetry().getDelayMilliseconds() * attempt;
                     System.out.println("⚠️ HTTP " + statusCode + " (服务器错误)，等待 " + delay + " 毫秒后重试...");
-                    Thread.sleep(delay);
+                    CrawlerCancellationToken.sleep(delay);
                 } else {
                     // 其他HTTP错误 - 不重试
                     System.err.println("❌ HTTP错误 " + statusCode + ": " + e.getMessage());
@@ -777,13 +780,13 @@ public class Eu_customcase {
                 lastException = e;
                 int delay = crawlerConfig.getRetry().getDelayMilliseconds() * attempt;
                 System.out.println("⚠️ 连接超时，等待 " + delay + " 毫秒后重试...");
-                Thread.sleep(delay);
+                CrawlerCancellationToken.sleep(delay);
                 
             } catch (java.net.ConnectException e) {
                 lastException = e;
                 int delay = crawlerConfig.getRetry().getDelayMilliseconds() * attempt;
                 System.out.println("⚠️ 连接异常，等待 " + delay + " 毫秒后重试...");
-                Thread.sleep(delay);
+                CrawlerCancellationToken.sleep(delay);
                 
             } catch (Exception e) {
                 lastException = e;
@@ -791,7 +794,7 @@ public class Eu_customcase {
                 if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                     int delay = crawlerConfig.getRetry().getDelayMilliseconds() * attempt;
                     System.out.println("等待 " + delay + " 毫秒后重试...");
-                    Thread.sleep(delay);
+                    CrawlerCancellationToken.sleep(delay);
                 }
             }
         }
@@ -822,10 +825,10 @@ public class Eu_customcase {
             delay += randomDelay;
             
             System.out.println("⏳ 智能延迟 " + delay + " 毫秒...");
-            Thread.sleep(delay);
+            CrawlerCancellationToken.sleep(delay);
             
         } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            CrawlerCancellationToken.restoreInterrupt();
             System.err.println("❌ 延迟被中断: " + e.getMessage());
         }
     }
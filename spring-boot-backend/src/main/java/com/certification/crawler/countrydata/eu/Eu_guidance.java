@@ -2,10 +2,14 @@ package com.certification.crawler.countrydata.eu;
 
 import com.certification.config.MedcertCrawlerConfig;
 import com.certification.crawler.common.CsvExporter;
+import com.certification.crawler.common.HttpResponseCache;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.GuidanceDocument;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.exception.AllDataDuplicateException;
 import com.certification.repository.common.GuidanceDocumentRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -31,6 +35,7 @@ public class Eu_guidance {
     
     private static final String BASE_URL = "https://health.ec.europa.eu/medical-devices-topics-interest/latest-updates_en";
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/136.0.0.0 Safari/537.36";
+    private static final String RUN_NAME = "Eu_guidance";
     
     private final CsvExporter csvExporter;
     
@@ -40,6 +45,9 @@ public class Eu_guidance {
     @Autowired
     private MedcertCrawlerConfig crawlerConfig;
     
+    @Autowired
+    private HttpResponseCache httpResponseCache;
+    
     public Eu_guidance() {
         this.csvExporter = new CsvExporter();
     }
@@ -73,10 +81,9 @@ public class Eu_guidance {
                     System.out.println("正在爬取第" + (page + 1) + "页: " + pageUrl);
                     
                     // 使用Jsoup获取页面内容
-                    Document doc = Jsoup.connect(pageUrl)
+                    Document doc = HttpUtils.execute(Jsoup.connect(pageUrl)
                             .userAgent(USER_AGENT)
-                            .timeout(30000)
-                            .get();
+                            .timeout(30000)).parse();
                     
                     long pageEndTime = System.currentTimeMillis();
                     System.out.println("第" + (page + 1) + "页页面加载完成，耗时: " + (pageEndTime - pageStartTime) + " 毫秒");
@@ -98,7 +105,7 @@ public class Eu_guidance {
                     }
                     
                     // 添加延迟避免请求过快
-                    Thread.sleep(crawlerConfig.getRetry().getDelayMilliseconds() / 5);
+                    CrawlerCancellationToken.sleep(crawlerConfig.getRetry().getDelayMilliseconds() / 5);
                     
                 } catch (Exception e) {
                     log.error("爬取第{}页时出错: {}", page + 1, e.getMessage());
@@ -348,7 +355,6 @@ public class Eu_guidance {
      * @param maxPages 最大爬取页数
      * @return 保存到数据库的记录数量
      */
-    @Transactional
     public int crawlAndSaveToDatabase(int maxPages) {
         System.out.println("🚀 开始爬取EU医疗设备新闻并保存到数据库...");
         System.out.println("📊 批次大小: " + crawlerConfig.getBatch().getSmallSaveSize() + "，最大连续重复批次: 3");
@@ -356,6 +362,12 @@ public class Eu_guidance {
         int totalSaved = 0;
         int consecutiveDuplicateBatches = 0;
         List<Map<String, String>> currentBatch = new ArrayList<>();
+        List<HttpResponseCache.CachedPage> pendingPages = new ArrayList<>();
+        // 上次运行不完整时，未变化的页面之后可能还有从未处理过的页面，不能提前停止
+        boolean previousRunComplete = httpResponseCache.beginRun(RUN_NAME);
+        int consecutiveUnchangedPages = 0;
+        boolean pagesExhausted = false;
+        boolean runComplete = false;
         
         try {
             for (int page = 0; page < maxPages; page++) {
@@ -366,30 +378,47 @@ public class Eu_guidance {
                     String pageUrl = buildPageUrl(page);
                     System.out.println("📄 正在爬取第" + (page + 1) + "页: " + pageUrl);
                     
-                    // 使用Jsoup获取页面内容
-                    Document doc = Jsoup.connect(pageUrl)
+                    // 条件请求获取页面内容（304或内容未变化时跳过解析）
+                    HttpResponseCache.CachedPage cachedPage = httpResponseCache.fetch(Jsoup.connect(pageUrl)
                             .userAgent(USER_AGENT)
-                            .timeout(30000)
-                            .get();
+                            .timeout(30000));
                     
                     long pageEndTime = System.currentTimeMillis();
                     System.out.println("⏱️ 第" + (page + 1) + "页页面加载完成，耗时: " + (pageEndTime - pageStartTime) + " 毫秒");
                     
+                    // 列表按时间倒序，连续多页未变化且上次运行完整时，之后的页面也没有新数据
+                    if (cachedPage.isUnchanged()) {
+                        consecutiveUnchangedPages++;
+                        if (previousRunComplete && consecutiveUnchangedPages >= HttpResponseCache.UNCHANGED_PAGES_TO_STOP) {
+                            System.out.println("🟰 连续" + consecutiveUnchangedPages + "页内容未变化，停止爬取");
+                            pagesExhausted = true;
+                            break;
+                        }
+                        System.out.println("🟰 第" + (page + 1) + "页内容未变化，跳过解析");
+                        CrawlerCancellationToken.sleep(1000);
+                        continue;
+                    }
+                    consecutiveUnchangedPages = 0;
+                    
                     // 解析新闻内容
-                    List<Map<String, String>> pageNews = parseNewsContent(doc);
+                    List<Map<String, String>> pageNews = parseNewsContent(cachedPage.getDocument());
                     if (pageNews.isEmpty()) {
                         System.out.println("⚠️ 第" + (page + 1) + "页没有找到新闻数据，停止爬取");
+                        pagesExhausted = true;
                         break;
                     }
                     
                     // 添加到当前批次
                     currentBatch.addAll(pageNews);
+                    pendingPages.add(cachedPage);
                     System.out.println("📝 第" + (page + 1) + "页解析完成，获取到 " + pageNews.size() + " 条新闻");
                     
                     // 检查是否需要保存批次
                     if (currentBatch.size() >= crawlerConfig.getBatch().getSmallSaveSize()) {
                         int savedInBatch = saveBatchToDatabase(currentBatch);
                         totalSaved += savedInBatch;
+                        httpResponseCache.commitAll(pendingPages);
+                        pendingPages.clear();
                         
                         if (savedInBatch == 0) {
                             consecutiveDuplicateBatches++;
@@ -397,6 +426,7 @@ public class Eu_guidance {
                             
                             if (consecutiveDuplicateBatches >= 3) {
                                 System.out.println("🛑 连续 3 个批次完全重复，停止爬取");
+                                pagesExhausted = true;
                                 break;
                             }
                         } else {
@@ -408,7 +438,7 @@ public class Eu_guidance {
                     }
                     
                     // 添加延迟避免请求过快
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                     
                 } catch (Exception e) {
                     System.err.println("❌ 爬取第" + (page + 1) + "页时出错: " + e.getMessage());
@@ -420,13 +450,16 @@ public class Eu_guidance {
             if (!currentBatch.isEmpty()) {
                 int savedInBatch = saveBatchToDatabase(currentBatch);
                 totalSaved += savedInBatch;
+                httpResponseCache.commitAll(pendingPages);
                 System.out.println("✅ 最后批次保存完成，保存了 " + savedInBatch + " 条记录");
             }
+            runComplete = pagesExhausted;
             
         } catch (Exception e) {
             System.err.println("❌ 爬取过程中发生错误: " + e.getMessage());
             e.printStackTrace();
         }
+        httpResponseCache.endRun(RUN_NAME, runComplete);
         
         System.out.println("🎉 爬取完成！总共保存了 " + totalSaved + " 条新记录到数据库");
         return totalSaved;
@@ -436,6 +469,7 @@ public class Eu_guidance {
      * 保存批次数据到数据库
      * @param batchData 批次数据
      * @return 实际保存的记录数量
+     * @throws IllegalStateException 保存失败，调用方不提交对应页面的缓存
      */
     @Transactional
     private int saveBatchToDatabase(List<Map<String, String>> batchData) {
@@ -444,6 +478,7 @@ public class Eu_guidance {
         }
         
         int savedCount = 0;
+        int skippedCount = 0;
         List<GuidanceDocument> documentsToSave = new ArrayList<>();
         
         try {
@@ -460,6 +495,7 @@ public class Eu_guidance {
                 boolean exists = checkIfDocumentExists(title, publishDate);
                 if (exists) {
                     System.out.println("⏭️ 跳过重复记录: " + title);
+                    skippedCount++;
                     continue;
                 }
                 
@@ -479,9 +515,11 @@ public class Eu_guidance {
             
         } catch (Exception e) {
             System.err.println("❌ 保存批次数据时出错: " + e.getMessage());
-            e.printStackTrace();
+            CrawlerProgressContext.reportBatch(batchData.size(), 0, skippedCount, documentsToSave.size());
+            throw new IllegalStateException("保存批次数据失败: " + e.getMessage(), e);
         }
         
+        CrawlerProgressContext.reportBatch(batchData.size(), savedCount, skippedCount, 0);
         return savedCount;
     }
     
@@ -1,18 +1,16 @@
 package com.certification.crawler.countrydata.eu;
 
+import com.certification.crawler.common.BrowserSessionPool;
 import com.certification.entity.common.DeviceRecallRecord;
 import com.certification.repository.common.DeviceRecallRecordRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -35,6 +33,9 @@ public class Eu_recall {
     @Autowired
     private DeviceRecallRecordRepository deviceRecallRecordRepository;
     
+    @Autowired
+    private BrowserSessionPool browserSessionPool;
+    
     public Eu_recall() {
         // 构造函数
     }
@@ -44,7 +45,6 @@ public class Eu_recall {
      * @param maxRecords 最大记录数
      * @return 保存的记录数量
      */
-    @Transactional
     public int crawlAndSaveToDatabase(int maxRecords) {
         return crawlAndSaveToDatabase("", maxRecords, 20, "", "");
     }
@@ -58,7 +58,6 @@ public class Eu_recall {
      * @param dateTo 结束日期
      * @return 保存的记录数量
      */
-    @Transactional
     public int crawlAndSaveToDatabase(String searchTerm, int maxRecords, int batchSize, String dateFrom, String dateTo) {
         log.info("开始爬取欧盟召回数据 - 搜索词: {}, 最大记录数: {}, 批次大小: {}, 日期范围: {} - {}", 
                 searchTerm, maxRecords, batchSize, dateFrom, dateTo);
@@ -111,7 +110,6 @@ public class Eu_recall {
      * @param dateTo 结束日期
      * @return 爬取结果汇总
      */
-    @Transactional
     public Map<String, Object> crawlAndSaveWithKeywords(List<String> searchKeywords, int maxRecords, int batchSize, String dateFrom, String dateTo) {
         log.info("🚀 开始批量爬取召回数据，共 {} 个搜索关键词", searchKeywords.size());
         log.info("📊 批次大小: {}，最大记录数: {}，日期范围: {} - {}", batchSize, maxRecords == -1 ? "所有数据" : maxRecords, dateFrom, dateTo);
@@ -142,7 +140,7 @@ public class Eu_recall {
                 }
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(2000);
+                CrawlerCancellationToken.sleep(2000);
                 
             } catch (Exception e) {
                 failureCount++;
@@ -179,28 +177,27 @@ public class Eu_recall {
     private List<Map<String, String>> crawlRecallDataWithWebDriver(String searchTerm, int maxRecords, String dateFrom, String dateTo) {
         List<Map<String, String>> recallData = new ArrayList<>();
         
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--headless");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--disable-gpu");
-        options.addArguments("--window-size=1920,1080");
-        options.addArguments("--user-agent=" + USER_AGENT);
-        
-        WebDriver driver = new ChromeDriver(options);
+        BrowserSessionPool.BrowserSession session;
+        try {
+            session = browserSessionPool.borrow();
+        } catch (InterruptedException e) {
+            CrawlerCancellationToken.restoreInterrupt();
+            log.warn("等待浏览器会话被中断");
+            return recallData;
+        }
         
         try {
             log.info("使用WebDriver访问欧盟召回数据页面");
             
             // 访问欧盟医疗器械数据库召回页面
             String targetUrl = buildSearchUrl(searchTerm, dateFrom, dateTo);
-            driver.get(targetUrl);
+            session.open(targetUrl);
             
             // 等待页面加载
-            Thread.sleep(3000);
+            CrawlerCancellationToken.sleep(3000);
             
             // 解析页面数据
-            Document doc = Jsoup.parse(driver.getPageSource());
+            Document doc = Jsoup.parse(session.getDriver().getPageSource());
             recallData = parseRecallDataFromPage(doc, maxRecords);
             
             log.info("WebDriver爬取完成，获取到 {} 条数据", recallData.size());
@@ -208,7 +205,7 @@ public class Eu_recall {
         } catch (Exception e) {
             log.error("WebDriver爬取失败", e);
         } finally {
-            driver.quit();
+            browserSessionPool.release(session);
         }
         
         return recallData;
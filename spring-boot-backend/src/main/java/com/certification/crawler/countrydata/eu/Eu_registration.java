@@ -1,9 +1,13 @@
 package com.certification.crawler.countrydata.eu;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceRegistrationRecord;
 import com.certification.entity.common.CrawlerCheckpoint;
 import com.certification.repository.common.DeviceRegistrationRecordRepository;
 import com.certification.repository.common.CrawlerCheckpointRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import com.certification.service.crawler.delta.DeviceBulkWriter;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -34,6 +38,9 @@ public class Eu_registration {
     
     @Autowired
     private DeviceRegistrationRecordRepository deviceRegistrationRecordRepository;
+
+    @Autowired
+    private DeviceBulkWriter deviceBulkWriter;
     
     @Autowired
     private CrawlerCheckpointRepository crawlerCheckpointRepository;
@@ -301,7 +308,10 @@ public class Eu_registration {
                         .GET()
                         .build();
                 
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                HttpUtils.beforeRequest(apiUrl);
+                long startNanos = System.nanoTime();
+                HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                HttpUtils.afterResponse(startNanos, response.body().length);
                 
                 if (response.statusCode() != 200) {
                     System.err.printf("请求失败，状态码: %d%n", response.statusCode());
@@ -327,6 +337,9 @@ public class Eu_registration {
                         System.out.printf("开始爬取所有数据，目标数量: %d 条%n", maxRecords);
                     }
                 }
+                int pageSize = Math.min(batchSize, 25);
+                CrawlerProgressContext.reportPage(batchCount,
+                        totalAvailable > 0 ? (int) ((Math.min(totalAvailable, maxRecords) + pageSize - 1) / pageSize) : null);
 
                 // 转换当前批次数据为实体
                 List<DeviceRegistrationRecord> entities = new ArrayList<>();
@@ -379,9 +392,9 @@ public class Eu_registration {
                 }
 
                 try {
-                    TimeUnit.SECONDS.sleep(1);
+                    CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(1));
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -529,9 +542,9 @@ public class Eu_registration {
                             } else {
                                 System.err.println("重复检查失败，第" + retryCount + "次重试: " + e.getMessage());
                                 try {
-                                    Thread.sleep(1000 * retryCount); // 递增延迟
+                                    CrawlerCancellationToken.sleep(1000 * retryCount); // 递增延迟
                                 } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
+                                    CrawlerCancellationToken.restoreInterrupt();
                                     break;
                                 }
                             }
@@ -552,6 +565,7 @@ public class Eu_registration {
             }
 
             if (newRecords.isEmpty()) {
+                CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, 0);
                 System.out.println("本批次全部为重复记录，跳过了 " + batch.size() + " 条记录");
                 consecutiveEmptyBatches++;
                 System.out.println("第 " + batchCount + " 批次数据全部重复，连续空批次: " + consecutiveEmptyBatches);
@@ -571,7 +585,7 @@ public class Eu_registration {
                 
                 while (saveRetryCount < maxSaveRetries && !saveSuccess) {
                     try {
-                        deviceRegistrationRecordRepository.saveAll(newRecords);
+                        deviceBulkWriter.saveAll(deviceRegistrationRecordRepository, newRecords);
                         savedCount += newRecords.size();
                         System.out.println("第 " + batchCount + " 批次保存成功，新增: " + newRecords.size() + " 条，重复: " + batchDuplicateCount + " 条");
                         saveSuccess = true;
@@ -582,14 +596,16 @@ public class Eu_registration {
                         } else {
                             System.err.println("第 " + batchCount + " 批次保存失败，第" + saveRetryCount + "次重试: " + e.getMessage());
                             try {
-                                Thread.sleep(2000 * saveRetryCount); // 递增延迟
+                                CrawlerCancellationToken.sleep(2000 * saveRetryCount); // 递增延迟
                             } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
+                                CrawlerCancellationToken.restoreInterrupt();
                                 break;
                             }
                         }
                     }
                 }
+                CrawlerProgressContext.reportBatch(batch.size(), saveSuccess ? newRecords.size() : 0,
+                        batchDuplicateCount, saveSuccess ? 0 : newRecords.size());
             }
         }
 
@@ -696,9 +712,9 @@ public class Eu_registration {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -709,9 +725,9 @@ public class Eu_registration {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -722,9 +738,9 @@ public class Eu_registration {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -1,13 +1,14 @@
 package com.certification.crawler.countrydata.eu.others;
 
+import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.BrowserSessionPool;
 import com.certification.crawler.common.CsvExporter;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import java.io.File;
@@ -31,10 +32,12 @@ public class Eu_BTI {
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/136.0.0.0 Safari/537.36";
     
     private final CsvExporter csvExporter;
+    private final BrowserSessionPool browserSessionPool;
     
     @Autowired
-    public Eu_BTI(CsvExporter csvExporter) {
+    public Eu_BTI(CsvExporter csvExporter, BrowserSessionPool browserSessionPool) {
         this.csvExporter = csvExporter;
+        this.browserSessionPool = browserSessionPool;
     }
     
     /**
@@ -71,21 +74,9 @@ public class Eu_BTI {
         List<Map<String, String>> allBTIData = new ArrayList<>();
         
         try {
-            // 设置Chrome WebDriver
-            ChromeOptions options = new ChromeOptions();
-            options.addArguments("--headless");
-            options.addArguments("--no-sandbox");
-            options.addArguments("--disable-dev-shm-usage");
-            options.addArguments("--disable-gpu");
-            options.addArguments("--window-size=1920,1080");
-            options.addArguments("--user-agent=" + USER_AGENT);
-            options.addArguments("--disable-blink-features=AutomationControlled");
-            options.addArguments("--disable-extensions");
-            options.addArguments("--disable-plugins");
-            options.addArguments("--disable-images");
-            options.addArguments("--disable-javascript");
-            
-            WebDriver driver = new ChromeDriver(options);
+            // 从会话池借用浏览器
+            BrowserSessionPool.BrowserSession session = browserSessionPool.borrow();
+            WebDriver driver = session.getDriver();
             
             try {
                 System.out.println("=".repeat(80));
@@ -111,7 +102,7 @@ public class Eu_BTI {
                 
                 // 访问搜索页面
                 long startTime = System.currentTimeMillis();
-                driver.get(searchUrl);
+                session.open(searchUrl);
                 long endTime = System.currentTimeMillis();
                 
                 System.out.println("⏱️  页面加载时间: " + (endTime - startTime) + "ms");
@@ -119,7 +110,7 @@ public class Eu_BTI {
                 System.out.println("🔗 当前URL: " + driver.getCurrentUrl());
                 
                 // 等待页面加载完成
-                Thread.sleep(3000);
+                CrawlerCancellationToken.sleep(3000);
                 
                 // 爬取多页数据
                 for (int page = 1; page <= maxPages; page++) {
@@ -132,8 +123,8 @@ public class Eu_BTI {
                     System.out.println("📋 列表URL: " + listUrl);
                     
                     // 访问列表页面
-                    driver.get(listUrl);
-                    Thread.sleep(2000);
+                    session.open(listUrl);
+                    CrawlerCancellationToken.sleep(2000);
                     
                     // 解析当前页面的BTI数据
                     List<Map<String, String>> pageData = parseBTIDataFromPage(driver.getPageSource());
@@ -147,11 +138,11 @@ public class Eu_BTI {
                     System.out.println("第" + page + "页爬取完成，获取到 " + pageData.size() + " 条BTI数据");
                     
                     // 等待一下再爬取下一页
-                    Thread.sleep(2000);
+                    CrawlerCancellationToken.sleep(2000);
                 }
                 
             } finally {
-                driver.quit();
+                browserSessionPool.release(session);
             }
             
         } catch (Exception e) {
@@ -530,7 +521,8 @@ public class Eu_BTI {
      */
     public static void main(String[] args) {
         CsvExporter csvExporter = new CsvExporter();
-        Eu_BTI btiCrawler = new Eu_BTI(csvExporter);
+        BrowserSessionPool browserSessionPool = new BrowserSessionPool(new MedcertCrawlerConfig());
+        Eu_BTI btiCrawler = new Eu_BTI(csvExporter, browserSessionPool);
         
         // 测试参数化搜索
         List<Map<String, String>> btiData = btiCrawler.crawlBTIDataWithParams(
@@ -551,5 +543,6 @@ public class Eu_BTI {
         
         // 保存数据
         btiCrawler.saveBTIDataToCSV(btiData, "BTI_SKIN_CARE_PREPARATION.csv");
+        browserSessionPool.shutdown();
     }
 }
@@ -1,5 +1,6 @@
 package com.certification.crawler.countrydata.jp;
 
+import com.certification.crawler.common.HttpResponseCache;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.entity.common.GuidanceDocument;
 import com.certification.repository.common.GuidanceDocumentRepository;
@@ -17,6 +18,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.utils.CrawlerDuplicateDetector;
 
 /**
@@ -33,6 +35,9 @@ public class JpGuidance {
     @Autowired
     private GuidanceDocumentRepository guidanceDocumentRepository;
 
+    @Autowired
+    private HttpResponseCache httpResponseCache;
+
     /**
      * 日本法规数据模型
      * 
@@ -67,8 +72,14 @@ public class JpGuidance {
             criteriaName, effectName, maxRecords);
 
         try {
-            // 1. 爬取搜索列表页，获取所有法规列表
-            List<JapanGuidanceData> guidanceList = crawlSearchResults(criteriaName, effectName, maxRecords);
+            // 1. 爬取搜索列表页，获取所有法规列表（条件请求，处理成功后才写入缓存）
+            List<HttpResponseCache.CachedPage> pendingPages = new ArrayList<>();
+            List<JapanGuidanceData> guidanceList = crawlSearchResults(criteriaName, effectName, maxRecords, pendingPages);
+            
+            if (guidanceList == null) {
+                log.info("🟰 法规列表页未变化，跳过本次爬取");
+                return "法规列表未变化，无新数据";
+            }
             
             if (guidanceList.isEmpty()) {
                 return "未找到任何法规数据";
@@ -82,22 +93,24 @@ public class JpGuidance {
                 JapanGuidanceData guidance = guidanceList.get(i);
                 try {
                     log.info("📄 正在爬取详情 [{}/{}]: {}", i + 1, guidanceList.size(), guidance.getTitle());
-                    JapanGuidanceData completeData = crawlDetailPage(guidance);
+                    JapanGuidanceData completeData = crawlDetailPage(guidance, pendingPages);
                     if (completeData != null) {
                         completeDataList.add(completeData);
+                    } else {
+                        log.debug("详情页未变化，跳过: {}", guidance.getTitle());
                     }
                     
                     // 避免请求过快
                     if (i < guidanceList.size() - 1) {
-                        Thread.sleep(1500);
+                        CrawlerCancellationToken.sleep(1500);
                     }
                 } catch (Exception e) {
                     log.error("爬取详情页失败: {} - {}", guidance.getTitle(), e.getMessage());
                 }
             }
 
-            // 3. 保存到数据库
-            return saveToDatabase(completeDataList, batchSize);
+            // 3. 保存到数据库，全部保存成功后才提交页面缓存
+            return saveToDatabase(completeDataList, batchSize, pendingPages);
 
         } catch (Exception e) {
             log.error("爬取日本法规数据失败", e);
@@ -116,14 +129,17 @@ public class JpGuidance {
 
     /**
      * 爬取搜索结果列表页
+     * @param pendingPages 待提交的HTTP缓存页面，列表页完整解析后加入
+     * @return 法规列表，列表页未变化时返回null
      */
-    private List<JapanGuidanceData> crawlSearchResults(String criteriaName, String effectName, int maxRecords) throws Exception {
+    private List<JapanGuidanceData> crawlSearchResults(String criteriaName, String effectName, int maxRecords,
+                                                       List<HttpResponseCache.CachedPage> pendingPages) throws Exception {
         List<JapanGuidanceData> dataList = new ArrayList<>();
         
         String url = buildSearchUrl(criteriaName, effectName);
         log.info("🔍 请求搜索URL: {}", url);
 
-        Document doc = Jsoup.connect(url)
+        HttpResponseCache.CachedPage searchPage = httpResponseCache.fetch(Jsoup.connect(url)
                 .userAgent(USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8")
                 .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -135,8 +151,12 @@ public class JpGuidance {
                 .header("sec-fetch-site", "same-origin")
                 .header("upgrade-insecure-requests", "1")
                 .referrer("https://www.std.pmda.go.jp/scripts/stdDB_en/kijyun/stdDB_kijyun_resframe_main.cgi")
-                .timeout(30000)
-                .get();
+                .timeout(30000));
+
+        if (searchPage.isUnchanged()) {
+            return null;
+        }
+        Document doc = searchPage.getDocument();
 
         // 调试：打印页面结构
         log.debug("========== 搜索结果页面结构调试 ==========");
@@ -180,6 +200,11 @@ public class JpGuidance {
             }
         }
 
+        // 只有整页都被处理时才缓存列表页，避免受maxRecords截断的结果下次被跳过
+        if (maxRecords <= 0 || rows.size() <= maxRecords) {
+            pendingPages.add(searchPage);
+        }
+
         log.info("📊 搜索结果页解析完成，获取 {} 条记录", dataList.size());
         return dataList;
     }
@@ -309,8 +334,10 @@ public class JpGuidance {
 
     /**
      * 爬取详情页获取完整信息
+     * @return 完整数据，详情页未变化时返回null
      */
-    private JapanGuidanceData crawlDetailPage(JapanGuidanceData basicData) throws Exception {
+    private JapanGuidanceData crawlDetailPage(JapanGuidanceData basicData,
+                                              List<HttpResponseCache.CachedPage> pendingPages) throws Exception {
         if (basicData.getDetailUrl() == null || basicData.getDetailUrl().isEmpty()) {
             log.warn("详情URL为空，跳过");
             return basicData;
@@ -318,7 +345,7 @@ public class JpGuidance {
 
         log.debug("🔍 请求详情URL: {}", basicData.getDetailUrl());
 
-        Document doc = Jsoup.connect(basicData.getDetailUrl())
+        HttpResponseCache.CachedPage detailPage = httpResponseCache.fetch(Jsoup.connect(basicData.getDetailUrl())
                 .userAgent(USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8")
                 .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -331,11 +358,15 @@ public class JpGuidance {
                 .header("sec-fetch-user", "?1")
                 .header("upgrade-insecure-requests", "1")
                 .referrer(BASE_SEARCH_URL)
-                .timeout(30000)
-                .get();
+                .timeout(30000));
+
+        if (detailPage.isUnchanged()) {
+            return null;
+        }
 
         // 解析详情页内容
-        parseDetailPage(doc, basicData);
+        parseDetailPage(detailPage.getDocument(), basicData);
+        pendingPages.add(detailPage);
 
         return basicData;
     }
@@ -453,8 +484,11 @@ public class JpGuidance {
     /**
      * 保存到数据库
      * 注意：不使用@Transactional，每条记录独立保存，避免一条失败影响全部
+     * 只有全部记录处理完且没有失败时才提交页面缓存；有记录保存失败或因连续重复提前停止时不提交，下次重新抓取
+     * @param pendingPages 待提交的HTTP缓存页面
      */
-    private String saveToDatabase(List<JapanGuidanceData> dataList, int batchSize) {
+    private String saveToDatabase(List<JapanGuidanceData> dataList, int batchSize,
+                                  List<HttpResponseCache.CachedPage> pendingPages) {
         if (dataList.isEmpty()) {
             return "没有数据需要保存";
         }
@@ -468,7 +502,9 @@ public class JpGuidance {
         // 初始化批次检测器
         CrawlerDuplicateDetector detector = new CrawlerDuplicateDetector(3);
         int currentBatchSaved = 0;
+        int currentBatchFailed = 0;
         int processedInBatch = 0;
+        boolean stoppedEarly = false;
 
         for (JapanGuidanceData data : dataList) {
             try {
@@ -485,24 +521,39 @@ public class JpGuidance {
 
                 // 每batchSize条检查一次
                 if (processedInBatch >= batchSize) {
-                    boolean shouldStop = detector.recordBatch(processedInBatch, currentBatchSaved);
+                    boolean shouldStop = detector.recordBatch(processedInBatch, currentBatchSaved, currentBatchFailed);
+                    // 重置批次计数
+                    processedInBatch = 0;
+                    currentBatchSaved = 0;
+                    currentBatchFailed = 0;
                     if (shouldStop) {
                         log.warn("⚠️ 检测到连续重复批次，停止保存");
+                        stoppedEarly = true;
                         break;
                     }
-                    // 重置批次计数
-                    processedInBatch = 0;
-                    currentBatchSaved = 0;
                 }
             } catch (Exception e) {
                 totalErrors++;
+                processedInBatch++;
+                currentBatchFailed++;
                 log.error("保存法规数据时出错: {} - {}", data.getTitle(), e.getMessage());
             }
         }
 
+        // 最后不足一个批次的记录
+        if (processedInBatch > 0) {
+            detector.recordBatch(processedInBatch, currentBatchSaved, currentBatchFailed);
+        }
+
         // 打印最终统计
         detector.printFinalStats("JpGuidance");
 
+        if (!stoppedEarly && totalErrors == 0) {
+            httpResponseCache.commitAll(pendingPages);
+        } else {
+            log.info("部分记录未保存，不提交页面缓存");
+        }
+
         log.info("保存完成，新增: {} 条，重复: {} 条，失败: {} 条", totalSaved, totalDuplicates, totalErrors);
         return String.format("日本法规数据保存完成，新增: %d 条，重复: %d 条，失败: %d 条",
             totalSaved, totalDuplicates, totalErrors);
@@ -1,6 +1,7 @@
 package com.certification.crawler.countrydata.jp;
 
 import com.certification.analysis.analysisByai.TranslateAI;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceRegistrationRecord;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.DeviceRegistrationRecordRepository;
@@ -19,6 +20,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.utils.CrawlerDuplicateDetector;
 
 /**
@@ -278,7 +280,7 @@ public class JpRegistration {
             try {
                 log.debug("发送搜索请求，尝试 {}/{}", attempt, MAX_RETRIES);
                 
-                Connection.Response response = Jsoup.connect(BASE_URL)
+                Connection.Response response = HttpUtils.execute(Jsoup.connect(BASE_URL)
                         .method(Connection.Method.POST)
                         .userAgent(USER_AGENT)
                         .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8")
@@ -286,8 +288,7 @@ public class JpRegistration {
                         .header("Content-Type", "application/x-www-form-urlencoded")
                         .header("Referer", "https://www.pmda.go.jp/PmdaSearch/kikiSearch/")
                         .data(formData)
-                        .timeout(TIMEOUT)
-                        .execute();
+                        .timeout(TIMEOUT));
                 
                 Document doc = response.parse();
                 
@@ -301,9 +302,9 @@ public class JpRegistration {
                 }
                 // 等待后重试
                 try {
-                    Thread.sleep(2000 * attempt);
+                    CrawlerCancellationToken.sleep(2000 * attempt);
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     throw new IOException("重试被中断", ie);
                 }
             }
@@ -1,5 +1,6 @@
 package com.certification.crawler.countrydata.jp;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.entity.common.DeviceRecallRecord;
 import com.certification.repository.common.DeviceRecallRecordRepository;
@@ -17,6 +18,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.utils.CrawlerDuplicateDetector;
 
 /**
@@ -150,13 +152,12 @@ public class JpRecall {
                 String url = buildUrl(seller, manufacturer, year, start);
                 log.debug("请求URL: {}", url);
                 
-                Document doc = Jsoup.connect(url)
+                Document doc = HttpUtils.execute(Jsoup.connect(url)
                         .userAgent(USER_AGENT)
                         .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8")
                         .header("Accept-Language", "zh-CN,zh;q=0.9")
                         .header("Referer", "https://www.info.pmda.go.jp/rsearch/html/menu_recall_kensaku.html")
-                        .timeout(30000)
-                        .get();
+                        .timeout(30000)).parse();
 
                 List<JapanRecallData> pageData = parseRecallData(doc);
                 
@@ -170,7 +171,7 @@ public class JpRecall {
                     }
                     
                     start += 10;
-                    Thread.sleep(2000);
+                    CrawlerCancellationToken.sleep(2000);
                     continue;
                 }
                 
@@ -209,12 +210,12 @@ public class JpRecall {
                 }
                 
                 start += 10;
-                Thread.sleep(2000);
+                CrawlerCancellationToken.sleep(2000);
                 
             } catch (Exception e) {
                 log.error("爬取第 {} 页时出错: {}", (start - 1) / 10 + 1, e.getMessage());
                 start += 10;
-                Thread.sleep(3000);
+                CrawlerCancellationToken.sleep(3000);
             }
         }
 
@@ -441,19 +442,24 @@ public class JpRecall {
                 // 每batchSize条检查一次
                 if (processedInBatch >= batchSize) {
                     boolean shouldStop = detector.recordBatch(processedInBatch, currentBatchSaved);
+                    // 重置批次计数
+                    processedInBatch = 0;
+                    currentBatchSaved = 0;
                     if (shouldStop) {
                         log.warn("⚠️ 检测到连续重复批次，停止保存");
                         break;
                     }
-                    // 重置批次计数
-                    processedInBatch = 0;
-                    currentBatchSaved = 0;
                 }
             } catch (Exception e) {
                 log.error("保存召回数据时出错: {}", e.getMessage());
             }
         }
 
+        // 最后不足一个批次的记录
+        if (processedInBatch > 0) {
+            detector.recordBatch(processedInBatch, currentBatchSaved);
+        }
+
         // 打印最终统计
         detector.printFinalStats("JpRecall");
 
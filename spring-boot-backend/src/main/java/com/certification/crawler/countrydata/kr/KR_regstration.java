@@ -1,9 +1,12 @@
 package com.certification.crawler.countrydata.kr;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.entity.common.DeviceRegistrationRecord;
 import com.certification.repository.common.DeviceRegistrationRecordRepository;
 import com.certification.analysis.analysisByai.TranslateAI;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -93,7 +96,6 @@ public class KR_regstration {
      * @param dateTo 产品许可日期结束 (prdlPrmDtTo)
      * @return 爬取结果
      */
-    @Transactional
     public String crawlWithMultipleFields(String searchQuery, List<String> companyNames,
                                          int maxRecords, int batchSize, 
                                          String dateFrom, String dateTo) {
@@ -115,9 +117,12 @@ public class KR_regstration {
         if (searchQuery != null && !searchQuery.isEmpty()) {
             try {
                 log.info("\n🔍 使用搜索关键词: {}", searchQuery);
-                String result = crawlAndSaveToDatabase(searchQuery, null, maxRecords, batchSize, dateFrom, dateTo);
+                String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(searchQuery, null, maxRecords, batchSize, dateFrom, dateTo));
                 totalSaved += extractSavedCount(result);
             } catch (Exception e) {
+                if (!(e instanceof InterruptedException)) {
+                    CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                }
                 log.error("使用搜索关键词 '{}' 失败: {}", searchQuery, e.getMessage());
             }
         }
@@ -129,10 +134,13 @@ public class KR_regstration {
                 
                 try {
                     log.info("\n🏢 处理企业名称: {}", companyName);
-                    String result = crawlAndSaveToDatabase(null, companyName.trim(), maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(null, companyName.trim(), maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000); // 添加延迟
+                    CrawlerCancellationToken.sleep(2000); // 添加延迟
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     log.error("处理企业名称 '{}' 失败: {}", companyName, e.getMessage());
                 }
             }
@@ -151,7 +159,6 @@ public class KR_regstration {
      * @param dateTo 产品许可日期结束 (prdlPrmDtTo)
      * @return 保存结果
      */
-    @Transactional
     public String crawlAndSaveToDatabase(String searchQuery, String companyName, 
                                         int maxRecords, int batchSize, 
                                         String dateFrom, String dateTo) {
@@ -205,7 +212,7 @@ public class KR_regstration {
                 String referrer = (pageNum == 1) ? "https://emedi.mfds.go.kr/search/data/MNU20237" : 
                     buildUrl(searchQuery, companyName, pageNum - 1, dateFrom, dateTo);
                 
-                Document doc = Jsoup.connect(url)
+                Document doc = HttpUtils.execute(Jsoup.connect(url)
                         .userAgent(USER_AGENT)
                         .header("Accept", "text/html, */*; q=0.01")
                         .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -217,8 +224,7 @@ public class KR_regstration {
                         .header("sec-fetch-site", "same-origin")
                         .header("x-requested-with", "XMLHttpRequest")
                         .referrer(referrer)  // 修改：使用动态referrer
-                        .timeout(30000)
-                        .get();
+                        .timeout(30000)).parse();
 
                 List<KoreaRegistrationData> pageData = parseRegistrationData(doc);
                 
@@ -232,7 +238,7 @@ public class KR_regstration {
                     }
                     
                     pageNum++;
-                    Thread.sleep(1000); // 空页面时减少延迟
+                    CrawlerCancellationToken.sleep(1000); // 空页面时减少延迟
                     continue;
                 }
                 
@@ -265,7 +271,7 @@ public class KR_regstration {
                     }
                     
                     pageNum++;
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                     continue;
                 }
                 
@@ -278,6 +284,7 @@ public class KR_regstration {
                 totalFetched += newData.size();
                 
                 log.info("✅ 第 {} 页爬取完成，获取 {} 条数据，累计: {}", pageNum, newData.size(), totalFetched);
+                CrawlerProgressContext.reportPage(pageNum, null);
 
                 // 检查是否达到最大记录数
                 if (!crawlAll && totalFetched >= maxRecords) {
@@ -295,17 +302,18 @@ public class KR_regstration {
                 pageNum++;
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(1500);
+                CrawlerCancellationToken.sleep(1500);
                 
             } catch (Exception e) {
                 log.error("爬取第 {} 页时发生错误: {}", pageNum, e.getMessage());
+                CrawlerProgressContext.reportError("爬取第 " + pageNum + " 页时发生错误: " + e.getMessage());
                 consecutiveEmptyPages++;
                 if (consecutiveEmptyPages >= maxEmptyPages) {
                     log.error("连续 {} 页出错，停止爬取", maxEmptyPages);
                     break;
                 }
                 pageNum++;
-                Thread.sleep(2000); // 出错时增加延迟
+                CrawlerCancellationToken.sleep(2000); // 出错时增加延迟
             }
         }
 
@@ -719,12 +727,15 @@ public class KR_regstration {
                     savedCount += savedRecords.size();
                     totalSkipped += batchDuplicateCount;
                     log.info("第 {} 批次保存成功，新增: {} 条，重复: {} 条", batchCount, newRecords.size(), batchDuplicateCount);
+                    CrawlerProgressContext.reportBatch(batch.size(), savedRecords.size(), batchDuplicateCount, 0);
                 } catch (Exception e) {
                     log.error("第 {} 批次保存失败: {}", batchCount, e.getMessage());
+                    CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, newRecords.size());
                 }
             } else {
                 log.info("第 {} 批次全部重复，跳过: {} 条", batchCount, batchDuplicateCount);
                 totalSkipped += batchDuplicateCount;
+                CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, 0);
             }
         }
 
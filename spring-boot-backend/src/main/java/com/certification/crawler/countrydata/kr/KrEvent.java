@@ -1,9 +1,12 @@
 package com.certification.crawler.countrydata.kr;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.entity.common.DeviceEventReport;
 import com.certification.repository.common.DeviceEventReportRepository;
 import com.certification.analysis.analysisByai.TranslateAI;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -90,7 +93,6 @@ public class KrEvent {
      * @param dateTo 报告日期结束 (searchRptDateEnd)
      * @return 爬取结果
      */
-    @Transactional
     public String crawlWithMultipleFields(List<String> companyNames, List<String> productNames,
                                          List<String> modelNames, int maxRecords, int batchSize, 
                                          String dateFrom, String dateTo) {
@@ -117,10 +119,13 @@ public class KrEvent {
                 
                 try {
                     log.info("\n🏢 处理企业名称: {}", companyName);
-                    String result = crawlAndSaveToDatabase(companyName.trim(), null, null, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(companyName.trim(), null, null, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000);
+                    CrawlerCancellationToken.sleep(2000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     log.error("处理企业名称 '{}' 失败: {}", companyName, e.getMessage());
                 }
             }
@@ -133,10 +138,13 @@ public class KrEvent {
                 
                 try {
                     log.info("\n📦 处理产品名称: {}", productName);
-                    String result = crawlAndSaveToDatabase(null, productName.trim(), null, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(null, productName.trim(), null, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000);
+                    CrawlerCancellationToken.sleep(2000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     log.error("处理产品名称 '{}' 失败: {}", productName, e.getMessage());
                 }
             }
@@ -149,10 +157,13 @@ public class KrEvent {
                 
                 try {
                     log.info("\n🔧 处理型号名称: {}", modelName);
-                    String result = crawlAndSaveToDatabase(null, null, modelName.trim(), maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(null, null, modelName.trim(), maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000);
+                    CrawlerCancellationToken.sleep(2000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     log.error("处理型号名称 '{}' 失败: {}", modelName, e.getMessage());
                 }
             }
@@ -172,7 +183,6 @@ public class KrEvent {
      * @param dateTo 报告日期结束 (searchRptDateEnd)
      * @return 保存结果
      */
-    @Transactional
     public String crawlAndSaveToDatabase(String companyName, String productName, String modelName,
                                         int maxRecords, int batchSize, 
                                         String dateFrom, String dateTo) {
@@ -217,7 +227,7 @@ public class KrEvent {
                 String url = buildUrl(companyName, productName, modelName, pageNum, dateFrom, dateTo);
                 log.debug("请求URL: {}", url);
                 
-                Document doc = Jsoup.connect(url)
+                Document doc = HttpUtils.execute(Jsoup.connect(url)
                         .userAgent(USER_AGENT)
                         .header("Accept", "text/html, */*; q=0.01")
                         .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -229,8 +239,7 @@ public class KrEvent {
                         .header("sec-fetch-site", "same-origin")
                         .header("x-requested-with", "XMLHttpRequest")
                         .referrer("https://emedi.mfds.go.kr/abcs/MNU20268")
-                        .timeout(30000)
-                        .get();
+                        .timeout(30000)).parse();
 
                 List<KoreaEventData> pageData = parseEventData(doc);
                 
@@ -243,6 +252,7 @@ public class KrEvent {
                 totalFetched += pageData.size();
                 
                 log.info("✅ 第 {} 页爬取完成，获取 {} 条数据，累计: {}", pageNum, pageData.size(), totalFetched);
+                CrawlerProgressContext.reportPage(pageNum, null);
 
                 // 检查是否达到最大记录数
                 if (!crawlAll && totalFetched >= maxRecords) {
@@ -253,7 +263,7 @@ public class KrEvent {
                 pageNum++;
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(1500);
+                CrawlerCancellationToken.sleep(1500);
                 
             } catch (Exception e) {
                 log.error("爬取第 {} 页时发生错误: {}", pageNum, e.getMessage());
@@ -503,12 +513,15 @@ public class KrEvent {
                     savedCount += savedRecords.size();
                     totalSkipped += batchDuplicateCount;
                     log.info("第 {} 批次保存成功，新增: {} 条，重复: {} 条", batchCount, newRecords.size(), batchDuplicateCount);
+                    CrawlerProgressContext.reportBatch(batch.size(), savedRecords.size(), batchDuplicateCount, 0);
                 } catch (Exception e) {
                     log.error("第 {} 批次保存失败: {}", batchCount, e.getMessage());
+                    CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, newRecords.size());
                 }
             } else {
                 log.info("第 {} 批次全部重复，跳过: {} 条", batchCount, batchDuplicateCount);
                 totalSkipped += batchDuplicateCount;
+                CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, 0);
             }
         }
 
@@ -1,9 +1,12 @@
 package com.certification.crawler.countrydata.kr;
 
+import com.certification.crawler.common.HttpResponseCache;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.entity.common.GuidanceDocument;
 import com.certification.repository.common.GuidanceDocumentRepository;
 import com.certification.analysis.analysisByai.TranslateAI;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -17,6 +20,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 韩国医疗器械指导文档爬虫
@@ -36,6 +40,9 @@ public class KrGuidance {
     @Autowired
     private TranslateAI translateAI;
 
+    @Autowired
+    private HttpResponseCache httpResponseCache;
+
     /**
      * 韩国指导文档数据模型
      */
@@ -86,7 +93,6 @@ public class KrGuidance {
      * @param batchSize 批次大小
      * @return 爬取结果
      */
-    @Transactional
     public String crawlWithKeywords(List<String> searchKeywords, int maxRecords, int batchSize) {
         log.info("🚀 开始基于关键词列表爬取韩国指导文档数据");
         log.info("📊 关键词数量: {}, 最大记录数: {}", 
@@ -108,7 +114,7 @@ public class KrGuidance {
                 log.info("\n🔍 处理搜索关键词: {}", keyword);
                 String result = crawlAndSaveToDatabase(keyword.trim(), maxRecords, batchSize);
                 totalSaved += extractSavedCount(result);
-                Thread.sleep(2000); // 添加延迟
+                CrawlerCancellationToken.sleep(2000); // 添加延迟
             } catch (Exception e) {
                 log.error("处理搜索关键词 '{}' 失败: {}", keyword, e.getMessage());
             }
@@ -124,25 +130,32 @@ public class KrGuidance {
      * @param batchSize 批次大小
      * @return 保存结果
      */
-    @Transactional
     public String crawlAndSaveToDatabase(String searchKeyword, int maxRecords, int batchSize) {
         log.info("🚀 开始爬取韩国MFDS指导文档数据");
         log.info("📊 搜索关键词: {}, 最大记录数: {}, 批次大小: {}", 
                 searchKeyword, maxRecords == -1 ? "所有数据" : maxRecords, batchSize);
 
+        String runName = "KrGuidance:" + (searchKeyword != null ? searchKeyword : "");
         try {
-            List<KoreaGuidanceData> guidanceDataList = crawlGuidanceData(searchKeyword, maxRecords);
+            List<HttpResponseCache.CachedPage> pendingPages = new ArrayList<>();
+            AtomicBoolean pagesExhausted = new AtomicBoolean(false);
+            boolean previousRunComplete = httpResponseCache.beginRun(runName);
+            List<KoreaGuidanceData> guidanceDataList = crawlGuidanceData(searchKeyword, maxRecords, pendingPages,
+                    previousRunComplete, pagesExhausted);
             
             if (guidanceDataList.isEmpty()) {
+                httpResponseCache.endRun(runName, pagesExhausted.get());
                 log.warn("未获取到韩国指导文档数据");
                 return "未获取到指导文档数据";
             }
             
             log.info("成功爬取到 {} 条指导文档数据，开始保存到数据库", guidanceDataList.size());
             
-            return saveBatchToDatabase(guidanceDataList, batchSize);
+            // 全部批次保存成功后才提交页面缓存
+            return saveBatchToDatabase(guidanceDataList, batchSize, pendingPages, runName, pagesExhausted.get());
             
         } catch (Exception e) {
+            httpResponseCache.endRun(runName, false);
             log.error("爬取韩国指导文档数据失败", e);
             return "爬取失败: " + e.getMessage();
         }
@@ -150,8 +163,15 @@ public class KrGuidance {
 
     /**
      * 爬取指导文档数据（核心方法）
+     * 列表页按发布时间倒序，上次运行完整且连续多页内容未变化时停止
+     * @param pendingPages 待提交的HTTP缓存页面，保存成功后由调用方提交
+     * @param previousRunComplete 上次运行是否完整，不完整时只跳过未变化的页面，继续向后翻页
+     * @param pagesExhausted 输出：列表页是否已翻到自然结束（未因出错或maxRecords截断而中途停止）
      */
-    private List<KoreaGuidanceData> crawlGuidanceData(String searchKeyword, int maxRecords) throws Exception {
+    private List<KoreaGuidanceData> crawlGuidanceData(String searchKeyword, int maxRecords,
+                                                      List<HttpResponseCache.CachedPage> pendingPages,
+                                                      boolean previousRunComplete,
+                                                      AtomicBoolean pagesExhausted) throws Exception {
         List<KoreaGuidanceData> allData = new ArrayList<>();
         int pageNum = 1;
         int totalFetched = 0;
@@ -159,6 +179,8 @@ public class KrGuidance {
 
         int consecutiveEmptyPages = 0; // 连续空页面计数
         int maxEmptyPages = 3; // 最大允许连续空页面数
+        int consecutiveUnchangedPages = 0; // 连续未变化页面计数
+        boolean hadPageError = false;
         
         while (crawlAll || totalFetched < maxRecords) {
             try {
@@ -170,7 +192,7 @@ public class KrGuidance {
                 // 构建正确的referrer（第一页没有referrer，后续页面使用前一页）
                 String referrer = (pageNum == 1) ? null : buildUrl(searchKeyword, pageNum - 1);
                 
-                Document doc = Jsoup.connect(url)
+                HttpResponseCache.CachedPage cachedPage = httpResponseCache.fetch(Jsoup.connect(url)
                         .userAgent(USER_AGENT)
                         .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7")
                         .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -183,9 +205,24 @@ public class KrGuidance {
                         .header("sec-fetch-user", "?1")
                         .header("upgrade-insecure-requests", "1")
                         .referrer(referrer)  // 修改：使用动态referrer
-                        .timeout(30000)
-                        .get();
+                        .timeout(30000));
 
+                if (cachedPage.isUnchanged()) {
+                    consecutiveUnchangedPages++;
+                    if (previousRunComplete && consecutiveUnchangedPages >= HttpResponseCache.UNCHANGED_PAGES_TO_STOP) {
+                        log.info("🟰 连续 {} 页内容未变化，停止爬取", consecutiveUnchangedPages);
+                        pagesExhausted.set(true);
+                        break;
+                    }
+                    log.info("🟰 第 {} 页内容未变化，跳过解析", pageNum);
+                    consecutiveEmptyPages = 0;
+                    pageNum++;
+                    CrawlerCancellationToken.sleep(1500);
+                    continue;
+                }
+                consecutiveUnchangedPages = 0;
+
+                Document doc = cachedPage.getDocument();
                 List<KoreaGuidanceData> pageData = parseGuidanceData(doc);
                 
                 if (pageData.isEmpty()) {
@@ -194,11 +231,12 @@ public class KrGuidance {
                     
                     if (consecutiveEmptyPages >= maxEmptyPages) {
                         log.info("连续 {} 页无数据，停止爬取", maxEmptyPages);
+                        pagesExhausted.set(!hadPageError);
                         break;
                     }
                     
                     pageNum++;
-                    Thread.sleep(1000); // 空页面时减少延迟
+                    CrawlerCancellationToken.sleep(1000); // 空页面时减少延迟
                     continue;
                 }
                 
@@ -215,7 +253,13 @@ public class KrGuidance {
                 allData.addAll(pageData);
                 totalFetched += pageData.size();
                 
+                // 整页数据都会被保存时才缓存该页
+                if (crawlAll || totalFetched <= maxRecords) {
+                    pendingPages.add(cachedPage);
+                }
+                
                 log.info("✅ 第 {} 页爬取完成，获取 {} 条数据，累计: {}", pageNum, pageData.size(), totalFetched);
+                CrawlerProgressContext.reportPage(pageNum, null);
 
                 // 检查是否达到最大记录数
                 if (!crawlAll && totalFetched >= maxRecords) {
@@ -226,17 +270,18 @@ public class KrGuidance {
                 pageNum++;
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(1500);
+                CrawlerCancellationToken.sleep(1500);
                 
             } catch (Exception e) {
                 log.error("爬取第 {} 页时发生错误: {}", pageNum, e.getMessage());
+                hadPageError = true;
                 consecutiveEmptyPages++;
                 if (consecutiveEmptyPages >= maxEmptyPages) {
                     log.error("连续 {} 页出错，停止爬取", maxEmptyPages);
                     break;
                 }
                 pageNum++;
-                Thread.sleep(2000); // 出错时增加延迟
+                CrawlerCancellationToken.sleep(2000); // 出错时增加延迟
             }
         }
 
@@ -542,15 +587,22 @@ public class KrGuidance {
 
     /**
      * 批量保存到数据库
+     * 只有全部批次保存成功时才提交页面缓存；有批次保存失败时不提交，下次重新抓取
+     * @param pendingPages 待提交的HTTP缓存页面
+     * @param runName 增量运行名称
+     * @param pagesExhausted 列表页是否已翻到自然结束
      */
     @Transactional
-    private String saveBatchToDatabase(List<KoreaGuidanceData> records, int batchSize) {
+    private String saveBatchToDatabase(List<KoreaGuidanceData> records, int batchSize,
+                                       List<HttpResponseCache.CachedPage> pendingPages,
+                                       String runName, boolean pagesExhausted) {
         if (records == null || records.isEmpty()) {
             return "0 条记录";
         }
 
         int savedCount = 0;
         int totalSkipped = 0;
+        int totalFailed = 0;
         int batchCount = 0;
 
         for (int i = 0; i < records.size(); i += batchSize) {
@@ -560,6 +612,7 @@ public class KrGuidance {
 
             List<GuidanceDocument> newRecords = new ArrayList<>();
             int batchDuplicateCount = 0;
+            int batchFailed = 0;
 
             for (KoreaGuidanceData record : batch) {
                 try {
@@ -575,7 +628,7 @@ public class KrGuidance {
                     }
                 } catch (Exception e) {
                     log.error("处理记录时发生错误: {}", e.getMessage());
-                    batchDuplicateCount++;
+                    batchFailed++;
                 }
             }
 
@@ -586,16 +639,28 @@ public class KrGuidance {
                     savedCount += savedRecords.size();
                     totalSkipped += batchDuplicateCount;
                     log.info("第 {} 批次保存成功，新增: {} 条，重复: {} 条", batchCount, newRecords.size(), batchDuplicateCount);
+                    CrawlerProgressContext.reportBatch(batch.size(), savedRecords.size(), batchDuplicateCount, batchFailed);
                 } catch (Exception e) {
                     log.error("第 {} 批次保存失败: {}", batchCount, e.getMessage());
+                    batchFailed += newRecords.size();
+                    CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, batchFailed);
                 }
             } else {
                 log.info("第 {} 批次全部重复，跳过: {} 条", batchCount, batchDuplicateCount);
                 totalSkipped += batchDuplicateCount;
+                CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, batchFailed);
             }
+            totalFailed += batchFailed;
+        }
+
+        if (totalFailed == 0) {
+            httpResponseCache.commitAll(pendingPages);
+        } else {
+            log.info("有 {} 条记录保存失败，不提交页面缓存", totalFailed);
         }
+        httpResponseCache.endRun(runName, pagesExhausted && totalFailed == 0);
 
-        return String.format("保存成功: %d 条新记录, 跳过重复: %d 条", savedCount, totalSkipped);
+        return String.format("保存成功: %d 条新记录, 跳过重复: %d 条, 失败: %d 条", savedCount, totalSkipped, totalFailed);
     }
 
     /**
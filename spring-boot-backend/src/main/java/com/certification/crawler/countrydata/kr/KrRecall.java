@@ -1,9 +1,15 @@
 package com.certification.crawler.countrydata.kr;
 
+import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.CrawlPipeline;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.entity.common.DeviceRecallRecord;
 import com.certification.repository.common.DeviceRecallRecordRepository;
 import com.certification.analysis.analysisByai.TranslateAI;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import com.certification.utils.CrawlerDuplicateDetector;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -11,11 +17,11 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 韩国医疗器械召回数据爬虫
@@ -35,6 +41,9 @@ public class KrRecall {
     @Autowired
     private TranslateAI translateAI;
 
+    @Autowired
+    private MedcertCrawlerConfig crawlerConfig;
+
     /**
      * 韩国召回数据模型
      */
@@ -80,6 +89,7 @@ public class KrRecall {
 
     /**
      * 爬取韩国召回数据并保存到数据库（新版本：支持公司名称和产品名称分开搜索）
+     * 抓取、查重翻译、入库三个阶段以流水线方式并行执行，连续重复批次时停止爬取
      * @param companyName 公司名称 (entpName)
      * @param itemName 产品名称 (itemName)
      * @param maxRecords 最大记录数，-1表示爬取所有数据
@@ -88,7 +98,6 @@ public class KrRecall {
      * @param dateTo 结束日期 (yyyyMMdd 或 yyyy-MM-dd)
      * @return 保存的记录数量
      */
-    @Transactional
     public String crawlAndSaveToDatabase(String companyName, String itemName, int maxRecords, int batchSize, 
                                          String dateFrom, String dateTo) {
         log.info("🚀 开始爬取韩国MFDS召回数据");
@@ -96,16 +105,50 @@ public class KrRecall {
                 companyName, itemName, maxRecords == -1 ? "所有数据" : maxRecords, batchSize, dateFrom, dateTo);
 
         try {
-            List<KoreaRecallData> recallDataList = crawlRecallData(companyName, itemName, maxRecords, dateFrom, dateTo);
-            
-            if (recallDataList.isEmpty()) {
+            AtomicInteger savedCount = new AtomicInteger();
+            AtomicInteger skippedCount = new AtomicInteger();
+            // 连续3个批次全部已存在时停止爬取
+            CrawlerDuplicateDetector detector = new CrawlerDuplicateDetector(3);
+
+            // 已存在的记录以空值传到入库阶段，由批次检测器判断是否停止
+            CrawlPipeline<Optional<DeviceRecallRecord>> pipeline = CrawlPipeline.<KoreaRecallData>from("KrRecall", crawlerConfig.getPipeline(),
+                            emitter -> crawlRecallData(companyName, itemName, maxRecords, dateFrom, dateTo, emitter))
+                    .map("enrich", crawlerConfig.getPipeline().getEnrichParallelism(), record -> {
+                        // 使用召回编号作为唯一标识
+                        if (deviceRecallRecordRepository.existsByCfresId("KR_" + record.getRecallNumber())) {
+                            return Optional.<DeviceRecallRecord>empty();
+                        }
+                        return Optional.of(convertToEntity(record));
+                    });
+
+            CrawlPipeline.Stats stats = pipeline.sink("persist", batchSize, batch -> {
+                List<DeviceRecallRecord> newRecords = new ArrayList<>();
+                for (Optional<DeviceRecallRecord> record : batch) {
+                    record.ifPresent(newRecords::add);
+                }
+                int batchSkipped = batch.size() - newRecords.size();
+                skippedCount.addAndGet(batchSkipped);
+                if (!newRecords.isEmpty()) {
+                    deviceRecallRecordRepository.saveAll(newRecords);
+                    savedCount.addAndGet(newRecords.size());
+                }
+                log.info("批次保存成功，新增: {} 条，重复: {} 条，累计: {} 条", newRecords.size(), batchSkipped, savedCount.get());
+
+                // 取消令牌已由数据源处理（停止抓取、已抓取的数据照常入库），这里只在连续重复时取消流水线
+                detector.recordBatch(batch.size(), newRecords.size());
+                if (detector.shouldStop()) {
+                    log.warn("⚠️ 检测到连续重复批次，停止爬取");
+                    pipeline.cancel();
+                }
+            });
+
+            if (stats.getOutput("fetch") == 0) {
                 log.warn("未获取到韩国召回数据");
                 return "未获取到召回数据";
             }
-            
-            log.info("成功爬取到 {} 条召回数据，开始保存到数据库", recallDataList.size());
-            
-            return saveBatchToDatabase(recallDataList, batchSize);
+
+            detector.printFinalStats("KrRecall");
+            return String.format("保存成功: %d 条新记录, 跳过重复: %d 条", savedCount.get(), skippedCount.get());
             
         } catch (Exception e) {
             log.error("爬取韩国召回数据失败", e);
@@ -122,7 +165,6 @@ public class KrRecall {
      * @param dateTo 结束日期
      * @return 爬取结果
      */
-    @Transactional
     public String crawlAndSaveWithKeywords(List<String> inputKeywords, int maxRecords, int batchSize,
                                           String dateFrom, String dateTo) {
         if (inputKeywords == null || inputKeywords.isEmpty()) {
@@ -144,15 +186,18 @@ public class KrRecall {
             log.info("\n处理关键词: {}", keyword);
 
             try {
-                String result = crawlAndSaveToDatabase(null, keyword, maxRecords, batchSize, dateFrom, dateTo);
+                String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(null, keyword, maxRecords, batchSize, dateFrom, dateTo));
                 log.info("关键词 '{}' 爬取结果: {}", keyword, result);
                 
                 totalSaved += extractSavedCount(result);
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(2000);
+                CrawlerCancellationToken.sleep(2000);
                 
             } catch (Exception e) {
+                if (!(e instanceof InterruptedException)) {
+                    CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                }
                 log.error("处理关键词 '{}' 时发生错误: {}", keyword, e.getMessage());
             }
         }
@@ -170,7 +215,6 @@ public class KrRecall {
      * @param dateTo 结束日期
      * @return 爬取结果
      */
-    @Transactional
     public String crawlWithMultipleFields(List<String> companyNames, List<String> itemNames,
                                          int maxRecords, int batchSize, String dateFrom, String dateTo) {
         log.info("🚀 开始基于多字段参数爬取韩国召回数据");
@@ -194,10 +238,13 @@ public class KrRecall {
                 
                 try {
                     log.info("\n🏢 处理公司名称: {}", companyName);
-                    String result = crawlAndSaveToDatabase(companyName.trim(), null, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(companyName.trim(), null, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000); // 添加延迟
+                    CrawlerCancellationToken.sleep(2000); // 添加延迟
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     log.error("处理公司名称 '{}' 失败: {}", companyName, e.getMessage());
                 }
             }
@@ -210,10 +257,13 @@ public class KrRecall {
                 
                 try {
                     log.info("\n📦 处理产品名称: {}", itemName);
-                    String result = crawlAndSaveToDatabase(null, itemName.trim(), maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveToDatabase(null, itemName.trim(), maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000); // 添加延迟
+                    CrawlerCancellationToken.sleep(2000); // 添加延迟
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     log.error("处理产品名称 '{}' 失败: {}", itemName, e.getMessage());
                 }
             }
@@ -223,11 +273,12 @@ public class KrRecall {
     }
 
     /**
-     * 爬取召回数据（核心方法）
+     * 爬取召回数据（核心方法），每页去重后的数据立即发送给下游阶段
+     * @return 获取的记录数
      */
-    private List<KoreaRecallData> crawlRecallData(String companyName, String itemName, int maxRecords, 
-                                                   String dateFrom, String dateTo) throws Exception {
-        List<KoreaRecallData> allData = new ArrayList<>();
+    private int crawlRecallData(String companyName, String itemName, int maxRecords,
+                                String dateFrom, String dateTo,
+                                CrawlPipeline.Emitter<KoreaRecallData> emitter) throws Exception {
         Set<String> processedRecallNumbers = new HashSet<>(); // 用于去重
         int pageNum = 1;
         int totalFetched = 0;
@@ -249,7 +300,7 @@ public class KrRecall {
                 String referrer = (pageNum == 1) ? "https://emedi.mfds.go.kr/recall/MNU20265" : 
                     buildUrl(companyName, itemName, pageNum - 1, dateFrom, dateTo);
                 
-                Document doc = Jsoup.connect(url)
+                Document doc = HttpUtils.execute(Jsoup.connect(url)
                         .userAgent(USER_AGENT)
                         .header("Accept", "text/html, */*; q=0.01")
                         .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -262,8 +313,7 @@ public class KrRecall {
                         .header("X-Requested-With", "XMLHttpRequest")
                         .header("Referer", referrer)
                         .referrer(referrer)
-                        .timeout(30000)
-                        .get();
+                        .timeout(30000)).parse();
 
                 List<KoreaRecallData> pageData = parseRecallData(doc);
                 
@@ -277,7 +327,7 @@ public class KrRecall {
                     }
                     
                     pageNum++;
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                     continue;
                 }
                 
@@ -310,7 +360,7 @@ public class KrRecall {
                     }
                     
                     pageNum++;
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                     continue;
                 }
                 
@@ -319,8 +369,21 @@ public class KrRecall {
                 
                 log.info("第 {} 页去重后: 新增 {} 条，重复 {} 条", pageNum, newData.size(), duplicateCount);
 
-                allData.addAll(newData);
-                totalFetched += newData.size();
+                boolean accepted = true;
+                for (KoreaRecallData data : newData) {
+                    if (!crawlAll && totalFetched >= maxRecords) {
+                        break;
+                    }
+                    if (!emitter.emit(data)) {
+                        accepted = false;
+                        break;
+                    }
+                    totalFetched++;
+                }
+                if (!accepted) {
+                    log.info("流水线已取消，停止爬取");
+                    break;
+                }
                 
                 log.info("✅ 第 {} 页爬取完成，获取 {} 条数据，累计: {}", pageNum, newData.size(), totalFetched);
 
@@ -333,10 +396,13 @@ public class KrRecall {
                 pageNum++;
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(1500);
-                
+                CrawlerCancellationToken.sleep(1500);
+
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Exception e) {
                 log.error("爬取第 {} 页时发生错误: {}", pageNum, e.getMessage());
+                CrawlerProgressContext.reportError("爬取第 " + pageNum + " 页时发生错误: " + e.getMessage());
                 consecutiveEmptyPages++;
                 if (consecutiveEmptyPages >= maxEmptyPages) {
                     log.error("连续 {} 页出错，停止爬取", maxEmptyPages);
@@ -344,20 +410,15 @@ public class KrRecall {
                 }
                 pageNum++;
                 try {
-                    Thread.sleep(2000); // 出错时增加延迟
+                    CrawlerCancellationToken.sleep(2000); // 出错时增加延迟
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
 
-        // 如果指定了最大记录数，则截取
-        if (!crawlAll && allData.size() > maxRecords) {
-            allData = allData.subList(0, maxRecords);
-        }
-
-        log.info("📊 韩国召回数据爬取完成，共获取 {} 条数据（已去重）", allData.size());
-        return allData;
+        log.info("📊 韩国召回数据爬取完成，共获取 {} 条数据（已去重）", totalFetched);
+        return totalFetched;
     }
 
     /**
@@ -537,66 +598,6 @@ public class KrRecall {
         }
     }
 
-    /**
-     * 批量保存到数据库
-     */
-    @Transactional
-    private String saveBatchToDatabase(List<KoreaRecallData> records, int batchSize) {
-        if (records == null || records.isEmpty()) {
-            return "0 条记录";
-        }
-
-        int savedCount = 0;
-        int totalSkipped = 0;
-        int batchCount = 0;
-
-        for (int i = 0; i < records.size(); i += batchSize) {
-            int endIndex = Math.min(i + batchSize, records.size());
-            List<KoreaRecallData> batch = records.subList(i, endIndex);
-            batchCount++;
-
-            List<DeviceRecallRecord> newRecords = new ArrayList<>();
-            int batchDuplicateCount = 0;
-
-            for (KoreaRecallData record : batch) {
-                try {
-                    // 使用召回编号作为唯一标识
-                    String cfresId = "KR_" + record.getRecallNumber();
-                    
-                    // 检查是否已存在
-                    boolean isDuplicate = deviceRecallRecordRepository.existsByCfresId(cfresId);
-
-                    if (!isDuplicate) {
-                        DeviceRecallRecord entity = convertToEntity(record);
-                        newRecords.add(entity);
-                    } else {
-                        batchDuplicateCount++;
-                    }
-                } catch (Exception e) {
-                    log.error("处理记录时发生错误: {}", e.getMessage());
-                    batchDuplicateCount++;
-                }
-            }
-
-            // 保存新记录
-            if (!newRecords.isEmpty()) {
-                try {
-                    List<DeviceRecallRecord> savedRecords = deviceRecallRecordRepository.saveAll(newRecords);
-                    savedCount += savedRecords.size();
-                    totalSkipped += batchDuplicateCount;
-                    log.info("第 {} 批次保存成功，新增: {} 条，重复: {} 条", batchCount, newRecords.size(), batchDuplicateCount);
-                } catch (Exception e) {
-                    log.error("第 {} 批次保存失败: {}", batchCount, e.getMessage());
-                }
-            } else {
-                log.info("第 {} 批次全部重复，跳过: {} 条", batchCount, batchDuplicateCount);
-                totalSkipped += batchDuplicateCount;
-            }
-        }
-
-        return String.format("保存成功: %d 条新记录, 跳过重复: %d 条", savedCount, totalSkipped);
-    }
-
     /**
      * 将韩国召回数据转换为实体
      */
@@ -1,10 +1,14 @@
 package com.certification.crawler.countrydata.kr;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.entity.common.CustomsCase;
 import com.certification.repository.common.CustomsCaseRepository;
 import com.certification.analysis.analysisByai.TranslateAI;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -99,7 +103,7 @@ public class Kr_customcase {
                     log.info("\n🔍 使用搜索关键词: {}", keyword);
                     String result = crawlAndSaveToDatabase(keyword.trim(), null, maxRecords, batchSize, dateFrom, dateTo);
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000); // 添加延迟
+                    CrawlerCancellationToken.sleep(2000); // 添加延迟
                 } catch (Exception e) {
                     log.error("处理搜索关键词 '{}' 失败: {}", keyword, e.getMessage());
                 }
@@ -115,7 +119,7 @@ public class Kr_customcase {
                     log.info("\n📦 处理产品名称: {}", productName);
                     String result = crawlAndSaveToDatabase(null, productName.trim(), maxRecords, batchSize, dateFrom, dateTo);
                     totalSaved += extractSavedCount(result);
-                    Thread.sleep(2000); // 添加延迟
+                    CrawlerCancellationToken.sleep(2000); // 添加延迟
                 } catch (Exception e) {
                     log.error("处理产品名称 '{}' 失败: {}", productName, e.getMessage());
                 }
@@ -148,7 +152,7 @@ public class Kr_customcase {
                 String postBody = buildPostBody(searchKeyword, productName, pageNum, dateFrom, dateTo);
                 log.debug("请求体: {}", postBody);
                 
-                Document doc = Jsoup.connect(SEARCH_URL)
+                Document doc = HttpUtils.execute(Jsoup.connect(SEARCH_URL)
                         .userAgent(USER_AGENT)
                         .header("Accept", "application/json, text/javascript, */*; q=0.01")
                         .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -165,7 +169,7 @@ public class Kr_customcase {
                         .referrer("https://unipass.customs.go.kr/clip/index.do")
                         .requestBody(postBody)
                         .timeout(30000)
-                        .post();
+                        .method(Connection.Method.POST)).parse();
 
                 List<KoreaCustomsCaseData> pageData = parseCustomsCaseData(doc);
                 
@@ -179,12 +183,13 @@ public class Kr_customcase {
                     }
                     
                     pageNum++;
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                     continue;
                 }
                 
                 // 重置连续空页面计数
                 consecutiveEmptyPages = 0;
+                CrawlerProgressContext.reportPage(pageNum, null);
                 
                 // 去重处理：检查是否有新的海关案例
                 List<KoreaCustomsCaseData> newData = new ArrayList<>();
@@ -212,7 +217,7 @@ public class Kr_customcase {
                     }
                     
                     pageNum++;
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                     continue;
                 }
                 
@@ -235,7 +240,7 @@ public class Kr_customcase {
                 pageNum++;
                 
                 // 添加延迟避免请求过快
-                Thread.sleep(1500);
+                CrawlerCancellationToken.sleep(1500);
                 
             } catch (Exception e) {
                 log.error("爬取第 {} 页时发生错误: {}", pageNum, e.getMessage());
@@ -246,9 +251,9 @@ public class Kr_customcase {
                 }
                 pageNum++;
                 try {
-                    Thread.sleep(2000); // 出错时增加延迟
+                    CrawlerCancellationToken.sleep(2000); // 出错时增加延迟
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
@@ -588,13 +593,14 @@ public class Kr_customcase {
             totalDuplicates += batchDuplicates;
             
             log.info("第 {} 批次保存成功，新增: {} 条，重复: {} 条", batchCount, batchSaved, batchDuplicates);
+            CrawlerProgressContext.reportBatch(batch.size(), batchSaved, batchDuplicates, batch.size() - batchSaved - batchDuplicates);
             
             // 批次间延迟
             if (i + batchSize < dataList.size()) {
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
             }
@@ -1,5 +1,7 @@
 package com.certification.crawler.countrydata.medical.base;
 
+import com.certification.crawler.common.CrawlResultSink;
+
 import java.util.List;
 
 /**
@@ -60,6 +62,39 @@ public interface BaseMedicalCrawler {
      */
     List<MedicalCrawlerResult> crawlByKeyword(String keyword, int totalCount) throws Exception;
     
+    /**
+     * 流式爬取最新医疗器械公告，每抓取一批就交给接收器处理
+     * 默认实现先完整爬取再分批交付，逐页抓取的爬虫应覆盖此方法
+     * @param totalCount 需要爬取的数量
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawlLatestAnnouncements(int totalCount, CrawlResultSink<MedicalCrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawlLatestAnnouncements(totalCount), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
+    /**
+     * 流式爬取指定日期的医疗器械信息
+     * @param startDate 开始日期 (yyyy-MM-dd)
+     * @param endDate 结束日期 (yyyy-MM-dd)
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawlByDateRange(String startDate, String endDate, CrawlResultSink<MedicalCrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawlByDateRange(startDate, endDate), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
+    /**
+     * 流式爬取指定关键词的医疗器械信息
+     * @param keyword 搜索关键词
+     * @param totalCount 需要爬取的数量
+     * @param sink 结果接收器，返回false时停止爬取
+     * @throws Exception 爬取异常
+     */
+    default void crawlByKeyword(String keyword, int totalCount, CrawlResultSink<MedicalCrawlerResult> sink) throws Exception {
+        CrawlResultSink.deliver(crawlByKeyword(keyword, totalCount), CrawlResultSink.DEFAULT_BATCH_SIZE, sink);
+    }
+    
     /**
      * 获取国家代码
      * @return 国家代码 (US, CN, KR, EU, JP, AE)
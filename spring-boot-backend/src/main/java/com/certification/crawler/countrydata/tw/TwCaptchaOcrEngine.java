@@ -0,0 +1,463 @@
+package com.certification.crawler.countrydata.tw;
+
+import com.sun.jna.Pointer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.TessAPI1;
+import org.springframework.stereotype.Component;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 台湾FDA验证码OCR引擎
+ *
+ * 与每次识别都 new Tesseract() 相比：
+ * - 每种识别策略维护一组已初始化的原生 TessBaseAPI 句柄，避免重复加载训练数据
+ * - 多种策略并行识别，得到高置信度的4位结果后立即返回
+ * - 预处理全部在字节数组上完成，不再逐像素 getRGB/setRGB，也不为每一步创建新的 BufferedImage
+ */
+@Slf4j
+@Component
+public class TwCaptchaOcrEngine {
+
+    private static final int CAPTCHA_LENGTH = 4;
+    private static final int SCALE_FACTOR = 6;
+    private static final int BORDER_SIZE = 20;
+    private static final int MORPHOLOGY_ITERATIONS = 2;
+    private static final int CONFIDENT_SCORE = 75;
+    private static final int HANDLES_PER_STRATEGY = 2;
+    private static final long OCR_TIMEOUT_SECONDS = 20;
+
+    private static final byte BLACK = 0;
+    private static final byte WHITE = (byte) 0xFF;
+
+    /**
+     * 识别策略（页面分割模式 + 引擎模式）
+     */
+    enum Strategy {
+        PRIMARY("primary", 7, 1),   // 单行文本 + LSTM
+        PSM6("psm6", 6, 1),         // 单块文本 + LSTM
+        PSM8("psm8", 8, 1),         // 单词 + LSTM
+        LEGACY("legacy", 7, 0);     // 单行文本 + 传统引擎
+
+        final String label;
+        final int pageSegMode;
+        final int engineMode;
+
+        Strategy(String label, int pageSegMode, int engineMode) {
+            this.label = label;
+            this.pageSegMode = pageSegMode;
+            this.engineMode = engineMode;
+        }
+    }
+
+    private final Map<Strategy, BlockingQueue<TessBaseAPI>> handlePools = new EnumMap<>(Strategy.class);
+    private ExecutorService ocrExecutor;
+    private volatile String datapath;
+    private volatile boolean available = true;
+
+    @PostConstruct
+    public void init() {
+        datapath = resolveDatapath();
+        for (Strategy strategy : Strategy.values()) {
+            handlePools.put(strategy, new ArrayBlockingQueue<>(HANDLES_PER_STRATEGY));
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ocrExecutor = Executors.newFixedThreadPool(Strategy.values().length, r -> {
+            Thread t = new Thread(r, "captcha-ocr-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        // 后台预热：每种策略先初始化一个句柄，不阻塞应用启动
+        ocrExecutor.submit(this::warmUp);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ocrExecutor != null) {
+            ocrExecutor.shutdownNow();
+        }
+        for (BlockingQueue<TessBaseAPI> pool : handlePools.values()) {
+            TessBaseAPI handle;
+            while ((handle = pool.poll()) != null) {
+                destroyHandle(handle);
+            }
+        }
+    }
+
+    /**
+     * 识别验证码
+     * @return 识别结果，无法识别时返回null
+     */
+    public OcrResult recognize(OcrImage image) {
+        if (!available || image == null) {
+            return null;
+        }
+
+        CompletionService<OcrResult> completionService = new ExecutorCompletionService<>(ocrExecutor);
+        List<Future<OcrResult>> futures = new ArrayList<>();
+        for (Strategy strategy : Strategy.values()) {
+            futures.add(completionService.submit(() -> runStrategy(strategy, image)));
+        }
+
+        OcrResult[] results = new OcrResult[Strategy.values().length];
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<OcrResult> done = completionService.poll(OCR_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (done == null) {
+                    log.warn("OCR识别超时（{}秒）", OCR_TIMEOUT_SECONDS);
+                    break;
+                }
+                OcrResult result = done.get();
+                if (result == null) {
+                    continue;
+                }
+                log.debug("策略 {} OCR结果: '{}'，置信度: {}", result.getStrategy(), result.getText(), result.getConfidence());
+                if (result.getText().length() == CAPTCHA_LENGTH && result.getConfidence() >= CONFIDENT_SCORE) {
+                    return result;
+                }
+                results[Strategy.valueOf(result.getStrategy().toUpperCase()).ordinal()] = result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("OCR识别异常: {}", e.getMessage());
+        } finally {
+            for (Future<OcrResult> future : futures) {
+                future.cancel(false);
+            }
+        }
+
+        return selectBest(results);
+    }
+
+    /**
+     * 没有高置信度结果时：优先选置信度最高的4位结果，其次按策略顺序截取超长结果的前4位
+     */
+    private OcrResult selectBest(OcrResult[] results) {
+        OcrResult best = null;
+        for (OcrResult result : results) {
+            if (result != null && result.getText().length() == CAPTCHA_LENGTH
+                    && (best == null || result.getConfidence() > best.getConfidence())) {
+                best = result;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        for (OcrResult result : results) {
+            if (result != null && result.getText().length() > CAPTCHA_LENGTH) {
+                return new OcrResult(result.getStrategy(), result.getText().substring(0, CAPTCHA_LENGTH), result.getConfidence());
+            }
+        }
+        return null;
+    }
+
+    private OcrResult runStrategy(Strategy strategy, OcrImage image) {
+        BlockingQueue<TessBaseAPI> pool = handlePools.get(strategy);
+        TessBaseAPI handle = pool.poll();
+        if (handle == null) {
+            handle = createHandle(strategy);
+            if (handle == null) {
+                return null;
+            }
+        }
+
+        boolean reusable = true;
+        try {
+            TessAPI1.TessBaseAPISetImage(handle, image.getBuffer().duplicate(), image.getWidth(), image.getHeight(), 1, image.getWidth());
+            TessAPI1.TessBaseAPISetSourceResolution(handle, 300);
+
+            Pointer textPointer = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            String raw = "";
+            if (textPointer != null) {
+                raw = textPointer.getString(0, "UTF-8");
+                TessAPI1.TessDeleteText(textPointer);
+            }
+            int confidence = TessAPI1.TessBaseAPIMeanTextConf(handle);
+            TessAPI1.TessBaseAPIClear(handle);
+
+            String digits = raw.replaceAll("[^0-9]", "");
+            return digits.isEmpty() ? null : new OcrResult(strategy.label, digits, confidence);
+        } catch (Exception e) {
+            reusable = false;
+            log.debug("策略 {} 执行失败: {}", strategy.label, e.getMessage());
+            return null;
+        } finally {
+            if (!reusable || !pool.offer(handle)) {
+                destroyHandle(handle);
+            }
+        }
+    }
+
+    private void warmUp() {
+        for (Strategy strategy : Strategy.values()) {
+            TessBaseAPI handle = createHandle(strategy);
+            if (handle == null) {
+                return;
+            }
+            if (!handlePools.get(strategy).offer(handle)) {
+                destroyHandle(handle);
+            }
+        }
+        log.info("验证码OCR引擎预热完成，训练数据路径: {}", datapath != null ? datapath : "TESSDATA_PREFIX");
+    }
+
+    private TessBaseAPI createHandle(Strategy strategy) {
+        try {
+            TessBaseAPI handle = TessAPI1.TessBaseAPICreate();
+            if (TessAPI1.TessBaseAPIInit2(handle, datapath, "eng", strategy.engineMode) != 0) {
+                log.warn("Tesseract初始化失败（策略: {}，训练数据路径: {}）", strategy.label, datapath);
+                TessAPI1.TessBaseAPIDelete(handle);
+                return null;
+            }
+            TessAPI1.TessBaseAPISetPageSegMode(handle, strategy.pageSegMode);
+            TessAPI1.TessBaseAPISetVariable(handle, "tessedit_char_whitelist", "0123456789");
+            TessAPI1.TessBaseAPISetVariable(handle, "classify_bln_numeric_mode", "1");
+            return handle;
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+            available = false;
+            log.error("❌ Tesseract OCR 库未正确安装: {}", e.getMessage());
+            log.error("请安装 Tesseract OCR:");
+            log.error("  Windows: 下载安装 https://github.com/UB-Mannheim/tesseract/wiki");
+            log.error("  Linux: sudo apt-get install tesseract-ocr");
+            log.error("  Mac: brew install tesseract");
+            return null;
+        }
+    }
+
+    private void destroyHandle(TessBaseAPI handle) {
+        try {
+            TessAPI1.TessBaseAPIEnd(handle);
+            TessAPI1.TessBaseAPIDelete(handle);
+        } catch (Throwable e) {
+            log.debug("释放Tesseract句柄失败: {}", e.getMessage());
+        }
+    }
+
+    private String resolveDatapath() {
+        String[] possiblePaths = {
+            "src/main/resources/tessdata",
+            "tessdata",
+            System.getProperty("user.dir") + "/tessdata",
+            System.getProperty("user.dir") + "/src/main/resources/tessdata"
+        };
+        for (String path : possiblePaths) {
+            File tessdataDir = new File(path);
+            if (tessdataDir.exists() && tessdataDir.isDirectory()) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 图像预处理：放大6倍 → 灰度化 → OTSU二值化 → 形态学开运算去噪 → 添加白色边框
+     * 全程在字节数组上完成，1字节/像素（0=黑，255=白）
+     */
+    public static OcrImage preprocess(BufferedImage original) {
+        int width = original.getWidth() * SCALE_FACTOR;
+        int height = original.getHeight() * SCALE_FACTOR;
+
+        // 步骤1: 双三次插值放大（唯一一次图像绘制）
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(original, 0, 0, width, height, null);
+        g.dispose();
+
+        // 步骤2: 直接从栅格数据计算灰度
+        int[] rgb = ((DataBufferInt) scaled.getRaster().getDataBuffer()).getData();
+        int pixelCount = width * height;
+        byte[] gray = new byte[pixelCount];
+        int[] histogram = new int[256];
+        for (int i = 0; i < pixelCount; i++) {
+            int p = rgb[i];
+            int value = (((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8;
+            gray[i] = (byte) value;
+            histogram[value]++;
+        }
+
+        // 步骤3: OTSU阈值，降低15只保留真正暗的像素（数字）
+        int threshold = Math.max(otsuThreshold(histogram, pixelCount) - 15, 128);
+
+        // 步骤4: 二值化（复用灰度数组）
+        byte[] current = gray;
+        for (int i = 0; i < pixelCount; i++) {
+            current[i] = (current[i] & 0xFF) < threshold ? BLACK : WHITE;
+        }
+
+        // 步骤5: 形态学开运算，两个缓冲区交替使用
+        byte[] next = new byte[pixelCount];
+        for (int i = 0; i < MORPHOLOGY_ITERATIONS; i++) {
+            erode(current, next, width, height);
+            byte[] tmp = current; current = next; next = tmp;
+        }
+        for (int i = 0; i < MORPHOLOGY_ITERATIONS; i++) {
+            dilate(current, next, width, height);
+            byte[] tmp = current; current = next; next = tmp;
+        }
+
+        // 步骤6: 添加白色边框
+        int borderedWidth = width + 2 * BORDER_SIZE;
+        int borderedHeight = height + 2 * BORDER_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(borderedWidth * borderedHeight);
+        byte[] whiteRow = new byte[borderedWidth];
+        Arrays.fill(whiteRow, WHITE);
+        for (int y = 0; y < BORDER_SIZE; y++) {
+            buffer.put(whiteRow);
+        }
+        for (int y = 0; y < height; y++) {
+            buffer.put(whiteRow, 0, BORDER_SIZE);
+            buffer.put(current, y * width, width);
+            buffer.put(whiteRow, 0, BORDER_SIZE);
+        }
+        for (int y = 0; y < BORDER_SIZE; y++) {
+            buffer.put(whiteRow);
+        }
+        buffer.flip();
+
+        return new OcrImage(buffer, borderedWidth, borderedHeight, threshold);
+    }
+
+    /**
+     * 形态学腐蚀：3x3邻域全部为黑才保留黑色，图像边缘视为背景
+     */
+    private static void erode(byte[] src, byte[] dst, int width, int height) {
+        Arrays.fill(dst, WHITE);
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                boolean allBlack = src[i] == BLACK
+                        && src[i - 1] == BLACK && src[i + 1] == BLACK
+                        && src[i - width - 1] == BLACK && src[i - width] == BLACK && src[i - width + 1] == BLACK
+                        && src[i + width - 1] == BLACK && src[i + width] == BLACK && src[i + width + 1] == BLACK;
+                if (allBlack) {
+                    dst[i] = BLACK;
+                }
+            }
+        }
+    }
+
+    /**
+     * 形态学膨胀：3x3邻域有任何黑色即为黑色，图像边缘视为背景
+     */
+    private static void dilate(byte[] src, byte[] dst, int width, int height) {
+        Arrays.fill(dst, WHITE);
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                boolean anyBlack = src[i] == BLACK
+                        || src[i - 1] == BLACK || src[i + 1] == BLACK
+                        || src[i - width - 1] == BLACK || src[i - width] == BLACK || src[i - width + 1] == BLACK
+                        || src[i + width - 1] == BLACK || src[i + width] == BLACK || src[i + width + 1] == BLACK;
+                if (anyBlack) {
+                    dst[i] = BLACK;
+                }
+            }
+        }
+    }
+
+    /**
+     * 根据灰度直方图计算OTSU最佳阈值
+     */
+    private static int otsuThreshold(int[] histogram, int totalPixels) {
+        double sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (double) i * histogram[i];
+        }
+
+        double sumB = 0;
+        long wB = 0;
+        double maxVariance = 0;
+        int threshold = 0;
+        for (int t = 0; t < 256; t++) {
+            wB += histogram[t];
+            if (wB == 0) continue;
+            long wF = totalPixels - wB;
+            if (wF == 0) break;
+
+            sumB += (double) t * histogram[t];
+            double mB = sumB / wB;
+            double mF = (sum - sumB) / wF;
+            double variance = (double) wB * (double) wF * (mB - mF) * (mB - mF);
+            if (variance > maxVariance) {
+                maxVariance = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * 预处理后的8位灰度图像
+     */
+    @Getter
+    public static class OcrImage {
+        private final ByteBuffer buffer;
+        private final int width;
+        private final int height;
+        private final int threshold;
+
+        OcrImage(ByteBuffer buffer, int width, int height, int threshold) {
+            this.buffer = buffer;
+            this.width = width;
+            this.height = height;
+            this.threshold = threshold;
+        }
+
+        /**
+         * 转换为BufferedImage（仅用于保存调试图像）
+         */
+        public BufferedImage toBufferedImage() {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            buffer.duplicate().get(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+            return image;
+        }
+    }
+
+    /**
+     * 识别结果
+     */
+    @Getter
+    public static class OcrResult {
+        private final String strategy;
+        private final String text;
+        private final int confidence;
+
+        OcrResult(String strategy, String text, int confidence) {
+            this.strategy = strategy;
+            this.text = text;
+            this.confidence = confidence;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.certification.crawler.countrydata.tw;
 
+import com.certification.crawler.common.HttpUtils;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Connection;
 import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
@@ -15,6 +18,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -45,6 +49,9 @@ public class TwCaptchaService {
     // JSON 解析器
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Autowired
+    private TwCaptchaOcrEngine ocrEngine;
+
     /**
      * 验证码信息
      */
@@ -61,6 +68,13 @@ public class TwCaptchaService {
             return System.currentTimeMillis() - timestamp > CAPTCHA_EXPIRY;
         }
         
+        /**
+         * 是否将在指定毫秒数内过期
+         */
+        public boolean expiresWithin(long millis) {
+            return System.currentTimeMillis() - timestamp > CAPTCHA_EXPIRY - millis;
+        }
+        
         /**
          * 添加图片路径
          */
@@ -123,9 +137,9 @@ public class TwCaptchaService {
                     try {
                         long waitTime = attempt * 2000; // 递增等待时间
                         log.debug("等待 {} 毫秒后重试...", waitTime);
-                        Thread.sleep(waitTime);
+                        CrawlerCancellationToken.sleep(waitTime);
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         throw new IOException("获取验证码被中断", ie);
                     }
                 }
@@ -145,18 +159,17 @@ public class TwCaptchaService {
     private CaptchaInfo getCaptchaInternal() throws IOException {
         // 1. 访问主页面获取session
         log.debug("步骤1: 访问主页面获取session");
-        Connection.Response mainPage = Jsoup.connect(MAIN_PAGE_URL)
+        Connection.Response mainPage = HttpUtils.execute(Jsoup.connect(MAIN_PAGE_URL)
                 .userAgent(USER_AGENT)
                 .method(Connection.Method.GET)
-                .timeout(TIMEOUT)
-                .execute();
+                .timeout(TIMEOUT));
         
         Map<String, String> cookies = mainPage.cookies();
         log.debug("获取到cookies: {}", cookies.keySet());
         
         // 2. 获取验证码图片和哈希
         log.debug("步骤2: 获取验证码图片");
-        Connection.Response captchaResponse = Jsoup.connect(CAPTCHA_URL)
+        Connection.Response captchaResponse = HttpUtils.execute(Jsoup.connect(CAPTCHA_URL)
                 .userAgent(USER_AGENT)
                 .referrer(MAIN_PAGE_URL)
                 .header("accept", "*/*")
@@ -170,8 +183,7 @@ public class TwCaptchaService {
                 .cookies(cookies)
                 .method(Connection.Method.GET)
                 .ignoreContentType(true)
-                .timeout(TIMEOUT)
-                .execute();
+                .timeout(TIMEOUT));
         
         // 3. 提取验证码信息
         String responseBody = captchaResponse.body();
@@ -448,7 +460,7 @@ public class TwCaptchaService {
 
     /**
      * OCR识别
-     * 使用Tesseract OCR引擎，支持多种策略
+     * 使用预初始化的Tesseract句柄，多种策略并行识别
      * 
      * @param imageData 验证码图片数据
      * @param captchaInfo 验证码信息对象（用于记录保存的图片路径）
@@ -459,41 +471,30 @@ public class TwCaptchaService {
 
             // 图像预处理
             BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
-            BufferedImage processed = preprocessImageForOCR(image, captchaInfo);
-
-            // 尝试多种OCR配置策略
-            String[] strategies = {"primary", "psm6", "psm8", "legacy"};
-
-            for (String strategy : strategies) {
-                String result = tryOcrWithStrategy(processed, strategy);
-                if (result != null && result.length() == 4) {
-                    log.info("✅ OCR识别成功（策略: {}）: {}", strategy, result);
-                    return result;
-                } else if (result != null && result.length() > 4) {
-                    result = result.substring(0, 4);
-                    log.info("✅ OCR识别成功（策略: {}, 截取前4位）: {}", strategy, result);
-                    return result;
-                } else if (result != null && result.length() > 0) {
-                    log.debug("策略 {} 识别不完整: '{}' ({}位)", strategy, result, result.length());
-                }
+            TwCaptchaOcrEngine.OcrImage processed = TwCaptchaOcrEngine.preprocess(image);
+            log.debug("图像预处理完成: 放大 → 灰度化 → OTSU二值化(阈值:{}) → 形态学去噪 → 添加边框",
+                     processed.getThreshold());
+
+            // 预处理图像仅在调试时保存
+            if (log.isDebugEnabled()) {
+                saveDebugImage(processed.toBufferedImage(), "processed", captchaInfo);
+            }
+
+            TwCaptchaOcrEngine.OcrResult result = ocrEngine.recognize(processed);
+            if (result != null) {
+                log.info("✅ OCR识别成功（策略: {}，置信度: {}）: {}", result.getStrategy(), result.getConfidence(), result.getText());
+                return result.getText();
             }
 
             // 所有策略都失败
             log.warn("❌ OCR识别失败，所有策略都未能识别完整的4位数字");
             log.warn("建议：");
             log.warn("  1. 查看验证码图片: logs/captcha/captcha_*.png");
-            log.warn("  2. 查看预处理图片: logs/captcha/captcha_processed_*.png");
+            log.warn("  2. 开启DEBUG日志后查看预处理图片: logs/captcha/captcha_processed_*.png");
             log.warn("  3. 下载训练数据到 tessdata 目录");
             log.warn("  4. 使用手动输入模式测试");
             return null;
 
-        } catch (UnsatisfiedLinkError e) {
-            log.error("❌ Tesseract OCR 库未正确安装");
-            log.error("请安装 Tesseract OCR:");
-            log.error("  Windows: 下载安装 https://github.com/UB-Mannheim/tesseract/wiki");
-            log.error("  Linux: sudo apt-get install tesseract-ocr");
-            log.error("  Mac: brew install tesseract");
-            return null;
         } catch (Exception e) {
             log.warn("OCR识别异常: {}", e.getMessage());
             log.debug("OCR识别详细错误", e);
@@ -501,251 +502,6 @@ public class TwCaptchaService {
         }
     }
 
-    /**
-     * 使用特定策略尝试OCR识别
-     */
-    private String tryOcrWithStrategy(BufferedImage processed, String strategy) {
-        try {
-            net.sourceforge.tess4j.Tesseract tesseract = new net.sourceforge.tess4j.Tesseract();
-
-            // 设置训练数据路径（尝试多个可能的位置）
-            String[] possiblePaths = {
-                "src/main/resources/tessdata",
-                "tessdata",
-                System.getProperty("user.dir") + "/tessdata",
-                System.getProperty("user.dir") + "/src/main/resources/tessdata"
-            };
-
-            for (String path : possiblePaths) {
-                File tessdataDir = new File(path);
-                if (tessdataDir.exists() && tessdataDir.isDirectory()) {
-                    tesseract.setDatapath(path);
-                    break;
-                }
-            }
-
-            // 基础配置
-            tesseract.setLanguage("eng");
-            tesseract.setVariable("tessedit_char_whitelist", "0123456789");
-            tesseract.setVariable("classify_bln_numeric_mode", "1");
-
-            // 根据策略设置不同的参数
-            switch (strategy) {
-                case "primary":
-                    // 策略1: 单行文本 + LSTM引擎（默认）
-                    tesseract.setPageSegMode(7);  // 单行文本
-                    tesseract.setOcrEngineMode(1);  // LSTM
-                    break;
-
-                case "psm6":
-                    // 策略2: 单块文本 + LSTM引擎
-                    tesseract.setPageSegMode(6);  // 单块文本
-                    tesseract.setOcrEngineMode(1);  // LSTM
-                    break;
-
-                case "psm8":
-                    // 策略3: 单词模式 + LSTM引擎
-                    tesseract.setPageSegMode(8);  // 单词
-                    tesseract.setOcrEngineMode(1);  // LSTM
-                    break;
-
-                case "legacy":
-                    // 策略4: 单行文本 + 传统引擎
-                    tesseract.setPageSegMode(7);  // 单行文本
-                    tesseract.setOcrEngineMode(0);  // 传统引擎
-                    break;
-            }
-
-            // OCR识别
-            String result = tesseract.doOCR(processed);
-
-            // 清理结果（只保留数字）
-            result = result.replaceAll("[^0-9]", "").trim();
-
-            log.debug("策略 {} OCR原始结果: '{}'", strategy, result);
-
-            // 后处理：修正常见的OCR错误
-            result = postProcessOcrResult(result, processed);
-
-            log.debug("策略 {} OCR修正后结果: '{}'", strategy, result);
-
-            return result.isEmpty() ? null : result;
-
-        } catch (Exception e) {
-            log.debug("策略 {} 执行失败: {}", strategy, e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * 图像预处理，提高OCR识别率
-     * 最终方案：先放大 → OTSU自适应二值化 → 去噪
-     *
-     * 关键：使用OTSU自适应阈值，自动适应不同颜色的验证码
-     * 
-     * @param original 原始图片
-     * @param captchaInfo 验证码信息对象（用于记录保存的图片路径）
-     */
-    private BufferedImage preprocessImageForOCR(BufferedImage original, CaptchaInfo captchaInfo) {
-        try {
-            int width = original.getWidth();
-            int height = original.getHeight();
-
-            // 步骤1: 先放大原始彩色图像（6倍）
-            int scaleFactor = 6;
-            int newWidth = width * scaleFactor;
-            int newHeight = height * scaleFactor;
-
-            BufferedImage scaled = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-            java.awt.Graphics2D g2 = scaled.createGraphics();
-            g2.setRenderingHint(java.awt.RenderingHints.KEY_INTERPOLATION,
-                               java.awt.RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-            g2.setRenderingHint(java.awt.RenderingHints.KEY_RENDERING,
-                               java.awt.RenderingHints.VALUE_RENDER_QUALITY);
-            g2.drawImage(original, 0, 0, newWidth, newHeight, null);
-            g2.dispose();
-
-            // 步骤2: 转为灰度图
-            BufferedImage grayscale = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_BYTE_GRAY);
-            java.awt.Graphics2D g = grayscale.createGraphics();
-            g.drawImage(scaled, 0, 0, null);
-            g.dispose();
-
-            // 步骤3: 使用OTSU算法计算最佳阈值，并适当降低（更严格地过滤噪点）
-            int threshold = calculateOtsuThreshold(grayscale);
-            // 降低阈值15，使得只有真正暗的像素（数字）被保留，浅色噪点被过滤
-            threshold = Math.max(threshold - 15, 128);
-            log.debug("OTSU计算的阈值: {} (调整后: {})", calculateOtsuThreshold(grayscale), threshold);
-
-            // 步骤4: 使用调整后的阈值进行二值化
-            BufferedImage binary = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_BYTE_BINARY);
-            for (int y = 0; y < newHeight; y++) {
-                for (int x = 0; x < newWidth; x++) {
-                    int gray = (grayscale.getRGB(x, y) >> 16) & 0xFF;
-
-                    // 使用调整后的阈值二值化
-                    // 数字通常比背景暗，所以 < threshold 的是文字
-                    int newRgb = gray < threshold ? 0x000000 : 0xFFFFFF;
-                    binary.setRGB(x, y, newRgb);
-                }
-            }
-
-            // 步骤5: 形态学开运算（增强去噪：先腐蚀2次后膨胀2次）
-            binary = morphologicalOpen(binary, 2);
-
-            // 步骤6: 添加白色边框
-            int borderSize = 20;
-            BufferedImage bordered = new BufferedImage(
-                newWidth + 2 * borderSize,
-                newHeight + 2 * borderSize,
-                BufferedImage.TYPE_BYTE_BINARY
-            );
-            java.awt.Graphics2D gBorder = bordered.createGraphics();
-            gBorder.setColor(java.awt.Color.WHITE);
-            gBorder.fillRect(0, 0, bordered.getWidth(), bordered.getHeight());
-            gBorder.drawImage(binary, borderSize, borderSize, null);
-            gBorder.dispose();
-
-            log.debug("图像预处理完成: 放大{}倍 → 灰度化 → OTSU二值化(阈值:{}) → 形态学去噪 → 添加边框",
-                     scaleFactor, threshold);
-
-            // 保存预处理后的图像用于调试（并记录路径）
-            saveDebugImage(bordered, "processed", captchaInfo);
-
-            return bordered;
-
-        } catch (Exception e) {
-            log.warn("图像预处理失败，使用原始图像: {}", e.getMessage());
-            return original;
-        }
-    }
-
-    /**
-     * 形态学开运算：先腐蚀后膨胀
-     * 用于去除小噪点，保留字符主体
-     */
-    private BufferedImage morphologicalOpen(BufferedImage image) {
-        return morphologicalOpen(image, 1);
-    }
-
-    /**
-     * 形态学开运算：先腐蚀后膨胀（可配置迭代次数）
-     * @param iterations 腐蚀和膨胀的迭代次数
-     */
-    private BufferedImage morphologicalOpen(BufferedImage image, int iterations) {
-        // 腐蚀（去除小噪点）
-        BufferedImage eroded = morphologicalErode(image, iterations);
-        // 膨胀（恢复字符大小）
-        BufferedImage dilated = morphologicalDilate(eroded, iterations);
-        return dilated;
-    }
-
-    /**
-     * 形态学腐蚀
-     */
-    private BufferedImage morphologicalErode(BufferedImage image, int iterations) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage result = image;
-
-        for (int iter = 0; iter < iterations; iter++) {
-            BufferedImage temp = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
-
-            for (int y = 1; y < height - 1; y++) {
-                for (int x = 1; x < width - 1; x++) {
-                    // 检查3x3邻域，全部是黑色才设为黑色
-                    boolean allBlack = true;
-                    for (int dy = -1; dy <= 1; dy++) {
-                        for (int dx = -1; dx <= 1; dx++) {
-                            int rgb = result.getRGB(x + dx, y + dy);
-                            if ((rgb & 0xFF) > 128) {  // 白色
-                                allBlack = false;
-                                break;
-                            }
-                        }
-                        if (!allBlack) break;
-                    }
-                    temp.setRGB(x, y, allBlack ? 0x000000 : 0xFFFFFF);
-                }
-            }
-            result = temp;
-        }
-        return result;
-    }
-
-    /**
-     * 形态学膨胀
-     */
-    private BufferedImage morphologicalDilate(BufferedImage image, int iterations) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        BufferedImage result = image;
-
-        for (int iter = 0; iter < iterations; iter++) {
-            BufferedImage temp = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
-
-            for (int y = 1; y < height - 1; y++) {
-                for (int x = 1; x < width - 1; x++) {
-                    // 检查3x3邻域，有任何黑色就设为黑色
-                    boolean hasBlack = false;
-                    for (int dy = -1; dy <= 1; dy++) {
-                        for (int dx = -1; dx <= 1; dx++) {
-                            int rgb = result.getRGB(x + dx, y + dy);
-                            if ((rgb & 0xFF) < 128) {  // 黑色
-                                hasBlack = true;
-                                break;
-                            }
-                        }
-                        if (hasBlack) break;
-                    }
-                    temp.setRGB(x, y, hasBlack ? 0x000000 : 0xFFFFFF);
-                }
-            }
-            result = temp;
-        }
-        return result;
-    }
-
     /**
      * 对比度增强
      * 拉伸灰度值到0-255的完整范围
@@ -813,16 +569,6 @@ public class TwCaptchaService {
         return image;
     }
 
-    /**
-     * OCR结果后处理
-     * 直接返回OCR原始结果，不做修正
-     */
-    private String postProcessOcrResult(String result, BufferedImage image) {
-        // 直接返回原始结果，不做任何修正
-        return result;
-    }
-
-
     /**
      * 中值滤波去噪
      * 类似于 PIL 的 ImageFilter.MedianFilter()
@@ -967,60 +713,6 @@ public class TwCaptchaService {
         }
     }
 
-    /**
-     * 计算OTSU最佳阈值
-     */
-    private int calculateOtsuThreshold(BufferedImage grayscale) {
-        int width = grayscale.getWidth();
-        int height = grayscale.getHeight();
-        int totalPixels = width * height;
-
-        // 统计灰度直方图
-        int[] histogram = new int[256];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int gray = (grayscale.getRGB(x, y) >> 16) & 0xFF;
-                histogram[gray]++;
-            }
-        }
-
-        // 计算总和
-        float sum = 0;
-        for (int i = 0; i < 256; i++) {
-            sum += i * histogram[i];
-        }
-
-        float sumB = 0;
-        int wB = 0;
-        int wF = 0;
-        float maxVariance = 0;
-        int threshold = 0;
-
-        // 遍历所有可能的阈值
-        for (int t = 0; t < 256; t++) {
-            wB += histogram[t];
-            if (wB == 0) continue;
-
-            wF = totalPixels - wB;
-            if (wF == 0) break;
-
-            sumB += (float) (t * histogram[t]);
-
-            float mB = sumB / wB;
-            float mF = (sum - sumB) / wF;
-
-            // 计算类间方差
-            float variance = (float) wB * (float) wF * (mB - mF) * (mB - mF);
-
-            if (variance > maxVariance) {
-                maxVariance = variance;
-                threshold = t;
-            }
-        }
-
-        return threshold;
-    }
-
     /**
      * 第三方服务识别
      * 使用2Captcha、Anti-Captcha等服务
@@ -1066,8 +758,13 @@ public class TwCaptchaService {
             }
             
             File outputFile = new File(outputDir, filename);
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
-            ImageIO.write(image, "png", outputFile);
+            if (isPng(imageData)) {
+                // 已经是PNG，直接写入原始字节，避免解码再编码
+                Files.write(outputFile.toPath(), imageData);
+            } else {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData));
+                ImageIO.write(image, "png", outputFile);
+            }
             
             // 记录图片路径
             if (captchaInfo != null) {
@@ -1081,6 +778,11 @@ public class TwCaptchaService {
         }
     }
 
+    private boolean isPng(byte[] data) {
+        return data.length > 8
+                && (data[0] & 0xFF) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G';
+    }
+
     /**
      * 手动设置验证码
      * 用于测试或手动输入验证码
@@ -1239,11 +941,10 @@ public class TwCaptchaService {
             debug.append("步骤1: 访问主页面\n");
             debug.append(String.format("  URL: %s\n", MAIN_PAGE_URL));
 
-            Connection.Response mainPage = Jsoup.connect(MAIN_PAGE_URL)
+            Connection.Response mainPage = HttpUtils.execute(Jsoup.connect(MAIN_PAGE_URL)
                     .userAgent(USER_AGENT)
                     .method(Connection.Method.GET)
-                    .timeout(30000)
-                    .execute();
+                    .timeout(30000));
 
             debug.append(String.format("  状态码: %d\n", mainPage.statusCode()));
             debug.append(String.format("  Cookies: %s\n", mainPage.cookies()));
@@ -1253,14 +954,13 @@ public class TwCaptchaService {
             debug.append("步骤2: 获取验证码\n");
             debug.append(String.format("  URL: %s\n", CAPTCHA_URL));
 
-            Connection.Response captchaResponse = Jsoup.connect(CAPTCHA_URL)
+            Connection.Response captchaResponse = HttpUtils.execute(Jsoup.connect(CAPTCHA_URL)
                     .userAgent(USER_AGENT)
                     .referrer(MAIN_PAGE_URL)
                     .cookies(mainPage.cookies())
                     .method(Connection.Method.GET)
                     .ignoreContentType(true)
-                    .timeout(30000)
-                    .execute();
+                    .timeout(30000));
 
             debug.append(String.format("  状态码: %d\n", captchaResponse.statusCode()));
             debug.append(String.format("  Content-Type: %s\n", captchaResponse.contentType()));
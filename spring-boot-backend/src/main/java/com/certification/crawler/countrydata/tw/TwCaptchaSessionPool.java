@@ -0,0 +1,209 @@
+package com.certification.crawler.countrydata.tw;
+
+import com.certification.config.MedcertCrawlerConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 台湾FDA验证码会话预取池
+ * 后台预先获取并识别验证码，爬虫取用时直接拿到已识别、仍在有效期内的会话，
+ * 不再在抓取路径上等待验证码下载和OCR。
+ *
+ * 池大小按需求量调整：最近一个统计窗口内被取用了几次就保留几个（不超过上限），
+ * 窗口内无人取用时不再预取，避免空闲时持续请求台湾FDA网站。
+ */
+@Slf4j
+@Component
+public class TwCaptchaSessionPool {
+
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    @Autowired
+    private TwCaptchaService captchaService;
+
+    @Autowired
+    private MedcertCrawlerConfig crawlerConfig;
+
+    /**
+     * 已识别、可直接使用的会话（队首最早获取）
+     */
+    private final Deque<TwCaptchaService.CaptchaInfo> ready = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 最近的取用时间戳，用于估算需求量
+     */
+    private final Deque<Long> demand = new ConcurrentLinkedDeque<>();
+
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tw-captcha-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 取用一个验证码会话
+     * 池中没有可用会话时同步获取，与直接调用 {@link TwCaptchaService#getCaptcha()} 行为一致
+     */
+    public TwCaptchaService.CaptchaInfo acquire() throws IOException {
+        if (!isEnabled()) {
+            return captchaService.getCaptcha();
+        }
+
+        recordDemand();
+
+        TwCaptchaService.CaptchaInfo info;
+        while ((info = ready.pollFirst()) != null) {
+            if (isUsable(info)) {
+                hits.incrementAndGet();
+                log.debug("使用预取的验证码会话: code={}", info.getCode());
+                triggerRefill();
+                return info;
+            }
+            discard(info);
+        }
+
+        misses.incrementAndGet();
+        triggerRefill();
+        return captchaService.getCaptcha();
+    }
+
+    /**
+     * 定期替换即将过期的会话并补足池大小
+     */
+    @Scheduled(fixedDelay = 15000)
+    public void maintain() {
+        if (isEnabled()) {
+            triggerRefill();
+        }
+    }
+
+    /**
+     * 获取池状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", isEnabled());
+        status.put("ready", ready.size());
+        status.put("targetSize", targetSize());
+        status.put("hits", hits.get());
+        status.put("misses", misses.get());
+        status.put("discarded", discarded.get());
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+        TwCaptchaService.CaptchaInfo info;
+        while ((info = ready.pollFirst()) != null) {
+            info.deleteAllImages();
+        }
+    }
+
+    private void triggerRefill() {
+        if (refilling.compareAndSet(false, true)) {
+            try {
+                prefetchExecutor.execute(() -> {
+                    try {
+                        refill();
+                    } finally {
+                        refilling.set(false);
+                    }
+                });
+            } catch (Exception e) {
+                refilling.set(false);
+            }
+        }
+    }
+
+    private void refill() {
+        // 移除即将过期的会话
+        Iterator<TwCaptchaService.CaptchaInfo> it = ready.iterator();
+        while (it.hasNext()) {
+            TwCaptchaService.CaptchaInfo info = it.next();
+            if (!isUsable(info)) {
+                it.remove();
+                discard(info);
+            }
+        }
+
+        int target = targetSize();
+        int failures = 0;
+        while (ready.size() < target && failures < MAX_CONSECUTIVE_FAILURES
+                && !Thread.currentThread().isInterrupted()) {
+            try {
+                TwCaptchaService.CaptchaInfo info = captchaService.getCaptcha();
+                if (isRecognized(info)) {
+                    ready.addLast(info);
+                    failures = 0;
+                    log.debug("预取验证码会话成功，当前可用: {}/{}", ready.size(), target);
+                } else {
+                    discard(info);
+                    failures++;
+                }
+            } catch (IOException e) {
+                failures++;
+                log.warn("预取验证码会话失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 目标池大小 = 统计窗口内的取用次数（不超过上限）
+     */
+    private int targetSize() {
+        long windowStart = System.currentTimeMillis() - crawlerConfig.getCaptchaPool().getDemandWindowSeconds() * 1000L;
+        Long oldest;
+        while ((oldest = demand.peekFirst()) != null && oldest < windowStart) {
+            demand.pollFirst();
+        }
+        return Math.min(demand.size(), crawlerConfig.getCaptchaPool().getMaxSize());
+    }
+
+    private void recordDemand() {
+        demand.addLast(System.currentTimeMillis());
+        // 只需要知道是否达到上限，多余的记录没有意义
+        while (demand.size() > crawlerConfig.getCaptchaPool().getMaxSize()) {
+            demand.pollFirst();
+        }
+    }
+
+    private boolean isUsable(TwCaptchaService.CaptchaInfo info) {
+        return isRecognized(info)
+                && !info.expiresWithin(crawlerConfig.getCaptchaPool().getRefreshMarginSeconds() * 1000L);
+    }
+
+    private boolean isRecognized(TwCaptchaService.CaptchaInfo info) {
+        return info != null && info.getCode() != null && !"0000".equals(info.getCode());
+    }
+
+    private void discard(TwCaptchaService.CaptchaInfo info) {
+        if (info != null) {
+            info.deleteAllImages();
+            discarded.incrementAndGet();
+        }
+    }
+
+    private boolean isEnabled() {
+        return crawlerConfig != null && crawlerConfig.getCaptchaPool().isEnabled();
+    }
+}
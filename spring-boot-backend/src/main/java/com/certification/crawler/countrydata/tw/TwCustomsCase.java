@@ -1,8 +1,11 @@
 package com.certification.crawler.countrydata.tw;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.CustomsCase;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.CustomsCaseRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Connection;
@@ -151,9 +154,9 @@ public class TwCustomsCase {
                 
                 // 延迟，避免请求过快
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
             
@@ -188,9 +191,9 @@ public class TwCustomsCase {
                     return null;
                 }
                 try {
-                    Thread.sleep(2000 * (retry + 1)); // 递增延迟
+                    CrawlerCancellationToken.sleep(2000 * (retry + 1)); // 递增延迟
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
@@ -241,7 +244,7 @@ public class TwCustomsCase {
         data.put("pageSize1", String.valueOf(pageSize));
         
         // 发送POST请求
-        Connection.Response response = Jsoup.connect(SEARCH_URL)
+        Connection.Response response = HttpUtils.execute(Jsoup.connect(SEARCH_URL)
                 .userAgent(USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
                 .header("Accept-Language", "zh-CN,zh;q=0.9")
@@ -249,8 +252,7 @@ public class TwCustomsCase {
                 .header("Referer", SEARCH_URL)
                 .data(data)
                 .method(Connection.Method.POST)
-                .timeout(TIMEOUT)
-                .execute();
+                .timeout(TIMEOUT));
         
         return response.parse();
     }
@@ -499,6 +501,8 @@ public class TwCustomsCase {
         for (int i = 0; i < dataList.size(); i += BATCH_SIZE) {
             int end = Math.min(i + BATCH_SIZE, dataList.size());
             List<TaiwanCustomsData> batch = dataList.subList(i, end);
+            int writtenBefore = newCount + updateCount;
+            int failedBefore = skipCount;
             
             for (TaiwanCustomsData data : batch) {
                 try {
@@ -531,6 +535,7 @@ public class TwCustomsCase {
                 }
             }
             
+            CrawlerProgressContext.reportBatch(batch.size(), newCount + updateCount - writtenBefore, 0, skipCount - failedBefore);
             log.info("已处理 {}/{} 条记录", Math.min(i + BATCH_SIZE, dataList.size()), dataList.size());
         }
         
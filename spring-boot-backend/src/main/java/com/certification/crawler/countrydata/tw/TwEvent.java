@@ -1,8 +1,11 @@
 package com.certification.crawler.countrydata.tw;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceEventReport;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.DeviceEventReportRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
@@ -144,7 +147,7 @@ public class TwEvent {
                         allData.add(data);
                         
                         // 延迟，避免请求过快
-                        Thread.sleep(DETAIL_DELAY);
+                        CrawlerCancellationToken.sleep(DETAIL_DELAY);
                     } catch (Exception e) {
                         log.error("获取详情失败: {} - {}", data.getDetailUrl(), e.getMessage());
                     }
@@ -156,9 +159,9 @@ public class TwEvent {
                 
                 // 页面间延迟
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
@@ -205,9 +208,9 @@ public class TwEvent {
                     return null;
                 }
                 try {
-                    Thread.sleep(2000 * (retry + 1));
+                    CrawlerCancellationToken.sleep(2000 * (retry + 1));
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
@@ -220,14 +223,13 @@ public class TwEvent {
     private Document fetchPage(String url) throws IOException {
         log.debug("正在获取页面: {}", url);
         
-        return Jsoup.connect(url)
+        return HttpUtils.execute(Jsoup.connect(url)
                 .userAgent(USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
                 .header("Accept-Language", "zh-CN,zh;q=0.9")
                 .header("Cache-Control", "max-age=0")
                 .referrer("https://www.fda.gov.tw/")
-                .timeout(TIMEOUT)
-                .get();
+                .timeout(TIMEOUT)).parse();
     }
 
     /**
@@ -591,6 +593,8 @@ public class TwEvent {
         for (int i = 0; i < dataList.size(); i += BATCH_SIZE) {
             int end = Math.min(i + BATCH_SIZE, dataList.size());
             List<TaiwanEventData> batch = dataList.subList(i, end);
+            int writtenBefore = newCount + updateCount;
+            int failedBefore = skipCount;
             
             for (TaiwanEventData data : batch) {
                 try {
@@ -619,6 +623,7 @@ public class TwEvent {
                 }
             }
             
+            CrawlerProgressContext.reportBatch(batch.size(), newCount + updateCount - writtenBefore, 0, skipCount - failedBefore);
             log.info("已处理 {}/{} 条记录", Math.min(i + BATCH_SIZE, dataList.size()), dataList.size());
         }
         
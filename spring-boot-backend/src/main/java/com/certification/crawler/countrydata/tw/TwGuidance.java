@@ -1,5 +1,6 @@
 package com.certification.crawler.countrydata.tw;
 
+import com.certification.crawler.common.HttpResponseCache;
 import com.certification.entity.common.GuidanceDocument;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.GuidanceDocumentRepository;
@@ -16,6 +17,7 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.utils.CrawlerDuplicateDetector;
 
 /**
@@ -47,6 +49,9 @@ public class TwGuidance {
     @Autowired
     private GuidanceDocumentRepository guidanceRepository;
 
+    @Autowired
+    private HttpResponseCache httpResponseCache;
+
     /**
      * 台湾法规数据模型
      */
@@ -79,9 +84,15 @@ public class TwGuidance {
      */
     public String crawlByCategory(String cid, String scid, int maxRecords) {
         log.info("开始爬取台湾法规，类别: cid={}, scid={}, 最大记录数: {}", cid, scid, maxRecords);
+        String runName = "TwGuidance:" + cid + ":" + scid;
         
         try {
             List<TaiwanGuidanceData> allData = new ArrayList<>();
+            List<HttpResponseCache.CachedPage> pendingPages = new ArrayList<>();
+            // 上次运行不完整时，未变化的页面之后可能还有从未处理过的页面，不能提前停止
+            boolean previousRunComplete = httpResponseCache.beginRun(runName);
+            int consecutiveUnchangedPages = 0;
+            boolean pagesExhausted = false;
             int currentPage = 1;
             boolean hasMore = true;
             boolean crawlAll = (maxRecords == -1); // maxRecords = -1 表示不限制数量
@@ -99,12 +110,34 @@ public class TwGuidance {
                 log.debug("请求URL: {}", url);
                 
                 // 获取页面
-                Document doc = fetchPageWithRetry(url);
-                if (doc == null) {
+                HttpResponseCache.CachedPage cachedPage = fetchPageWithRetry(url);
+                if (cachedPage == null) {
                     log.warn("获取第 {} 页失败，停止爬取", currentPage);
                     break;
                 }
                 
+                // 法规列表按发布日期倒序，连续多页未变化且上次运行完整时，之后也没有新数据
+                if (cachedPage.isUnchanged()) {
+                    consecutiveUnchangedPages++;
+                    if (previousRunComplete && consecutiveUnchangedPages >= HttpResponseCache.UNCHANGED_PAGES_TO_STOP) {
+                        log.info("🟰 连续 {} 页内容未变化，停止爬取", consecutiveUnchangedPages);
+                        pagesExhausted = true;
+                        break;
+                    }
+                    log.info("🟰 第 {} 页内容未变化，跳过解析", currentPage);
+                    currentPage++;
+                    try {
+                        CrawlerCancellationToken.sleep(1000);
+                    } catch (InterruptedException e) {
+                        CrawlerCancellationToken.restoreInterrupt();
+                        log.warn("爬取被中断");
+                        break;
+                    }
+                    continue;
+                }
+                consecutiveUnchangedPages = 0;
+                Document doc = cachedPage.getDocument();
+                
                 // 解析法规列表
                 List<TaiwanGuidanceData> pageData = parseGuidanceTable(doc);
                 log.info("第 {} 页解析到 {} 条法规记录", currentPage, pageData.size());
@@ -112,6 +145,7 @@ public class TwGuidance {
                 if (pageData.isEmpty()) {
                     log.info("第 {} 页无数据，停止爬取", currentPage);
                     hasMore = false;
+                    pagesExhausted = true;
                     break;
                 }
                 
@@ -122,6 +156,7 @@ public class TwGuidance {
                     String firstTitle = pageData.get(0).getTitle();
                     if (lastTitle.equals(firstTitle)) {
                         log.warn("⚠️ 检测到重复数据，可能已到达最后一页");
+                        pagesExhausted = true;
                         break;
                     }
                 }
@@ -138,11 +173,13 @@ public class TwGuidance {
                 }
                 
                 allData.addAll(pageData);
+                pendingPages.add(cachedPage);
                 
                 // 检查是否有下一页链接
                 hasMore = checkHasNextPage(doc);
                 if (!hasMore) {
                     log.info("未找到下一页链接，停止爬取");
+                    pagesExhausted = true;
                     break;
                 }
                 
@@ -150,9 +187,9 @@ public class TwGuidance {
                 
                 // 页面间延迟，避免请求过快
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     log.warn("爬取被中断");
                     break;
                 }
@@ -160,10 +197,11 @@ public class TwGuidance {
             
             log.info("总共爬取到 {} 条法规数据", allData.size());
             
-            // 保存到数据库
-            return saveToDatabase(allData);
+            // 保存到数据库，全部保存成功后才提交页面缓存
+            return saveToDatabase(allData, pendingPages, runName, pagesExhausted);
             
         } catch (Exception e) {
+            httpResponseCache.endRun(runName, false);
             log.error("爬取台湾法规失败: {}", e.getMessage(), e);
             return "❌ 爬取失败: " + e.getMessage();
         }
@@ -192,7 +230,7 @@ public class TwGuidance {
     /**
      * 获取页面（带重试）
      */
-    private Document fetchPageWithRetry(String url) {
+    private HttpResponseCache.CachedPage fetchPageWithRetry(String url) {
         for (int retry = 0; retry < MAX_RETRIES; retry++) {
             try {
                 return fetchPage(url);
@@ -203,9 +241,9 @@ public class TwGuidance {
                     return null;
                 }
                 try {
-                    Thread.sleep(2000 * (retry + 1)); // 递增延迟
+                    CrawlerCancellationToken.sleep(2000 * (retry + 1)); // 递增延迟
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
@@ -213,19 +251,18 @@ public class TwGuidance {
     }
 
     /**
-     * 获取页面
+     * 获取页面（条件请求）
      */
-    private Document fetchPage(String url) throws IOException {
+    private HttpResponseCache.CachedPage fetchPage(String url) throws IOException {
         log.debug("正在获取页面: {}", url);
         
-        return Jsoup.connect(url)
+        return httpResponseCache.fetch(Jsoup.connect(url)
                 .userAgent(USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
                 .header("Accept-Language", "zh-CN,zh;q=0.9")
                 .header("Cache-Control", "max-age=0")
                 .referrer("https://www.fda.gov.tw/")
-                .timeout(TIMEOUT)
-                .get();
+                .timeout(TIMEOUT));
     }
 
     /**
@@ -472,15 +509,23 @@ public class TwGuidance {
 
     /**
      * 保存到数据库
+     * 只有全部记录处理完且没有失败时才提交页面缓存；有记录保存失败或因连续重复提前停止时不提交，下次重新抓取
+     * @param pendingPages 待提交的HTTP缓存页面
+     * @param runName 增量运行名称
+     * @param pagesExhausted 列表页是否已翻到自然结束（未因出错或maxRecords截断而中途停止）
      */
-    private String saveToDatabase(List<TaiwanGuidanceData> dataList) {
+    private String saveToDatabase(List<TaiwanGuidanceData> dataList, List<HttpResponseCache.CachedPage> pendingPages,
+                                  String runName, boolean pagesExhausted) {
         if (dataList == null || dataList.isEmpty()) {
+            httpResponseCache.endRun(runName, pagesExhausted);
             return "⚠️ 没有数据需要保存";
         }
 
         int newCount = 0;
         int updateCount = 0;
-        int skipCount = 0;
+        int failCount = 0;
+        int processedCount = 0;
+        boolean stoppedEarly = false;
 
         // 初始化批次检测器
         CrawlerDuplicateDetector detector = new CrawlerDuplicateDetector(3);
@@ -517,9 +562,10 @@ public class TwGuidance {
 
                 } catch (Exception e) {
                     log.error("保存法规文档失败: {}", data.getTitle(), e);
-                    skipCount++;
+                    failCount++;
                 }
             }
+            processedCount = end;
 
             log.info("已处理 {}/{} 条记录", Math.min(i + BATCH_SIZE, dataList.size()), dataList.size());
 
@@ -527,6 +573,7 @@ public class TwGuidance {
             boolean shouldStop = detector.recordBatch(batch.size(), batchNewCount);
             if (shouldStop) {
                 log.warn("⚠️ 检测到连续重复批次，停止保存剩余数据");
+                stoppedEarly = true;
                 break;
             }
         }
@@ -534,8 +581,18 @@ public class TwGuidance {
         // 打印最终统计
         detector.printFinalStats("TwGuidance");
 
-        String result = String.format("✅ 台湾法规文档保存完成！总计: %d 条，新增: %d 条，更新: %d 条，跳过: %d 条",
-                dataList.size(), newCount, updateCount, skipCount);
+        // 因连续重复提前停止而未处理的记录计为跳过，保存异常的记录计为失败
+        int skipCount = dataList.size() - processedCount;
+        boolean committed = !stoppedEarly && failCount == 0;
+        if (committed) {
+            httpResponseCache.commitAll(pendingPages);
+        } else {
+            log.info("部分记录未保存，不提交页面缓存");
+        }
+        httpResponseCache.endRun(runName, pagesExhausted && committed);
+
+        String result = String.format("✅ 台湾法规文档保存完成！总计: %d 条，新增: %d 条，更新: %d 条，跳过: %d 条，失败: %d 条",
+                dataList.size(), newCount, updateCount, skipCount, failCount);
         log.info(result);
         return result;
     }
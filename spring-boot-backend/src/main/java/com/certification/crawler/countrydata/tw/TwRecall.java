@@ -1,5 +1,6 @@
 package com.certification.crawler.countrydata.tw;
 
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceRecallRecord;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.DeviceRecallRecordRepository;
@@ -16,6 +17,7 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.utils.CrawlerDuplicateDetector;
 
 /**
@@ -149,7 +151,7 @@ public class TwRecall {
                         allData.add(data);
                         
                         // 延迟，避免请求过快
-                        Thread.sleep(DETAIL_DELAY);
+                        CrawlerCancellationToken.sleep(DETAIL_DELAY);
                     } catch (Exception e) {
                         log.error("获取详情失败: {} - {}", data.getDetailUrl(), e.getMessage());
                     }
@@ -161,9 +163,9 @@ public class TwRecall {
                 
                 // 页面间延迟
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
@@ -210,9 +212,9 @@ public class TwRecall {
                     return null;
                 }
                 try {
-                    Thread.sleep(2000 * (retry + 1));
+                    CrawlerCancellationToken.sleep(2000 * (retry + 1));
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                 }
             }
         }
@@ -225,14 +227,13 @@ public class TwRecall {
     private Document fetchPage(String url) throws IOException {
         log.debug("正在获取页面: {}", url);
         
-        return Jsoup.connect(url)
+        return HttpUtils.execute(Jsoup.connect(url)
                 .userAgent(USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
                 .header("Accept-Language", "zh-CN,zh;q=0.9")
                 .header("Cache-Control", "max-age=0")
                 .referrer("https://www.fda.gov.tw/")
-                .timeout(TIMEOUT)
-                .get();
+                .timeout(TIMEOUT)).parse();
     }
 
     /**
@@ -1,6 +1,9 @@
 package com.certification.crawler.countrydata.tw;
 
 import com.certification.analysis.analysisByai.TranslateAI;
+import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.CrawlPipeline;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceRegistrationRecord;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.DeviceRegistrationRecordRepository;
@@ -14,6 +17,8 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.utils.CrawlerDuplicateDetector;
 
 /**
@@ -56,7 +61,10 @@ public class TwRegistration {
     private TranslateAI translateAI;
 
     @Autowired
-    private TwCaptchaService captchaService;
+    private TwCaptchaSessionPool captchaPool;
+
+    @Autowired
+    private MedcertCrawlerConfig crawlerConfig;
 
     /**
      * 台湾注册数据模型
@@ -130,18 +138,8 @@ public class TwRegistration {
             // 获取验证码信息（用于后续清理）
             captcha = (TwCaptchaService.CaptchaInfo) searchParams.get("captcha");
             
-            // 执行搜索
-            List<TaiwanRegistrationData> dataList = executeSearch(searchParams);
-            
-            if (dataList.isEmpty()) {
-                log.warn("未找到任何注册记录");
-                return "未找到任何注册记录";
-            }
-            
-            log.info("📊 台湾注册记录爬取完成，共获取 {} 条数据", dataList.size());
-            
-            // 保存到数据库
-            String result = saveToDatabase(dataList);
+            // 执行搜索并保存到数据库（抓取、查重、入库以流水线方式并行执行）
+            String result = crawlAndSave(searchParams);
             
             // 爬取完成，删除验证码图片
             if (captcha != null) {
@@ -228,7 +226,7 @@ public class TwRegistration {
 
         try {
             log.info("🔐 开始获取和识别验证码...");
-            captcha = captchaService.getCaptcha();
+            captcha = captchaPool.acquire();
 
             code.put("code", captcha.getCode());                    // 验证码
             code.put("verifyCode", captcha.getVerifyCode());        // 验证码校验哈希
@@ -285,9 +283,13 @@ public class TwRegistration {
      * 执行搜索请求（使用验证码的Session Cookie）
      * 支持验证码错误时自动重试
      * 根据maxRecords限制获取的数据量
+     * 每页解析出的数据立即发送给下游阶段
+     *
+     * @return 获取的记录数
      */
-    private List<TaiwanRegistrationData> executeSearch(Map<String, Object> searchParams) throws IOException {
-        List<TaiwanRegistrationData> allData = new ArrayList<>();
+    private int executeSearch(Map<String, Object> searchParams,
+                              CrawlPipeline.Emitter<TaiwanRegistrationData> emitter) throws IOException {
+        int fetched = 0;
 
         Map<String, Object> data = (Map<String, Object>) searchParams.get("data");
         Map<String, Object> page = (Map<String, Object>) searchParams.get("page");
@@ -302,7 +304,7 @@ public class TwRegistration {
 
         // 持续请求直到：1) 获取足够数据 2) 没有更多数据 3) 达到合理的页数上限
         // maxRecords = -1 表示不限制数量，获取所有数据
-        while ((maxRecords == -1 || allData.size() < maxRecords) && currentPage <= 100) {  // 最多100页防止无限循环
+        while ((maxRecords == -1 || fetched < maxRecords) && currentPage <= 100) {  // 最多100页防止无限循环
             // 更新页码
             page.put("page", currentPage);
 
@@ -332,7 +334,7 @@ public class TwRegistration {
                     log.debug("请求体: {}", requestBody);
 
                     // 🌐 发送HTTP请求（重要：使用验证码的Session Cookie）
-                    Connection.Response response = Jsoup.connect(BASE_URL)
+                    Connection.Response response = HttpUtils.execute(Jsoup.connect(BASE_URL)
                             .userAgent(USER_AGENT)
                             .referrer(REFERER_URL)
                             .header("Accept", "application/json, text/plain, */*")
@@ -348,8 +350,7 @@ public class TwRegistration {
                             .requestBody(requestBody)
                             .method(Connection.Method.POST)
                             .timeout(TIMEOUT)
-                            .ignoreContentType(true)
-                            .execute();
+                            .ignoreContentType(true));
 
                     // 检查响应状态码
                     if (response.statusCode() == 422) {
@@ -364,7 +365,7 @@ public class TwRegistration {
                         }
 
                         // 等待一段时间后重新获取验证码
-                        Thread.sleep(RETRY_DELAY_MS);
+                        CrawlerCancellationToken.sleep(RETRY_DELAY_MS);
 
                         // 删除旧的验证码图片
                         if (captcha != null) {
@@ -374,7 +375,7 @@ public class TwRegistration {
 
                         // 重新获取验证码
                         log.info("🔐 重新获取验证码...");
-                        captcha = captchaService.getCaptcha();
+                        captcha = captchaPool.acquire();
 
                         // 更新验证码信息到data中
                         Map<String, Object> codeMap = new HashMap<>();
@@ -409,7 +410,7 @@ public class TwRegistration {
                     // 检查是否需要截断数据（达到maxRecords限制）
                     // maxRecords = -1 表示不限制，获取所有数据
                     if (maxRecords != -1) {
-                        int remainingCount = maxRecords - allData.size();
+                        int remainingCount = maxRecords - fetched;
                         if (pageData.size() > remainingCount) {
                             // 只添加需要的数量
                             pageData = pageData.subList(0, remainingCount);
@@ -417,22 +418,28 @@ public class TwRegistration {
                         }
                     }
 
-                    allData.addAll(pageData);
+                    for (TaiwanRegistrationData item : pageData) {
+                        if (!emitter.emit(item)) {
+                            log.info("流水线已取消，停止请求");
+                            return fetched;
+                        }
+                        fetched++;
+                    }
 
-                    log.debug("第 {} 页获取到 {} 条数据，当前总计 {} 条", currentPage, pageData.size(), allData.size());
+                    log.debug("第 {} 页获取到 {} 条数据，当前总计 {} 条", currentPage, pageData.size(), fetched);
 
                     pageSuccess = true;  // 标记该页成功
 
                     // 检查是否已经获取足够数据（仅当maxRecords != -1时检查）
-                    if (maxRecords != -1 && allData.size() >= maxRecords) {
-                        log.info("已获取足够数据 ({}/{}), 停止请求", allData.size(), maxRecords);
-                        return allData;
+                    if (maxRecords != -1 && fetched >= maxRecords) {
+                        log.info("已获取足够数据 ({}/{}), 停止请求", fetched, maxRecords);
+                        return fetched;
                     }
                     
                     // 如果返回的数据少于页面大小，说明已经是最后一页
                     if (pageData.size() < DEFAULT_PAGE_SIZE) {
-                        log.info("已到达最后一页，总计获取 {} 条数据", allData.size());
-                        return allData;  // 直接返回，不再请求下一页
+                        log.info("已到达最后一页，总计获取 {} 条数据", fetched);
+                        return fetched;  // 直接返回，不再请求下一页
                     }
 
                 } catch (org.jsoup.HttpStatusException e) {
@@ -448,9 +455,9 @@ public class TwRegistration {
                         }
 
                         try {
-                            Thread.sleep(RETRY_DELAY_MS);
+                            CrawlerCancellationToken.sleep(RETRY_DELAY_MS);
                         } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
+                            CrawlerCancellationToken.restoreInterrupt();
                             break;
                         }
 
@@ -462,7 +469,7 @@ public class TwRegistration {
 
                         // 重新获取验证码
                         log.info("🔐 重新获取验证码...");
-                        captcha = captchaService.getCaptcha();
+                        captcha = captchaPool.acquire();
 
                         // 更新验证码信息
                         Map<String, Object> codeMap = new HashMap<>();
@@ -478,7 +485,7 @@ public class TwRegistration {
                         throw e;
                     }
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     log.error("验证码重试被中断");
                     break;
                 }
@@ -494,15 +501,15 @@ public class TwRegistration {
             
             // 添加延迟避免请求过于频繁
             try {
-                Thread.sleep(1000);
+                CrawlerCancellationToken.sleep(1000);
             } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                CrawlerCancellationToken.restoreInterrupt();
                 break;
             }
         }
 
-        log.info("分页循环结束，总计获取 {} 条数据", allData.size());
-        return allData;
+        log.info("分页循环结束，总计获取 {} 条数据", fetched);
+        return fetched;
     }
 
     /**
@@ -836,66 +843,105 @@ public class TwRegistration {
     }
 
     /**
-     * 保存数据到数据库
+     * 抓取并保存数据
+     * - fetch: 分页请求台湾FDA API并解析
+     * - enrich: 查询是否已存在并转换为实体
+     * - persist: 按批次写入数据库，连续重复批次时取消流水线
      */
-    private String saveToDatabase(List<TaiwanRegistrationData> dataList) {
-        if (dataList.isEmpty()) {
-            return "没有数据需要保存";
-        }
-
-        int totalSaved = 0;
-        int totalDuplicates = 0;
+    private String crawlAndSave(Map<String, Object> searchParams) throws Exception {
+        AtomicInteger totalSaved = new AtomicInteger();
+        AtomicInteger totalDuplicates = new AtomicInteger();
 
         // 初始化批次检测器
         CrawlerDuplicateDetector detector = new CrawlerDuplicateDetector(3);
 
-        // 分批保存
-        for (int i = 0; i < dataList.size(); i += BATCH_SIZE) {
-            int endIndex = Math.min(i + BATCH_SIZE, dataList.size());
-            List<TaiwanRegistrationData> batch = dataList.subList(i, endIndex);
-
-            int batchSaved = 0;
-
-            for (TaiwanRegistrationData data : batch) {
-                try {
-                    // 检查是否已存在
-                    Optional<DeviceRegistrationRecord> existing = registrationRepository
-                            .findByRegistrationNumberAndDataSource(data.getLicenseNumber(), "台湾FDA 食品药物管理署");
-
-                    if (existing.isPresent()) {
-                        totalDuplicates++;
-                        log.debug("记录已存在，跳过: {}", data.getLicenseNumber());
-                        continue;
-                    }
-
-                    // 转换为实体对象
-                    DeviceRegistrationRecord entity = convertToEntity(data);
-
-                    // 保存到数据库
-                    registrationRepository.save(entity);
-                    totalSaved++;
-                    batchSaved++;
-
-                    log.debug("保存台湾注册记录: {}", data.getLicenseNumber());
-
-                } catch (Exception e) {
-                    log.error("保存台湾注册记录失败: {}", data.getLicenseNumber(), e);
+        CrawlPipeline<EnrichedRecord> pipeline = CrawlPipeline.<TaiwanRegistrationData>from("TwRegistration",
+                        crawlerConfig.getPipeline(), emitter -> executeSearch(searchParams, emitter))
+                .map("enrich", crawlerConfig.getPipeline().getEnrichParallelism(), this::enrich);
+
+        CrawlPipeline.Stats stats = pipeline.sink("persist", BATCH_SIZE, batch -> {
+            List<DeviceRegistrationRecord> entities = new ArrayList<>();
+            for (EnrichedRecord record : batch) {
+                if (record.entity != null) {
+                    entities.add(record.entity);
+                } else {
+                    totalDuplicates.incrementAndGet();
                 }
             }
 
+            int batchSaved = saveEntities(entities);
+            totalSaved.addAndGet(batchSaved);
+
             // 批次检测：检查是否应该停止
-            boolean shouldStop = detector.recordBatch(batch.size(), batchSaved);
-            if (shouldStop) {
+            // 取消令牌已由数据源处理（停止抓取、已抓取的数据照常入库），这里只在连续重复时取消流水线
+            detector.recordBatch(batch.size(), batchSaved);
+            if (detector.shouldStop()) {
                 log.warn("⚠️ 检测到连续重复批次，停止保存剩余数据");
-                break;
+                pipeline.cancel();
             }
+        });
+
+        if (stats.getOutput("fetch") == 0) {
+            log.warn("未找到任何注册记录");
+            return "未找到任何注册记录";
         }
 
         // 打印最终统计
         detector.printFinalStats("TwRegistration");
 
-        log.info("保存完成，新增: {} 条，重复: {} 条", totalSaved, totalDuplicates);
-        return String.format("台湾注册数据保存完成，新增: %d 条，重复: %d 条", totalSaved, totalDuplicates);
+        log.info("保存完成，新增: {} 条，重复: {} 条", totalSaved.get(), totalDuplicates.get());
+        return String.format("台湾注册数据保存完成，新增: %d 条，重复: %d 条", totalSaved.get(), totalDuplicates.get());
+    }
+
+    /**
+     * 查重并转换为实体，已存在的记录 entity 为空
+     */
+    private EnrichedRecord enrich(TaiwanRegistrationData data) {
+        Optional<DeviceRegistrationRecord> existing = registrationRepository
+                .findByRegistrationNumberAndDataSource(data.getLicenseNumber(), "台湾FDA 食品药物管理署");
+        if (existing.isPresent()) {
+            log.debug("记录已存在，跳过: {}", data.getLicenseNumber());
+            return new EnrichedRecord(null);
+        }
+        return new EnrichedRecord(convertToEntity(data));
+    }
+
+    /**
+     * 批量保存，批次失败时逐条保存以跳过有问题的记录
+     */
+    private int saveEntities(List<DeviceRegistrationRecord> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        try {
+            registrationRepository.saveAll(entities);
+            return entities.size();
+        } catch (Exception e) {
+            log.warn("批量保存台湾注册记录失败，改为逐条保存: {}", e.getMessage());
+        }
+
+        int saved = 0;
+        for (DeviceRegistrationRecord entity : entities) {
+            try {
+                registrationRepository.save(entity);
+                saved++;
+                log.debug("保存台湾注册记录: {}", entity.getRegistrationNumber());
+            } catch (Exception e) {
+                log.error("保存台湾注册记录失败: {}", entity.getRegistrationNumber(), e);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * 加工阶段输出
+     */
+    private static class EnrichedRecord {
+        private final DeviceRegistrationRecord entity;
+
+        EnrichedRecord(DeviceRegistrationRecord entity) {
+            this.entity = entity;
+        }
     }
 
     /**
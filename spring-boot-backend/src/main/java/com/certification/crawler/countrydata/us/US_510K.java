@@ -1,11 +1,15 @@
 package com.certification.crawler.countrydata.us;
 
 import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.CrawlPipeline;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.Device510K;
 import com.certification.entity.common.CrawlerCheckpoint;
-import com.certification.exception.AllDataDuplicateException;
 import com.certification.repository.common.Device510KRepository;
 import com.certification.repository.common.CrawlerCheckpointRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import com.certification.service.crawler.delta.DeviceDeltaService;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
@@ -29,6 +33,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 
 /**
@@ -46,6 +51,9 @@ public class US_510K {
     
     @Autowired
     private Device510KRepository device510KRepository;
+
+    @Autowired
+    private DeviceDeltaService deviceDeltaService;
     
     @Autowired
     private CrawlerCheckpointRepository crawlerCheckpointRepository;
@@ -322,9 +330,9 @@ public class US_510K {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -335,9 +343,9 @@ public class US_510K {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -348,9 +356,9 @@ public class US_510K {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
                 
@@ -469,14 +477,17 @@ public class US_510K {
                 }
 
                 try {
-                    TimeUnit.SECONDS.sleep(1);
+                    CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(1));
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
             } catch (Exception e) {
                 System.err.println("爬取过程中发生错误: " + e.getMessage());
+                if (e.getMessage() == null || (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found"))) {
+                    CrawlerProgressContext.reportError("爬取过程中发生错误: " + e.getMessage());
+                }
                 throw e;
             }
         }
@@ -520,15 +531,56 @@ public class US_510K {
 
     /**
      * 批次爬取和保存FDA 510K设备数据（支持连续重复检测）
+     * 抓取、转换、入库分阶段执行：抓取下一页时上一页已在转换和入库
      */
-    private String crawlAndSaveDevice510KInBatches(String searchTerm, int maxRecords, int batchSize, String dateFrom, String dateTo) {
+    private String crawlAndSaveDevice510KInBatches(String searchTerm, int maxRecords, int batchSize, String dateFrom, String dateTo) throws Exception {
+        AtomicInteger totalSaved = new AtomicInteger();
+        AtomicInteger consecutiveEmptyBatches = new AtomicInteger();
+        // 爬取所有数据时，抓取阶段按API返回的总匹配数修正目标数量
+        AtomicInteger targetRecords = new AtomicInteger(maxRecords);
+
+        CrawlPipeline<Device510K> pipeline = CrawlPipeline.<Device510KData>from("US_510K", crawlerConfig.getPipeline(),
+                        emitter -> fetchDevice510KPages(searchTerm, batchSize, dateFrom, dateTo, targetRecords, emitter))
+                .map("convert", crawlerConfig.getPipeline().getEnrichParallelism(), this::convertToEntity);
+
+        CrawlPipeline.Stats stats = pipeline.sink("persist", crawlerConfig.getBatch().getSaveSize(), batch -> {
+            DeviceDeltaService.DeltaResult delta = saveBatchToDatabase(batch);
+            totalSaved.addAndGet(delta.getChanged());
+
+            // 内容变化的记录与新记录同样视为有效数据
+            if (delta.getChanged() == 0) {
+                int emptyBatches = consecutiveEmptyBatches.incrementAndGet();
+                System.out.println("批次数据全部未变化，连续空批次: " + emptyBatches);
+
+                if (emptyBatches >= 3) {
+                    System.out.println("连续 " + emptyBatches + " 个批次都是重复数据，停止爬取");
+                    pipeline.cancel();
+                }
+            } else {
+                consecutiveEmptyBatches.set(0);
+            }
+        });
+
+        int totalFetched = (int) stats.getOutput("fetch");
+
+        // 记录爬取信息
+        recordCrawlerInfo(searchTerm, targetRecords.get(), batchSize, dateFrom, dateTo, totalFetched, totalSaved.get(), "COMPLETED", null);
         
+        return String.format("FDA 510K设备数据爬取完成，总共获取: %d 条记录，保存: %d 条记录", totalFetched, totalSaved.get());
+    }
+
+    /**
+     * 抓取阶段：按页请求FDA API，逐条发送到下游
+     *
+     * @param targetRecords 目标数量，-1表示爬取所有数据（首次获取到总匹配数后修正）
+     */
+    private void fetchDevice510KPages(String searchTerm, int batchSize, String dateFrom, String dateTo,
+                                      AtomicInteger targetRecords, CrawlPipeline.Emitter<Device510KData> emitter) throws InterruptedException {
+        int maxRecords = targetRecords.get();
         int totalFetched = 0;
-        int totalSaved = 0;
         int currentSkip = 0;
         long totalAvailable = 0;
         boolean crawlAll = (maxRecords == -1);
-        int consecutiveEmptyBatches = 0;
         int batchCount = 0;
         
         while (crawlAll || totalFetched < maxRecords) {
@@ -582,52 +634,28 @@ public class US_510K {
                     if (crawlAll && totalAvailable > 0) {
                         maxRecords = (int) totalAvailable;
                         crawlAll = false;
+                        targetRecords.set(maxRecords);
                         System.out.printf("开始爬取所有数据，目标数量: %d 条%n", maxRecords);
                     }
                 }
+                int pageSize = Math.min(batchSize, 100);
+                CrawlerProgressContext.reportPage(batchCount,
+                        totalAvailable > 0 ? (int) ((Math.min(totalAvailable, maxRecords) + pageSize - 1) / pageSize) : null);
 
-                // 转换当前批次数据为实体
-                List<Device510K> entities = new ArrayList<>();
                 for (Device510KData item : fdaResponse.getResults()) {
-                    Device510K record = convertToEntity(item);
-                    if (record != null) {
-                        entities.add(record);
+                    if (!emitter.emit(item)) {
+                        System.out.println("流水线已停止，结束抓取");
+                        return;
                     }
                 }
 
-                // 立即保存当前批次到数据库
-                String saveResult = saveBatchToDatabase(entities);
-                
-                // 解析保存的记录数
-                int savedCount = 0;
-                try {
-                    savedCount = Integer.parseInt(saveResult.replaceAll("[^0-9]", ""));
-                } catch (NumberFormatException e) {
-                    savedCount = 0;
-                }
-                
-                totalFetched += entities.size();
-                totalSaved += savedCount;
+                totalFetched += fdaResponse.getResults().size();
                 currentSkip += currentLimit;
 
-                // 检查是否全部重复
-                if (savedCount == 0 && !entities.isEmpty()) {
-                    consecutiveEmptyBatches++;
-                    System.out.println("第 " + batchCount + " 批次全部重复，连续空批次: " + consecutiveEmptyBatches);
-                    
-                    // 如果连续三次全部重复，停止爬取
-                    if (consecutiveEmptyBatches >= 3) {
-                        System.out.println("连续 " + consecutiveEmptyBatches + " 个批次都是重复数据，停止爬取");
-                        break;
-                    }
-                } else {
-                    consecutiveEmptyBatches = 0; // 重置连续空批次计数
-                }
-
                 // 显示当前进度
                 if (totalAvailable > 0) {
-                    System.out.printf("当前进度: %d/%d (%.1f%%)，已保存: %d 条%n", 
-                            totalFetched, totalAvailable, (double) totalFetched / totalAvailable * 100, totalSaved);
+                    System.out.printf("当前进度: %d/%d (%.1f%%)%n", 
+                            totalFetched, totalAvailable, (double) totalFetched / totalAvailable * 100);
                 }
 
                 // 检查是否已获取所有匹配记录
@@ -637,142 +665,68 @@ public class US_510K {
                 }
 
                 try {
-                    TimeUnit.SECONDS.sleep(1);
+                    CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(1));
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Exception e) {
                 System.err.println("爬取过程中发生错误: " + e.getMessage());
-                if (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found")) {
+                if (e.getMessage() == null || (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found"))) {
+                    CrawlerProgressContext.reportError("爬取过程中发生错误: " + e.getMessage());
                     e.printStackTrace();
                 }
                 break;
             }
         }
-
-        // 记录爬取信息
-        recordCrawlerInfo(searchTerm, maxRecords, batchSize, dateFrom, dateTo, totalFetched, totalSaved, "COMPLETED", null);
-        
-        return String.format("FDA 510K设备数据爬取完成，总共获取: %d 条记录，保存: %d 条记录", totalFetched, totalSaved);
     }
 
     /**
-     * 批量保存到数据库
+     * 保存一个批次到数据库
+     * 按K号增量写入：新记录插入，已有记录内容变化时更新（发布变化事件），未变化的跳过
+     *
+     * @return 增量写入结果
+     * @throws IllegalStateException 重试后仍保存失败，由流水线计入失败数
      */
     @Transactional
-    private String saveBatchToDatabase(List<Device510K> records) {
-        if (records == null || records.isEmpty()) {
-            return "0 条记录";
-        }
-
-        int savedCount = 0;
-        int totalSkipped = 0;
-        int batchCount = 0;
-        int consecutiveEmptyBatches = 0;
-
-        for (int i = 0; i < records.size(); i += crawlerConfig.getBatch().getSaveSize()) {
-            int endIndex = Math.min(i + crawlerConfig.getBatch().getSaveSize(), records.size());
-            List<Device510K> batch = records.subList(i, endIndex);
-            batchCount++;
-
-            List<Device510K> newRecords = new ArrayList<>();
-            int batchDuplicateCount = 0;
-
-            for (Device510K record : batch) {
-                try {
-                    // 检查是否已存在（使用K号）
-                    boolean isDuplicate = false;
-                    
-                    String kNumber = record.getKNumber();
-                    
-                    // 重试机制：最多重试3次
-                    int retryCount = 0;
-                    int maxRetries = 3;
-                    boolean querySuccess = false;
-                    
-                    while (retryCount < maxRetries && !querySuccess) {
-                        try {
-                            if (kNumber != null && !kNumber.trim().isEmpty()) {
-                                if (device510KRepository.existsBykNumber(kNumber)) {
-                                    isDuplicate = true;
-                                }
-                            }
-                            querySuccess = true;
-                        } catch (Exception e) {
-                            retryCount++;
-                            if (retryCount >= maxRetries) {
-                                System.err.println("重复检查失败，已重试" + maxRetries + "次，跳过该记录: " + e.getMessage());
-                                isDuplicate = true;
-                                break;
-                            } else {
-                                System.err.println("重复检查失败，第" + retryCount + "次重试: " + e.getMessage());
-                                try {
-                                    Thread.sleep(1000 * retryCount);
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    break;
-                                }
-                            }
-                        }
-                    }
+    private DeviceDeltaService.DeltaResult saveBatchToDatabase(List<Device510K> batch) {
+        // 批次保存重试机制（增量写入可重复执行，重试时已写入的记录按未变化处理）
+        int saveRetryCount = 0;
+        int maxSaveRetries = 3;
+        Exception lastError = null;
 
-                    if (isDuplicate) {
-                        batchDuplicateCount++;
-                    } else {
-                        newRecords.add(record);
-                    }
-                } catch (Exception e) {
-                    System.err.println("重复检查过程中发生未知错误，跳过该记录: " + e.getMessage());
-                    batchDuplicateCount++;
-                }
-            }
-
-            if (newRecords.isEmpty()) {
-                totalSkipped += batchDuplicateCount;
-                System.out.println("本批次全部为重复记录，跳过了 " + batchDuplicateCount + " 条记录");
-                consecutiveEmptyBatches++;
-                System.out.println("第 " + batchCount + " 批次数据全部重复，连续空批次: " + consecutiveEmptyBatches);
-                
-                if (consecutiveEmptyBatches >= 3) {
-                    System.out.println("连续 " + consecutiveEmptyBatches + " 个批次都是重复数据，停止爬取");
-                    throw new AllDataDuplicateException("连续 " + consecutiveEmptyBatches + " 个批次都是重复数据，停止爬取");
-                }
-            } else {
-                consecutiveEmptyBatches = 0;
-                
-                // 批次保存重试机制
-                int saveRetryCount = 0;
-                int maxSaveRetries = 3;
-                boolean saveSuccess = false;
-                
-                while (saveRetryCount < maxSaveRetries && !saveSuccess) {
+        while (saveRetryCount < maxSaveRetries) {
+            try {
+                DeviceDeltaService.DeltaResult delta = deviceDeltaService.upsert(
+                        device510KRepository,
+                        batch,
+                        record -> record.getKNumber() != null && !record.getKNumber().trim().isEmpty() ? record.getKNumber() : null,
+                        device510KRepository::findByKNumberIn);
+                System.out.println("批次保存成功，新增: " + delta.getInserted()
+                        + " 条，更新: " + delta.getUpdated() + " 条，未变化: " + delta.getUnchanged() + " 条");
+                CrawlerProgressContext.reportBatch(batch.size(), delta.getChanged(), delta.getUnchanged(), 0);
+                return delta;
+            } catch (Exception e) {
+                lastError = e;
+                saveRetryCount++;
+                if (saveRetryCount >= maxSaveRetries) {
+                    System.err.println("批次保存失败，已重试" + maxSaveRetries + "次: " + e.getMessage());
+                } else {
+                    System.err.println("批次保存失败，第" + saveRetryCount + "次重试: " + e.getMessage());
                     try {
-                        device510KRepository.saveAll(newRecords);
-                        savedCount += newRecords.size();
-                        totalSkipped += batchDuplicateCount;
-                        System.out.println("第 " + batchCount + " 批次保存成功，新增: " + newRecords.size() + " 条，重复: " + batchDuplicateCount + " 条");
-                        saveSuccess = true;
-                    } catch (Exception e) {
-                        saveRetryCount++;
-                        if (saveRetryCount >= maxSaveRetries) {
-                            System.err.println("第 " + batchCount + " 批次保存失败，已重试" + maxSaveRetries + "次: " + e.getMessage());
-                        } else {
-                            System.err.println("第 " + batchCount + " 批次保存失败，第" + saveRetryCount + "次重试: " + e.getMessage());
-                            try {
-                                Thread.sleep(2000 * saveRetryCount);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                                break;
-                            }
-                        }
+                        CrawlerCancellationToken.sleep(2000 * saveRetryCount);
+                    } catch (InterruptedException ie) {
+                        CrawlerCancellationToken.restoreInterrupt();
+                        break;
                     }
                 }
             }
         }
 
-        return String.format("保存成功: %d 条新记录, 跳过重复: %d 条", savedCount, totalSkipped);
+        throw new IllegalStateException("FDA 510K批次保存失败: " + (lastError != null ? lastError.getMessage() : "已中断"), lastError);
     }
 
     /**
@@ -791,6 +745,8 @@ public class US_510K {
         HttpGet httpGet = new HttpGet(uriBuilder.build());
 
         for (int attempt = 1; attempt <= crawlerConfig.getRetry().getMaxAttempts(); attempt++) {
+            HttpUtils.beforeRequest(requestUrl);
+            long startNanos = System.nanoTime();
             try (ClassicHttpResponse response = httpClient.executeOpen(null, httpGet, null)) {
                 int statusCode = response.getCode();
                 String reasonPhrase = response.getReasonPhrase();
@@ -798,7 +754,9 @@ public class US_510K {
                 if (statusCode == 200) {
                     HttpEntity entity = response.getEntity();
                     if (entity != null) {
-                        String json = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                        byte[] body = EntityUtils.toByteArray(entity);
+                        HttpUtils.afterResponse(startNanos, body.length);
+                        String json = new String(body, StandardCharsets.UTF_8);
                         
                         // 检查是否包含错误信息
                         if (json.contains("\"error\"")) {
@@ -831,9 +789,9 @@ public class US_510K {
                     System.err.printf("请求失败，状态码: %d，原因: %s（第%d次重试）%n", statusCode, reasonPhrase, attempt);
                     if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                         try {
-                            TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                            CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                         } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
+                            CrawlerCancellationToken.restoreInterrupt();
                             break;
                         }
                     }
@@ -842,9 +800,9 @@ public class US_510K {
                 System.err.printf("请求异常: %s（第%d次重试）%n", e.getMessage(), attempt);
                 if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                     try {
-                        TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                        CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         break;
                     }
                 }
@@ -918,11 +876,14 @@ public class US_510K {
                 System.out.println("按设备名称搜索: " + deviceName);
                 
                 try {
-                    String result = crawlAndSaveByDeviceName(deviceName.trim(), maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveByDeviceName(deviceName.trim(), maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("设备名称搜索结果: " + result);
-                    Thread.sleep(1000); // 延迟避免请求过快
+                    CrawlerCancellationToken.sleep(1000); // 延迟避免请求过快
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("设备名称 '" + deviceName + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -936,11 +897,14 @@ public class US_510K {
                 System.out.println("按申请人名称搜索: " + applicant);
                 
                 try {
-                    String result = crawlAndSaveByApplicant(applicant.trim(), maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveByApplicant(applicant.trim(), maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("申请人名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("申请人名称 '" + applicant + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -954,11 +918,14 @@ public class US_510K {
                 System.out.println("按商品名称搜索: " + tradeName);
                 
                 try {
-                    String result = crawlAndSaveByTradeName(tradeName.trim(), maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveByTradeName(tradeName.trim(), maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("商品名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("商品名称 '" + tradeName + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -4,6 +4,8 @@ import com.certification.config.MedcertCrawlerConfig;
 import com.certification.entity.common.CustomsCase;
 import com.certification.exception.AllDataDuplicateException;
 import com.certification.repository.common.CustomsCaseRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -82,9 +84,9 @@ public class US_CustomsCase {
                 
                 if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                     try {
-                        Thread.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
+                        CrawlerCancellationToken.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         throw new RuntimeException("操作被中断", ie);
                     }
                 }
@@ -203,9 +205,9 @@ public class US_CustomsCase {
                     
                     // 添加延迟避免请求过于频繁
                     try {
-                        Thread.sleep(1000);
+                        CrawlerCancellationToken.sleep(1000);
                     } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         break;
                     }
                     
@@ -282,6 +284,7 @@ public class US_CustomsCase {
         
         int savedCount = 0;
         int skippedCount = 0;
+        int failedCount = 0;
         List<String> skippedRecords = new ArrayList<>();
         
         for (CustomsCase record : records) {
@@ -300,8 +303,10 @@ public class US_CustomsCase {
                 
             } catch (Exception e) {
                 log.error("保存记录失败: " + record.getCaseNumber() + " - " + e.getMessage());
+                failedCount++;
             }
         }
+        CrawlerProgressContext.reportBatch(records.size(), savedCount, skippedCount, failedCount);
         
         // 优化日志输出
         if (skippedCount > 0) {
@@ -392,9 +397,9 @@ public class US_CustomsCase {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -406,9 +411,9 @@ public class US_CustomsCase {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
                 
@@ -1,14 +1,15 @@
 package com.certification.crawler.countrydata.us;
 
 import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.BrowserSessionPool;
+import com.certification.crawler.common.HttpResponseCache;
 import com.certification.entity.common.GuidanceDocument;
 import com.certification.repository.common.FDAGuidanceDocumentRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +21,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import com.certification.utils.CrawlerDuplicateDetector;
 
 /**
@@ -40,69 +42,45 @@ public class US_Guidance {
     
     @Autowired
     private MedcertCrawlerConfig crawlerConfig;
+    
+    @Autowired
+    private HttpResponseCache httpResponseCache;
 
+    @Autowired
+    private BrowserSessionPool browserSessionPool;
+
+    private BrowserSessionPool.BrowserSession session;
     private WebDriver driver;
     private WebDriverWait wait;
 
     /**
-     * 初始化WebDriver - 使用完全无头模式
+     * 从浏览器会话池借用WebDriver
      */
     public void initDriver() {
         try {
-            log.info("正在初始化无头ChromeDriver...");
-            
-            // 设置ChromeDriver路径
-            String chromedriverPath = findChromeDriver();
-            if (chromedriverPath != null) {
-                System.setProperty("webdriver.chrome.driver", chromedriverPath);
-                log.info("使用ChromeDriver路径: " + chromedriverPath);
-            } else {
-                log.info("未找到ChromeDriver，尝试使用系统PATH中的驱动");
-            }
-            
-            ChromeOptions options = new ChromeOptions();
-            
-            // 简化的无头模式配置
-            options.addArguments("--headless=new");
-            options.addArguments("--no-sandbox");
-            options.addArguments("--disable-dev-shm-usage");
-            options.addArguments("--disable-gpu");
-            options.addArguments("--window-size=1920,1080");
-            options.addArguments("--user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
-            options.addArguments("--disable-blink-features=AutomationControlled");
-            options.addArguments("--disable-extensions");
-            options.addArguments("--disable-plugins");
-            options.addArguments("--no-first-run");
-            options.addArguments("--no-default-browser-check");
-            
-            // 设置实验性功能
-            options.setExperimentalOption("excludeSwitches", new String[]{"enable-automation"});
-            options.setExperimentalOption("useAutomationExtension", false);
-            
-            log.info("使用完全无头模式，不依赖Chrome浏览器安装");
-            driver = new ChromeDriver(options);
-            log.info("无头ChromeDriver初始化成功！");
-            
-        } catch (Exception e) {
-            log.error("ChromeDriver 初始化失败：" + e.getMessage());
-            log.error("请确保：");
-            log.error("1. 已下载ChromeDriver");
-            log.error("2. ChromeDriver版本与系统兼容");
-            log.error("3. 文件路径正确");
-            throw new RuntimeException("无法初始化无头ChromeDriver", e);
+            session = browserSessionPool.borrow();
+        } catch (InterruptedException e) {
+            CrawlerCancellationToken.restoreInterrupt();
+            throw new RuntimeException("等待浏览器会话被中断", e);
         }
-
-        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(crawlerConfig.getTimeout().getPageLoadTimeoutSeconds()));
+        driver = session.getDriver();
         driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
         wait = new WebDriverWait(driver, Duration.ofSeconds(crawlerConfig.getTimeout().getWaitTimeoutSeconds()));
     }
 
     /**
-     * 关闭WebDriver
+     * 归还WebDriver到会话池
      */
     public void closeDriver() {
-        if (driver != null) {
-            driver.quit();
+        if (session != null) {
+            try {
+                driver.manage().timeouts().implicitlyWait(Duration.ZERO);
+            } catch (Exception e) {
+                log.debug("重置隐式等待失败: {}", e.getMessage());
+            }
+            browserSessionPool.release(session);
+            session = null;
+            driver = null;
         }
     }
     
@@ -122,9 +100,9 @@ public class US_Guidance {
                 
                 if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                     try {
-                        Thread.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
+                        CrawlerCancellationToken.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         throw new RuntimeException("操作被中断", ie);
                     }
                 }
@@ -146,6 +124,13 @@ public class US_Guidance {
      * 爬取数据的主方法（带数量限制和分批保存）
      */
     public void crawlWithLimit(int maxRecords) {
+        // 启动浏览器之前先做一次条件请求：列表页是服务端渲染的完整表格，未变化时无需启动浏览器
+        HttpResponseCache.CachedPage probe = probeListingPage();
+        if (probe != null && probe.isUnchanged()) {
+            log.info("FDA指导文档列表页未变化，跳过本次爬取");
+            return;
+        }
+        
         try {
             initDriver();
             log.info("=== FDA指导文档爬虫启动 ===");
@@ -154,7 +139,7 @@ public class US_Guidance {
             log.info("批量保存大小: " + crawlerConfig.getBatch().getSmallSaveSize() + " 条/批");
             
             // 访问页面
-            driver.get(BASE_URL);
+            session.open(BASE_URL);
             
             // 等待页面加载完成
             waitForPageLoad();
@@ -163,7 +148,12 @@ public class US_Guidance {
             selectShowAllRecords();
             
             // 解析页面并分批提取数据
-            parsePageWithBatchSave(maxRecords);
+            boolean completed = parsePageWithBatchSave(maxRecords);
+            
+            // 只有完整处理了全部数据才记录列表页缓存
+            if (completed && maxRecords <= 0) {
+                httpResponseCache.commit(probe);
+            }
             
             log.info("=== 爬取完成 ===");
         } finally {
@@ -171,6 +161,21 @@ public class US_Guidance {
         }
     }
 
+    /**
+     * 条件请求列表页
+     * @return 请求结果，请求失败时返回null（继续走浏览器爬取）
+     */
+    private HttpResponseCache.CachedPage probeListingPage() {
+        try {
+            return httpResponseCache.fetch(Jsoup.connect(BASE_URL)
+                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
+                    .timeout(crawlerConfig.getTimeout().getHttpTimeoutMilliseconds()));
+        } catch (Exception e) {
+            log.warn("列表页条件请求失败，继续使用浏览器爬取: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 等待页面加载完成
      */
@@ -191,7 +196,7 @@ public class US_Guidance {
             log.info("数据行已加载");
             
             // 额外等待以确保数据完全加载
-            Thread.sleep(3000);
+            CrawlerCancellationToken.sleep(3000);
             log.info("页面加载完成");
             
         } catch (Exception e) {
@@ -231,7 +236,7 @@ public class US_Guidance {
                 log.info("成功选择显示所有数据");
                 
                 // 等待数据重新加载
-                Thread.sleep(2000);
+                CrawlerCancellationToken.sleep(2000);
                 
                 // 等待数据行重新加载
                 wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector("#DataTables_Table_0 tbody tr")));
@@ -249,8 +254,9 @@ public class US_Guidance {
 
     /**
      * 解析页面并分批保存数据
+     * @return 是否完整处理了页面（未发生页面级异常）
      */
-    private void parsePageWithBatchSave(int maxRecords) {
+    private boolean parsePageWithBatchSave(int maxRecords) {
         List<GuidanceDocument> batchToSave = new ArrayList<>();
         int totalProcessed = 0;
         int totalSaved = 0;
@@ -265,7 +271,7 @@ public class US_Guidance {
             
             if (rows.isEmpty()) {
                 log.info("未找到数据行");
-                return;
+                return false;
             }
 
             int totalRows = rows.size(); // 保存行数，避免使用Stale Element
@@ -283,7 +289,7 @@ public class US_Guidance {
 
                 try {
                     // 添加短暂等待确保页面稳定
-                    Thread.sleep(100);
+                    CrawlerCancellationToken.sleep(100);
                     
                     // 使用CSS选择器直接定位到特定行，避免使用WebElement引用
                     String rowSelector = "#DataTables_Table_0 tbody tr:nth-child(" + (i + 1) + ")";
@@ -324,10 +330,12 @@ public class US_Guidance {
             log.info("总共处理: " + totalProcessed + " 条记录");
             log.info("成功保存: " + totalSaved + " 条记录");
             log.info("跳过重复: " + totalSkipped + " 条记录");
+            return true;
             
         } catch (Exception e) {
             log.error("解析页面时出错: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -558,7 +566,7 @@ public class US_Guidance {
 
                 try {
                     // 添加短暂等待确保页面稳定
-                    Thread.sleep(100);
+                    CrawlerCancellationToken.sleep(100);
                     
                     // 使用CSS选择器直接定位到特定行，避免使用WebElement引用
                     String rowSelector = "#DataTables_Table_0 tbody tr:nth-child(" + (i + 1) + ")";
@@ -769,25 +777,6 @@ public class US_Guidance {
         }
     }
 
-    /**
-     * 尝试在项目根目录或系统PATH中定位 ChromeDriver
-     */
-    private String findChromeDriver() {
-        String projectRoot = System.getProperty("user.dir");
-        String[] candidates = new String[] {
-                projectRoot + "\\chromedriver.exe",
-                projectRoot + "\\chromedriver.exe", // 确保在项目根目录下有
-                "chromedriver.exe", // 尝试在系统PATH中
-                "chromedriver.exe" // 尝试在系统PATH中
-        };
-        for (String p : candidates) {
-            if (p != null && java.nio.file.Files.exists(java.nio.file.Paths.get(p))) {
-                return p;
-            }
-        }
-        return null;
-    }
-
     /**
      * 基于关键词列表爬取FDA指导文档数据
      * 注意：FDA指导文档爬虫不支持关键词搜索，此方法会忽略关键词参数
@@ -13,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import com.certification.entity.common.DeviceEventReport;
 import com.certification.repository.common.DeviceEventReportRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
 
 import java.io.FileWriter;
 import java.io.IOException;
@@ -152,9 +153,9 @@ public class US_event {
                         log.warn("第 {} 页爬取失败 (尝试 {}/{}): {} - {}，{}秒后重试...", 
                                 currentPage, retryCount, crawlerConfig.getRetry().getMaxAttempts(), errorType, e.getMessage(), crawlerConfig.getRetry().getDelayMilliseconds() / 1000);
                         try {
-                            Thread.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
+                            CrawlerCancellationToken.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
                         } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
+                            CrawlerCancellationToken.restoreInterrupt();
                             log.error("线程被中断，停止爬取");
                             break;
                         }
@@ -181,9 +182,9 @@ public class US_event {
 
                 // 延迟
                 try {
-                    Thread.sleep(DELAY_MS);
+                    CrawlerCancellationToken.sleep(DELAY_MS);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
             } else {
@@ -901,7 +902,7 @@ public class US_event {
                     totalSkipped += (Integer) brandResult.getOrDefault("totalSkipped", 0);
                     totalPages += (Integer) brandResult.getOrDefault("totalPages", 0);
                 }
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
                 
                 // 2. 使用关键词作为制造商进行搜索
                 log.info("关键词 '{}' 作为制造商搜索", keyword);
@@ -913,7 +914,7 @@ public class US_event {
                     totalSkipped += (Integer) manufacturerResult.getOrDefault("totalSkipped", 0);
                     totalPages += (Integer) manufacturerResult.getOrDefault("totalPages", 0);
                 }
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
                 
                 // 3. 使用关键词作为型号进行搜索
                 log.info("关键词 '{}' 作为型号搜索", keyword);
@@ -925,7 +926,7 @@ public class US_event {
                     totalSkipped += (Integer) modelResult.getOrDefault("totalSkipped", 0);
                     totalPages += (Integer) modelResult.getOrDefault("totalPages", 0);
                 }
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
                 
                 log.info("关键词 '{}' 完成三种参数搜索", keyword);
                 
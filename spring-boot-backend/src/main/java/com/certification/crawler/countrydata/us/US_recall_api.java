@@ -1,10 +1,14 @@
 package com.certification.crawler.countrydata.us;
 
 import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceRecallRecord;
 import com.certification.entity.common.CrawlerCheckpoint;
 import com.certification.repository.common.DeviceRecallRecordRepository;
 import com.certification.repository.common.CrawlerCheckpointRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import com.certification.service.crawler.delta.DeviceDeltaService;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -19,7 +23,6 @@ import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -57,6 +60,9 @@ public class US_recall_api {
     @Autowired
     private MedcertCrawlerConfig crawlerConfig;
 
+    @Autowired
+    private DeviceDeltaService deviceDeltaService;
+
     public US_recall_api() {
         this.httpClient = HttpClients.createDefault();
         this.objectMapper = new ObjectMapper();
@@ -817,11 +823,14 @@ public class US_recall_api {
                 String searchQuery = "openfda.brand_name:" + brandName.trim();
                 
                 try {
-                    String result = crawlAndSaveDeviceRecall(searchQuery, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveDeviceRecall(searchQuery, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("品牌名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("品牌名称 '" + brandName + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -836,11 +845,14 @@ public class US_recall_api {
                 String searchQuery = "recalling_firm:" + firm.trim();
                 
                 try {
-                    String result = crawlAndSaveDeviceRecall(searchQuery, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveDeviceRecall(searchQuery, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("召回公司搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("召回公司 '" + firm + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -855,11 +867,14 @@ public class US_recall_api {
                 String searchQuery = "product_description:" + description.trim();
                 
                 try {
-                    String result = crawlAndSaveDeviceRecall(searchQuery, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveDeviceRecall(searchQuery, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("产品描述搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("产品描述 '" + description + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -989,14 +1004,17 @@ public class US_recall_api {
                 }
 
                 try {
-                    TimeUnit.SECONDS.sleep(1);
+                    CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(1));
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
             } catch (Exception e) {
                 System.err.println("爬取过程中发生错误: " + e.getMessage());
+                if (e.getMessage() == null || (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found"))) {
+                    CrawlerProgressContext.reportError("爬取过程中发生错误: " + e.getMessage());
+                }
                 throw e;
             }
         }
@@ -1035,6 +1053,8 @@ public class US_recall_api {
         HttpGet httpGet = new HttpGet(requestUrl);
 
         for (int attempt = 1; attempt <= crawlerConfig.getRetry().getMaxAttempts(); attempt++) {
+            HttpUtils.beforeRequest(requestUrl);
+            long startNanos = System.nanoTime();
             try (var response = httpClient.executeOpen(null, httpGet, null)) {
                 int statusCode = response.getCode();
                 String reasonPhrase = response.getReasonPhrase();
@@ -1042,7 +1062,9 @@ public class US_recall_api {
                 if (statusCode == 200) {
                     HttpEntity entity = response.getEntity();
                     if (entity != null) {
-                        String json = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                        byte[] body = EntityUtils.toByteArray(entity);
+                        HttpUtils.afterResponse(startNanos, body.length);
+                        String json = new String(body, StandardCharsets.UTF_8);
 
                         // 检查是否包含错误信息
                         if (json.contains("\"error\"")) {
@@ -1093,9 +1115,9 @@ public class US_recall_api {
                     System.err.printf("请求失败，状态码: %d，原因: %s（第%d次重试）%n", statusCode, reasonPhrase, attempt);
                     if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                         try {
-                            TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                            CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                         } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
+                            CrawlerCancellationToken.restoreInterrupt();
                             break;
                         }
                     }
@@ -1104,9 +1126,9 @@ public class US_recall_api {
                 System.err.printf("请求异常: %s（第%d次重试）%n", e.getMessage(), attempt);
                 if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                     try {
-                        TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                        CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         break;
                     }
                 }
@@ -1118,14 +1140,15 @@ public class US_recall_api {
 
     /**
      * 批量保存到数据库
+     * 按cfresId批量比较内容指纹：新记录插入，内容变化的记录（如召回状态更新）只更新变化行，未变化的跳过
      */
-    @Transactional
     private String saveBatchToDatabase(List<MedicalDeviceRecall> records) {
         if (records == null || records.isEmpty()) {
             return "0 条记录";
         }
 
         int savedCount = 0;
+        int updatedCount = 0;
         int totalSkipped = 0;
         int batchCount = 0;
 
@@ -1137,69 +1160,39 @@ public class US_recall_api {
             List<MedicalDeviceRecall> batch = records.subList(i, endIndex);
             batchCount++;
 
-            List<DeviceRecallRecord> newRecords = new ArrayList<>();
-            int batchDuplicateCount = 0;
-
+            List<DeviceRecallRecord> entities = new ArrayList<>();
+            int batchErrorCount = 0;
             for (MedicalDeviceRecall record : batch) {
                 try {
-                    // 检查是否已存在（使用cfresId）
-                    boolean isDuplicate = false;
-                    
-                    String cfresId = record.getCfresId();
-                    
-                    // 重试机制：最多重试3次
-                    int retryCount = 0;
-                    int maxRetries = 3;
-                    boolean querySuccess = false;
-                    
-                    while (retryCount < maxRetries && !querySuccess) {
-                        try {
-                            if (cfresId != null && !cfresId.trim().isEmpty()) {
-                                if (deviceRecallRecordRepository.findByCfresId(cfresId).isPresent()) {
-                                    isDuplicate = true;
-                                }
-                            }
-                            querySuccess = true;
-                        } catch (Exception e) {
-                            retryCount++;
-                            if (retryCount >= maxRetries) {
-                                System.err.println("查询重复记录失败，跳过该记录: " + e.getMessage());
-                                isDuplicate = true; // 查询失败时跳过该记录
-                            } else {
-                                try {
-                                    Thread.sleep(1000 * retryCount);
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    break;
-                                }
-                            }
-                        }
-                    }
-
-                    if (!isDuplicate) {
-                        DeviceRecallRecord entity = convertToEntity(record);
-                        newRecords.add(entity);
-                    } else {
-                        batchDuplicateCount++;
+                    DeviceRecallRecord entity = convertToEntity(record);
+                    if (entity != null) {
+                        entities.add(entity);
                     }
                 } catch (Exception e) {
                     System.err.println("处理记录时发生错误: " + e.getMessage());
-                    batchDuplicateCount++;
+                    batchErrorCount++;
                 }
             }
 
-            // 保存新记录
-            if (!newRecords.isEmpty()) {
+            int batchChanged = 0;
+            if (!entities.isEmpty()) {
                 int saveRetryCount = 0;
                 int maxSaveRetries = 3;
                 boolean saveSuccess = false;
 
                 while (saveRetryCount < maxSaveRetries && !saveSuccess) {
                     try {
-                        List<DeviceRecallRecord> savedRecords = deviceRecallRecordRepository.saveAll(newRecords);
-                        savedCount += savedRecords.size();
-                        totalSkipped += batchDuplicateCount;
-                        System.out.println("第 " + batchCount + " 批次保存成功，新增: " + newRecords.size() + " 条，重复: " + batchDuplicateCount + " 条");
+                        DeviceDeltaService.DeltaResult delta = deviceDeltaService.upsert(
+                                deviceRecallRecordRepository,
+                                entities,
+                                entity -> entity.getCfresId() != null && !entity.getCfresId().trim().isEmpty() ? entity.getCfresId() : null,
+                                deviceRecallRecordRepository::findByCfresIdIn);
+                        savedCount += delta.getInserted();
+                        updatedCount += delta.getUpdated();
+                        totalSkipped += delta.getUnchanged() + batchErrorCount;
+                        batchChanged = delta.getChanged();
+                        System.out.println("第 " + batchCount + " 批次保存成功，新增: " + delta.getInserted()
+                                + " 条，更新: " + delta.getUpdated() + " 条，未变化: " + delta.getUnchanged() + " 条");
                         saveSuccess = true;
                     } catch (Exception e) {
                         saveRetryCount++;
@@ -1208,9 +1201,9 @@ public class US_recall_api {
                         } else {
                             System.err.println("第 " + batchCount + " 批次保存失败，第" + saveRetryCount + "次重试: " + e.getMessage());
                             try {
-                                Thread.sleep(2000 * saveRetryCount);
+                                CrawlerCancellationToken.sleep(2000 * saveRetryCount);
                             } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
+                                CrawlerCancellationToken.restoreInterrupt();
                                 break;
                             }
                         }
@@ -1218,8 +1211,8 @@ public class US_recall_api {
                 }
             }
 
-            // 批次检测：检查是否应该停止爬取
-            boolean shouldStop = detector.recordBatch(batch.size(), newRecords.size());
+            // 批次检测：检查是否应该停止爬取（内容变化的记录与新记录同样视为有效数据）
+            boolean shouldStop = detector.recordBatch(batch.size(), batchChanged, batchErrorCount);
             if (shouldStop) {
                 System.out.println("⚠️ 检测到连续重复批次，停止保存剩余数据");
                 break;
@@ -1229,7 +1222,7 @@ public class US_recall_api {
         // 打印最终统计
         detector.printFinalStats("US_recall_api");
 
-        return String.format("保存成功: %d 条新记录, 跳过重复: %d 条", savedCount, totalSkipped);
+        return String.format("保存成功: %d 条新记录, 更新变化: %d 条, 跳过重复: %d 条", savedCount, updatedCount, totalSkipped);
     }
 
     /**
@@ -1,10 +1,14 @@
 package com.certification.crawler.countrydata.us;
 
 import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceRegistrationRecord;
 import com.certification.entity.common.CrawlerCheckpoint;
 import com.certification.repository.common.DeviceRegistrationRecordRepository;
 import com.certification.repository.common.CrawlerCheckpointRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import com.certification.service.crawler.delta.DeviceDeltaService;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
@@ -17,7 +21,6 @@ import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.net.URIBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -47,6 +50,9 @@ public class US_registration {
     @Autowired
     private MedcertCrawlerConfig crawlerConfig;
 
+    @Autowired
+    private DeviceDeltaService deviceDeltaService;
+
     public US_registration() {
         this.httpClient = HttpClients.createDefault();
         this.objectMapper = new ObjectMapper();
@@ -373,9 +379,9 @@ public class US_registration {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -386,9 +392,9 @@ public class US_registration {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
@@ -399,9 +405,9 @@ public class US_registration {
 
                 // 添加延迟避免请求过于频繁
                 try {
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
                 
@@ -470,11 +476,14 @@ public class US_registration {
                 System.out.println("按制造商名称搜索: " + manufacturer);
                 
                 try {
-                    String result = crawlAndSaveByManufacturerName(manufacturer, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveByManufacturerName(manufacturer, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("制造商名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("制造商名称 '" + manufacturer + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -488,11 +497,14 @@ public class US_registration {
                 System.out.println("按设备名称搜索: " + deviceName);
                 
                 try {
-                    String result = crawlAndSaveByDeviceName(deviceName, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveByDeviceName(deviceName, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("设备名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("设备名称 '" + deviceName + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -506,11 +518,14 @@ public class US_registration {
                 System.out.println("按专有名称搜索: " + proprietaryName);
                 
                 try {
-                    String result = crawlAndSaveByProprietaryName(proprietaryName, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveByProprietaryName(proprietaryName, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("专有名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("专有名称 '" + proprietaryName + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -627,14 +642,17 @@ public class US_registration {
                 }
 
                 try {
-                    TimeUnit.SECONDS.sleep(1);
+                    CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(1));
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
             } catch (Exception e) {
                 System.err.println("爬取过程中发生错误: " + e.getMessage());
+                if (e.getMessage() == null || (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found"))) {
+                    CrawlerProgressContext.reportError("爬取过程中发生错误: " + e.getMessage());
+                }
                 throw e;
             }
         }
@@ -741,6 +759,7 @@ public class US_registration {
         
         int totalFetched = 0;
         int totalSaved = 0;
+        int totalUpdated = 0;
         int currentSkip = 0;
         long totalAvailable = 0;
         boolean crawlAll = (maxRecords == -1);
@@ -798,6 +817,9 @@ public class US_registration {
                         System.out.printf("开始爬取所有数据，目标数量: %d 条%n", maxRecords);
                     }
                 }
+                int pageSize = Math.min(batchSize, 100);
+                CrawlerProgressContext.reportPage(batchCount,
+                        totalAvailable > 0 ? (int) ((Math.min(totalAvailable, maxRecords) + pageSize - 1) / pageSize) : null);
 
                 // 转换当前批次数据为实体
                 List<DeviceRegistrationRecord> entities = new ArrayList<>();
@@ -809,22 +831,15 @@ public class US_registration {
                 }
 
                 // 立即保存当前批次到数据库
-                String saveResult = saveBatchToDatabase(entities);
-                
-                // 解析保存的记录数
-                int savedCount = 0;
-                try {
-                    savedCount = Integer.parseInt(saveResult.replaceAll("[^0-9]", ""));
-                } catch (NumberFormatException e) {
-                    savedCount = 0;
-                }
-                
+                SaveResult saveResult = saveBatchToDatabase(entities);
+
                 totalFetched += entities.size();
-                totalSaved += savedCount;
+                totalSaved += saveResult.inserted;
+                totalUpdated += saveResult.updated;
                 currentSkip += currentLimit;
 
-                // 检查是否全部重复
-                if (savedCount == 0 && !entities.isEmpty()) {
+                // 检查是否全部重复（内容变化的记录与新记录同样视为有效数据）
+                if (saveResult.inserted + saveResult.updated == 0 && !entities.isEmpty()) {
                     consecutiveEmptyBatches++;
                     System.out.println("第 " + batchCount + " 批次全部重复，连续空批次: " + consecutiveEmptyBatches);
                     
@@ -850,14 +865,17 @@ public class US_registration {
                 }
 
                 try {
-                    TimeUnit.SECONDS.sleep(1);
+                    CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(1));
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
 
             } catch (Exception e) {
                 System.err.println("爬取过程中发生错误: " + e.getMessage());
+                if (e.getMessage() == null || (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found"))) {
+                    CrawlerProgressContext.reportError("爬取过程中发生错误: " + e.getMessage());
+                }
                 // 如果是"未找到匹配记录"的错误，不打印堆栈跟踪
                 if (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found")) {
                     e.printStackTrace();
@@ -869,20 +887,20 @@ public class US_registration {
         // 记录爬取信息
         recordCrawlerInfo(searchTerm, maxRecords, batchSize, dateFrom, dateTo, totalFetched, totalSaved, "COMPLETED", null);
         
-        return String.format("FDA设备注册信息爬取完成，总共获取: %d 条记录，保存: %d 条记录", totalFetched, totalSaved);
+        return String.format("FDA设备注册信息爬取完成，总共获取: %d 条记录，保存: %d 条记录，更新变化: %d 条", totalFetched, totalSaved, totalUpdated);
     }
 
     /**
      * 批量保存到数据库
+     * 注册编号、FEI编号、设备名称齐全的记录按三者组合增量写入：不存在时插入，内容变化时更新（{@link DeviceDeltaService}）；
+     * 字段不全的记录无法唯一定位，仍按注册编号或FEI编号查重，已存在时跳过
      */
-    @Transactional
-    private String saveBatchToDatabase(List<DeviceRegistrationRecord> records) {
+    private SaveResult saveBatchToDatabase(List<DeviceRegistrationRecord> records) {
+        SaveResult result = new SaveResult();
         if (records == null || records.isEmpty()) {
-            return "0 条记录";
+            return result;
         }
 
-        int savedCount = 0;
-        int duplicateCount = 0;
         int batchCount = 0;
         int consecutiveEmptyBatches = 0;
 
@@ -891,130 +909,152 @@ public class US_registration {
             List<DeviceRegistrationRecord> batch = records.subList(i, endIndex);
             batchCount++;
 
+            List<DeviceRegistrationRecord> keyedRecords = new ArrayList<>();
             List<DeviceRegistrationRecord> newRecords = new ArrayList<>();
             int batchDuplicateCount = 0;
 
             for (DeviceRegistrationRecord record : batch) {
-                try {
-                    // 检查是否已存在（使用registration_number、fei_number、device_name三个字段）
-                    boolean isDuplicate = false;
-                    
-                    // 获取三个关键字段的值
-                    String registrationNumber = record.getRegistrationNumber();
-                    String feiNumber = record.getFeiNumber();
-                    String deviceName = record.getDeviceName();
-                    
-                    // 重试机制：最多重试3次
-                    int retryCount = 0;
-                    int maxRetries = 3;
-                    boolean querySuccess = false;
-                    
-                    while (retryCount < maxRetries && !querySuccess) {
-                        try {
-                            // 如果三个字段都有值，使用复合查询
-                            if (registrationNumber != null && !registrationNumber.trim().isEmpty() &&
-                                feiNumber != null && !feiNumber.trim().isEmpty() &&
-                                deviceName != null && !deviceName.trim().isEmpty()) {
-                                
-                                List<DeviceRegistrationRecord> existingRecords = deviceRegistrationRecordRepository
-                                        .findByRegistrationNumberAndFeiNumberAndDeviceName(registrationNumber, feiNumber, deviceName);
-                                if (!existingRecords.isEmpty()) {
-                                    isDuplicate = true;
-                                }
-                            } else {
-                                // 如果某些字段为空，则分别检查非空字段
-                                if (registrationNumber != null && !registrationNumber.trim().isEmpty()) {
-                                    List<DeviceRegistrationRecord> existingByReg = deviceRegistrationRecordRepository
-                                            .findByRegistrationNumber(registrationNumber);
-                                    if (!existingByReg.isEmpty()) {
-                                        isDuplicate = true;
-                                    }
-                                }
-                                
-                                if (!isDuplicate && feiNumber != null && !feiNumber.trim().isEmpty()) {
-                                    List<DeviceRegistrationRecord> existingByFei = deviceRegistrationRecordRepository
-                                            .findByFeiNumber(feiNumber);
-                                    if (!existingByFei.isEmpty()) {
-                                        isDuplicate = true;
-                                    }
-                                }
-                            }
-                            querySuccess = true;
-        } catch (Exception e) {
-                            retryCount++;
-                            if (retryCount >= maxRetries) {
-                                System.err.println("重复检查失败，已重试" + maxRetries + "次，跳过该记录: " + e.getMessage());
-                                // 连接问题，将记录标记为重复以避免数据冲突
-                                isDuplicate = true;
-                                break;
-                            } else {
-                                System.err.println("重复检查失败，第" + retryCount + "次重试: " + e.getMessage());
-                                try {
-                                    Thread.sleep(1000 * retryCount); // 递增延迟
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    break;
-                                }
-                            }
-                        }
-                    }
-
-                    if (isDuplicate) {
-                        batchDuplicateCount++;
-                        duplicateCount++;
-                    } else {
-                        newRecords.add(record);
-                    }
-                } catch (Exception e) {
-                    System.err.println("重复检查过程中发生未知错误，跳过该记录: " + e.getMessage());
+                if (registrationKey(record) != null) {
+                    keyedRecords.add(record);
+                } else if (isPartialKeyDuplicate(record)) {
                     batchDuplicateCount++;
-                    duplicateCount++;
+                } else {
+                    newRecords.add(record);
                 }
             }
 
-            if (newRecords.isEmpty()) {
-                System.out.println("本批次全部为重复记录，跳过了 " + batch.size() + " 条记录");
-                consecutiveEmptyBatches++;
-                System.out.println("第 " + batchCount + " 批次数据全部重复，连续空批次: " + consecutiveEmptyBatches);
-                
-                // 如果连续多个批次都是重复数据，停止爬取
-                if (consecutiveEmptyBatches >= 3) {
-                    System.out.println("连续 " + consecutiveEmptyBatches + " 个批次都是重复数据，停止爬取");
-                    break;
-                }
-            } else {
-                consecutiveEmptyBatches = 0;
-                
-                // 批次保存重试机制
+            int batchChanged = 0;
+            if (!keyedRecords.isEmpty() || !newRecords.isEmpty()) {
+                // 批次保存重试机制（增量写入可重复执行，重试时已写入的记录按未变化处理）
                 int saveRetryCount = 0;
                 int maxSaveRetries = 3;
                 boolean saveSuccess = false;
-                
+
                 while (saveRetryCount < maxSaveRetries && !saveSuccess) {
                     try {
-                        deviceRegistrationRecordRepository.saveAll(newRecords);
-                        savedCount += newRecords.size();
-                        System.out.println("第 " + batchCount + " 批次保存成功，新增: " + newRecords.size() + " 条，重复: " + batchDuplicateCount + " 条");
+                        DeviceDeltaService.DeltaResult delta = deviceDeltaService.upsert(
+                                deviceRegistrationRecordRepository,
+                                keyedRecords,
+                                this::registrationKey,
+                                this::findExistingByKeys);
+                        if (!newRecords.isEmpty()) {
+                            deviceRegistrationRecordRepository.saveAll(newRecords);
+                        }
+                        result.inserted += delta.getInserted() + newRecords.size();
+                        result.updated += delta.getUpdated();
+                        result.skipped += delta.getUnchanged() + batchDuplicateCount;
+                        batchChanged = delta.getChanged() + newRecords.size();
+                        System.out.println("第 " + batchCount + " 批次保存成功，新增: " + (delta.getInserted() + newRecords.size())
+                                + " 条，更新: " + delta.getUpdated() + " 条，未变化: " + (delta.getUnchanged() + batchDuplicateCount) + " 条");
                         saveSuccess = true;
-        } catch (Exception e) {
+                    } catch (Exception e) {
                         saveRetryCount++;
                         if (saveRetryCount >= maxSaveRetries) {
                             System.err.println("第 " + batchCount + " 批次保存失败，已重试" + maxSaveRetries + "次: " + e.getMessage());
                         } else {
                             System.err.println("第 " + batchCount + " 批次保存失败，第" + saveRetryCount + "次重试: " + e.getMessage());
                             try {
-                                Thread.sleep(2000 * saveRetryCount); // 递增延迟
+                                CrawlerCancellationToken.sleep(2000 * saveRetryCount); // 递增延迟
                             } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
+                                CrawlerCancellationToken.restoreInterrupt();
                                 break;
                             }
                         }
                     }
                 }
+                int batchRecords = keyedRecords.size() + newRecords.size();
+                CrawlerProgressContext.reportBatch(batch.size(), batchChanged,
+                        saveSuccess ? batch.size() - batchChanged : batchDuplicateCount, saveSuccess ? 0 : batchRecords);
+            } else {
+                result.skipped += batchDuplicateCount;
+                CrawlerProgressContext.reportBatch(batch.size(), 0, batchDuplicateCount, 0);
+            }
+
+            // 内容变化的记录与新记录同样视为有效数据
+            if (batchChanged == 0) {
+                consecutiveEmptyBatches++;
+                System.out.println("第 " + batchCount + " 批次数据全部重复，连续空批次: " + consecutiveEmptyBatches);
+
+                // 如果连续多个批次都是重复数据，停止爬取
+                if (consecutiveEmptyBatches >= 3) {
+                    System.out.println("连续 " + consecutiveEmptyBatches + " 个批次都是重复数据，停止爬取");
+                    break;
+                }
+            } else {
+                consecutiveEmptyBatches = 0;
             }
         }
 
-        return String.format("保存成功: %d 条新记录, 跳过重复: %d 条", savedCount, duplicateCount);
+        return result;
+    }
+
+    /**
+     * 注册记录的业务主键：注册编号、FEI编号、设备名称齐全时返回三者组合，否则返回null
+     */
+    private String registrationKey(DeviceRegistrationRecord record) {
+        String registrationNumber = record.getRegistrationNumber();
+        String feiNumber = record.getFeiNumber();
+        String deviceName = record.getDeviceName();
+        if (registrationNumber == null || registrationNumber.trim().isEmpty()
+                || feiNumber == null || feiNumber.trim().isEmpty()
+                || deviceName == null || deviceName.trim().isEmpty()) {
+            return null;
+        }
+        return registrationNumber + "|" + feiNumber + "|" + deviceName;
+    }
+
+    /**
+     * 按注册编号批量查询已有记录，由 {@link DeviceDeltaService} 按三字段组合匹配
+     */
+    private List<DeviceRegistrationRecord> findExistingByKeys(Collection<String> keys) {
+        Set<String> registrationNumbers = new HashSet<>();
+        for (String key : keys) {
+            registrationNumbers.add(key.substring(0, key.indexOf('|')));
+        }
+        return deviceRegistrationRecordRepository.findByRegistrationNumberIn(registrationNumbers);
+    }
+
+    /**
+     * 字段不全的记录查重：注册编号或FEI编号已存在即视为重复；查询失败重试3次后按重复处理，避免数据冲突
+     */
+    private boolean isPartialKeyDuplicate(DeviceRegistrationRecord record) {
+        String registrationNumber = record.getRegistrationNumber();
+        String feiNumber = record.getFeiNumber();
+
+        int retryCount = 0;
+        int maxRetries = 3;
+        while (true) {
+            try {
+                if (registrationNumber != null && !registrationNumber.trim().isEmpty()
+                        && !deviceRegistrationRecordRepository.findByRegistrationNumber(registrationNumber).isEmpty()) {
+                    return true;
+                }
+                return feiNumber != null && !feiNumber.trim().isEmpty()
+                        && !deviceRegistrationRecordRepository.findByFeiNumber(feiNumber).isEmpty();
+            } catch (Exception e) {
+                retryCount++;
+                if (retryCount >= maxRetries) {
+                    System.err.println("重复检查失败，已重试" + maxRetries + "次，跳过该记录: " + e.getMessage());
+                    return true;
+                }
+                System.err.println("重复检查失败，第" + retryCount + "次重试: " + e.getMessage());
+                try {
+                    CrawlerCancellationToken.sleep(1000 * retryCount); // 递增延迟
+                } catch (InterruptedException ie) {
+                    CrawlerCancellationToken.restoreInterrupt();
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量保存结果
+     */
+    private static class SaveResult {
+        private int inserted;
+        private int updated;
+        private int skipped;
     }
 
     /**
@@ -1033,6 +1073,8 @@ public class US_registration {
         HttpGet httpGet = new HttpGet(uriBuilder.build());
 
         for (int attempt = 1; attempt <= crawlerConfig.getRetry().getMaxAttempts(); attempt++) {
+            HttpUtils.beforeRequest(requestUrl);
+            long startNanos = System.nanoTime();
             try (ClassicHttpResponse response = httpClient.executeOpen(null, httpGet, null)) {
                 int statusCode = response.getCode();
                 String reasonPhrase = response.getReasonPhrase();
@@ -1040,7 +1082,9 @@ public class US_registration {
                 if (statusCode == 200) {
                     HttpEntity entity = response.getEntity();
                     if (entity != null) {
-                        String json = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                        byte[] body = EntityUtils.toByteArray(entity);
+                        HttpUtils.afterResponse(startNanos, body.length);
+                        String json = new String(body, StandardCharsets.UTF_8);
                         
                         // 检查是否包含错误信息
                         if (json.contains("\"error\"")) {
@@ -1075,9 +1119,9 @@ public class US_registration {
                     System.err.printf("请求失败，状态码: %d，原因: %s（第%d次重试）%n", statusCode, reasonPhrase, attempt);
                     if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                         try {
-                            TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                            CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                         } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
+                            CrawlerCancellationToken.restoreInterrupt();
                             break;
                         }
                     }
@@ -1086,9 +1130,9 @@ public class US_registration {
                 System.err.printf("请求异常: %s（第%d次重试）%n", e.getMessage(), attempt);
                 if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                     try {
-                        TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                        CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         break;
                     }
                 }
@@ -4,6 +4,7 @@ import com.certification.config.MedcertCrawlerConfig;
 import com.certification.entity.common.CertNewsData;
 import com.certification.entity.common.Device510K;
 import com.certification.repository.common.Device510KRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.Connection;
@@ -101,9 +102,9 @@ public class D_510K {
             } catch (Exception e) {
                 log.error("第 {} 页爬取失败：{}，重试中...", currentPage, e.getMessage());
                 try {
-                    Thread.sleep(5000); // 等待5秒后重试
+                    CrawlerCancellationToken.sleep(5000); // 等待5秒后重试
                 } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
                 continue;
@@ -120,9 +121,9 @@ public class D_510K {
 
             // 延迟
             try {
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
             } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                CrawlerCancellationToken.restoreInterrupt();
                 break;
             }
         }
@@ -470,7 +471,7 @@ public class D_510K {
                 }
                 
                 // 添加延迟避免请求过于频繁
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
                 
             } catch (Exception e) {
                 log.error("关键词 '{}' 搜索失败: {}", keyword, e.getMessage());
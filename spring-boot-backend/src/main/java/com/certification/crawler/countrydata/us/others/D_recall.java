@@ -4,6 +4,7 @@ import com.certification.config.MedcertCrawlerConfig;
 import com.certification.entity.common.CertNewsData;
 import com.certification.entity.common.DeviceRecallRecord;
 import com.certification.repository.common.DeviceRecallRecordRepository;
+import com.certification.service.crawler.CrawlerCancellationToken;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.Connection;
@@ -155,9 +156,9 @@ public class D_recall {
                         log.warn("第 {} 页爬取失败 (尝试 {}/{}): {} - {}，{}秒后重试...", 
                                 currentPage, retryCount, crawlerConfig.getRetry().getMaxAttempts(), errorType, e.getMessage(), crawlerConfig.getRetry().getDelayMilliseconds() / 1000);
                         try {
-                            Thread.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
+                            CrawlerCancellationToken.sleep(crawlerConfig.getRetry().getDelayMilliseconds());
                         } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
+                            CrawlerCancellationToken.restoreInterrupt();
                             log.error("线程被中断，停止爬取");
                             break;
                         }
@@ -184,9 +185,9 @@ public class D_recall {
 
                 // 延迟
                 try {
-                    Thread.sleep(DELAY_MS);
+                    CrawlerCancellationToken.sleep(DELAY_MS);
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
             } else {
@@ -257,7 +258,7 @@ public class D_recall {
                 }
                 
                 // 添加延迟避免请求过于频繁
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
                 
                 // 2. 使用关键词作为召回原因进行搜索
                 log.info("关键词 '{}' 作为召回原因搜索", keyword);
@@ -273,7 +274,7 @@ public class D_recall {
                 }
                 
                 // 添加延迟避免请求过于频繁
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
                 
                 // 3. 使用关键词作为召回公司进行搜索
                 log.info("关键词 '{}' 作为召回公司搜索", keyword);
@@ -289,7 +290,7 @@ public class D_recall {
                 }
                 
                 // 添加延迟避免请求过于频繁
-                Thread.sleep(DELAY_MS);
+                CrawlerCancellationToken.sleep(DELAY_MS);
                 
                 log.info("关键词 '{}' 完成三种参数搜索", keyword);
                 
@@ -1,6 +1,8 @@
 package com.certification.crawler.countrydata.us.others;
 
 import com.certification.config.MedcertCrawlerConfig;
+import com.certification.crawler.common.CrawlPipeline;
+import com.certification.crawler.common.HttpUtils;
 import com.certification.entity.common.DeviceEventReport;
 import com.certification.entity.common.CrawlerCheckpoint;
 import com.certification.repository.common.DeviceEventReportRepository;
@@ -11,7 +13,6 @@ import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.net.URIBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +27,10 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
+import com.certification.service.crawler.delta.DeviceDeltaService;
 import com.certification.util.RiskLevelUtil;
 import com.certification.util.KeywordUtil;
 import com.certification.entity.common.CertNewsData.RiskLevel;
@@ -46,6 +51,9 @@ public class US_event_api {
     
     @Autowired
     private DeviceEventReportRepository deviceEventReportRepository;
+
+    @Autowired
+    private DeviceDeltaService deviceDeltaService;
     
     @Autowired
     private CrawlerCheckpointRepository crawlerCheckpointRepository;
@@ -488,28 +496,37 @@ public class US_event_api {
 
     /**
      * 分批爬取并保存设备不良事件数据
+     * 抓取、转换、入库分阶段执行：抓取下一页时上一页已在转换和入库
      */
     private String crawlAndSaveDeviceEventInBatches(String searchTerm, int maxRecords, int batchSize, String dateFrom, String dateTo) 
-            throws IOException, URISyntaxException, ParseException {
-        
-        List<DeviceEvent> allResults = crawlDeviceEvent(searchTerm, maxRecords, batchSize, dateFrom, dateTo);
-        
-        if (allResults.isEmpty()) {
+            throws Exception {
+        AtomicInteger savedCount = new AtomicInteger();
+        AtomicInteger updatedCount = new AtomicInteger();
+
+        CrawlPipeline.Stats stats = CrawlPipeline.<DeviceEvent>from("US_event_api", crawlerConfig.getPipeline(),
+                        emitter -> crawlDeviceEvent(searchTerm, maxRecords, batchSize, dateFrom, dateTo, emitter))
+                .map("convert", crawlerConfig.getPipeline().getEnrichParallelism(), this::convertToEntity)
+                .sink("persist", crawlerConfig.getBatch().getSaveSize(), batch -> {
+                    DeviceDeltaService.DeltaResult delta = saveBatchToDatabase(batch);
+                    savedCount.addAndGet(delta.getInserted());
+                    updatedCount.addAndGet(delta.getUpdated());
+                });
+
+        if (stats.getOutput("fetch") == 0) {
             return "未找到匹配的设备不良事件数据";
         }
 
-        return saveBatchToDatabase(allResults);
+        return "新增: " + savedCount.get() + " 条，更新: " + updatedCount.get() + " 条";
     }
 
     /**
-     * 爬取设备不良事件数据
+     * 爬取设备不良事件数据（抓取阶段），逐条发送到下游
      */
-    private List<DeviceEvent> crawlDeviceEvent(String searchTerm, int maxRecords, int batchSize, String dateFrom, String dateTo)
-            throws IOException, URISyntaxException, ParseException {
+    private void crawlDeviceEvent(String searchTerm, int maxRecords, int batchSize, String dateFrom, String dateTo,
+                                  CrawlPipeline.Emitter<DeviceEvent> emitter) throws Exception {
         
         System.out.println("开始爬取设备不良事件数据...");
         
-        List<DeviceEvent> allResults = new ArrayList<>();
         int skip = 0;
         int totalFetched = 0;
         boolean crawlAll = (maxRecords == -1);
@@ -580,14 +597,22 @@ public class US_event_api {
                         System.out.printf("开始爬取所有数据，目标数量: %d 条%n", maxRecords);
                     }
                 }
+                int pageSize = Math.min(batchSize, 1000);
+                CrawlerProgressContext.reportPage(skip / pageSize + 1,
+                        totalAvailable != null ? (Math.min(totalAvailable, maxRecords) + pageSize - 1) / pageSize : null);
 
-                // 转换为DeviceEvent对象并设置国家
+                // 设置国家后发送到下游，超出目标数量的部分不再发送
                 for (DeviceEvent event : results) {
+                    if (!crawlAll && totalFetched >= maxRecords) {
+                        break;
+                    }
                     event.setJdCountry("US");
+                    if (!emitter.emit(event)) {
+                        System.out.println("流水线已停止，结束抓取");
+                        return;
+                    }
+                    totalFetched++;
                 }
-
-                allResults.addAll(results);
-                totalFetched += results.size();
                 skip += currentLimit;
 
                 // 显示当前进度
@@ -603,21 +628,24 @@ public class US_event_api {
                 }
 
                 try {
-                    TimeUnit.SECONDS.sleep(1);
+                    CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(1));
                 } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    CrawlerCancellationToken.restoreInterrupt();
                     break;
                 }
                 
+            } catch (InterruptedException e) {
+                throw e;
             } catch (Exception e) {
                 System.err.println("爬取过程中发生错误: " + e.getMessage());
+                if (e.getMessage() == null || (!e.getMessage().contains("未找到匹配记录") && !e.getMessage().contains("No matches found"))) {
+                    CrawlerProgressContext.reportError("爬取过程中发生错误: " + e.getMessage());
+                }
                 throw e;
             }
         }
 
-        List<DeviceEvent> finalResults = allResults.subList(0, Math.min(allResults.size(), maxRecords));
-        System.out.printf("设备不良事件数据爬取完成，共 %d 条数据%n", finalResults.size());
-        return finalResults;
+        System.out.printf("设备不良事件数据爬取完成，共 %d 条数据%n", totalFetched);
     }
 
     /**
@@ -649,6 +677,8 @@ public class US_event_api {
         HttpGet httpGet = new HttpGet(requestUrl);
 
         for (int attempt = 1; attempt <= crawlerConfig.getRetry().getMaxAttempts(); attempt++) {
+            HttpUtils.beforeRequest(requestUrl);
+            long startNanos = System.nanoTime();
             try (var response = httpClient.executeOpen(null, httpGet, null)) {
                 int statusCode = response.getCode();
                 String reasonPhrase = response.getReasonPhrase();
@@ -656,7 +686,9 @@ public class US_event_api {
                 if (statusCode == 200) {
                     HttpEntity entity = response.getEntity();
                     if (entity != null) {
-                        String json = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+                        byte[] body = EntityUtils.toByteArray(entity);
+                        HttpUtils.afterResponse(startNanos, body.length);
+                        String json = new String(body, StandardCharsets.UTF_8);
                         
                         // 检查是否包含错误信息
                         if (json.contains("\"error\"")) {
@@ -689,9 +721,9 @@ public class US_event_api {
                     System.err.printf("请求失败，状态码: %d，原因: %s（第%d次重试）%n", statusCode, reasonPhrase, attempt);
                     if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                         try {
-                            TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                            CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                         } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
+                            CrawlerCancellationToken.restoreInterrupt();
                             break;
                         }
                     }
@@ -700,9 +732,9 @@ public class US_event_api {
                 System.err.printf("请求异常: %s（第%d次重试）%n", e.getMessage(), attempt);
                 if (attempt < crawlerConfig.getRetry().getMaxAttempts()) {
                     try {
-                        TimeUnit.SECONDS.sleep(crawlerConfig.getRetry().getDelaySeconds());
+                        CrawlerCancellationToken.sleep(TimeUnit.SECONDS.toMillis(crawlerConfig.getRetry().getDelaySeconds()));
                     } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
+                        CrawlerCancellationToken.restoreInterrupt();
                         break;
                     }
                 }
@@ -713,104 +745,48 @@ public class US_event_api {
     }
 
     /**
-     * 批量保存到数据库
+     * 保存一个批次到数据库
+     * 按报告编号增量写入：新记录插入，已有记录内容变化时更新（发布变化事件），未变化的跳过
+     *
+     * @return 增量写入结果
+     * @throws IllegalStateException 重试后仍保存失败，由流水线计入失败数
      */
     @Transactional
-    private String saveBatchToDatabase(List<DeviceEvent> records) {
-        if (records == null || records.isEmpty()) {
-            return "0 条记录";
-        }
+    private DeviceDeltaService.DeltaResult saveBatchToDatabase(List<DeviceEventReport> batch) {
+        // 批次保存重试机制（增量写入可重复执行，重试时已写入的记录按未变化处理）
+        int saveRetryCount = 0;
+        int maxSaveRetries = 3;
+        Exception lastError = null;
 
-        int savedCount = 0;
-        int batchCount = 0;
-
-        for (int i = 0; i < records.size(); i += crawlerConfig.getBatch().getSaveSize()) {
-            int endIndex = Math.min(i + crawlerConfig.getBatch().getSaveSize(), records.size());
-            List<DeviceEvent> batch = records.subList(i, endIndex);
-            batchCount++;
-
-            List<DeviceEventReport> newRecords = new ArrayList<>();
-            int batchDuplicateCount = 0;
-
-            for (DeviceEvent record : batch) {
-                try {
-                    // 检查是否已存在（使用reportNumber）
-                    boolean isDuplicate = false;
-                    
-                    String reportNumber = record.getReportNumber();
-                    
-                    // 重试机制：最多重试3次
-                    int retryCount = 0;
-                    int maxRetries = 3;
-                    boolean querySuccess = false;
-                    
-                    while (retryCount < maxRetries && !querySuccess) {
-                        try {
-                            if (reportNumber != null && !reportNumber.trim().isEmpty()) {
-                                if (deviceEventReportRepository.findByReportNumber(reportNumber).isPresent()) {
-                                    isDuplicate = true;
-                                }
-                            }
-                            querySuccess = true;
-                        } catch (Exception e) {
-                            retryCount++;
-                            if (retryCount >= maxRetries) {
-                                System.err.println("查询重复记录失败，跳过该记录: " + e.getMessage());
-                                isDuplicate = true; // 查询失败时跳过该记录
-                            } else {
-                                try {
-                                    Thread.sleep(1000 * retryCount);
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    
-                    if (!isDuplicate) {
-                        DeviceEventReport entity = convertToEntity(record);
-                        newRecords.add(entity);
-                    } else {
-                        batchDuplicateCount++;
-                    }
-                } catch (Exception e) {
-                    System.err.println("处理记录时发生错误: " + e.getMessage());
-                    batchDuplicateCount++;
-                }
-            }
-
-            // 保存新记录
-            if (!newRecords.isEmpty()) {
-                int saveRetryCount = 0;
-                int maxSaveRetries = 3;
-                boolean saveSuccess = false;
-                
-                while (saveRetryCount < maxSaveRetries && !saveSuccess) {
+        while (saveRetryCount < maxSaveRetries) {
+            try {
+                DeviceDeltaService.DeltaResult delta = deviceDeltaService.upsert(
+                        deviceEventReportRepository,
+                        batch,
+                        entity -> entity.getReportNumber() != null && !entity.getReportNumber().trim().isEmpty() ? entity.getReportNumber() : null,
+                        deviceEventReportRepository::findByReportNumberIn);
+                System.out.println("批次保存成功，新增: " + delta.getInserted()
+                        + " 条，更新: " + delta.getUpdated() + " 条，未变化: " + delta.getUnchanged() + " 条");
+                CrawlerProgressContext.reportBatch(batch.size(), delta.getChanged(), delta.getUnchanged(), 0);
+                return delta;
+            } catch (Exception e) {
+                lastError = e;
+                saveRetryCount++;
+                if (saveRetryCount >= maxSaveRetries) {
+                    System.err.println("批次保存失败，已重试" + maxSaveRetries + "次: " + e.getMessage());
+                } else {
+                    System.err.println("批次保存失败，第" + saveRetryCount + "次重试: " + e.getMessage());
                     try {
-                        List<DeviceEventReport> savedRecords = deviceEventReportRepository.saveAll(newRecords);
-                        savedCount += savedRecords.size();
-                        System.out.println("第 " + batchCount + " 批次保存成功，新增: " + newRecords.size() + " 条，重复: " + batchDuplicateCount + " 条");
-                        saveSuccess = true;
-                    } catch (Exception e) {
-                        saveRetryCount++;
-                        if (saveRetryCount >= maxSaveRetries) {
-                            System.err.println("第 " + batchCount + " 批次保存失败，已重试" + maxSaveRetries + "次: " + e.getMessage());
-                        } else {
-                            System.err.println("第 " + batchCount + " 批次保存失败，第" + saveRetryCount + "次重试: " + e.getMessage());
-                            try {
-                                Thread.sleep(2000 * saveRetryCount);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                                break;
-                            }
-                        }
+                        CrawlerCancellationToken.sleep(2000 * saveRetryCount);
+                    } catch (InterruptedException ie) {
+                        CrawlerCancellationToken.restoreInterrupt();
+                        break;
                     }
                 }
             }
         }
 
-        return savedCount + " 条记录";
+        throw new IllegalStateException("设备不良事件批次保存失败: " + (lastError != null ? lastError.getMessage() : "已中断"), lastError);
     }
 
     /**
@@ -975,11 +951,14 @@ public class US_event_api {
                 String searchQuery = "device.brand_name:" + brandName.trim();
                 
                 try {
-                    String result = crawlAndSaveDeviceEvent(searchQuery, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveDeviceEvent(searchQuery, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("品牌名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("品牌名称 '" + brandName + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -994,11 +973,14 @@ public class US_event_api {
                 String searchQuery = "device.manufacturer_name:" + manufacturer.trim();
                 
                 try {
-                    String result = crawlAndSaveDeviceEvent(searchQuery, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveDeviceEvent(searchQuery, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("制造商名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("制造商名称 '" + manufacturer + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -1013,11 +995,14 @@ public class US_event_api {
                 String searchQuery = "device.generic_name:" + genericName.trim();
                 
                 try {
-                    String result = crawlAndSaveDeviceEvent(searchQuery, maxRecords, batchSize, dateFrom, dateTo);
+                    String result = CrawlerProgressContext.checkStep(crawlAndSaveDeviceEvent(searchQuery, maxRecords, batchSize, dateFrom, dateTo));
                     totalSaved += extractSavedCount(result);
                     System.out.println("通用名称搜索结果: " + result);
-                    Thread.sleep(1000);
+                    CrawlerCancellationToken.sleep(1000);
                 } catch (Exception e) {
+                    if (!(e instanceof InterruptedException)) {
+                        CrawlerProgressContext.reportError(String.valueOf(e.getMessage()));
+                    }
                     System.err.println("通用名称 '" + genericName + "' 搜索失败: " + e.getMessage());
                 }
             }
@@ -7,7 +7,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
 
 /**
  * 统一爬虫测试类
@@ -41,26 +40,33 @@ public class UniDeviceCrawler {
         log.info("开始测试UL爬虫批量保存功能，目标数量: {}, 每批保存: {}, 开始位置: {}", totalCount, batchSize, startIndex);
         
         try {
-            // 执行爬取
-            List<CrawlerResult> results = ulCrawler.crawlWithBatchSave("", totalCount, batchSize, startIndex);
+            // 流式执行爬取：只累计统计，不保留结果和正文
+            int[] resultCount = {0};
+            long[] announcementCount = {0};
+            ulCrawler.crawlWithBatchSave("", totalCount, batchSize, startIndex, batch -> {
+                resultCount[0] += batch.size();
+                for (CrawlerResult r : batch) {
+                    if ("announcement".equals(r.getType())) {
+                        announcementCount[0]++;
+                    }
+                }
+                return true;
+            });
             
-            log.info("UL爬虫执行完成，共获取 {} 条结果", results.size());
+            log.info("UL爬虫执行完成，共获取 {} 条结果", resultCount[0]);
             
             // 输出统计信息
             log.info("=== UL爬虫执行统计 ===");
             log.info("目标数量: {}", totalCount);
-            log.info("实际获取: {}", results.size());
+            log.info("实际获取: {}", resultCount[0]);
             log.info("每批保存数量: {}", batchSize);
             log.info("开始位置: {}", startIndex);
-            log.info("成功率: {:.2f}%", (double) results.size() / totalCount * 100);
+            log.info("成功率: {:.2f}%", (double) resultCount[0] / totalCount * 100);
             
             // 按类型统计
-            long announcementCount = results.stream()
-                    .filter(r -> "announcement".equals(r.getType()))
-                    .count();
-            long otherTypeCount = results.size() - announcementCount;
+            long otherTypeCount = resultCount[0] - announcementCount[0];
             
-            log.info("公告类型: {} 条", announcementCount);
+            log.info("公告类型: {} 条", announcementCount[0]);
             log.info("其他类型: {} 条", otherTypeCount);
             
         } catch (Exception e) {
@@ -77,18 +83,18 @@ public class UniDeviceCrawler {
         log.info("开始从位置 {} 继续执行UL爬虫，目标数量: {}", startIndex, totalCount);
         
         try {
-            // 执行爬取
-            List<CrawlerResult> results = ulCrawler.crawlFromPosition("", totalCount, startIndex);
+            // 流式执行爬取，只累计数量
+            int resultCount = ulCrawler.crawlWithBatchSave("", totalCount, 10, startIndex, batch -> true);
             
-            log.info("UL爬虫从位置 {} 继续执行完成，共获取 {} 条结果", startIndex, results.size());
+            log.info("UL爬虫从位置 {} 继续执行完成，共获取 {} 条结果", startIndex, resultCount);
             
             // 输出统计信息
             log.info("=== UL爬虫继续执行统计 ===");
             log.info("目标数量: {}", totalCount);
-            log.info("实际获取: {}", results.size());
+            log.info("实际获取: {}", resultCount);
             log.info("开始位置: {}", startIndex);
-            log.info("下次开始位置: {}", startIndex + results.size());
-            log.info("成功率: {:.2f}%", (double) results.size() / totalCount * 100);
+            log.info("下次开始位置: {}", startIndex + resultCount);
+            log.info("成功率: {:.2f}%", (double) resultCount / totalCount * 100);
             
         } catch (Exception e) {
             log.error("UL爬虫继续执行失败: {}", e.getMessage(), e);
@@ -118,16 +124,16 @@ public class UniDeviceCrawler {
         log.info("开始测试UL爬虫最新数据爬取，目标数量: {}", totalCount);
         
         try {
-            // 执行爬取
-            List<CrawlerResult> results = ulCrawler.crawlLatest(totalCount);
+            // 流式执行爬取，只累计数量
+            int resultCount = ulCrawler.crawlWithBatchSave("", totalCount, 10, 0, batch -> true);
             
-            log.info("UL爬虫最新数据爬取完成，共获取 {} 条结果", results.size());
+            log.info("UL爬虫最新数据爬取完成，共获取 {} 条结果", resultCount);
             
             // 输出统计信息
             log.info("=== UL爬虫最新数据统计 ===");
             log.info("目标数量: {}", totalCount);
-            log.info("实际获取: {}", results.size());
-            log.info("成功率: {:.2f}%", (double) results.size() / totalCount * 100);
+            log.info("实际获取: {}", resultCount);
+            log.info("成功率: {:.2f}%", (double) resultCount / totalCount * 100);
             
         } catch (Exception e) {
             log.error("UL爬虫最新数据测试失败: {}", e.getMessage(), e);
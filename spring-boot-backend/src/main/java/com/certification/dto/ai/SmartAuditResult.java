@@ -1,7 +1,10 @@
 package com.certification.dto.ai;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.ToString;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * 智能审核结果
@@ -27,9 +30,17 @@ public class SmartAuditResult {
     
     private List<AuditItem> auditItems = new ArrayList<>();
     
+    // 每完成一条审核即回调，用于流式返回部分结果（不序列化）
+    @JsonIgnore
+    @ToString.Exclude
+    private transient Consumer<AuditItem> itemListener;
+    
     public void addAuditItem(AuditItem item) {
         auditItems.add(item);
         total++;
+        if (itemListener != null) {
+            itemListener.accept(item);
+        }
     }
     
     public void incrementKept() {
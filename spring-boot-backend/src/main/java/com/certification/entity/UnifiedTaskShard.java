@@ -0,0 +1,174 @@
+package com.certification.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 统一任务分片实体
+ * 关键词/编码列表较长的任务拆分为多个分片执行，结果汇总到所属的执行日志
+ */
+@Entity
+@Table(name = "t_unified_task_shard")
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class UnifiedTaskShard {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 所属执行日志ID
+     */
+    @Column(name = "task_log_id", nullable = false)
+    private Long taskLogId;
+
+    /**
+     * 任务ID
+     */
+    @Column(name = "task_id")
+    private Long taskId;
+
+    /**
+     * 爬虫名称
+     */
+    @Column(name = "crawler_name", length = 50, nullable = false)
+    private String crawlerName;
+
+    /**
+     * 分片序号（从0开始）
+     */
+    @Column(name = "shard_index", nullable = false)
+    private Integer shardIndex;
+
+    /**
+     * 分片总数
+     */
+    @Column(name = "shard_count", nullable = false)
+    private Integer shardCount;
+
+    /**
+     * 拆分的参数字段
+     */
+    @Column(name = "shard_field", length = 100)
+    private String shardField;
+
+    /**
+     * 分片参数 (JSON格式)
+     */
+    @Column(name = "shard_params", columnDefinition = "TEXT", nullable = false)
+    private String shardParams;
+
+    /**
+     * 状态: PENDING/RUNNING/SUCCESS/FAILED
+     */
+    @Column(name = "status", length = 20, nullable = false)
+    private String status = STATUS_PENDING;
+
+    /**
+     * 已执行次数
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * 最大执行次数
+     */
+    @Column(name = "max_attempts", nullable = false)
+    private Integer maxAttempts = 2;
+
+    /**
+     * 执行节点
+     */
+    @Column(name = "owner", length = 100)
+    private String owner;
+
+    /**
+     * 最近心跳时间
+     */
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    /**
+     * 开始时间
+     */
+    @Column(name = "start_time")
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    @Column(name = "end_time")
+    private LocalDateTime endTime;
+
+    /**
+     * 爬取数量
+     */
+    @Column(name = "crawled_count")
+    private Integer crawledCount = 0;
+
+    /**
+     * 保存数量
+     */
+    @Column(name = "saved_count")
+    private Integer savedCount = 0;
+
+    /**
+     * 跳过数量
+     */
+    @Column(name = "skipped_count")
+    private Integer skippedCount = 0;
+
+    /**
+     * 失败数量
+     */
+    @Column(name = "failed_count")
+    private Integer failedCount = 0;
+
+    /**
+     * 是否完整覆盖了日期范围（适配器确认按日期范围抓取，且未被分片的 maxRecords 截断）
+     */
+    @Column(name = "date_window_complete")
+    private Boolean dateWindowComplete;
+
+    /**
+     * 是否已请求取消（执行被取消时由协调实例设置，执行节点在心跳中读取）
+     */
+    @Column(name = "cancel_requested", nullable = false)
+    private Boolean cancelRequested = false;
+
+    /**
+     * 执行结果
+     */
+    @Column(name = "result_message", columnDefinition = "TEXT")
+    private String resultMessage;
+
+    /**
+     * 错误信息
+     */
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * 是否已结束（成功或最终失败）
+     */
+    public boolean isFinished() {
+        return STATUS_SUCCESS.equals(status) || STATUS_FAILED.equals(status);
+    }
+}
@@ -0,0 +1,79 @@
+package com.certification.entity.ai;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * AI判断队列实体
+ * 爬虫新增的设备数据入队后由AI判断线程池异步处理，每个 (模块, 实体ID) 一行
+ */
+@Entity
+@Table(name = "t_ai_judge_queue")
+@Data
+public class AIJudgeQueueItem {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 模块名称（device510k, deviceeventreport等）
+     */
+    @Column(name = "module_name", nullable = false, length = 50)
+    private String moduleName;
+
+    /**
+     * 实体ID
+     */
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    /**
+     * 状态: PENDING/RUNNING/DONE/FAILED
+     */
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = STATUS_PENDING;
+
+    /**
+     * 已处理次数
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * 领取批次（节点标识#序号）
+     */
+    @Column(name = "owner", length = 100)
+    private String owner;
+
+    /**
+     * 入队时间
+     */
+    @Column(name = "enqueued_at", nullable = false)
+    private LocalDateTime enqueuedAt;
+
+    /**
+     * 最近领取时间
+     */
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    /**
+     * 完成时间
+     */
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    /**
+     * 最近一次错误信息
+     */
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+}
@@ -1,6 +1,8 @@
 package com.certification.entity.common;
 
 import com.certification.entity.common.CertNewsData.RiskLevel;
+import com.certification.service.ai.AIJudgeEnqueueListener;
+import com.certification.utils.DeviceContentFingerprint;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -24,9 +26,12 @@ import java.time.LocalDateTime;
  * - 备注信息 (remark)
  * - 爬取时间 (crawlTime)
  * - 数据状态 (dataStatus)
+ * - 内容指纹 (contentHash)
  * - 创建时间 (createdTime)
  * - 更新时间 (updatedTime)
  *
+ * 新增入库的记录会加入AI判断队列（{@link AIJudgeEnqueueListener}）。
+ *
  * @author System
  * @since 2025-01-14
  */
@@ -34,7 +39,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = false)
 @Accessors(chain = true)
 @MappedSuperclass
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, AIJudgeEnqueueListener.class})
 @Schema(description = "设备数据基础实体")
 public abstract class BaseDeviceEntity {
 
@@ -97,6 +102,14 @@ public abstract class BaseDeviceEntity {
     @Column(name = "data_status", length = 20)
     private String dataStatus = "ACTIVE";
 
+    /**
+     * 内容指纹
+     * 业务字段的SHA-256，重复爬取时用于识别数据源内容是否变化
+     */
+    @Schema(description = "内容指纹（业务字段SHA-256）")
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     /**
      * 创建时间
      * 数据记录在数据库中的创建时间
@@ -127,6 +140,9 @@ public abstract class BaseDeviceEntity {
         if (dataStatus == null || dataStatus.isBlank()) {
             dataStatus = "ACTIVE";
         }
+        if (contentHash == null) {
+            contentHash = DeviceContentFingerprint.compute(this);
+        }
     }
 
     /**
@@ -9,6 +9,7 @@ import jakarta.persistence.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -23,7 +24,9 @@ import java.util.List;
 @Table(name = "t_country")
 @EntityListeners(AuditingEntityListener.class)
 @Schema(description = "国家基础信息实体")
-public class Country {
+public class Country implements Serializable {
+
+    private static final long serialVersionUID = 1L;
     
     @Schema(description = "主键ID", example = "1")
     @Id
@@ -0,0 +1,75 @@
+package com.certification.entity.common;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 增量爬取水位线实体
+ * 每个任务（非任务触发的执行按关键词参数哈希）一行，与 t_crawler_state 的爬虫运行状态分开存放
+ */
+@Entity
+@Table(name = "t_crawl_watermark")
+@Data
+public class CrawlWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 水位线标识（爬虫名#task-任务ID 或 爬虫名#关键词哈希）
+     */
+    @Column(name = "watermark_key", nullable = false, length = 150, unique = true)
+    private String watermarkKey;
+
+    /**
+     * 爬虫名称
+     */
+    @Column(name = "crawler_name", nullable = false, length = 50)
+    private String crawlerName;
+
+    /**
+     * 任务ID（非任务触发的执行为空）
+     */
+    @Column(name = "task_id")
+    private Long taskId;
+
+    /**
+     * 已完整覆盖到的时间：该时间之前发布的数据都已抓取，下次从这里（减去回溯天数）开始
+     */
+    @Column(name = "covered_until")
+    private LocalDateTime coveredUntil;
+
+    /**
+     * 分段推进的日期窗口（天）：执行被 maxRecords 截断后缩小窗口，
+     * 之后每次只抓取 coveredUntil 起该天数内的数据，追上当前日期后清空
+     */
+    @Column(name = "window_days")
+    private Integer windowDays;
+
+    /**
+     * 最近一次推进水位线的执行时间
+     */
+    @Column(name = "last_run_time")
+    private LocalDateTime lastRunTime;
+
+    /**
+     * 最近一次推进时的爬取数量
+     */
+    @Column(name = "last_crawled_count")
+    private Integer lastCrawledCount = 0;
+
+    /**
+     * 累计爬取数量
+     */
+    @Column(name = "total_crawled_count")
+    private Long totalCrawledCount = 0L;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "updated_time")
+    private LocalDateTime updatedTime;
+}
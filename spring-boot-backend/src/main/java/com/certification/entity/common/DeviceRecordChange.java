@@ -0,0 +1,74 @@
+package com.certification.entity.common;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 设备记录变更日志实体
+ * 重复爬取发现已有记录的业务字段发生变化时记录一行，状态类字段（如召回状态）的变化单独记录迁移前后的值
+ */
+@Entity
+@Table(name = "t_device_record_change")
+@Data
+public class DeviceRecordChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 模块名称（device510k, devicerecallrecord等）
+     */
+    @Column(name = "module_name", nullable = false, length = 50)
+    private String moduleName;
+
+    /**
+     * 实体ID
+     */
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    /**
+     * 业务主键（如 cfresId）
+     */
+    @Column(name = "natural_key", length = 255)
+    private String naturalKey;
+
+    /**
+     * 变化的字段：字段名 -> [旧值, 新值] (JSON格式)
+     */
+    @Column(name = "changed_fields", columnDefinition = "TEXT")
+    private String changedFields;
+
+    /**
+     * 发生变化的状态字段（没有状态变化时为空）
+     */
+    @Column(name = "status_field", length = 50)
+    private String statusField;
+
+    /**
+     * 变化前的状态
+     */
+    @Column(name = "status_from", length = 255)
+    private String statusFrom;
+
+    /**
+     * 变化后的状态
+     */
+    @Column(name = "status_to", length = 255)
+    private String statusTo;
+
+    /**
+     * 是否已提交AI重新判断
+     */
+    @Column(name = "rejudge_queued")
+    private Boolean rejudgeQueued = false;
+
+    /**
+     * 检测时间
+     */
+    @Column(name = "detected_time", nullable = false)
+    private LocalDateTime detectedTime;
+}
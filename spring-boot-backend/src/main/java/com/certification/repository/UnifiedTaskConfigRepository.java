@@ -4,6 +4,7 @@ import com.certification.entity.UnifiedTaskConfig;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -115,4 +116,21 @@ public interface UnifiedTaskConfigRepository extends JpaRepository<UnifiedTaskCo
      * 根据爬虫名称、任务类型和启用状态查询
      */
     List<UnifiedTaskConfig> findByCrawlerNameAndTaskTypeAndEnabled(String crawlerName, String taskType, Boolean enabled);
+    
+    /**
+     * 记录一次执行结果
+     * 只更新统计字段，不会覆盖执行期间对任务配置的修改
+     */
+    @Modifying
+    @Query("UPDATE UnifiedTaskConfig t SET t.executionCount = COALESCE(t.executionCount, 0) + 1, " +
+           "t.successCount = COALESCE(t.successCount, 0) + :successDelta, " +
+           "t.failureCount = COALESCE(t.failureCount, 0) + :failureDelta, " +
+           "t.lastExecutionTime = :executionTime, t.lastExecutionStatus = :status, t.lastExecutionResult = :result " +
+           "WHERE t.id = :id")
+    int recordExecution(@Param("id") Long id,
+                        @Param("successDelta") int successDelta,
+                        @Param("failureDelta") int failureDelta,
+                        @Param("executionTime") LocalDateTime executionTime,
+                        @Param("status") String status,
+                        @Param("result") String result);
 }
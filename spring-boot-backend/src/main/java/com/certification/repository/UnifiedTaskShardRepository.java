@@ -0,0 +1,92 @@
+package com.certification.repository;
+
+import com.certification.entity.UnifiedTaskShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 统一任务分片Repository
+ */
+@Repository
+public interface UnifiedTaskShardRepository extends JpaRepository<UnifiedTaskShard, Long> {
+
+    /**
+     * 查询执行日志的所有分片
+     */
+    List<UnifiedTaskShard> findByTaskLogIdOrderByShardIndexAsc(Long taskLogId);
+
+    /**
+     * 查询执行日志中指定状态的分片
+     */
+    List<UnifiedTaskShard> findByTaskLogIdAndStatusOrderByShardIndexAsc(Long taskLogId, String status);
+
+    /**
+     * 查询等待执行的分片（按创建顺序）
+     */
+    List<UnifiedTaskShard> findTop20ByStatusOrderByIdAsc(String status);
+
+    /**
+     * 统计执行日志中指定状态的分片数
+     */
+    long countByTaskLogIdAndStatus(Long taskLogId, String status);
+
+    /**
+     * 领取分片：只有等待中的分片能被领取，返回1表示领取成功
+     */
+    @Modifying
+    @Query("UPDATE UnifiedTaskShard s SET s.status = 'RUNNING', s.owner = :owner, s.attempts = s.attempts + 1, " +
+           "s.startTime = :now, s.heartbeatAt = :now, s.errorMessage = NULL " +
+           "WHERE s.id = :id AND s.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    /**
+     * 续约正在执行的分片
+     */
+    @Modifying
+    @Query("UPDATE UnifiedTaskShard s SET s.heartbeatAt = :now WHERE s.id IN :ids AND s.owner = :owner AND s.status = 'RUNNING'")
+    int heartbeat(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    /**
+     * 本实例正在执行的分片中已请求取消的分片ID
+     */
+    @Query("SELECT s.id FROM UnifiedTaskShard s WHERE s.id IN :ids AND s.cancelRequested = true")
+    List<Long> findCancelRequested(@Param("ids") List<Long> ids);
+
+    /**
+     * 回收长时间没有心跳的分片（执行节点宕机），已请求取消的分片直接标记为失败
+     */
+    @Modifying
+    @Query("UPDATE UnifiedTaskShard s SET s.status = CASE WHEN s.cancelRequested = true THEN 'FAILED' ELSE 'PENDING' END, " +
+           "s.owner = NULL " +
+           "WHERE s.status = 'RUNNING' AND s.heartbeatAt < :threshold")
+    int releaseStale(@Param("threshold") LocalDateTime threshold);
+
+    /**
+     * 重置失败分片，重新执行
+     */
+    @Modifying
+    @Query("UPDATE UnifiedTaskShard s SET s.status = 'PENDING', s.attempts = 0, s.owner = NULL, s.cancelRequested = false " +
+           "WHERE s.taskLogId = :taskLogId AND s.status = 'FAILED'")
+    int resetFailed(@Param("taskLogId") Long taskLogId);
+
+    /**
+     * 执行被取消时把等待中的分片标记为失败，之后可通过重试失败分片继续执行
+     */
+    @Modifying
+    @Query("UPDATE UnifiedTaskShard s SET s.status = 'FAILED', s.owner = NULL, s.errorMessage = :reason, s.endTime = :now " +
+           "WHERE s.taskLogId = :taskLogId AND s.status = 'PENDING'")
+    int failPending(@Param("taskLogId") Long taskLogId, @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    /**
+     * 执行被取消时标记正在执行的分片，执行节点在心跳中读取标记并停止分片
+     */
+    @Modifying
+    @Query("UPDATE UnifiedTaskShard s SET s.cancelRequested = true WHERE s.taskLogId = :taskLogId AND s.status = 'RUNNING'")
+    int requestCancelRunning(@Param("taskLogId") Long taskLogId);
+}
@@ -0,0 +1,83 @@
+package com.certification.repository.ai;
+
+import com.certification.entity.ai.AIJudgeQueueItem;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * AI判断队列Repository
+ */
+@Repository
+public interface AIJudgeQueueRepository extends JpaRepository<AIJudgeQueueItem, Long> {
+
+    /**
+     * 查询等待处理的队列项（按入队顺序）
+     */
+    @Query("SELECT q FROM AIJudgeQueueItem q WHERE q.status = 'PENDING' ORDER BY q.id ASC")
+    List<AIJudgeQueueItem> findPending(Pageable pageable);
+
+    /**
+     * 查询某次领取的队列项
+     */
+    List<AIJudgeQueueItem> findByOwnerAndStatus(String owner, String status);
+
+    /**
+     * 领取队列项：只有等待中的队列项能被领取
+     */
+    @Modifying
+    @Query("UPDATE AIJudgeQueueItem q SET q.status = 'RUNNING', q.owner = :owner, q.attempts = q.attempts + 1, q.startedAt = :now " +
+           "WHERE q.id IN :ids AND q.status = 'PENDING'")
+    int claim(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    /**
+     * 标记处理完成
+     */
+    @Modifying
+    @Query("UPDATE AIJudgeQueueItem q SET q.status = 'DONE', q.finishedAt = :now, q.errorMessage = NULL " +
+           "WHERE q.id IN :ids AND q.status = 'RUNNING'")
+    int markDone(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * 处理失败：未超过最大次数的回到等待状态，否则标记为失败
+     */
+    @Modifying
+    @Query("UPDATE AIJudgeQueueItem q SET q.status = CASE WHEN q.attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END, " +
+           "q.owner = NULL, q.errorMessage = :error, q.finishedAt = :now WHERE q.id = :id AND q.status = 'RUNNING'")
+    int markFailed(@Param("id") Long id, @Param("error") String error, @Param("maxAttempts") int maxAttempts,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * 回收长时间未完成的队列项（处理节点宕机）
+     */
+    @Modifying
+    @Query("UPDATE AIJudgeQueueItem q SET q.status = 'PENDING', q.owner = NULL WHERE q.status = 'RUNNING' AND q.startedAt < :threshold")
+    int releaseStale(@Param("threshold") LocalDateTime threshold);
+
+    /**
+     * 把失败的队列项重新放回等待状态
+     */
+    @Modifying
+    @Query("UPDATE AIJudgeQueueItem q SET q.status = 'PENDING', q.attempts = 0, q.owner = NULL WHERE q.status = 'FAILED'")
+    int resetFailed();
+
+    /**
+     * 删除指定时间之前完成的队列项
+     */
+    @Modifying
+    @Query("DELETE FROM AIJudgeQueueItem q WHERE q.status = 'DONE' AND q.finishedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * 按模块和状态统计数量及最早入队时间：[moduleName, status, count, minEnqueuedAt]
+     */
+    @Query("SELECT q.moduleName, q.status, COUNT(q), MIN(q.enqueuedAt) FROM AIJudgeQueueItem q " +
+           "WHERE q.status IN ('PENDING', 'RUNNING', 'FAILED') GROUP BY q.moduleName, q.status")
+    List<Object[]> countByModuleAndStatus();
+}
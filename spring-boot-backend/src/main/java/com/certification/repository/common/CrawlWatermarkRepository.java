@@ -0,0 +1,53 @@
+package com.certification.repository.common;
+
+import com.certification.entity.common.CrawlWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * 增量爬取水位线Repository
+ */
+@Repository
+public interface CrawlWatermarkRepository extends JpaRepository<CrawlWatermark, Long> {
+
+    Optional<CrawlWatermark> findByWatermarkKey(String watermarkKey);
+
+    /**
+     * 推进水位线（只前进不后退，条件更新保证并发执行时不会回退）
+     */
+    @Modifying
+    @Query("UPDATE CrawlWatermark w SET w.coveredUntil = :coveredUntil, w.windowDays = :windowDays, w.lastRunTime = :runTime, " +
+           "w.lastCrawledCount = :crawledCount, w.totalCrawledCount = w.totalCrawledCount + :crawledCount, " +
+           "w.updatedTime = :runTime " +
+           "WHERE w.watermarkKey = :watermarkKey AND (w.coveredUntil IS NULL OR w.coveredUntil < :coveredUntil)")
+    int advance(@Param("watermarkKey") String watermarkKey,
+                @Param("coveredUntil") LocalDateTime coveredUntil,
+                @Param("windowDays") Integer windowDays,
+                @Param("runTime") LocalDateTime runTime,
+                @Param("crawledCount") Integer crawledCount);
+
+    /**
+     * 调整分段推进的日期窗口，水位线不变
+     */
+    @Modifying
+    @Query("UPDATE CrawlWatermark w SET w.windowDays = :windowDays, w.updatedTime = :now WHERE w.watermarkKey = :watermarkKey")
+    int updateWindow(@Param("watermarkKey") String watermarkKey,
+                     @Param("windowDays") Integer windowDays,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * 删除任务的水位线（任务删除时调用）
+     */
+    int deleteByTaskId(Long taskId);
+
+    /**
+     * 删除所有任务的水位线
+     */
+    int deleteByTaskIdIsNotNull();
+}
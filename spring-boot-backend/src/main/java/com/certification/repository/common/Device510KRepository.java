@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,12 @@ public interface Device510KRepository extends JpaRepository<Device510K, Long> {
     @Query("select d from Device510K d where d.kNumber = :kNumber")
     Optional<Device510K> findByKNumber(@Param("kNumber") String kNumber);
 
+    /**
+     * 按K号批量查询（增量写入时查询已有记录）
+     */
+    @Query("select d from Device510K d where d.kNumber in :kNumbers")
+    List<Device510K> findByKNumberIn(@Param("kNumbers") Collection<String> kNumbers);
+
 
     List<Device510K> findByApplicantContaining(String applicant);
 
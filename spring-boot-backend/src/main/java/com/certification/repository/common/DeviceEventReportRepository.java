@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,9 @@ import java.util.Optional;
 public interface DeviceEventReportRepository extends JpaRepository<DeviceEventReport, Long> {
 
     Optional<DeviceEventReport> findByReportNumber(String reportNumber);
+
+    // 按报告编号批量查询（增量写入时查询已有记录）
+    List<DeviceEventReport> findByReportNumberIn(Collection<String> reportNumbers);
     
     // 检查报告编号是否存在
     boolean existsByReportNumber(String reportNumber);
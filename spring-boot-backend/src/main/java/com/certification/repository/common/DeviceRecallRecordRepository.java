@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,8 @@ public interface DeviceRecallRecordRepository extends JpaRepository<DeviceRecall
 
     boolean existsByCfresId(String cfresId);
 
+    List<DeviceRecallRecord> findByCfresIdIn(Collection<String> cfresIds);
+
     List<DeviceRecallRecord> findByRecallStatus(String recallStatus);
 
     List<DeviceRecallRecord> findByProductCode(String productCode);
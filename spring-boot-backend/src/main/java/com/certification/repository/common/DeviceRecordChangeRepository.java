@@ -0,0 +1,19 @@
+package com.certification.repository.common;
+
+import com.certification.entity.common.DeviceRecordChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 设备记录变更日志Repository
+ */
+@Repository
+public interface DeviceRecordChangeRepository extends JpaRepository<DeviceRecordChange, Long> {
+
+    /**
+     * 查询记录的变更历史（最新在前）
+     */
+    List<DeviceRecordChange> findByModuleNameAndEntityIdOrderByIdDesc(String moduleName, Long entityId);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,6 +20,8 @@ public interface DeviceRegistrationRecordRepository extends JpaRepository<Device
 
     List<DeviceRegistrationRecord> findByFeiNumber(String feiNumber);
 
+    List<DeviceRegistrationRecord> findByRegistrationNumberIn(Collection<String> registrationNumbers);
+
     // 显式指定查询，避免属性名大小写解析问题
     // @Query("select r from DeviceRegistrationRecord r where r.kNumber = :kNumber")
     // Optional<DeviceRegistrationRecord> findByKNumber(@Param("kNumber") String kNumber);
@@ -1,6 +1,7 @@
 package com.certification.scheduler;
 
 import com.certification.service.DailyCountryRiskStatsService;
+import com.certification.service.cluster.TaskLeaseService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -10,6 +11,7 @@ import java.time.LocalDate;
 
 /**
  * 每日国家高风险数据统计定时任务
+ * 多实例部署时通过 {@link TaskLeaseService} 保证每次触发只在一个实例上执行
  */
 @Slf4j
 @Component
@@ -18,6 +20,9 @@ public class DailyCountryRiskStatsScheduler {
     @Autowired
     private DailyCountryRiskStatsService dailyCountryRiskStatsService;
 
+    @Autowired
+    private TaskLeaseService taskLeaseService;
+
     /**
      * 每天凌晨2点执行，统计前一天的高风险数据
      * cron表达式: 秒 分 时 日 月 周
@@ -25,6 +30,10 @@ public class DailyCountryRiskStatsScheduler {
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void calculateDailyStats() {
+        taskLeaseService.runOnce("risk-stats-daily", this::doCalculateDailyStats);
+    }
+
+    private void doCalculateDailyStats() {
         log.info("开始执行每日国家高风险数据统计定时任务");
         
         try {
@@ -44,6 +53,10 @@ public class DailyCountryRiskStatsScheduler {
      */
     @Scheduled(cron = "0 0 3 * * ?")
     public void calculateWeeklyStats() {
+        taskLeaseService.runOnce("risk-stats-weekly", this::doCalculateWeeklyStats);
+    }
+
+    private void doCalculateWeeklyStats() {
         log.info("开始执行每周国家高风险数据统计定时任务");
         
         try {
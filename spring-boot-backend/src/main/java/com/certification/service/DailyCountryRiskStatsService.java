@@ -4,6 +4,8 @@ import com.certification.entity.common.CertNewsData;
 import com.certification.entity.common.CertNewsDailyCountryRiskStats;
 import com.certification.repository.CrawlerDataRepository;
 import com.certification.repository.DailyCountryRiskStatsRepository;
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.cache.TwoTierCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -27,6 +29,14 @@ public class DailyCountryRiskStatsService {
     @Autowired
     private CrawlerDataRepository crawlerDataRepository;
 
+    @Autowired
+    private TwoTierCache twoTierCache;
+
+    /**
+     * 图表数据依赖的数据类型
+     */
+    private static final String[] CHART_DOMAINS = {DataVersionService.CERT_NEWS, DataVersionService.RISK_STATS};
+
     /**
      * 统计指定日期的高风险数据
      */
@@ -394,9 +404,14 @@ public class DailyCountryRiskStatsService {
     }
 
     /**
-     * 获取智能图表数据
+     * 获取智能图表数据（数据变化前使用缓存结果）
      */
     public Map<String, Object> getSmartChartData(LocalDate startDate, LocalDate endDate) {
+        return twoTierCache.get("smartChartData", CHART_DOMAINS,
+                () -> computeSmartChartData(startDate, endDate), startDate, endDate, LocalDate.now());
+    }
+
+    private Map<String, Object> computeSmartChartData(LocalDate startDate, LocalDate endDate) {
         log.info("获取智能图表数据: {} 到 {}", startDate, endDate);
         
         Map<String, Object> result = new HashMap<>();
@@ -1261,9 +1276,14 @@ public class DailyCountryRiskStatsService {
     }
 
     /**
-     * 获取指定天数内各国高风险数据趋势
+     * 获取指定天数内各国高风险数据趋势（数据变化前使用缓存结果）
      */
     public Map<String, Object> getTrendDataByDays(int days) {
+        return twoTierCache.get("trendDataByDays", CHART_DOMAINS,
+                () -> computeTrendDataByDays(days), days, LocalDate.now());
+    }
+
+    private Map<String, Object> computeTrendDataByDays(int days) {
         log.info("获取近{}天各国高风险数据趋势", days);
         
         LocalDate endDate = LocalDate.now().minusDays(1); // 昨天
@@ -1379,9 +1399,14 @@ public class DailyCountryRiskStatsService {
     }
 
     /**
-     * 获取所有国家的趋势数据（用于图表展示）
+     * 获取所有国家的趋势数据（用于图表展示，数据变化前使用缓存结果）
      */
     public Map<String, Object> getAllCountriesTrendData(int days) {
+        return twoTierCache.get("allCountriesTrendData", CHART_DOMAINS,
+                () -> computeAllCountriesTrendData(days), days, LocalDate.now());
+    }
+
+    private Map<String, Object> computeAllCountriesTrendData(int days) {
         log.info("获取所有国家{}天趋势数据", days);
         
         LocalDate endDate = LocalDate.now().minusDays(1); // 昨天
@@ -2,10 +2,13 @@ package com.certification.service;
 
 import com.certification.entity.common.DeviceMatchKeywords;
 import com.certification.repository.DeviceMatchKeywordsRepository;
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.cache.TwoTierCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -21,6 +24,9 @@ public class DeviceMatchKeywordsService {
     @Autowired
     private DeviceMatchKeywordsRepository deviceMatchKeywordsRepository;
 
+    @Autowired
+    private TwoTierCache twoTierCache;
+
     /**
      * 获取普通关键词列表
      */
@@ -156,16 +162,21 @@ public class DeviceMatchKeywordsService {
     }
 
     /**
-     * 获取关键词字符串列表（用于搜索）
+     * 获取关键词字符串列表（用于搜索，关键词变化前使用缓存结果）
      */
     public List<String> getKeywordStrings(DeviceMatchKeywords.KeywordType keywordType) {
+        return twoTierCache.get("deviceMatchKeywordStrings", new String[]{DataVersionService.KEYWORD},
+                () -> loadKeywordStrings(keywordType), keywordType);
+    }
+
+    private List<String> loadKeywordStrings(DeviceMatchKeywords.KeywordType keywordType) {
         List<DeviceMatchKeywords> keywords = keywordType == DeviceMatchKeywords.KeywordType.NORMAL 
                 ? getNormalKeywords() 
                 : getBlacklistKeywords();
         
         return keywords.stream()
                 .map(DeviceMatchKeywords::getKeyword)
-                .collect(Collectors.toList());
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
     /**
@@ -8,6 +8,8 @@ import com.certification.repository.common.DeviceRegistrationRecordRepository;
 import com.certification.repository.common.GuidanceDocumentRepository;
 import com.certification.repository.common.CustomsCaseRepository;
 import com.certification.repository.DailyCountryRiskStatsRepository;
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.cache.TwoTierCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -35,11 +37,21 @@ public class HighRiskDataService {
     private final GuidanceDocumentRepository guidanceDocumentRepository;
     private final CustomsCaseRepository customsCaseRepository;
     private final DailyCountryRiskStatsRepository dailyCountryRiskStatsRepository;
+    private final TwoTierCache twoTierCache;
 
     /**
-     * 获取高风险数据统计
+     * 高风险统计依赖的数据类型
+     */
+    private static final String[] STATS_DOMAINS = {DataVersionService.DEVICE};
+
+    /**
+     * 获取高风险数据统计（设备数据变化前使用缓存结果）
      */
     public Map<String, Object> getHighRiskStatistics() {
+        return twoTierCache.get("highRiskStatistics", STATS_DOMAINS, this::computeHighRiskStatistics);
+    }
+
+    private Map<String, Object> computeHighRiskStatistics() {
         Map<String, Object> statistics = new HashMap<>();
         
         try {
@@ -75,9 +87,13 @@ public class HighRiskDataService {
     }
 
     /**
-     * 获取按国家分类的高风险数据统计
+     * 获取按国家分类的高风险数据统计（设备数据变化前使用缓存结果）
      */
     public Map<String, Object> getHighRiskStatisticsByCountry() {
+        return twoTierCache.get("highRiskStatisticsByCountry", STATS_DOMAINS, this::computeHighRiskStatisticsByCountry);
+    }
+
+    private Map<String, Object> computeHighRiskStatisticsByCountry() {
         Map<String, Object> statistics = new HashMap<>();
         
         try {
@@ -312,9 +328,14 @@ public class HighRiskDataService {
     }
 
     /**
-     * 获取带趋势信息的高风险数据统计
+     * 获取带趋势信息的高风险数据统计（设备数据变化前使用缓存结果）
      */
     public Map<String, Object> getHighRiskStatisticsWithTrend() {
+        return twoTierCache.get("highRiskStatisticsWithTrend", STATS_DOMAINS,
+                this::computeHighRiskStatisticsWithTrend, LocalDate.now());
+    }
+
+    private Map<String, Object> computeHighRiskStatisticsWithTrend() {
         Map<String, Object> statistics = new HashMap<>();
         
         try {
@@ -340,9 +361,14 @@ public class HighRiskDataService {
     }
 
     /**
-     * 获取按国家分类的带趋势的高风险数据统计
+     * 获取按国家分类的带趋势的高风险数据统计（设备数据变化前使用缓存结果）
      */
     public Map<String, Object> getHighRiskStatisticsByCountryWithTrend() {
+        return twoTierCache.get("highRiskStatisticsByCountryWithTrend", STATS_DOMAINS,
+                this::computeHighRiskStatisticsByCountryWithTrend, LocalDate.now());
+    }
+
+    private Map<String, Object> computeHighRiskStatisticsByCountryWithTrend() {
         Map<String, Object> statistics = new HashMap<>();
         
         try {
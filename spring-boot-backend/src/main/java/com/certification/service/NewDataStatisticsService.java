@@ -2,16 +2,15 @@ package com.certification.service;
 
 import com.certification.entity.common.*;
 import com.certification.repository.common.*;
+import com.certification.service.device.DeviceBulkMutationService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.*;
 
 /**
@@ -29,6 +28,7 @@ public class NewDataStatisticsService {
     private final DeviceRegistrationRecordRepository registrationRepository;
     private final GuidanceDocumentRepository guidanceRepository;
     private final CustomsCaseRepository customsCaseRepository;
+    private final DeviceBulkMutationService bulkMutationService;
 
     /**
      * 获取各实体类型的新增数据数量
@@ -169,87 +169,20 @@ public class NewDataStatisticsService {
     }
 
     /**
-     * 清理已查看超过指定天数的新增数据标记
+     * 清理已查看的新增数据标记
+     * 按主键区间分段更新所有 isNew=true 且 newDataViewed=true 的数据；
+     * 注意：与原实现一致，暂不按更新时间过滤，daysToKeep 仅用于日志
      */
-    @Transactional
     public CleanupResult cleanupViewedNewData(int daysToKeep) {
         log.info("清理已查看超过{}天的新增数据标记", daysToKeep);
 
         CleanupResult result = new CleanupResult();
-        LocalDateTime cutoffTime = LocalDateTime.now().minusDays(daysToKeep);
-
-        // 设备510K
-        int count510K = cleanupViewedDataForRepository(
-                device510KRepository, cutoffTime, "Application");
-        result.addCount("Application", count510K);
-
-        // 召回记录
-        int countRecall = cleanupViewedDataForRepository(
-                recallRepository, cutoffTime, "Recall");
-        result.addCount("Recall", countRecall);
-
-        // 事件报告
-        int countEvent = cleanupViewedDataForRepository(
-                eventRepository, cutoffTime, "Event");
-        result.addCount("Event", countEvent);
-
-        // 注册记录
-        int countRegistration = cleanupViewedDataForRepository(
-                registrationRepository, cutoffTime, "Registration");
-        result.addCount("Registration", countRegistration);
-
-        // 指导文档
-        int countDocument = cleanupViewedDataForRepository(
-                guidanceRepository, cutoffTime, "Document");
-        result.addCount("Document", countDocument);
-
-        // 海关案例
-        int countCustoms = cleanupViewedDataForRepository(
-                customsCaseRepository, cutoffTime, "Customs");
-        result.addCount("Customs", countCustoms);
+        toTypeCounts(bulkMutationService.clearViewedNewFlag()).forEach(result::addCount);
 
         log.info("清理完成: 总计 {} 条记录", result.getTotalCount());
         return result;
     }
 
-    /**
-     * 清理指定Repository的已查看数据
-     */
-    private <T> int cleanupViewedDataForRepository(
-            JpaRepository<T, Long> repository,
-            LocalDateTime cutoffTime,
-            String entityType) {
-
-        try {
-            // 查找所有已查看但仍标记为新增的数据
-            // 注意：这里简化处理，实际应该检查updateTime是否早于cutoffTime
-            List<T> allEntities = repository.findAll();
-            int count = 0;
-
-            for (T entity : allEntities) {
-                try {
-                    Boolean isNew = (Boolean) entity.getClass().getMethod("getIsNew").invoke(entity);
-                    Boolean viewed = (Boolean) entity.getClass().getMethod("getNewDataViewed").invoke(entity);
-
-                    if (Boolean.TRUE.equals(isNew) && Boolean.TRUE.equals(viewed)) {
-                        // 取消新增标记
-                        entity.getClass().getMethod("setIsNew", Boolean.class).invoke(entity, false);
-                        repository.save(entity);
-                        count++;
-                    }
-                } catch (Exception e) {
-                    log.debug("处理实体失败: {}", e.getMessage());
-                }
-            }
-
-            return count;
-
-        } catch (Exception e) {
-            log.error("清理{}类型数据失败", entityType, e);
-            return 0;
-        }
-    }
-
     /**
      * 批量取消新增标记
      */
@@ -331,36 +264,12 @@ public class NewDataStatisticsService {
 
     /**
      * 批量将所有数据设置为普通数据（非新增）
+     * 按主键区间分段更新，不加载实体
      */
-    @Transactional
     public Map<String, Integer> batchSetAllDataAsNormal() {
         log.info("开始批量将所有数据设置为普通数据...");
 
-        Map<String, Integer> result = new HashMap<>();
-
-        // 设备510K - 将所有isNew=true的数据设置为false
-        int count510K = batchSetNormalForRepository(device510KRepository, "Application");
-        result.put("Application", count510K);
-
-        // 召回记录
-        int countRecall = batchSetNormalForRepository(recallRepository, "Recall");
-        result.put("Recall", countRecall);
-
-        // 事件报告
-        int countEvent = batchSetNormalForRepository(eventRepository, "Event");
-        result.put("Event", countEvent);
-
-        // 注册记录
-        int countRegistration = batchSetNormalForRepository(registrationRepository, "Registration");
-        result.put("Registration", countRegistration);
-
-        // 指导文档
-        int countDocument = batchSetNormalForRepository(guidanceRepository, "Document");
-        result.put("Document", countDocument);
-
-        // 海关案例
-        int countCustoms = batchSetNormalForRepository(customsCaseRepository, "Customs");
-        result.put("Customs", countCustoms);
+        Map<String, Integer> result = toTypeCounts(bulkMutationService.clearNewFlag());
 
         int totalCount = result.values().stream().mapToInt(Integer::intValue).sum();
         log.info("批量设置完成: 总计 {} 条数据", totalCount);
@@ -368,45 +277,10 @@ public class NewDataStatisticsService {
         return result;
     }
 
-    /**
-     * 为指定Repository批量设置为普通数据
-     */
-    private <T> int batchSetNormalForRepository(
-            JpaRepository<T, Long> repository,
-            String entityType) {
-
-        try {
-            List<T> allEntities = repository.findAll();
-            int count = 0;
-
-            for (T entity : allEntities) {
-                try {
-                    Boolean isNew = (Boolean) entity.getClass().getMethod("getIsNew").invoke(entity);
-
-                    // 只处理isNew=true的数据
-                    if (Boolean.TRUE.equals(isNew)) {
-                        entity.getClass().getMethod("setIsNew", Boolean.class).invoke(entity, false);
-                        repository.save(entity);
-                        count++;
-                    }
-                } catch (Exception e) {
-                    log.debug("处理实体失败: {}", e.getMessage());
-                }
-            }
-
-            log.info("{}类型: 设置 {} 条数据为普通数据", entityType, count);
-            return count;
-
-        } catch (Exception e) {
-            log.error("批量设置{}类型数据失败", entityType, e);
-            return 0;
-        }
-    }
-
     /**
      * 自动标记所有新增数据为已查看（用于页面加载时）
+     * 按主键区间分段更新，不加载实体
      */
-    @Transactional
     public Map<String, Integer> autoMarkAllNewDataAsViewed(String moduleType) {
         log.info("自动标记所有新增数据为已查看: moduleType={}", moduleType);
 
@@ -414,29 +288,7 @@ public class NewDataStatisticsService {
 
         // DEVICE_DATA模块
         if ("DEVICE_DATA".equals(moduleType)) {
-            // 设备510K
-            int count510K = autoMarkViewedForRepository(device510KRepository, "Application");
-            result.put("Application", count510K);
-
-            // 召回记录
-            int countRecall = autoMarkViewedForRepository(recallRepository, "Recall");
-            result.put("Recall", countRecall);
-
-            // 事件报告
-            int countEvent = autoMarkViewedForRepository(eventRepository, "Event");
-            result.put("Event", countEvent);
-
-            // 注册记录
-            int countRegistration = autoMarkViewedForRepository(registrationRepository, "Registration");
-            result.put("Registration", countRegistration);
-
-            // 指导文档
-            int countDocument = autoMarkViewedForRepository(guidanceRepository, "Document");
-            result.put("Document", countDocument);
-
-            // 海关案例
-            int countCustoms = autoMarkViewedForRepository(customsCaseRepository, "Customs");
-            result.put("Customs", countCustoms);
+            result = toTypeCounts(bulkMutationService.markNewDataViewed());
         }
 
         int totalCount = result.values().stream().mapToInt(Integer::intValue).sum();
@@ -446,39 +298,17 @@ public class NewDataStatisticsService {
     }
 
     /**
-     * 为指定Repository自动标记为已查看
+     * 批量更新结果按实体类型名称（Application、Recall等）汇总
      */
-    private <T> int autoMarkViewedForRepository(
-            JpaRepository<T, Long> repository,
-            String entityType) {
-
-        try {
-            List<T> allEntities = repository.findAll();
-            int count = 0;
-
-            for (T entity : allEntities) {
-                try {
-                    Boolean isNew = (Boolean) entity.getClass().getMethod("getIsNew").invoke(entity);
-                    Boolean viewed = (Boolean) entity.getClass().getMethod("getNewDataViewed").invoke(entity);
-
-                    // 只处理isNew=true且newDataViewed=false的数据
-                    if (Boolean.TRUE.equals(isNew) && !Boolean.TRUE.equals(viewed)) {
-                        entity.getClass().getMethod("setNewDataViewed", Boolean.class).invoke(entity, true);
-                        repository.save(entity);
-                        count++;
-                    }
-                } catch (Exception e) {
-                    log.debug("处理实体失败: {}", e.getMessage());
-                }
-            }
-
-            log.info("{}类型: 自动标记 {} 条数据为已查看", entityType, count);
-            return count;
-
-        } catch (Exception e) {
-            log.error("自动标记{}类型数据失败", entityType, e);
-            return 0;
-        }
+    private static Map<String, Integer> toTypeCounts(Map<Class<?>, Integer> counts) {
+        Map<String, Integer> result = new HashMap<>();
+        result.put("Application", counts.getOrDefault(Device510K.class, 0));
+        result.put("Recall", counts.getOrDefault(DeviceRecallRecord.class, 0));
+        result.put("Event", counts.getOrDefault(DeviceEventReport.class, 0));
+        result.put("Registration", counts.getOrDefault(DeviceRegistrationRecord.class, 0));
+        result.put("Document", counts.getOrDefault(GuidanceDocument.class, 0));
+        result.put("Customs", counts.getOrDefault(CustomsCase.class, 0));
+        return result;
     }
 
     // ==================== DTO ====================
@@ -4,6 +4,7 @@ import com.certification.crawler.certification.base.CrawlerResult;
 import com.certification.crawler.certification.SgsCrawler;
 import com.certification.crawler.certification.ULCrawler;
 import com.certification.entity.common.CertNewsData;
+import com.certification.service.cluster.TaskLeaseService;
 import com.certification.standards.CrawlerDataService;
 import com.certification.standards.KeywordService;
 import lombok.extern.slf4j.Slf4j;
@@ -42,14 +43,21 @@ public class ScheduledCrawlerService {
     
     @Autowired
     private DataProcessingService dataProcessingService;
+
+    @Autowired
+    private TaskLeaseService taskLeaseService;
     
     private final ExecutorService executorService = Executors.newFixedThreadPool(2);
 
     /**
-     * 每天凌晨2点执行爬虫任务
+     * 每天凌晨2点执行爬虫任务（多实例部署时只在一个实例上执行）
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void dailyCrawlerTask() {
+        taskLeaseService.runOnce("daily-crawler", this::doDailyCrawlerTask);
+    }
+
+    private void doDailyCrawlerTask() {
         log.info("开始执行每日定时爬虫任务: {}", LocalDateTime.now());
         
         try {
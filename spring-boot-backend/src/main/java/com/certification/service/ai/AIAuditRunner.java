@@ -0,0 +1,195 @@
+package com.certification.service.ai;
+
+import com.certification.dto.ai.ClassificationResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * AI智能审核执行器
+ * 批量审核不再逐条调用AI并固定间隔500ms，而是：
+ * - 并行：每次批量审核最多同时有 app.ai-audit.parallelism 条在 aiAuditExecutor 线程池中判断，
+ *   结果按完成顺序交给调用线程处理（统计、更新数据库都在调用线程中进行，事务和非线程安全的结果对象不受影响）
+ * - 限速：所有AI调用共用一个限速器，每秒最多 app.ai-audit.requests-per-second 次，
+ *   同时运行多个批量审核时总调用频率不变
+ * - 复用：预览时按"数据类型 + ID + 提交给AI的字段"复用之前的判断结果，数据未变化的记录不再调用AI；
+ *   AI服务异常的结果不缓存
+ */
+@Slf4j
+@Component
+public class AIAuditRunner {
+
+    @Autowired
+    private AIClassificationService aiClassificationService;
+
+    @Autowired
+    @Qualifier("aiAuditExecutor")
+    private Executor aiAuditExecutor;
+
+    @Value("${app.ai-audit.parallelism:4}")
+    private int parallelism;
+
+    private final RateGate rateGate;
+
+    private final Cache<String, ClassificationResult> judgments;
+
+    public AIAuditRunner(@Value("${app.ai-audit.requests-per-second:2}") double requestsPerSecond,
+                         @Value("${app.ai-audit.judgment-cache-size:20000}") long cacheSize,
+                         @Value("${app.ai-audit.judgment-cache-hours:24}") long cacheHours) {
+        this.rateGate = new RateGate(requestsPerSecond);
+        this.judgments = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(cacheHours))
+                .build();
+    }
+
+    /**
+     * 并行处理一批数据，每条数据的结果（或异常）在调用线程中按完成顺序回调
+     *
+     * @param items 待处理数据
+     * @param worker 在线程池中执行的处理（通常为AI调用），不应访问数据库
+     * @param onResult 处理成功的回调
+     * @param onError 处理失败的回调
+     * @return 调用线程被中断时返回false，此时未完成的数据不再回调
+     */
+    public <T, R> boolean forEach(List<T> items, Function<T, R> worker,
+                                  BiConsumer<T, R> onResult, BiConsumer<T, Exception> onError) {
+        if (items.isEmpty()) {
+            return true;
+        }
+        ExecutorCompletionService<R> completion = new ExecutorCompletionService<>(aiAuditExecutor);
+        Map<Future<R>, T> submitted = new HashMap<>();
+        int window = Math.max(1, parallelism);
+        int next = 0;
+        int completed = 0;
+        try {
+            while (completed < items.size()) {
+                while (next < items.size() && submitted.size() < window) {
+                    T item = items.get(next++);
+                    submitted.put(completion.submit(() -> worker.apply(item)), item);
+                }
+                Future<R> done = completion.take();
+                T item = submitted.remove(done);
+                completed++;
+                try {
+                    onResult.accept(item, done.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    onError.accept(item, cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            submitted.keySet().forEach(f -> f.cancel(true));
+            log.warn("批量AI审核被中断，已完成 {}/{} 条", completed, items.size());
+            return false;
+        }
+    }
+
+    /**
+     * 调用AI判断，经过共用限速器
+     *
+     * @param deviceData 提交给AI的设备数据
+     * @param reuse 是否复用之前相同数据的判断结果
+     */
+    public ClassificationResult classify(Map<String, Object> deviceData, boolean reuse) {
+        String key = cacheKey(deviceData);
+        if (reuse) {
+            ClassificationResult cached = judgments.getIfPresent(key);
+            if (cached != null) {
+                return copy(cached);
+            }
+        }
+        try {
+            rateGate.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("AI判断被中断", e);
+        }
+        ClassificationResult result = aiClassificationService.classifySkinDevice(deviceData);
+        if (result != null && !isServiceError(result)) {
+            judgments.put(key, copy(result));
+        }
+        return result;
+    }
+
+    /**
+     * 已缓存的判断数量
+     */
+    public long getCachedJudgments() {
+        return judgments.estimatedSize();
+    }
+
+    /**
+     * AI服务异常时 {@link AIClassificationService#classifySkinDevice} 返回的占位结果
+     */
+    private static boolean isServiceError(ClassificationResult result) {
+        return result.getConfidence() == 0.0 && result.getReason() != null && result.getReason().startsWith("AI服务异常");
+    }
+
+    private static ClassificationResult copy(ClassificationResult result) {
+        return new ClassificationResult(result.isRelated(), result.getConfidence(), result.getReason(), result.getCategory());
+    }
+
+    /**
+     * 数据类型 + 提交给AI的全部字段的SHA-256（字段按名称排序）
+     */
+    private static String cacheKey(Map<String, Object> deviceData) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(new TreeMap<>(deviceData).toString().getBytes(StandardCharsets.UTF_8));
+            return deviceData.get("entityType") + ":" + deviceData.get("id") + ":" + HexFormat.of().formatHex(hash);
+        } catch (Exception e) {
+            return deviceData.get("entityType") + ":" + deviceData.get("id") + ":" + new TreeMap<>(deviceData).hashCode();
+        }
+    }
+
+    /**
+     * 固定间隔限速器：按请求到达顺序分配调用时间，线程在锁外等待
+     */
+    private static class RateGate {
+        private final long intervalNanos;
+        private long nextFree;
+
+        RateGate(double permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? (long) (1_000_000_000L / permitsPerSecond) : 0;
+            this.nextFree = System.nanoTime();
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextFree);
+                nextFree = slot + intervalNanos;
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.certification.service.ai;
+
+import jakarta.persistence.PostPersist;
+
+/**
+ * 设备实体入库监听器
+ * 新增的设备数据在所在事务提交后加入AI判断队列，见 {@link AIJudgeQueueService}
+ */
+public class AIJudgeEnqueueListener {
+
+    @PostPersist
+    public void afterPersist(Object entity) {
+        AIJudgeQueueService.onPersisted(entity);
+    }
+}
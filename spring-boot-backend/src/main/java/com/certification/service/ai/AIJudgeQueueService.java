@@ -0,0 +1,598 @@
+package com.certification.service.ai;
+
+import com.certification.config.DeviceCrawlerConfig;
+import com.certification.entity.ai.AIJudgeQueueItem;
+import com.certification.repository.ai.AIJudgeQueueRepository;
+import com.certification.service.cluster.TaskLeaseService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * AI判断队列服务
+ * 爬虫和AI判断之间通过持久化队列（t_ai_judge_queue）解耦：
+ * - 设备实体新增入库时（JPA保存由 {@link AIJudgeEnqueueListener} 触发，JDBC批量写入由
+ *   {@link com.certification.service.crawler.delta.DeviceBulkWriter} 显式调用 {@link #onInserted}），
+ *   所在事务提交后把 (模块, 实体ID) 放入内存缓冲区，由定时任务批量写入队列表；
+ *   爬虫线程不调用AI，也不会因为AI判断失败而回滚
+ * - AI判断线程池按空闲线程数领取队列项（每次领取同一模块的一批），处理完成后再领取下一批，
+ *   AI服务变慢时积压留在队列表中，不占用内存，也不阻塞爬虫（背压）
+ * - 缓冲区已满时溢出部分交给单独的线程写入队列表，不在爬虫的事务提交回调中同步写库；
+ *   等待写入的溢出数量也超过 buffer-capacity 时丢弃并计数（ai.judge.queue.dropped），可通过手动提交AI判断补做
+ * - 处理失败的队列项回到等待状态重试，超过 max-attempts 次标记为失败；
+ *   处理节点宕机时，长时间未完成的队列项被回收
+ * - 队列深度和延迟（最早一条等待项的入队时长）按模块注册到Micrometer：
+ *   ai.judge.queue.depth、ai.judge.queue.lag、ai.judge.queue.buffered、ai.judge.queue.dropped、ai.judge.queue.in.flight、ai.judge.queue.processed
+ *
+ * AI判断按次计费，入队需显式开启 crawler.device.enable-auto-ai=true（默认关闭）；
+ * app.ai-judge-queue.* 配置线程数、批次大小和重试次数；
+ * 多实例部署时只在 worker-enabled 的实例上处理队列。
+ */
+@Slf4j
+@Service
+public class AIJudgeQueueService implements MeterBinder {
+
+    /**
+     * 支持AI判断的模块（实体类名小写）
+     */
+    public static final List<String> MODULES = List.of(
+            "device510k", "deviceeventreport", "devicerecallrecord",
+            "deviceregistrationrecord", "guidancedocument", "customscase");
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO t_ai_judge_queue (module_name, entity_id, status, attempts, enqueued_at) VALUES (?, ?, 'PENDING', 0, ?) " +
+            "ON DUPLICATE KEY UPDATE attempts = IF(status = 'RUNNING', attempts, 0), " +
+            "enqueued_at = IF(status = 'RUNNING', enqueued_at, VALUES(enqueued_at)), " +
+            "status = IF(status = 'RUNNING', status, 'PENDING')";
+
+    /**
+     * 实体监听器通过静态引用访问服务（JPA监听器不一定由Spring创建）
+     */
+    private static volatile AIJudgeQueueService instance;
+
+    @Autowired
+    private AIJudgeQueueRepository queueRepository;
+
+    @Autowired
+    private AutoAIJudgeService autoAIJudgeService;
+
+    @Autowired
+    private DeviceCrawlerConfig deviceCrawlerConfig;
+
+    @Autowired
+    private TaskLeaseService taskLeaseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.ai-judge-queue.worker-enabled:true}")
+    private boolean workerEnabled;
+
+    @Value("${app.ai-judge-queue.worker-threads:2}")
+    private int workerThreads;
+
+    @Value("${app.ai-judge-queue.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.ai-judge-queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.ai-judge-queue.request-interval-ms:500}")
+    private long requestIntervalMs;
+
+    @Value("${app.ai-judge-queue.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${app.ai-judge-queue.stale-seconds:900}")
+    private long staleSeconds;
+
+    @Value("${app.ai-judge-queue.retain-days:7}")
+    private int retainDays;
+
+    private BlockingQueue<Entry> buffer;
+    private ExecutorService workerExecutor;
+    private ExecutorService overflowExecutor;
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger overflowPending = new AtomicInteger();
+    private final LongAdder droppedCount = new LongAdder();
+    private final AtomicLong claimSequence = new AtomicLong();
+    private final LongAdder doneCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    /**
+     * 最近一次统计结果：模块 -> 状态 -> [数量, 最早入队时间毫秒]
+     */
+    private volatile Map<String, Map<String, long[]>> stats = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        buffer = new ArrayBlockingQueue<>(Math.max(100, bufferCapacity));
+        AtomicInteger counter = new AtomicInteger();
+        workerExecutor = Executors.newFixedThreadPool(Math.max(1, workerThreads), r -> {
+            Thread t = new Thread(r, "ai-judge-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        overflowExecutor = Executors.newFixedThreadPool(1, r -> {
+            Thread t = new Thread(r, "ai-judge-overflow");
+            t.setDaemon(true);
+            return t;
+        });
+        // 队列状态独立提交，不加入调用方事务
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        instance = this;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        instance = null;
+        flushBuffer();
+        overflowExecutor.shutdown();
+        workerExecutor.shutdownNow();
+    }
+
+    // ==================== 入队 ====================
+
+    /**
+     * 设备实体新增入库后调用（由 {@link AIJudgeEnqueueListener} 触发）
+     * 在事务中时等事务提交后入队，事务回滚的实体不会入队；任何异常都不会影响调用方
+     */
+    static void onPersisted(Object entity) {
+        AIJudgeQueueService service = instance;
+        if (service == null || !service.isEnabled()) {
+            return;
+        }
+        try {
+            String moduleName = entity.getClass().getSimpleName().toLowerCase();
+            Long entityId = getEntityId(entity);
+            if (entityId == null || !MODULES.contains(moduleName)) {
+                return;
+            }
+            service.offerAfterCommit(List.of(new Entry(moduleName, entityId, LocalDateTime.now())));
+        } catch (Exception e) {
+            log.warn("AI判断入队失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * JDBC批量写入新增设备数据后调用（{@link com.certification.service.crawler.delta.DeviceBulkWriter}
+     * 不经过JPA，{@link AIJudgeEnqueueListener} 不会触发）；与实体监听器一样在事务提交后入队，任何异常都不会影响调用方
+     *
+     * @param entityClass 实体类型
+     * @param entityIds 新插入记录的ID
+     */
+    public void onInserted(Class<?> entityClass, Collection<Long> entityIds) {
+        if (!isEnabled() || entityIds == null || entityIds.isEmpty()) {
+            return;
+        }
+        String moduleName = entityClass.getSimpleName().toLowerCase();
+        if (!MODULES.contains(moduleName)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Entry> entries = new ArrayList<>(entityIds.size());
+            for (Long id : entityIds) {
+                entries.add(new Entry(moduleName, id, now));
+            }
+            offerAfterCommit(entries);
+        } catch (Exception e) {
+            log.warn("AI判断入队失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在事务中时等事务提交后放入缓冲区（同一事务的入队请求合并），不在事务中时直接放入
+     */
+    private void offerAfterCommit(List<Entry> entries) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            offer(entries);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Entry> pending = (List<Entry>) TransactionSynchronizationManager.getResource(AIJudgeQueueService.class);
+        if (pending == null) {
+            List<Entry> transactionEntries = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(AIJudgeQueueService.class, transactionEntries);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(transactionEntries);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AIJudgeQueueService.class);
+                }
+            });
+            pending = transactionEntries;
+        }
+        pending.addAll(entries);
+    }
+
+    /**
+     * 把实体加入AI判断队列（已入队的重新回到等待状态）
+     *
+     * @param moduleName 模块名称
+     * @param entityIds 实体ID
+     */
+    public void enqueue(String moduleName, Collection<Long> entityIds) {
+        if (entityIds == null || entityIds.isEmpty()) {
+            return;
+        }
+        String module = moduleName.toLowerCase();
+        if (!MODULES.contains(module)) {
+            throw new IllegalArgumentException("不支持AI判断的模块: " + moduleName);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Entry> entries = new ArrayList<>(entityIds.size());
+        for (Long id : entityIds) {
+            if (id != null) {
+                entries.add(new Entry(module, id, now));
+            }
+        }
+        offer(entries);
+    }
+
+    /**
+     * 是否启用爬取后自动AI判断（需显式开启）
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(deviceCrawlerConfig.getEnableAutoAi());
+    }
+
+    /**
+     * 放入内存缓冲区；缓冲区已满（队列表写入跟不上）时把溢出部分交给溢出线程写入队列表，
+     * 调用方（通常是爬虫的事务提交回调）不等待写库；等待写入的溢出数量超过缓冲区容量时丢弃并计数
+     */
+    private void offer(List<Entry> entries) {
+        List<Entry> overflow = null;
+        for (Entry entry : entries) {
+            if (!buffer.offer(entry)) {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(entry);
+            }
+        }
+        if (overflow == null) {
+            return;
+        }
+        int size = overflow.size();
+        if (overflowPending.addAndGet(size) > bufferCapacity) {
+            overflowPending.addAndGet(-size);
+            drop(size);
+            return;
+        }
+        List<Entry> batch = overflow;
+        try {
+            overflowExecutor.execute(() -> {
+                try {
+                    write(batch);
+                } finally {
+                    overflowPending.addAndGet(-size);
+                }
+            });
+            log.warn("AI判断入队缓冲区已满，{} 条交给溢出线程写入队列表", size);
+        } catch (RejectedExecutionException e) {
+            overflowPending.addAndGet(-size);
+            drop(size);
+        }
+    }
+
+    private void drop(int count) {
+        droppedCount.add(count);
+        log.error("AI判断队列丢弃 {} 条入队请求（可通过手动提交AI判断补做）", count);
+    }
+
+    /**
+     * 把缓冲区中的入队请求批量写入队列表
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void flushBuffer() {
+        List<Entry> batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+        while (buffer.drainTo(batch, FLUSH_BATCH_SIZE) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Entry> entries) {
+        try {
+            inNewTransaction(() -> jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+                ps.setString(1, entry.moduleName);
+                ps.setLong(2, entry.entityId);
+                ps.setTimestamp(3, Timestamp.valueOf(entry.enqueuedAt));
+            }));
+        } catch (Exception e) {
+            log.error("写入AI判断队列失败: {} 条, error={}", entries.size(), e.getMessage());
+            // 放回缓冲区，下次再写；缓冲区已满的部分只能丢弃，可通过手动提交AI判断补做
+            int requeued = 0;
+            for (Entry entry : entries) {
+                if (buffer.offer(entry)) {
+                    requeued++;
+                }
+            }
+            if (requeued < entries.size()) {
+                drop(entries.size() - requeued);
+            }
+        }
+    }
+
+    // ==================== 处理 ====================
+
+    /**
+     * 按空闲线程数领取队列项交给AI判断线程池
+     */
+    @Scheduled(fixedDelay = 2000)
+    public void dispatch() {
+        if (!workerEnabled) {
+            return;
+        }
+        try {
+            while (inFlight.get() < workerThreads) {
+                List<AIJudgeQueueItem> claimed = claimBatch();
+                if (claimed.isEmpty()) {
+                    return;
+                }
+                inFlight.incrementAndGet();
+                workerExecutor.execute(() -> process(claimed));
+            }
+        } catch (Exception e) {
+            log.warn("领取AI判断队列失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 领取同一模块的一批等待项
+     */
+    private List<AIJudgeQueueItem> claimBatch() {
+        List<AIJudgeQueueItem> candidates = queueRepository.findPending(PageRequest.of(0, batchSize * 4));
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        String moduleName = candidates.get(0).getModuleName();
+        List<Long> ids = new ArrayList<>();
+        for (AIJudgeQueueItem item : candidates) {
+            if (item.getModuleName().equals(moduleName) && ids.size() < batchSize) {
+                ids.add(item.getId());
+            }
+        }
+        String owner = taskLeaseService.getNodeId() + "#" + claimSequence.incrementAndGet();
+        inNewTransaction(() -> queueRepository.claim(ids, owner, LocalDateTime.now()));
+        return queueRepository.findByOwnerAndStatus(owner, AIJudgeQueueItem.STATUS_RUNNING);
+    }
+
+    private void process(List<AIJudgeQueueItem> items) {
+        String moduleName = items.get(0).getModuleName();
+        Map<Long, Long> queueIds = new LinkedHashMap<>();
+        for (AIJudgeQueueItem item : items) {
+            queueIds.put(item.getEntityId(), item.getId());
+        }
+        try {
+            Map<Long, String> failures;
+            try {
+                failures = autoAIJudgeService.judgeQueued(moduleName, new ArrayList<>(queueIds.keySet()), requestIntervalMs);
+            } catch (Exception e) {
+                log.error("AI判断批次失败: module={}, count={}, error={}", moduleName, items.size(), e.getMessage(), e);
+                failures = new HashMap<>();
+                for (Long entityId : queueIds.keySet()) {
+                    failures.put(entityId, e.getMessage());
+                }
+            }
+            List<Long> done = new ArrayList<>();
+            for (Map.Entry<Long, Long> entry : queueIds.entrySet()) {
+                if (!failures.containsKey(entry.getKey())) {
+                    done.add(entry.getValue());
+                }
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (!done.isEmpty()) {
+                inNewTransaction(() -> queueRepository.markDone(done, now));
+                doneCount.add(done.size());
+            }
+            for (AIJudgeQueueItem item : items) {
+                String error = failures.get(item.getEntityId());
+                if (error == null) {
+                    continue;
+                }
+                String message = error.length() > 500 ? error.substring(0, 500) : error;
+                inNewTransaction(() -> queueRepository.markFailed(item.getId(), message, maxAttempts, now));
+                if (item.getAttempts() >= maxAttempts) {
+                    failedCount.increment();
+                } else {
+                    retryCount.increment();
+                }
+            }
+            log.info("AI判断批次完成: module={}, 成功={}, 失败={}", moduleName, done.size(), failures.size());
+        } catch (Exception e) {
+            // 状态更新失败的队列项留在RUNNING，超时后被回收重新处理
+            log.error("更新AI判断队列状态失败: module={}, error={}", moduleName, e.getMessage(), e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 回收超时的队列项并刷新统计
+     */
+    @Scheduled(fixedDelay = 15000)
+    public void refreshStats() {
+        try {
+            if (workerEnabled) {
+                Integer released = inNewTransaction(() ->
+                        queueRepository.releaseStale(LocalDateTime.now().minusSeconds(staleSeconds)));
+                if (released != null && released > 0) {
+                    log.warn("回收{}个长时间未完成的AI判断队列项", released);
+                }
+            }
+            Map<String, Map<String, long[]>> latest = new HashMap<>();
+            for (Object[] row : queueRepository.countByModuleAndStatus()) {
+                long oldest = row[3] instanceof LocalDateTime
+                        ? Timestamp.valueOf((LocalDateTime) row[3]).getTime() : 0;
+                latest.computeIfAbsent((String) row[0], k -> new HashMap<>())
+                        .put((String) row[1], new long[]{((Number) row[2]).longValue(), oldest});
+            }
+            stats = latest;
+        } catch (Exception e) {
+            log.warn("刷新AI判断队列统计失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清理已完成的队列项
+     */
+    @Scheduled(cron = "0 20 3 * * ?")
+    public void cleanup() {
+        Integer deleted = inNewTransaction(() ->
+                queueRepository.deleteDoneBefore(LocalDateTime.now().minusDays(retainDays)));
+        log.info("清理AI判断队列已完成记录: {} 条", deleted);
+    }
+
+    /**
+     * 把失败的队列项重新放回等待状态
+     *
+     * @return 重置数量
+     */
+    public int retryFailed() {
+        Integer reset = inNewTransaction(() -> queueRepository.resetFailed());
+        return reset != null ? reset : 0;
+    }
+
+    // ==================== 指标 ====================
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String module : MODULES) {
+            Gauge.builder("ai.judge.queue.depth", this, s -> s.count(module, AIJudgeQueueItem.STATUS_PENDING))
+                    .tag("module", module).description("等待AI判断的数量").register(registry);
+            Gauge.builder("ai.judge.queue.lag", this, s -> s.lagSeconds(module))
+                    .tag("module", module).baseUnit("seconds").description("最早一条等待项的入队时长").register(registry);
+            Gauge.builder("ai.judge.queue.failed", this, s -> s.count(module, AIJudgeQueueItem.STATUS_FAILED))
+                    .tag("module", module).description("超过重试次数的数量").register(registry);
+        }
+        Gauge.builder("ai.judge.queue.buffered", this, s -> s.buffer.size())
+                .description("尚未写入队列表的入队请求数").register(registry);
+        FunctionCounter.builder("ai.judge.queue.dropped", droppedCount, LongAdder::sum)
+                .description("缓冲区已满被丢弃的入队请求数").register(registry);
+        Gauge.builder("ai.judge.queue.in.flight", inFlight, AtomicInteger::get)
+                .description("正在处理的批次数").register(registry);
+        FunctionCounter.builder("ai.judge.queue.processed", doneCount, LongAdder::sum)
+                .tag("result", "done").description("处理完成的数量").register(registry);
+        FunctionCounter.builder("ai.judge.queue.processed", retryCount, LongAdder::sum)
+                .tag("result", "retry").description("处理失败等待重试的数量").register(registry);
+        FunctionCounter.builder("ai.judge.queue.processed", failedCount, LongAdder::sum)
+                .tag("result", "failed").description("超过重试次数的数量").register(registry);
+    }
+
+    /**
+     * 队列状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", isEnabled());
+        status.put("workerEnabled", workerEnabled);
+        status.put("workerThreads", workerThreads);
+        status.put("inFlight", inFlight.get());
+        status.put("buffered", buffer.size());
+        status.put("overflowPending", overflowPending.get());
+        status.put("dropped", droppedCount.sum());
+        List<Map<String, Object>> modules = new ArrayList<>();
+        for (String module : MODULES) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("module", module);
+            item.put("pending", count(module, AIJudgeQueueItem.STATUS_PENDING));
+            item.put("running", count(module, AIJudgeQueueItem.STATUS_RUNNING));
+            item.put("failed", count(module, AIJudgeQueueItem.STATUS_FAILED));
+            item.put("lagSeconds", lagSeconds(module));
+            modules.add(item);
+        }
+        status.put("modules", modules);
+        status.put("processed", Map.of("done", doneCount.sum(), "retry", retryCount.sum(), "failed", failedCount.sum()));
+        return status;
+    }
+
+    private long count(String module, String status) {
+        long[] value = stats.getOrDefault(module, Map.of()).get(status);
+        return value != null ? value[0] : 0;
+    }
+
+    private long lagSeconds(String module) {
+        long[] value = stats.getOrDefault(module, Map.of()).get(AIJudgeQueueItem.STATUS_PENDING);
+        if (value == null || value[1] == 0) {
+            return 0;
+        }
+        return Math.max(0, Duration.ofMillis(System.currentTimeMillis() - value[1]).getSeconds());
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static Long getEntityId(Object entity) throws Exception {
+        Method getIdMethod = entity.getClass().getMethod("getId");
+        Object id = getIdMethod.invoke(entity);
+        return id != null ? ((Number) id).longValue() : null;
+    }
+
+    private <T> T inNewTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    /**
+     * 入队请求
+     */
+    private static class Entry {
+        private final String moduleName;
+        private final Long entityId;
+        private final LocalDateTime enqueuedAt;
+
+        Entry(String moduleName, Long entityId, LocalDateTime enqueuedAt) {
+            this.moduleName = moduleName;
+            this.entityId = entityId;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
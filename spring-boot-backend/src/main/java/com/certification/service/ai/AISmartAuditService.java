@@ -15,6 +15,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -26,7 +28,7 @@ import java.util.stream.Collectors;
 public class AISmartAuditService {
     
     @Autowired
-    private AIClassificationService aiClassificationService;
+    private AIAuditRunner auditRunner;
     
     @Autowired
     private Device510KRepository device510KRepository;
@@ -64,6 +66,20 @@ public class AISmartAuditService {
         String entityType, 
         String country, 
         Integer limit
+    ) {
+        return previewSmartAudit(entityType, country, limit, null);
+    }
+    
+    /**
+     * 预览AI审核结果，每完成一条即回调（流式返回部分结果）
+     * 
+     * @param onItem 每条审核完成后的回调（在调用线程中按完成顺序调用），可为null
+     */
+    public SmartAuditResult previewSmartAudit(
+        String entityType, 
+        String country, 
+        Integer limit,
+        Consumer<AuditItem> onItem
     ) {
         log.info("开始AI智能审核预览: entityType={}, country={}, limit={}", 
                  entityType, country, limit);
@@ -71,6 +87,7 @@ public class AISmartAuditService {
         SmartAuditResult result = new SmartAuditResult();
         result.setStartTime(new Date());
         result.setPreviewMode(true);  // 标记为预览模式
+        result.setItemListener(onItem);
         
         try {
             // 根据实体类型审核不同的数据（仅预览，不执行操作）
@@ -192,6 +209,21 @@ public class AISmartAuditService {
         List<String> entityTypes,
         String riskLevel,
         Integer limit
+    ) {
+        return previewSmartAuditByConditions(country, entityTypes, riskLevel, limit, null);
+    }
+    
+    /**
+     * 按条件预览AI判断，每完成一条即回调（流式返回部分结果）
+     * 
+     * @param onItem 每条审核完成后的回调（在调用线程中按完成顺序调用），可为null
+     */
+    public SmartAuditResult previewSmartAuditByConditions(
+        String country,
+        List<String> entityTypes,
+        String riskLevel,
+        Integer limit,
+        Consumer<AuditItem> onItem
     ) {
         log.info("按条件预览AI判断: country={}, entityTypes={}, riskLevel={}, limit={}",
                  country, entityTypes, riskLevel, limit);
@@ -199,6 +231,7 @@ public class AISmartAuditService {
         SmartAuditResult result = new SmartAuditResult();
         result.setStartTime(new Date());
         result.setPreviewMode(true);
+        result.setItemListener(onItem);
         
         try {
             // 如果未指定实体类型，使用所有支持的类型
@@ -260,34 +293,18 @@ public class AISmartAuditService {
         
         log.info("开始预览 {} 条 {} 数据", dataList.size(), entityType);
         
-        // 逐条审核（仅AI判断，不执行操作）
-        for (Object data : dataList) {
-            try {
-                AuditItem auditItem = auditSingleData(data, entityType);
-                result.addAuditItem(auditItem);
-                
-                if (auditItem.isRelatedToSkinDevice()) {
-                    result.incrementKept();
-                } else {
-                    result.incrementDowngraded();
-                    // 预览模式：只记录将要添加的黑名单，不实际添加
-                    List<String> willAddBlacklist = extractBlacklistKeywords(data, entityType, auditItem);
-                    auditItem.getBlacklistKeywords().addAll(willAddBlacklist);
-                }
-                
-            } catch (Exception e) {
-                log.error("预览单条数据失败: {}", data, e);
-                result.incrementFailed();
-            }
-            
-            // 避免API速率限制
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+        // 并行AI判断（仅AI判断，不执行操作），复用未变化数据之前的判断结果
+        auditInParallel(dataList, entityType, true, (data, auditItem) -> {
+            if (auditItem.isRelatedToSkinDevice()) {
+                result.incrementKept();
+            } else {
+                result.incrementDowngraded();
+                // 预览模式：只记录将要添加的黑名单，不实际添加
+                List<String> willAddBlacklist = extractBlacklistKeywords(data, entityType, auditItem);
+                auditItem.getBlacklistKeywords().addAll(willAddBlacklist);
             }
-        }
+            result.addAuditItem(auditItem);
+        }, result);
     }
     
     /**
@@ -303,34 +320,18 @@ public class AISmartAuditService {
         
         log.info("开始预览 {} 条 {} 数据", dataList.size(), entityType);
         
-        // 逐条审核（仅AI判断，不执行操作）
-        for (Object data : dataList) {
-            try {
-                AuditItem auditItem = auditSingleData(data, entityType);
-                result.addAuditItem(auditItem);
-                
-                if (auditItem.isRelatedToSkinDevice()) {
-                    result.incrementKept();
-                } else {
-                    result.incrementDowngraded();
-                    // 预览模式：只记录将要添加的黑名单，不实际添加
-                    List<String> willAddBlacklist = extractBlacklistKeywords(data, entityType, auditItem);
-                    auditItem.getBlacklistKeywords().addAll(willAddBlacklist);
-                }
-                
-            } catch (Exception e) {
-                log.error("预览单条数据失败: {}", data, e);
-                result.incrementFailed();
-            }
-            
-            // 避免API速率限制
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+        // 并行AI判断（仅AI判断，不执行操作），复用未变化数据之前的判断结果
+        auditInParallel(dataList, entityType, true, (data, auditItem) -> {
+            if (auditItem.isRelatedToSkinDevice()) {
+                result.incrementKept();
+            } else {
+                result.incrementDowngraded();
+                // 预览模式：只记录将要添加的黑名单，不实际添加
+                List<String> willAddBlacklist = extractBlacklistKeywords(data, entityType, auditItem);
+                auditItem.getBlacklistKeywords().addAll(willAddBlacklist);
             }
-        }
+            result.addAuditItem(auditItem);
+        }, result);
     }
     
     /**
@@ -499,36 +500,21 @@ public class AISmartAuditService {
         
         log.info("开始审核 {} 条 {} 数据", dataList.size(), entityType);
         
-        // 逐条审核
-        for (Object data : dataList) {
-            try {
-                AuditItem auditItem = auditSingleData(data, entityType);
-                result.addAuditItem(auditItem);
-                
-                if (auditItem.isRelatedToSkinDevice()) {
-                    // 是测肤仪 - 标记为高风险
-                    result.incrementKept();
-                    log.debug("标记为高风险: {} - {}", auditItem.getId(), auditItem.getReason());
-                } else {
-                    // 不是测肤仪 - 降级并添加黑名单
-                    executeDowngradeAndBlacklist(data, entityType, auditItem);
-                    result.incrementDowngraded();
-                    log.debug("降级为低风险: {} - {}", auditItem.getId(), auditItem.getReason());
-                }
-                
-            } catch (Exception e) {
-                log.error("审核单条数据失败: {}", data, e);
-                result.incrementFailed();
-            }
+        // 并行AI判断，降级和添加黑名单在当前线程中执行
+        auditInParallel(dataList, entityType, false, (data, auditItem) -> {
+            result.addAuditItem(auditItem);
             
-            // 避免API速率限制
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+            if (auditItem.isRelatedToSkinDevice()) {
+                // 是测肤仪 - 标记为高风险
+                result.incrementKept();
+                log.debug("标记为高风险: {} - {}", auditItem.getId(), auditItem.getReason());
+            } else {
+                // 不是测肤仪 - 降级并添加黑名单
+                executeDowngradeAndBlacklist(data, entityType, auditItem);
+                result.incrementDowngraded();
+                log.debug("降级为低风险: {} - {}", auditItem.getId(), auditItem.getReason());
             }
-        }
+        }, result);
     }
     
     /**
@@ -643,22 +629,65 @@ public class AISmartAuditService {
     }
     
     /**
-     * 审核单条数据
+     * 审核单条数据（AI调用经过共用限速器）
      */
     public AuditItem auditSingleData(Object data, String entityType) {
-        AuditItem item = new AuditItem();
-        item.setEntityType(entityType);
-        
         // 根据数据类型提取字段
         Map<String, Object> deviceData = extractDeviceData(data, entityType);
         
+        // AI判断
+        return toAuditItem(deviceData, entityType, auditRunner.classify(deviceData, false));
+    }
+    
+    /**
+     * 并行AI判断一批数据
+     * 字段提取和回调都在当前线程中执行，只有AI调用在 {@link AIAuditRunner} 的线程池中并行；
+     * 回调抛出异常或AI判断失败时计为失败，不影响其他数据
+     *
+     * @param reuse 是否复用未变化数据之前的判断结果（预览时复用）
+     * @param onAudited 每条数据判断完成后的处理，按完成顺序调用
+     * @return 当前线程被中断时返回false
+     */
+    private boolean auditInParallel(List<?> dataList, String entityType, boolean reuse,
+                                    BiConsumer<Object, AuditItem> onAudited, SmartAuditResult result) {
+        Map<Object, Map<String, Object>> deviceDataMap = new IdentityHashMap<>();
+        List<Object> items = new ArrayList<>(dataList.size());
+        for (Object data : dataList) {
+            try {
+                deviceDataMap.put(data, extractDeviceData(data, entityType));
+                items.add(data);
+            } catch (Exception e) {
+                log.error("提取设备数据失败: {}", data, e);
+                result.incrementFailed();
+            }
+        }
+        
+        return auditRunner.forEach(items,
+            data -> auditRunner.classify(deviceDataMap.get(data), reuse),
+            (data, aiResult) -> {
+                try {
+                    onAudited.accept(data, toAuditItem(deviceDataMap.get(data), entityType, aiResult));
+                } catch (Exception e) {
+                    log.error("处理单条数据失败: {}", data, e);
+                    result.incrementFailed();
+                }
+            },
+            (data, e) -> {
+                log.error("AI判断单条数据失败: {}", data, e);
+                result.incrementFailed();
+            });
+    }
+    
+    /**
+     * 根据AI判断结果生成审核项
+     */
+    private AuditItem toAuditItem(Map<String, Object> deviceData, String entityType, ClassificationResult aiResult) {
+        AuditItem item = new AuditItem();
+        item.setEntityType(entityType);
         item.setId((Long) deviceData.get("id"));
         item.setDeviceName((String) deviceData.get("deviceName"));
         item.setManufacturer((String) deviceData.get("manufacturer"));
         
-        // AI判断
-        ClassificationResult aiResult = aiClassificationService.classifySkinDevice(deviceData);
-        
         item.setRelatedToSkinDevice(aiResult.isRelated());
         item.setConfidence(aiResult.getConfidence());
         item.setReason(aiResult.getReason());
@@ -1001,6 +1030,22 @@ public class AISmartAuditService {
         String riskLevel,
         Integer limit,
         Boolean judgeAll
+    ) {
+        return previewWithBlacklistCheck(country, entityTypes, riskLevel, limit, judgeAll, null);
+    }
+    
+    /**
+     * AI判断预览（带黑名单检查），每完成一条即回调（流式返回部分结果）
+     * 
+     * @param onItem 每条判断完成后的回调（在调用线程中按完成顺序调用），可为null
+     */
+    public SmartAuditResult previewWithBlacklistCheck(
+        String country,
+        List<String> entityTypes,
+        String riskLevel,
+        Integer limit,
+        Boolean judgeAll,
+        Consumer<AuditItem> onItem
     ) {
         log.info("开始AI判断预览（带黑名单检查）: country={}, entityTypes={}, riskLevel={}, limit={}, judgeAll={}",
                 country, entityTypes, riskLevel, limit, judgeAll);
@@ -1008,6 +1053,7 @@ public class AISmartAuditService {
         SmartAuditResult result = new SmartAuditResult();
         result.setStartTime(new Date());
         result.setPreviewMode(true);
+        result.setItemListener(onItem);
         
         try {
             // 1. 获取所有启用的黑名单关键词
@@ -1021,12 +1067,22 @@ public class AISmartAuditService {
                                           "GuidanceDocument", "CustomsCase");
             }
             
-            // 3. 对每种类型进行判断
+            // 3. 对每种类型进行判断（线程被中断时停止，例如流式预览的客户端已断开）
             for (String entityType : entityTypes) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
                 previewTypeWithBlacklist(entityType, country, riskLevel, limit, judgeAll, blacklistKeywords, result);
             }
             
             result.setEndTime(new Date());
+            if (Thread.currentThread().isInterrupted()) {
+                result.setSuccess(false);
+                result.setMessage(String.format("预览已中断：已完成黑名单过滤%d条，AI判断%d条",
+                    result.getBlacklistFiltered(), result.getAiJudged()));
+                log.info("AI判断预览已中断: {}", result.getMessage());
+                return result;
+            }
             result.setSuccess(true);
             result.setMessage(String.format(
                 "预览完成：黑名单过滤%d条，AI判断%d条（高风险%d条，低风险%d条）",
@@ -1071,7 +1127,9 @@ public class AISmartAuditService {
         
         log.info("开始判断 {} 条 {} 数据", dataList.size(), entityType);
         
-        // 逐条处理
+        // 黑名单预检查在当前线程逐条进行，需要AI判断的数据再并行判断
+        List<Object> aiCandidates = new ArrayList<>();
+        Map<Object, String> whitelistMatches = new IdentityHashMap<>();
         for (Object data : dataList) {
             try {
                 // 提取设备信息
@@ -1084,6 +1142,13 @@ public class AISmartAuditService {
                     (String) deviceData.get("description")
                 );
 
+                if (matchedWhitelist != null) {
+                    // 匹配白名单 - 强制AI判断（优先级最高，即使匹配黑名单也要判断）
+                    whitelistMatches.put(data, matchedWhitelist);
+                    aiCandidates.add(data);
+                    continue;
+                }
+
                 // 黑名单预检查
                 String matchedBlacklist = deviceMatchKeywordsService.checkBlacklistMatchMultiple(
                     (String) deviceData.get("deviceName"),
@@ -1091,100 +1156,70 @@ public class AISmartAuditService {
                     (String) deviceData.get("description")
                 );
 
-                AuditItem item;
-                if (matchedWhitelist != null) {
-                    // 匹配白名单 - 强制AI判断（优先级最高，即使匹配黑名单也要判断）
-                    item = auditSingleData(data, entityType);
-                    item.setWhitelistMatched(true);
-                    item.setMatchedWhitelistKeyword(matchedWhitelist);
-                    item.setBlacklistMatched(false);
-
-                    if (item.isRelatedToSkinDevice()) {
-                        // AI判断为相关 - 将设置为高风险
-                        result.incrementAiKept();
-                        log.debug("白名单制造商，AI判断为高风险: {} - {}", item.getId(), item.getReason());
-                    } else {
-                        // AI判断为不相关 - 将降级为低风险
-                        result.incrementAiDowngraded();
-
-                        // 提取制造商和品牌作为建议的黑名单（但因为在白名单中不会真正添加）
-                        String manufacturer = (String) deviceData.get("manufacturer");
-                        if (manufacturer != null && !manufacturer.trim().isEmpty()) {
-                            item.addSuggestedBlacklist(manufacturer);
-                        }
-
-                        log.debug("白名单制造商，AI判断降级: {} - {}, 将不添加黑名单",
-                            item.getId(), item.getReason());
-                    }
-
-                    // 避免API速率限制
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                } else if (matchedBlacklist != null) {
-                    // 匹配黑名单且不在白名单 - 直接标记为低风险，跳过AI判断
-                    item = new AuditItem();
-                    item.setEntityType(entityType);
-                    item.setId((Long) deviceData.get("id"));
-                    item.setDeviceName((String) deviceData.get("deviceName"));
-                    item.setManufacturer((String) deviceData.get("manufacturer"));
-                    
-                    item.setBlacklistMatched(true);
-                    item.setMatchedBlacklistKeyword(matchedBlacklist);
-                    item.setRelatedToSkinDevice(false);
-                    item.setConfidence(1.0);
-                    item.setReason("黑名单匹配: " + matchedBlacklist);
-                    item.setCategory("黑名单过滤");
-                    
-                    // 设置备注信息
-                    String remark = generateRemark(item, null);
-                    item.setRemark(remark);
-                    
-                    result.incrementBlacklistFiltered();
-                    
-                    log.debug("黑名单过滤: {} - {}", item.getId(), matchedBlacklist);
-                } else {
+                if (matchedBlacklist == null) {
                     // 未匹配黑名单 - 调用AI判断
-                    item = auditSingleData(data, entityType);
-                    item.setBlacklistMatched(false);
-                    
-                    if (item.isRelatedToSkinDevice()) {
-                        // AI判断为相关 - 将设置为高风险
-                        result.incrementAiKept();
-                        log.debug("AI判断为高风险: {} - {}", item.getId(), item.getReason());
-                    } else {
-                        // AI判断为不相关 - 提取建议的黑名单关键词
-                        result.incrementAiDowngraded();
-                        
-                        // 提取制造商和品牌作为建议的黑名单
-                        String manufacturer = (String) deviceData.get("manufacturer");
-                        if (manufacturer != null && !manufacturer.trim().isEmpty()) {
-                            item.addSuggestedBlacklist(manufacturer);
-                        }
-                        
-                        log.debug("AI判断降级: {} - {}, 建议黑名单: {}", 
-                            item.getId(), item.getReason(), item.getSuggestedBlacklist());
-                    }
-                    
-                    // 避免API速率限制
-                    try {
-                        Thread.sleep(500);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+                    aiCandidates.add(data);
+                    continue;
                 }
+
+                // 匹配黑名单且不在白名单 - 直接标记为低风险，跳过AI判断
+                AuditItem item = new AuditItem();
+                item.setEntityType(entityType);
+                item.setId((Long) deviceData.get("id"));
+                item.setDeviceName((String) deviceData.get("deviceName"));
+                item.setManufacturer((String) deviceData.get("manufacturer"));
+                
+                item.setBlacklistMatched(true);
+                item.setMatchedBlacklistKeyword(matchedBlacklist);
+                item.setRelatedToSkinDevice(false);
+                item.setConfidence(1.0);
+                item.setReason("黑名单匹配: " + matchedBlacklist);
+                item.setCategory("黑名单过滤");
                 
+                // 设置备注信息
+                String remark = generateRemark(item, null);
+                item.setRemark(remark);
+                
+                result.incrementBlacklistFiltered();
                 result.addAuditItem(item);
                 
+                log.debug("黑名单过滤: {} - {}", item.getId(), matchedBlacklist);
+                
             } catch (Exception e) {
                 log.error("处理单条数据失败: {}", data, e);
                 result.incrementFailed();
             }
         }
+        
+        // 并行AI判断，复用未变化数据之前的判断结果
+        auditInParallel(aiCandidates, entityType, true, (data, item) -> {
+            String matchedWhitelist = whitelistMatches.get(data);
+            if (matchedWhitelist != null) {
+                item.setWhitelistMatched(true);
+                item.setMatchedWhitelistKeyword(matchedWhitelist);
+            }
+            item.setBlacklistMatched(false);
+            
+            if (item.isRelatedToSkinDevice()) {
+                // AI判断为相关 - 将设置为高风险
+                result.incrementAiKept();
+                log.debug("AI判断为高风险: {} - {}", item.getId(), item.getReason());
+            } else {
+                // AI判断为不相关 - 将降级为低风险
+                result.incrementAiDowngraded();
+                
+                // 提取制造商作为建议的黑名单（白名单制造商不会真正添加）
+                String manufacturer = item.getManufacturer();
+                if (manufacturer != null && !manufacturer.trim().isEmpty()) {
+                    item.addSuggestedBlacklist(manufacturer);
+                }
+                
+                log.debug("AI判断降级: {} - {}, 白名单: {}, 建议黑名单: {}", 
+                    item.getId(), item.getReason(), matchedWhitelist, item.getSuggestedBlacklist());
+            }
+            
+            result.addAuditItem(item);
+        }, result);
     }
     
     /**
@@ -1422,49 +1457,34 @@ public class AISmartAuditService {
 
         log.info("开始重新判断 {} 条 {} 制造商数据: {}", dataList.size(), entityType, manufacturer);
 
-        for (Object data : dataList) {
-            try {
-                // AI判断
-                AuditItem item = auditSingleData(data, entityType);
-                item.setWhitelistMatched(true);
-                item.setMatchedWhitelistKeyword(manufacturer);
-
-                if (item.isRelatedToSkinDevice()) {
-                    // AI判断为相关 - 设置为高风险
-                    updateRiskLevelById(item, "HIGH", String.format(
-                        "白名单制造商重新判断\\nAI判断: 与测肤仪相关\\n置信度: %.0f%%\\n原因: %s\\n分类: %s",
-                        item.getConfidence() * 100,
-                        item.getReason(),
-                        item.getCategory()
-                    ));
-                    result.incrementAiKept();
-                    log.debug("白名单制造商，重新判断为高风险: {} - {}", item.getId(), item.getReason());
-                } else {
-                    // AI判断为不相关 - 降级为低风险（但不添加黑名单）
-                    updateRiskLevelById(item, "LOW", String.format(
-                        "白名单制造商重新判断\\nAI判断: 非测肤仪设备\\n置信度: %.0f%%\\n原因: %s",
-                        item.getConfidence() * 100,
-                        item.getReason()
-                    ));
-                    result.incrementAiDowngraded();
-                    log.debug("白名单制造商，重新判断降级: {} - {}", item.getId(), item.getReason());
-                }
-
-                result.addAuditItem(item);
+        // 并行AI判断（不复用之前的判断结果），更新风险等级在当前线程的事务中执行
+        auditInParallel(dataList, entityType, false, (data, item) -> {
+            item.setWhitelistMatched(true);
+            item.setMatchedWhitelistKeyword(manufacturer);
 
-            } catch (Exception e) {
-                log.error("重新判断单条数据失败: {}", data, e);
-                result.incrementFailed();
+            if (item.isRelatedToSkinDevice()) {
+                // AI判断为相关 - 设置为高风险
+                updateRiskLevelById(item, "HIGH", String.format(
+                    "白名单制造商重新判断\\nAI判断: 与测肤仪相关\\n置信度: %.0f%%\\n原因: %s\\n分类: %s",
+                    item.getConfidence() * 100,
+                    item.getReason(),
+                    item.getCategory()
+                ));
+                result.incrementAiKept();
+                log.debug("白名单制造商，重新判断为高风险: {} - {}", item.getId(), item.getReason());
+            } else {
+                // AI判断为不相关 - 降级为低风险（但不添加黑名单）
+                updateRiskLevelById(item, "LOW", String.format(
+                    "白名单制造商重新判断\\nAI判断: 非测肤仪设备\\n置信度: %.0f%%\\n原因: %s",
+                    item.getConfidence() * 100,
+                    item.getReason()
+                ));
+                result.incrementAiDowngraded();
+                log.debug("白名单制造商，重新判断降级: {} - {}", item.getId(), item.getReason());
             }
 
-            // 避免API速率限制
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
-        }
+            result.addAuditItem(item);
+        }, result);
     }
 
     /**
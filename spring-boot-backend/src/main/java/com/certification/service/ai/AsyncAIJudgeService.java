@@ -5,6 +5,7 @@ import com.certification.entity.common.AIJudgeTask;
 import com.certification.entity.common.CertNewsData;
 import com.certification.repository.AIJudgeTaskRepository;
 import com.certification.repository.CrawlerDataRepository;
+import com.certification.service.monitor.TaskProgressHub;
 import com.certification.dto.ai.CertNewsClassificationResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +37,9 @@ public class AsyncAIJudgeService {
     @Autowired
     private CertNewsanalysis certNewsanalysis;
     
+    @Autowired
+    private TaskProgressHub progressHub;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     /**
@@ -62,6 +66,9 @@ public class AsyncAIJudgeService {
             return;
         }
         
+        String progressKey = TaskProgressHub.aiJudgeKey(taskId);
+        progressHub.start(progressKey, TaskProgressHub.TYPE_AI_JUDGE, "认证新闻AI判断", sourceName);
+        
         try {
             // 更新任务状态为运行中
             task.setStatus("RUNNING");
@@ -72,6 +79,7 @@ public class AsyncAIJudgeService {
             List<CertNewsData> dataList = getDataForJudge(riskLevel, sourceName, limit);
             task.setTotalCount(dataList.size());
             taskRepository.save(task);
+            progressHub.setTotal(progressKey, dataList.size());
             
             log.info("找到 {} 条数据需要AI判断", dataList.size());
             
@@ -79,6 +87,7 @@ public class AsyncAIJudgeService {
                 task.setStatus("COMPLETED");
                 task.setEndTime(LocalDateTime.now());
                 taskRepository.save(task);
+                progressHub.finish(progressKey, TaskProgressHub.STATUS_SUCCESS, "没有需要判断的数据");
                 return;
             }
             
@@ -91,6 +100,7 @@ public class AsyncAIJudgeService {
                 task = taskRepository.findByTaskId(taskId).orElse(null);
                 if (task == null || "CANCELLED".equals(task.getStatus())) {
                     log.info("任务已取消: {}", taskId);
+                    progressHub.finish(progressKey, TaskProgressHub.STATUS_CANCELLED, "任务已取消");
                     return;
                 }
                 
@@ -143,6 +153,7 @@ public class AsyncAIJudgeService {
                 
                 // 更新进度
                 task.setProcessedCount(i + 1);
+                progressHub.setCounts(progressKey, i + 1, task.getRelatedCount(), task.getUnrelatedCount(), task.getFailedCount());
                 
                 // 每100条或最后一条保存一次任务状态
                 if ((i + 1) % batchSize == 0 || i == dataList.size() - 1) {
@@ -166,6 +177,7 @@ public class AsyncAIJudgeService {
             task.setStatus("COMPLETED");
             task.setEndTime(LocalDateTime.now());
             taskRepository.save(task);
+            progressHub.finish(progressKey, TaskProgressHub.STATUS_SUCCESS, null);
             
             log.info("异步AI判断任务完成: taskId={}, 总计={}, 相关={}, 不相关={}, 失败={}, 关键词={}", 
                 taskId, task.getTotalCount(), task.getRelatedCount(), 
@@ -177,6 +189,7 @@ public class AsyncAIJudgeService {
             task.setErrorMessage(e.getMessage());
             task.setEndTime(LocalDateTime.now());
             taskRepository.save(task);
+            progressHub.finish(progressKey, TaskProgressHub.STATUS_FAILED, e.getMessage());
         }
     }
     
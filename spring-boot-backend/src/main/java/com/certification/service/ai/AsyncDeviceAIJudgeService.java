@@ -7,6 +7,7 @@ import com.certification.entity.common.*;
 import com.certification.repository.*;
 import com.certification.repository.common.*;
 import com.certification.service.DeviceMatchKeywordsService;
+import com.certification.service.monitor.TaskProgressHub;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
@@ -35,6 +36,9 @@ public class AsyncDeviceAIJudgeService {
     @Autowired
     private DeviceMatchKeywordsService deviceMatchKeywordsService;
     
+    @Autowired
+    private TaskProgressHub progressHub;
+    
     // 各个设备数据Repository
     @Autowired
     private Device510KRepository device510KRepository;
@@ -80,6 +84,9 @@ public class AsyncDeviceAIJudgeService {
             return;
         }
         
+        String progressKey = TaskProgressHub.aiJudgeKey(taskId);
+        progressHub.start(progressKey, TaskProgressHub.TYPE_AI_JUDGE, "设备数据AI判断", country);
+        
         try {
             // 更新任务状态为运行中
             task.setStatus("RUNNING");
@@ -104,10 +111,12 @@ public class AsyncDeviceAIJudgeService {
                 task = taskRepository.findByTaskId(taskId).orElse(null);
                 if (task == null || "CANCELLED".equals(task.getStatus())) {
                     log.info("任务已取消: {}", taskId);
+                    progressHub.finish(progressKey, TaskProgressHub.STATUS_CANCELLED, "任务已取消");
                     return;
                 }
                 
                 log.info("开始处理数据类型: {}", entityType);
+                progressHub.setMessage(progressKey, "正在处理: " + entityType);
                 
                 // 获取数据
                 List<?> dataList = getDataByTypeAndConditions(entityType, country, riskLevel, limit);
@@ -119,6 +128,7 @@ public class AsyncDeviceAIJudgeService {
                 
                 task.setTotalCount((task.getTotalCount() != null ? task.getTotalCount() : 0) + dataList.size());
                 taskRepository.save(task);
+                progressHub.setTotal(progressKey, task.getTotalCount());
                 
                 // 批次处理
                 int batchSize = 100;
@@ -128,6 +138,7 @@ public class AsyncDeviceAIJudgeService {
                     task = taskRepository.findByTaskId(taskId).orElse(null);
                     if (task == null || "CANCELLED".equals(task.getStatus())) {
                         log.info("任务已取消: {}", taskId);
+                        progressHub.finish(progressKey, TaskProgressHub.STATUS_CANCELLED, "任务已取消");
                         return;
                     }
                     
@@ -165,6 +176,7 @@ public class AsyncDeviceAIJudgeService {
                     // 更新进度
                     totalProcessed++;
                     task.setProcessedCount(totalProcessed);
+                    progressHub.setCounts(progressKey, totalProcessed, totalKept, totalDowngraded, totalFailed);
                     
                     // 每100条或最后一条保存一次任务状态
                     if (totalProcessed % batchSize == 0 || i == dataList.size() - 1) {
@@ -192,6 +204,7 @@ public class AsyncDeviceAIJudgeService {
             task.setStatus("COMPLETED");
             task.setEndTime(LocalDateTime.now());
             taskRepository.save(task);
+            progressHub.finish(progressKey, TaskProgressHub.STATUS_SUCCESS, null);
             
             log.info("异步设备AI判断任务完成: taskId={}, 总计={}, 保留={}, 降级={}, 失败={}, 黑名单关键词={}", 
                 taskId, task.getTotalCount(), task.getRelatedCount(), 
@@ -203,6 +216,7 @@ public class AsyncDeviceAIJudgeService {
             task.setErrorMessage(e.getMessage());
             task.setEndTime(LocalDateTime.now());
             taskRepository.save(task);
+            progressHub.finish(progressKey, TaskProgressHub.STATUS_FAILED, e.getMessage());
         }
     }
     
@@ -8,10 +8,13 @@ import com.certification.repository.ai.AIPendingJudgmentRepository;
 import com.certification.repository.common.*;
 import com.certification.service.ai.strategy.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.lang.reflect.Method;
 import java.util.*;
@@ -21,6 +24,7 @@ import java.util.*;
  * 在爬取后自动判断设备数据是否与测肤仪相关
  *
  * 【重要更新】现在AI判断结果会先保存到待审核表，等待用户确认后再执行
+ * 爬取后的判断经 {@link AIJudgeQueueService} 排队异步执行，不在爬虫线程中进行
  */
 @Slf4j
 @Service
@@ -70,185 +74,148 @@ public class AutoAIJudgeService {
 
     @Autowired
     private CustomsJudgeStrategy customsJudgeStrategy;
+
+    @Lazy
+    @Autowired
+    private AIJudgeQueueService judgeQueueService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
     
     /**
-     * 判断新数据（延迟执行模式 + 批量保存）
-     * AI判断后不立即执行，而是保存到待审核表等待用户确认
-     *
-     * 【重要优化】
-     * 1. AI判断失败时，保持原risk_level不变
-     * 2. 每100条自动保存到数据库，避免长时间运行后数据丢失
+     * 判断新数据：只把实体ID加入AI判断队列，由 {@link AIJudgeQueueService} 的线程池异步判断，
+     * 调用方不等待AI判断，也不会因为AI判断失败而回滚
      *
-     * @param results 新爬取的数据列表
+     * @param results 新爬取并已入库的数据列表
      * @param moduleName 模块名称（device510k, deviceeventreport等）
      */
-    @Transactional
     public void judgeNewData(List<?> results, String moduleName) {
         if (results == null || results.isEmpty()) {
             log.debug("没有需要判断的数据");
             return;
         }
 
-        log.info("========== 开始自动AI判断（延迟执行模式 + 批量保存） ==========");
-        log.info("模块: {}, 总数据量: {}", moduleName, results.size());
-
-        int totalCount = results.size();
-        int successCount = 0;
-        int failedCount = 0;
-        int relatedCount = 0;
-        int unrelatedCount = 0;
-        int filteredCount = 0;
-        int batchCount = 0;
-
-        // 批量保存的缓冲区
-        List<Object> entitiesToSave = new ArrayList<>();
-        List<AIPendingJudgment> pendingJudgmentsToSave = new ArrayList<>();
-
-        final int BATCH_SIZE = 100; // 每100条保存一次
+        List<Long> entityIds = new ArrayList<>(results.size());
+        for (Object data : results) {
+            Long entityId = getEntityId(data);
+            if (entityId != null) {
+                entityIds.add(entityId);
+            }
+        }
+        if (entityIds.size() < results.size()) {
+            log.warn("{} 条数据没有实体ID（未入库），跳过: moduleName={}", results.size() - entityIds.size(), moduleName);
+        }
+        judgeQueueService.enqueue(moduleName, entityIds);
+        log.info("已加入AI判断队列: 模块={}, 数量={}", moduleName, entityIds.size());
+    }
 
+    /**
+     * 判断队列中的一批数据（延迟执行模式）
+     * AI判断在事务外逐条进行，每条判断完成后在一个短事务中重新加载实体、只修改判断相关字段并保存待审核记录，
+     * 避免判断期间爬虫增量更新或管理员编辑的内容被判断开始前加载的旧实体覆盖；
+     * AI判断失败的数据保持原risk_level不变，由队列重试
+     *
+     * @param moduleName 模块名称
+     * @param entityIds 实体ID
+     * @param intervalMs 两次AI调用之间的间隔（毫秒），避免API速率限制
+     * @return 判断失败的实体ID及错误信息；已删除的实体视为处理完成
+     */
+    public Map<Long, String> judgeQueued(String moduleName, List<Long> entityIds, long intervalMs) throws InterruptedException {
+        Map<Long, String> failures = new HashMap<>();
         AIJudgeStrategy strategy = getStrategyByModuleName(moduleName);
         if (strategy == null) {
             log.error("未找到对应的判断策略: moduleName={}", moduleName);
-            return;
+            for (Long entityId : entityIds) {
+                failures.put(entityId, "未找到对应的判断策略: " + moduleName);
+            }
+            return failures;
         }
 
-        for (int i = 0; i < totalCount; i++) {
-            Object data = results.get(i);
-
-            try {
-                // 获取实体ID
-                Long entityId = getEntityId(data);
-                if (entityId == null) {
-                    log.warn("无法获取实体ID，跳过: index={}, data={}", i, data.getClass().getSimpleName());
-                    failedCount++;
-                    continue;
-                }
-
-                // AI判断
-                AIJudgeResult judgeResult = null;
-                try {
-                    judgeResult = strategy.judge(data);
-                } catch (Exception aiError) {
-                    log.error("AI判断失败（保持原风险等级不变）: entityId={}, error={}", entityId, aiError.getMessage());
-                    failedCount++;
-
-                    // AI判断失败，标记为新增数据但不创建待审核记录
-                    markAsNewData(data);
-                    entitiesToSave.add(data);
-                    continue;
-                }
-
-                // 将实体标记为新增数据
-                markAsNewData(data);
-                entitiesToSave.add(data);
-
-                // 创建待审核记录
-                AIPendingJudgment pending = createPendingJudgment(
-                        moduleName, entityId, judgeResult);
-                pendingJudgmentsToSave.add(pending);
-
-                // 统计
-                if (judgeResult.isRelated()) {
-                    relatedCount++;
-                } else {
-                    unrelatedCount++;
-                    if (judgeResult.getBlacklistKeywords() != null && !judgeResult.getBlacklistKeywords().isEmpty()) {
-                        filteredCount++;
-                    }
-                }
-
-                successCount++;
-
-                // 每处理100条，或到达最后一条时，批量保存
-                if (entitiesToSave.size() >= BATCH_SIZE || i == totalCount - 1) {
-                    batchCount++;
+        int savedCount = 0;
+        int relatedCount = 0;
 
-                    log.info(">>> 批量保存第{}批: 已处理 {}/{}, 成功={}, 失败={}",
-                            batchCount, i + 1, totalCount, successCount, failedCount);
+        List<?> entities = findEntities(moduleName, entityIds);
+        for (int i = 0; i < entities.size(); i++) {
+            Object data = entities.get(i);
+            Long entityId = getEntityId(data);
+            if (i > 0 && intervalMs > 0) {
+                // 避免API速率限制
+                Thread.sleep(intervalMs);
+            }
 
-                    // 批量保存实体
-                    batchSaveEntities(entitiesToSave, moduleName);
+            AIJudgeResult judgeResult;
+            try {
+                judgeResult = strategy.judge(data);
+            } catch (Exception aiError) {
+                log.error("AI判断失败（保持原风险等级不变）: entityId={}, error={}", entityId, aiError.getMessage());
+                failures.put(entityId, aiError.getMessage() != null ? aiError.getMessage() : aiError.getClass().getSimpleName());
+                continue;
+            }
 
-                    // 批量保存待审核记录
-                    if (!pendingJudgmentsToSave.isEmpty()) {
-                        pendingJudgmentRepository.saveAll(pendingJudgmentsToSave);
-                        log.info(">>> 已保存 {} 条待审核记录到数据库", pendingJudgmentsToSave.size());
+            AIPendingJudgment pendingJudgment = createPendingJudgment(moduleName, entityId, judgeResult);
+            try {
+                Boolean saved = transactionTemplate.execute(status -> saveJudgment(moduleName, entityId, pendingJudgment));
+                if (Boolean.TRUE.equals(saved)) {
+                    savedCount++;
+                    if (judgeResult.isRelated()) {
+                        relatedCount++;
                     }
-
-                    // 清空缓冲区
-                    entitiesToSave.clear();
-                    pendingJudgmentsToSave.clear();
-
-                    log.info(">>> 第{}批保存完成 ✓", batchCount);
                 }
-
-                // 避免API速率限制
-                Thread.sleep(500);
-
             } catch (Exception e) {
-                log.error("处理单条数据时发生异常: index={}, error={}", i, e.getMessage(), e);
-                failedCount++;
-
-                // 即使出错也继续处理，但先保存已处理的数据
-                if (!entitiesToSave.isEmpty() || !pendingJudgmentsToSave.isEmpty()) {
-                    try {
-                        log.warn("发生异常，先保存已处理的 {} 条数据", entitiesToSave.size());
-                        batchSaveEntities(entitiesToSave, moduleName);
-                        if (!pendingJudgmentsToSave.isEmpty()) {
-                            pendingJudgmentRepository.saveAll(pendingJudgmentsToSave);
-                        }
-                        entitiesToSave.clear();
-                        pendingJudgmentsToSave.clear();
-                    } catch (Exception saveError) {
-                        log.error("紧急保存失败: {}", saveError.getMessage(), saveError);
-                    }
-                }
+                log.error("保存AI判断结果失败: entityId={}, error={}", entityId, e.getMessage());
+                failures.put(entityId, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
             }
         }
 
-        log.info("========== 自动AI判断完成 ==========");
-        log.info("总数据: {}, 成功: {}, 失败: {}", totalCount, successCount, failedCount);
-        log.info("相关: {}, 不相关: {}, 黑名单过滤: {}", relatedCount, unrelatedCount, filteredCount);
-        log.info("批量保存次数: {}", batchCount);
-        log.info("=======================================");
+        log.info("AI判断完成: 模块={}, 数量={}, 成功={}, 相关={}, 失败={}",
+                moduleName, entityIds.size(), savedCount, relatedCount, failures.size());
+        return failures;
     }
 
     /**
-     * 批量保存实体到数据库
+     * 重新加载实体，标记为新增数据并保存待审核记录（在短事务中调用）
+     *
+     * @return 实体已被删除时返回false
      */
-    private void batchSaveEntities(List<Object> entities, String moduleName) {
-        if (entities.isEmpty()) {
-            return;
+    private boolean saveJudgment(String moduleName, Long entityId, AIPendingJudgment pendingJudgment) {
+        List<?> current = findEntities(moduleName, List.of(entityId));
+        if (current.isEmpty()) {
+            log.debug("实体已删除，跳过保存AI判断结果: moduleName={}, entityId={}", moduleName, entityId);
+            return false;
         }
+        Object entity = current.get(0);
+        markAsNewData(entity);
+        saveEntity(entity, moduleName);
+        pendingJudgmentRepository.save(pendingJudgment);
+        return true;
+    }
 
-        try {
-            switch (moduleName.toLowerCase()) {
-                case "device510k":
-                    device510KRepository.saveAll((List<Device510K>) (List<?>) entities);
-                    break;
-                case "deviceeventreport":
-                    eventReportRepository.saveAll((List<DeviceEventReport>) (List<?>) entities);
-                    break;
-                case "devicerecallrecord":
-                    recallRecordRepository.saveAll((List<DeviceRecallRecord>) (List<?>) entities);
-                    break;
-                case "deviceregistrationrecord":
-                    registrationRecordRepository.saveAll((List<DeviceRegistrationRecord>) (List<?>) entities);
-                    break;
-                case "guidancedocument":
-                    guidanceDocumentRepository.saveAll((List<GuidanceDocument>) (List<?>) entities);
-                    break;
-                case "customscase":
-                    customsCaseRepository.saveAll((List<CustomsCase>) (List<?>) entities);
-                    break;
-                default:
-                    log.warn("未知的模块名称，无法批量保存: {}", moduleName);
-            }
-            log.debug("批量保存了 {} 条实体数据", entities.size());
-        } catch (Exception e) {
-            log.error("批量保存实体失败: moduleName={}, count={}, error={}",
-                    moduleName, entities.size(), e.getMessage(), e);
-            throw e;
+    /**
+     * 按ID加载实体
+     */
+    private List<?> findEntities(String moduleName, List<Long> entityIds) {
+        switch (moduleName.toLowerCase()) {
+            case "device510k":
+                return device510KRepository.findAllById(entityIds);
+            case "deviceeventreport":
+                return eventReportRepository.findAllById(entityIds);
+            case "devicerecallrecord":
+                return recallRecordRepository.findAllById(entityIds);
+            case "deviceregistrationrecord":
+                return registrationRecordRepository.findAllById(entityIds);
+            case "guidancedocument":
+                return guidanceDocumentRepository.findAllById(entityIds);
+            case "customscase":
+                return customsCaseRepository.findAllById(entityIds);
+            default:
+                throw new IllegalArgumentException("未知的模块名称: " + moduleName);
         }
     }
 
@@ -0,0 +1,167 @@
+package com.certification.service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 数据版本计数器
+ * 每类数据（设备数据、认证新闻、每日风险统计）一个递增版本号，数据写入时递增。
+ * 统计缓存把相关数据的版本号作为缓存键的一部分，版本变化后旧缓存自然失效。
+ *
+ * 写入发生在事务中时，提交后再递增一次：
+ * 避免提交前有查询读到旧数据并以新版本号写入缓存。
+ *
+ * 版本号只在本实例内有效；多实例部署时，本地变更通过监听器广播，
+ * 其他实例的变更通过 {@link #applyRemote(String, long)} 同步，并记录最后变更时间供共享缓存判断有效性。
+ * 本实例启动前其他实例广播的变更收不到，因此最后变更时间不早于本实例启动时间。
+ */
+@Slf4j
+@Component
+public class DataVersionService {
+
+    /**
+     * 设备数据（510K、召回、事件、注册、指导文档、海关案例）
+     */
+    public static final String DEVICE = "device";
+
+    /**
+     * 认证新闻数据
+     */
+    public static final String CERT_NEWS = "certNews";
+
+    /**
+     * 每日国家风险统计
+     */
+    public static final String RISK_STATS = "riskStats";
+
+    /**
+     * 关键词（认证新闻关键词、设备匹配关键词）
+     */
+    public static final String KEYWORD = "keyword";
+
+    /**
+     * 国家基础信息
+     */
+    public static final String COUNTRY = "country";
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> lastChanged = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 本实例启动时间（毫秒），作为各数据类型最后变更时间的下限
+     */
+    private final long startedAt = System.currentTimeMillis();
+
+    /**
+     * 当前事务中已登记提交后递增的数据类型
+     */
+    private static final String PENDING_RESOURCE = DataVersionService.class.getName() + ".pending";
+
+    /**
+     * 数据发生变化
+     */
+    public void bump(String domain) {
+        increment(domain, System.currentTimeMillis());
+        bumpAfterCommit(domain);
+    }
+
+    /**
+     * 其他实例的数据发生变化
+     *
+     * @param changedAt 变更时间（毫秒）
+     */
+    public void applyRemote(String domain, long changedAt) {
+        versions.computeIfAbsent(domain, k -> new AtomicLong()).incrementAndGet();
+        lastChanged.computeIfAbsent(domain, k -> new AtomicLong()).accumulateAndGet(changedAt, Math::max);
+    }
+
+    /**
+     * 多个数据类型中最近一次变更的时间（毫秒），启动后未变更时返回本实例启动时间
+     * （启动前的变更消息未收到，早于启动时间计算的共享缓存不可信）
+     */
+    public long lastChanged(String... domains) {
+        long result = startedAt;
+        for (String domain : domains) {
+            AtomicLong changed = lastChanged.get(domain);
+            if (changed != null) {
+                result = Math.max(result, changed.get());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 注册本地数据变更监听器
+     */
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 获取多个数据类型的组合版本号，用于拼接缓存键
+     */
+    public String version(String... domains) {
+        StringBuilder sb = new StringBuilder();
+        for (String domain : domains) {
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            AtomicLong version = versions.get(domain);
+            sb.append(version != null ? version.get() : 0L);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 各数据类型的当前版本号
+     */
+    public Map<String, Long> getVersions() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        versions.forEach((domain, version) -> result.put(domain, version.get()));
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void bumpAfterCommit(String domain) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(PENDING_RESOURCE);
+        if (pending == null) {
+            Set<String> registered = ConcurrentHashMap.newKeySet();
+            TransactionSynchronizationManager.bindResource(PENDING_RESOURCE, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_RESOURCE);
+                    long now = System.currentTimeMillis();
+                    for (String d : registered) {
+                        increment(d, now);
+                    }
+                }
+            });
+            pending = registered;
+        }
+        pending.add(domain);
+    }
+
+    private void increment(String domain, long now) {
+        versions.computeIfAbsent(domain, k -> new AtomicLong()).incrementAndGet();
+        lastChanged.computeIfAbsent(domain, k -> new AtomicLong()).accumulateAndGet(now, Math::max);
+        for (Consumer<String> listener : listeners) {
+            listener.accept(domain);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.certification.service.cache;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+
+/**
+ * 根据Hibernate执行的写语句递增数据版本
+ * 实体保存、JPQL批量更新和原生SQL都会经过这里，不需要在每个写入点单独通知缓存；
+ * 不经过Hibernate的写入（如JdbcTemplate批量写入）需要自行调用 {@link DataVersionService#bump(String)}。
+ */
+public class DataVersionStatementInspector implements StatementInspector {
+
+    private final DataVersionService dataVersionService;
+
+    public DataVersionStatementInspector(DataVersionService dataVersionService) {
+        this.dataVersionService = dataVersionService;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String domain = resolveDomain(sql);
+        if (domain != null) {
+            dataVersionService.bump(domain);
+        }
+        return sql;
+    }
+
+    /**
+     * 写语句涉及的数据类型，非写语句或无关的表返回null
+     */
+    static String resolveDomain(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        if (start >= sql.length()) {
+            return null;
+        }
+        char first = Character.toLowerCase(sql.charAt(start));
+        if (first != 'i' && first != 'u' && first != 'd') {
+            return null;
+        }
+
+        String head = sql.substring(start, Math.min(sql.length(), start + 120)).toLowerCase(Locale.ROOT);
+        if (!head.startsWith("insert") && !head.startsWith("update") && !head.startsWith("delete")) {
+            return null;
+        }
+        if (head.contains("t_device_") || head.contains("t_guidance_document") || head.contains("t_customs_case")) {
+            return DataVersionService.DEVICE;
+        }
+        if (head.contains("t_crawler_data")) {
+            return DataVersionService.CERT_NEWS;
+        }
+        if (head.contains("daily_country_risk_stats")) {
+            return DataVersionService.RISK_STATS;
+        }
+        if (head.contains("t_keyword") || head.contains("t_devicematch_keywords")) {
+            return DataVersionService.KEYWORD;
+        }
+        if (head.contains("t_country")) {
+            return DataVersionService.COUNTRY;
+        }
+        return null;
+    }
+}
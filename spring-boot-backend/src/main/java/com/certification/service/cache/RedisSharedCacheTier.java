@@ -0,0 +1,60 @@
+package com.certification.service.cache;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * 基于Redis的共享缓存层
+ * 缓存值以字节形式存储在 medcert:cache: 前缀下，失效消息通过 Pub/Sub 频道广播。
+ */
+public class RedisSharedCacheTier implements SharedCacheTier {
+
+    private static final String KEY_PREFIX = "medcert:cache:";
+    private static final String CHANNEL = "medcert:cache:invalidation";
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    public RedisSharedCacheTier(RedisConnectionFactory connectionFactory,
+                                RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = new RedisTemplate<>();
+        this.redisTemplate.setConnectionFactory(connectionFactory);
+        this.redisTemplate.setKeySerializer(RedisSerializer.string());
+        this.redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        this.redisTemplate.afterPropertiesSet();
+        this.listenerContainer = listenerContainer;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return redisTemplate.opsForValue().get(KEY_PREFIX + key);
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + key, value, ttl);
+    }
+
+    @Override
+    public void publish(String message) {
+        redisTemplate.convertAndSend(CHANNEL, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listenerContainer.addMessageListener((message, pattern) ->
+                listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+    }
+
+    @Override
+    public String getName() {
+        return "redis";
+    }
+}
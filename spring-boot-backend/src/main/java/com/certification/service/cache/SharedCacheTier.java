@@ -0,0 +1,37 @@
+package com.certification.service.cache;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * 多实例共享的缓存层
+ * 本地缓存未命中时先查共享层，再查数据库；数据变更通过广播消息通知其他实例。
+ * 实现见 {@link RedisSharedCacheTier}（生产）和 {@link InMemorySharedCacheTier}（单机/测试）。
+ */
+public interface SharedCacheTier {
+
+    /**
+     * 读取缓存值，不存在返回null
+     */
+    byte[] get(String key);
+
+    /**
+     * 写入缓存值
+     */
+    void put(String key, byte[] value, Duration ttl);
+
+    /**
+     * 向所有实例广播失效消息
+     */
+    void publish(String message);
+
+    /**
+     * 订阅失效消息
+     */
+    void subscribe(Consumer<String> listener);
+
+    /**
+     * 实现名称（用于统计展示）
+     */
+    String getName();
+}
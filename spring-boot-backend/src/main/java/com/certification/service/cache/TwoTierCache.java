@@ -0,0 +1,294 @@
+package com.certification.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存
+ * 统计、关键词和国家等读多写少的结果按"名称 + 参数 + 相关数据版本号"缓存：
+ * - 一级：本实例内的Caffeine缓存，数据写入使版本号递增（见 {@link DataVersionService}），旧缓存自然失效
+ * - 二级：可选的共享缓存层（{@link SharedCacheTier}），多实例部署时其他实例算过的结果直接复用
+ *
+ * 共享层的有效性判断：
+ * - 共享条目记录开始计算的时间，早于相关数据最后变更时间的条目视为过期；
+ *   本实例启动前的变更消息收不到，最后变更时间以启动时间为下限，启动前写入的共享条目不再使用
+ * - 本地数据变更按数据类型合并后定时广播，其他实例收到后递增本地版本号并记录变更时间
+ * - 共享层读写失败不影响请求，暂停使用一段时间后自动恢复
+ *
+ * 说明：
+ * - 返回Map和List时复制一份，调用方修改结果不会影响缓存
+ * - 包含 error 字段或 success=false 的结果不缓存
+ * - 不可序列化的结果只进入本地缓存
+ * - 本地缓存命中/未命中次数注册到Micrometer（cache.gets 等指标，cache=twoTier）
+ */
+@Slf4j
+@Component
+public class TwoTierCache {
+
+    /**
+     * 共享层失败后暂停使用的时间
+     */
+    private static final long SHARED_BACKOFF_MS = 30_000L;
+
+    private final DataVersionService dataVersionService;
+    private final SharedCacheTier sharedTier;
+    private final Cache<String, Object> cache;
+    private final Duration sharedTtl;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Set<String> changedDomains = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService publisher;
+    private volatile long sharedDisabledUntil;
+
+    private final AtomicLong sharedHits = new AtomicLong();
+    private final AtomicLong sharedMisses = new AtomicLong();
+    private final AtomicLong sharedErrors = new AtomicLong();
+    private final AtomicLong invalidationsSent = new AtomicLong();
+    private final AtomicLong invalidationsReceived = new AtomicLong();
+
+    public TwoTierCache(DataVersionService dataVersionService,
+                        ObjectProvider<SharedCacheTier> sharedTier,
+                        ObjectProvider<MeterRegistry> meterRegistry,
+                        @Value("${app.cache.max-size:1000}") long maxSize,
+                        @Value("${app.cache.ttl:600}") long ttlSeconds,
+                        @Value("${app.cache.shared.publish-interval-ms:500}") long publishIntervalMs) {
+        this.dataVersionService = dataVersionService;
+        this.sharedTier = sharedTier.getIfAvailable();
+        this.sharedTtl = Duration.ofSeconds(ttlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(sharedTtl)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "twoTier"));
+
+        if (this.sharedTier != null) {
+            this.sharedTier.subscribe(this::onInvalidation);
+            dataVersionService.addListener(changedDomains::add);
+            this.publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cache-invalidation-publisher");
+                t.setDaemon(true);
+                return t;
+            });
+            this.publisher.scheduleWithFixedDelay(this::publishChanges, publishIntervalMs, publishIntervalMs, TimeUnit.MILLISECONDS);
+            log.info("两级缓存已启用共享层: {}, 节点: {}", this.sharedTier.getName(), nodeId);
+        } else {
+            this.publisher = null;
+        }
+    }
+
+    /**
+     * 获取缓存结果，未命中时计算并缓存
+     *
+     * @param name 缓存名称（通常为方法名）
+     * @param domains 结果依赖的数据类型
+     * @param loader 计算函数
+     * @param args 影响结果的参数
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, String[] domains, Supplier<T> loader, Object... args) {
+        String key = name + Arrays.deepToString(args);
+        String localKey = key + "@" + dataVersionService.version(domains);
+
+        Object cached = cache.getIfPresent(localKey);
+        if (cached != null) {
+            return (T) copy(cached);
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Object shared = readShared(key, domains);
+        if (shared != null) {
+            cache.put(localKey, shared);
+            return (T) copy(shared);
+        }
+
+        T value = loader.get();
+        if (isCacheable(value)) {
+            cache.put(localKey, value);
+            writeShared(key, value, startedAt);
+            return (T) copy(value);
+        }
+        return value;
+    }
+
+    /**
+     * 清空本地缓存
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", Math.round(stats.hitRate() * 1000) / 1000.0);
+        result.put("evictionCount", stats.evictionCount());
+        result.put("sharedTier", sharedTier != null ? sharedTier.getName() : "none");
+        result.put("sharedHitCount", sharedHits.get());
+        result.put("sharedMissCount", sharedMisses.get());
+        result.put("sharedErrorCount", sharedErrors.get());
+        result.put("invalidationsSent", invalidationsSent.get());
+        result.put("invalidationsReceived", invalidationsReceived.get());
+        result.put("dataVersions", dataVersionService.getVersions());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+        }
+    }
+
+    private Object readShared(String key, String[] domains) {
+        if (!isSharedAvailable()) {
+            return null;
+        }
+        try {
+            byte[] bytes = sharedTier.get(key);
+            if (bytes == null) {
+                sharedMisses.incrementAndGet();
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            long computedAt = in.readLong();
+            if (computedAt <= dataVersionService.lastChanged(domains)) {
+                sharedMisses.incrementAndGet();
+                return null;
+            }
+            try (ObjectInputStream objectIn = new ObjectInputStream(in)) {
+                Object value = objectIn.readObject();
+                sharedHits.incrementAndGet();
+                return value;
+            }
+        } catch (Exception e) {
+            onSharedError("读取", key, e);
+            return null;
+        }
+    }
+
+    private void writeShared(String key, Object value, long computedAt) {
+        if (!isSharedAvailable() || !(value instanceof Serializable)) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(computedAt);
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(value);
+            }
+            sharedTier.put(key, bytes.toByteArray(), sharedTtl);
+        } catch (NotSerializableException e) {
+            log.debug("缓存结果不可序列化，仅使用本地缓存（{}）: {}", key, e.getMessage());
+        } catch (Exception e) {
+            onSharedError("写入", key, e);
+        }
+    }
+
+    /**
+     * 广播本地数据变更，同一数据类型在一个周期内只发送一次
+     */
+    private void publishChanges() {
+        if (changedDomains.isEmpty() || !isSharedAvailable()) {
+            return;
+        }
+        List<String> domains = new ArrayList<>(changedDomains);
+        changedDomains.removeAll(domains);
+        long now = System.currentTimeMillis();
+        for (String domain : domains) {
+            try {
+                sharedTier.publish(nodeId + "|" + domain + "|" + now);
+                invalidationsSent.incrementAndGet();
+            } catch (Exception e) {
+                changedDomains.add(domain);
+                onSharedError("广播", domain, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 处理其他实例的失效消息：nodeId|domain|changedAt
+     */
+    private void onInvalidation(String message) {
+        String[] parts = message.split("\\|");
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            dataVersionService.applyRemote(parts[1], Long.parseLong(parts[2]));
+            invalidationsReceived.incrementAndGet();
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的缓存失效消息: {}", message);
+        }
+    }
+
+    private boolean isSharedAvailable() {
+        return sharedTier != null && System.currentTimeMillis() >= sharedDisabledUntil;
+    }
+
+    private void onSharedError(String action, String key, Exception e) {
+        sharedErrors.incrementAndGet();
+        sharedDisabledUntil = System.currentTimeMillis() + SHARED_BACKOFF_MS;
+        log.warn("共享缓存{}失败（{}），{}秒内仅使用本地缓存: {}", action, key, SHARED_BACKOFF_MS / 1000, e.getMessage());
+    }
+
+    private boolean isCacheable(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return !map.containsKey("error") && !Boolean.FALSE.equals(map.get("success"));
+        }
+        return true;
+    }
+
+    private Object copy(Object value) {
+        if (value instanceof Map) {
+            return new LinkedHashMap<>((Map<?, ?>) value);
+        }
+        if (value instanceof List) {
+            return new ArrayList<>((List<?>) value);
+        }
+        return value;
+    }
+}
@@ -1,84 +1,283 @@
 package com.certification.service.certnews;
 
 import com.certification.entity.common.CertNewsTaskConfig;
+import com.certification.service.cluster.TaskLeaseService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 认证新闻定时任务调度器
- * 每分钟检查一次是否有需要执行的任务
+ * 启动时加载一次启用的任务，按每个任务的下次执行时间在TaskScheduler上登记一次性触发：
+ * - 到点后提交到专用执行线程池运行，爬取期间不占用共享的调度线程，不再每分钟轮询数据库
+ * - 执行完成后（无论成功失败）按任务最新的下次执行时间重新登记
+ * - 启动时下次执行时间已过的任务（停机、重启期间错过）补执行一次
+ * - 任务配置变更后调用 {@link #updateScheduledTask(Long)} / {@link #cancelTask(Long)} 刷新调度
+ *
+ * 触发时会重新读取任务配置：任务已禁用或删除则不再调度，下次执行时间已变更（如在其他实例修改、手动执行）
+ * 则按新时间重新登记，因此多实例部署时各实例的调度会自动跟随数据库中的配置。
  */
 @Slf4j
 @Component
 public class CertNewsScheduledExecutor {
 
+    /**
+     * 启动补执行的延迟，等待应用启动完成
+     */
+    private static final long CATCH_UP_DELAY_SECONDS = 30;
+
     @Autowired
     private CertNewsTaskService taskService;
 
+    @Autowired
+    private TaskLeaseService taskLeaseService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
     /**
-     * 每分钟检查一次待执行的任务
-     * Cron: 每分钟的第0秒执行
+     * 已登记的触发
+     * Key: 任务ID, Value: ScheduledFuture对象
      */
-    @Scheduled(cron = "0 * * * * ?")
-    public void checkAndExecuteTasks() {
-        try {
-            List<CertNewsTaskConfig> enabledTasks = taskService.getEnabledTasks();
+    private final Map<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
 
-            if (enabledTasks.isEmpty()) {
-                return;
-            }
+    /**
+     * 已登记触发的计划执行时间
+     * Key: 任务ID, Value: 计划执行时间
+     */
+    private final Map<Long, LocalDateTime> plannedTimes = new ConcurrentHashMap<>();
 
-            LocalDateTime now = LocalDateTime.now();
+    /**
+     * 执行爬取的线程池，调度线程只负责触发
+     */
+    private ExecutorService runExecutor;
 
+    /**
+     * 初始化：加载所有启用的任务
+     */
+    @PostConstruct
+    public void initScheduledTasks() {
+        AtomicInteger counter = new AtomicInteger();
+        runExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "certnews-run-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<CertNewsTaskConfig> enabledTasks = taskService.getEnabledTasks();
+            LocalDateTime now = LocalDateTime.now();
+            int catchUp = 0;
             for (CertNewsTaskConfig task : enabledTasks) {
-                try {
-                    // 检查是否到了执行时间
-                    if (shouldExecuteNow(task, now)) {
-                        log.info("触发定时任务执行: {}", task.getTaskName());
-                        taskService.executeTaskInternal(task);
-                    }
-                } catch (Exception e) {
-                    log.error("执行定时任务失败: {}", task.getTaskName(), e);
+                LocalDateTime planned = task.getNextExecuteTime();
+                if (planned != null && planned.isBefore(now)) {
+                    // 错过的执行合并为一次补执行，触发时间沿用原计划时间，多实例只补执行一次
+                    schedule(task.getId(), planned, now.plusSeconds(CATCH_UP_DELAY_SECONDS));
+                    catchUp++;
+                } else {
+                    scheduleTask(task);
                 }
             }
+            log.info("认证新闻定时任务初始化完成，共加载 {} 个任务，其中 {} 个补执行", scheduledTasks.size(), catchUp);
         } catch (Exception e) {
-            log.error("检查定时任务失败", e);
+            log.error("认证新闻定时任务初始化失败", e);
         }
     }
 
     /**
-     * 判断任务是否应该在当前时间执行
+     * 按任务的下次执行时间登记触发
+     *
+     * @param task 任务配置
      */
-    private boolean shouldExecuteNow(CertNewsTaskConfig task, LocalDateTime now) {
-        if (task.getNextExecuteTime() == null) {
-            return false;
-        }
-
-        // 如果下次执行时间在当前时间之前或等于当前时间（精确到分钟）
-        LocalDateTime nextExec = task.getNextExecuteTime();
-        return nextExec.getYear() == now.getYear()
-                && nextExec.getMonth() == now.getMonth()
-                && nextExec.getDayOfMonth() == now.getDayOfMonth()
-                && nextExec.getHour() == now.getHour()
-                && nextExec.getMinute() == now.getMinute();
+    public void scheduleTask(CertNewsTaskConfig task) {
+        if (task == null || task.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(task.getEnabled())) {
+            cancelTask(task.getId());
+            return;
+        }
+        LocalDateTime planned = resolveNextTime(task, null);
+        if (planned == null) {
+            log.warn("无法计算认证新闻任务的下次执行时间，未调度: ID={}, Cron={}", task.getId(), task.getCronExpression());
+            cancelTask(task.getId());
+            return;
+        }
+        schedule(task.getId(), planned, planned);
     }
 
     /**
-     * 每天凌晨3点清理30天前的日志
+     * 任务配置变更后刷新调度
+     *
+     * @param taskId 任务ID
      */
-    @Scheduled(cron = "0 0 3 * * ?")
-    public void cleanOldLogs() {
+    public void updateScheduledTask(Long taskId) {
+        CertNewsTaskConfig task = taskService.getTaskById(taskId);
+        if (task == null) {
+            cancelTask(taskId);
+            return;
+        }
+        scheduleTask(task);
+    }
+
+    /**
+     * 取消任务的调度
+     *
+     * @param taskId 任务ID
+     */
+    public void cancelTask(Long taskId) {
+        plannedTimes.remove(taskId);
+        ScheduledFuture<?> future = scheduledTasks.remove(taskId);
+        if (future != null) {
+            future.cancel(false);
+            log.info("认证新闻定时任务已取消: ID={}", taskId);
+        }
+    }
+
+    /**
+     * 当前调度情况，Key: 任务ID, Value: 计划执行时间
+     */
+    public Map<Long, LocalDateTime> getScheduledTimes() {
+        return new HashMap<>(plannedTimes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ScheduledFuture<?> future : scheduledTasks.values()) {
+            future.cancel(false);
+        }
+        scheduledTasks.clear();
+        plannedTimes.clear();
+        runExecutor.shutdownNow();
+    }
+
+    private void schedule(Long taskId, LocalDateTime planned, LocalDateTime fireAt) {
+        ScheduledFuture<?> previous = scheduledTasks.remove(taskId);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        plannedTimes.put(taskId, planned);
+        ScheduledFuture<?> future = taskScheduler.schedule(
+                () -> fire(taskId, planned),
+                fireAt.atZone(ZoneId.systemDefault()).toInstant());
+        scheduledTasks.put(taskId, future);
+        log.debug("认证新闻定时任务已登记: ID={}, 计划执行时间={}", taskId, planned);
+    }
+
+    /**
+     * 到点触发任务：检查配置后提交到执行线程池，执行完成后按最新配置重新登记
+     */
+    private void fire(Long taskId, LocalDateTime planned) {
+        if (!planned.equals(plannedTimes.get(taskId))) {
+            // 已被新的登记替换
+            return;
+        }
+        CertNewsTaskConfig task;
+        try {
+            task = taskService.getTaskById(taskId);
+        } catch (Exception e) {
+            log.error("读取认证新闻任务配置失败，稍后重试: ID={}", taskId, e);
+            schedule(taskId, planned, LocalDateTime.now().plusMinutes(1));
+            return;
+        }
+        if (task == null || !Boolean.TRUE.equals(task.getEnabled())) {
+            cancelTask(taskId);
+            return;
+        }
+        LocalDateTime current = task.getNextExecuteTime();
+        if (current != null && current.isAfter(planned)) {
+            // 计划已变更（其他实例修改配置或已执行），按新时间登记
+            scheduleTask(task);
+            return;
+        }
+
+        log.info("触发定时任务执行: {}, 计划执行时间={}", task.getTaskName(), planned);
+        try {
+            // 以计划执行时间作为触发时间，多实例部署时只在一个实例上执行
+            CompletableFuture.runAsync(() -> taskLeaseService.runOnce("certnews-task:" + taskId,
+                            planned.truncatedTo(ChronoUnit.MINUTES),
+                            () -> taskService.executeTaskInternal(task), runExecutor), runExecutor)
+                    .whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            log.error("执行定时任务失败: {}", task.getTaskName(), e);
+                        }
+                        reschedule(taskId, planned);
+                    });
+        } catch (RejectedExecutionException e) {
+            log.warn("执行线程池已关闭，定时任务未执行: {}", task.getTaskName());
+        }
+    }
+
+    /**
+     * 执行完成后按最新配置登记下次触发
+     */
+    private void reschedule(Long taskId, LocalDateTime planned) {
         try {
-            log.info("开始清理认证新闻任务旧日志...");
-            taskService.cleanOldLogs(30);
-            log.info("清理认证新闻任务旧日志完成");
+            CertNewsTaskConfig latest = taskService.getTaskById(taskId);
+            if (latest == null || !Boolean.TRUE.equals(latest.getEnabled())) {
+                cancelTask(taskId);
+                return;
+            }
+            LocalDateTime next = resolveNextTime(latest, planned);
+            if (next == null) {
+                cancelTask(taskId);
+                return;
+            }
+            schedule(taskId, next, next);
+        } catch (Exception e) {
+            log.error("重新登记认证新闻定时任务失败，稍后重试: ID={}", taskId, e);
+            schedule(taskId, planned, LocalDateTime.now().plusMinutes(1));
+        }
+    }
+
+    /**
+     * 计算任务的下次执行时间：优先使用数据库中晚于上次计划的时间，否则按Cron表达式从当前时间推算
+     * （例如本实例未领取到租约、其他实例仍在执行时，数据库中的时间尚未更新）
+     */
+    private LocalDateTime resolveNextTime(CertNewsTaskConfig task, LocalDateTime lastPlanned) {
+        LocalDateTime stored = task.getNextExecuteTime();
+        if (stored != null && (lastPlanned == null || stored.isAfter(lastPlanned))) {
+            return stored;
+        }
+        try {
+            return CronExpression.parse(task.getCronExpression()).next(LocalDateTime.now());
         } catch (Exception e) {
-            log.error("清理认证新闻任务旧日志失败", e);
+            log.error("计算下次执行时间失败: {}", task.getCronExpression(), e);
+            return null;
         }
     }
+
+    /**
+     * 每天凌晨3点清理30天前的日志
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void cleanOldLogs() {
+        taskLeaseService.runOnce("certnews-clean-logs", () -> {
+            try {
+                log.info("开始清理认证新闻任务旧日志...");
+                taskService.cleanOldLogs(30);
+                log.info("清理认证新闻任务旧日志完成");
+            } catch (Exception e) {
+                log.error("清理认证新闻任务旧日志失败", e);
+            }
+        });
+    }
 }
@@ -112,7 +112,6 @@ public class CertNewsTaskService {
     /**
      * 手动执行任务
      */
-    @Transactional
     public CertNewsTaskLog executeTask(Long taskId) {
         CertNewsTaskConfig task = taskConfigRepository.findById(taskId)
                 .orElseThrow(() -> new IllegalArgumentException("任务不存在: " + taskId));
@@ -122,8 +121,8 @@ public class CertNewsTaskService {
 
     /**
      * 内部执行任务方法
+     * 不开启事务：爬取耗时较长，日志和任务配置各自保存，避免长时间占用数据库连接
      */
-    @Transactional
     public CertNewsTaskLog executeTaskInternal(CertNewsTaskConfig task) {
         log.info("开始执行认证新闻爬虫任务: {}", task.getTaskName());
 
@@ -0,0 +1,358 @@
+package com.certification.service.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import com.certification.service.monitor.DbCallerContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 定时任务租约服务
+ * 多实例部署时，每个实例都会触发相同的定时任务，通过MySQL中的租约保证每次触发只执行一次：
+ * - 租约按"任务名称 + 触发时间"领取，同一触发时间只能被领取一次
+ * - 执行期间定时心跳续约，实例宕机后租约到期，下一次触发可由其他实例领取
+ * - 上一次触发仍在执行时，新的触发不会在其他实例上重复执行
+ * - 每个任务按存活节点做一致性选择，优先节点立即领取，其他节点通过TaskScheduler延迟后再尝试（不阻塞触发线程），
+ *   使不同任务分散到不同实例
+ *
+ * 未启用（app.cluster.lease-enabled=false）时直接在本实例执行，行为与单实例部署一致。
+ * 租约表读写失败时不执行任务，避免重复爬取。
+ */
+@Slf4j
+@Service
+public class TaskLeaseService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${app.cluster.lease-enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cluster.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${app.cluster.takeover-delay-ms:5000}")
+    private long takeoverDelayMs;
+
+    @Value("${app.cluster.node-timeout-seconds:90}")
+    private long nodeTimeoutSeconds;
+
+    private final String nodeId = resolveHostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * 本实例持有的租约，Key: 任务名称, Value: 触发时间
+     */
+    private final Map<String, LocalDateTime> heldLeases = new ConcurrentHashMap<>();
+
+    private volatile List<String> liveNodes = Collections.emptyList();
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("定时任务租约未启用，所有定时任务在本实例执行");
+            return;
+        }
+        // 租约读写独立提交，不受调用方事务影响
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "task-lease-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, leaseSeconds / 3);
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, 0, interval, TimeUnit.SECONDS);
+        log.info("定时任务租约已启用: 节点={}, 租约时长={}秒", nodeId, leaseSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+        try {
+            for (String taskName : heldLeases.keySet()) {
+                release(taskName);
+            }
+            inNewTransaction(() -> jdbcTemplate.update(
+                    "DELETE FROM common_db.t_scheduler_node WHERE node_id = ?", nodeId));
+        } catch (Exception e) {
+            log.warn("注销调度节点失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在集群中执行一次定时任务，触发时间取当前时间所在的分钟
+     *
+     * @param taskName 任务名称（集群内唯一）
+     * @param task 任务内容
+     * @return 是否由本实例执行
+     */
+    public boolean runOnce(String taskName, Runnable task) {
+        return runOnce(taskName, currentFireTime(), task);
+    }
+
+    /**
+     * 在集群中执行一次定时任务
+     *
+     * @param taskName 任务名称（集群内唯一）
+     * @param fireTime 触发时间，各实例对同一次触发必须给出相同的值
+     * @param task 任务内容
+     * @return 是否由本实例执行；非优先节点延迟接管时返回 false
+     */
+    public boolean runOnce(String taskName, LocalDateTime fireTime, Runnable task) {
+        return runOnce(taskName, fireTime, task, null);
+    }
+
+    /**
+     * 在集群中执行一次定时任务
+     *
+     * @param taskName 任务名称（集群内唯一）
+     * @param fireTime 触发时间，各实例对同一次触发必须给出相同的值
+     * @param task 任务内容
+     * @param takeoverExecutor 非优先节点延迟接管时执行任务的线程池，为null时在调度线程上执行
+     * @return 是否由本实例立即执行；非优先节点延迟接管时返回 false
+     */
+    public boolean runOnce(String taskName, LocalDateTime fireTime, Runnable task, Executor takeoverExecutor) {
+        if (!enabled) {
+            runAsCaller(taskName, task);
+            return true;
+        }
+
+        if (!isPreferredNode(taskName)) {
+            // 给优先节点留出领取时间，到点后再尝试领取，不占用当前线程等待
+            taskScheduler.schedule(() -> {
+                if (takeoverExecutor == null) {
+                    acquireAndRun(taskName, fireTime, task);
+                    return;
+                }
+                try {
+                    takeoverExecutor.execute(() -> acquireAndRun(taskName, fireTime, task));
+                } catch (RejectedExecutionException e) {
+                    log.warn("接管任务未执行，线程池已关闭: 任务={}, 触发时间={}", taskName, fireTime);
+                }
+            }, Instant.now().plusMillis(takeoverDelayMs));
+            return false;
+        }
+        return acquireAndRun(taskName, fireTime, task);
+    }
+
+    private boolean acquireAndRun(String taskName, LocalDateTime fireTime, Runnable task) {
+        boolean acquired;
+        try {
+            acquired = tryAcquire(taskName, fireTime);
+        } catch (Exception e) {
+            log.error("领取任务租约失败，本次不执行: 任务={}, 触发时间={}, 错误={}", taskName, fireTime, e.getMessage());
+            return false;
+        }
+        if (!acquired) {
+            log.debug("任务已由其他实例执行或仍在执行: 任务={}, 触发时间={}", taskName, fireTime);
+            return false;
+        }
+
+        heldLeases.put(taskName, fireTime);
+        log.info("领取任务租约: 任务={}, 触发时间={}, 节点={}", taskName, fireTime, nodeId);
+        try {
+            runAsCaller(taskName, task);
+            return true;
+        } finally {
+            heldLeases.remove(taskName);
+            try {
+                release(taskName);
+            } catch (Exception e) {
+                log.warn("释放任务租约失败（到期后自动释放）: 任务={}, 错误={}", taskName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 本实例的节点标识
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 集群调度状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("nodeId", nodeId);
+        status.put("liveNodes", liveNodes);
+        status.put("heldLeases", new HashMap<>(heldLeases));
+        status.put("leaseSeconds", leaseSeconds);
+        return status;
+    }
+
+    /**
+     * 以任务类型作为数据库调用方执行任务，SQL统计按定时任务归类
+     */
+    private static void runAsCaller(String taskName, Runnable task) {
+        DbCallerContext.Frame previous = DbCallerContext.push("job:" + taskKind(taskName), null);
+        try {
+            task.run();
+        } finally {
+            DbCallerContext.restore(previous);
+        }
+    }
+
+    /**
+     * 任务类型：去掉任务名称末尾的ID（unified-task:12 -> unified-task），调用方用作指标标签，取值范围需有限
+     */
+    static String taskKind(String taskName) {
+        int sep = taskName.lastIndexOf(':');
+        if (sep <= 0 || sep == taskName.length() - 1) {
+            return taskName;
+        }
+        for (int i = sep + 1; i < taskName.length(); i++) {
+            if (!Character.isDigit(taskName.charAt(i))) {
+                return taskName;
+            }
+        }
+        return taskName.substring(0, sep);
+    }
+
+    private boolean tryAcquire(String taskName, LocalDateTime fireTime) {
+        Integer updated = inNewTransaction(() -> {
+            jdbcTemplate.update("INSERT IGNORE INTO common_db.t_scheduler_lease (task_name) VALUES (?)", taskName);
+            return jdbcTemplate.update(
+                    "UPDATE common_db.t_scheduler_lease " +
+                            "SET owner = ?, fire_time = ?, expires_at = DATE_ADD(NOW(3), INTERVAL ? SECOND), " +
+                            "heartbeat_at = NOW(3), acquired_at = NOW(3) " +
+                            "WHERE task_name = ? AND fire_time < ? AND expires_at < NOW(3)",
+                    nodeId, Timestamp.valueOf(fireTime), leaseSeconds, taskName, Timestamp.valueOf(fireTime));
+        });
+        return updated != null && updated == 1;
+    }
+
+    private void release(String taskName) {
+        inNewTransaction(() -> jdbcTemplate.update(
+                "UPDATE common_db.t_scheduler_lease SET expires_at = NOW(3), heartbeat_at = NOW(3) " +
+                        "WHERE task_name = ? AND owner = ?", taskName, nodeId));
+    }
+
+    /**
+     * 心跳：刷新节点存活时间、续约持有的租约、更新存活节点列表
+     */
+    private void heartbeat() {
+        try {
+            inNewTransaction(() -> jdbcTemplate.update(
+                    "INSERT INTO common_db.t_scheduler_node (node_id, host_name, running_tasks, started_at, heartbeat_at) " +
+                            "VALUES (?, ?, ?, NOW(3), NOW(3)) " +
+                            "ON DUPLICATE KEY UPDATE running_tasks = VALUES(running_tasks), heartbeat_at = NOW(3)",
+                    nodeId, resolveHostName(), heldLeases.size()));
+
+            for (String taskName : heldLeases.keySet()) {
+                Integer renewed = inNewTransaction(() -> jdbcTemplate.update(
+                        "UPDATE common_db.t_scheduler_lease " +
+                                "SET expires_at = DATE_ADD(NOW(3), INTERVAL ? SECOND), heartbeat_at = NOW(3) " +
+                                "WHERE task_name = ? AND owner = ?",
+                        leaseSeconds, taskName, nodeId));
+                if (renewed == null || renewed == 0) {
+                    log.warn("任务租约续约失败，租约可能已过期: 任务={}", taskName);
+                }
+            }
+
+            List<String> nodes = inNewTransaction(() -> jdbcTemplate.queryForList(
+                    "SELECT node_id FROM common_db.t_scheduler_node " +
+                            "WHERE heartbeat_at > DATE_SUB(NOW(3), INTERVAL ? SECOND) ORDER BY node_id",
+                    String.class, nodeTimeoutSeconds));
+            liveNodes = nodes != null ? new ArrayList<>(nodes) : Collections.emptyList();
+
+            // 清理长时间没有心跳的节点记录
+            inNewTransaction(() -> jdbcTemplate.update(
+                    "DELETE FROM common_db.t_scheduler_node WHERE heartbeat_at < DATE_SUB(NOW(3), INTERVAL ? SECOND)",
+                    nodeTimeoutSeconds * 10));
+        } catch (Exception e) {
+            log.warn("调度节点心跳失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按存活节点做一致性选择（最高随机权重），判断本节点是否为任务的优先执行节点
+     * 节点列表未知或本节点不在列表中时视为优先节点
+     */
+    private boolean isPreferredNode(String taskName) {
+        List<String> nodes = liveNodes;
+        if (nodes.isEmpty() || !nodes.contains(nodeId)) {
+            return true;
+        }
+        String preferred = null;
+        long bestWeight = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long weight = mix((node + "|" + taskName).hashCode());
+            if (preferred == null || weight > bestWeight) {
+                preferred = node;
+                bestWeight = weight;
+            }
+        }
+        return nodeId.equals(preferred);
+    }
+
+    private static long mix(long h) {
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+
+    /**
+     * 当前触发时间：取最近的整分钟，吸收各实例间的时钟偏差和调度延迟
+     */
+    private static LocalDateTime currentFireTime() {
+        return LocalDateTime.now().plusSeconds(30).truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private <T> T inNewTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.certification.service.common;
 
 import com.certification.entity.common.Country;
 import com.certification.repository.common.CountryRepository;
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.cache.TwoTierCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +23,11 @@ public class CountryService {
     
     @Autowired
     private CountryRepository countryRepository;
+
+    @Autowired
+    private TwoTierCache twoTierCache;
+
+    private static final String[] COUNTRY_DOMAINS = {DataVersionService.COUNTRY};
     
     /**
      * 保存国家信息
@@ -62,11 +70,12 @@ public class CountryService {
     }
     
     /**
-     * 根据地区查询国家列表
+     * 根据地区查询国家列表（国家信息变化前使用缓存结果）
      */
     public List<Country> findByRegion(String region) {
         log.info("根据地区查询国家列表: {}", region);
-        return countryRepository.findByRegion(region);
+        return twoTierCache.get("countriesByRegion", COUNTRY_DOMAINS,
+                () -> new ArrayList<>(countryRepository.findByRegion(region)), region);
     }
     
     /**
@@ -78,11 +87,12 @@ public class CountryService {
     }
     
     /**
-     * 查询所有国家（按名称排序）
+     * 查询所有国家（按名称排序，国家信息变化前使用缓存结果）
      */
     public List<Country> findAllOrderByCountryName() {
         log.info("查询所有国家（按名称排序）");
-        return countryRepository.findAllOrderByCountryName();
+        return twoTierCache.get("countriesOrderByName", COUNTRY_DOMAINS,
+                () -> new ArrayList<>(countryRepository.findAllOrderByCountryName()));
     }
     
     /**
@@ -94,11 +104,12 @@ public class CountryService {
     }
     
     /**
-     * 查询所有国家
+     * 查询所有国家（国家信息变化前使用缓存结果）
      */
     public List<Country> findAll() {
         log.info("查询所有国家");
-        return countryRepository.findAll();
+        return twoTierCache.get("countries", COUNTRY_DOMAINS,
+                () -> new ArrayList<>(countryRepository.findAll()));
     }
     
     /**
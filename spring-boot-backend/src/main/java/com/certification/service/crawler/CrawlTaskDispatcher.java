@@ -0,0 +1,407 @@
+package com.certification.service.crawler;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Map.entry;
+
+/**
+ * 爬虫任务调度队列
+ * 手动触发和定时触发的爬虫执行统一在这里排队，按优先级（手动 &gt; 增量 &gt; 回填）分配执行名额：
+ * - 全局同时执行数、每个国家同时执行数、每个数据源站点同时执行数分别受限；
+ *   多个爬虫访问同一站点时（例如美国510K、召回、注册、不良事件都调用 api.fda.gov）按 {@link #SOURCE_HOSTS} 共用站点名额，
+ *   未登记的爬虫按爬虫名称单独计算
+ * - 名额空出时优先启动优先级最高、排队最早的任务；高优先级任务被名额挡住时，低优先级任务仍可使用其他名额
+ * - 正在执行的低优先级任务在让出检查点检查：如果有更高优先级的任务在等待它占用的名额，就让出名额并暂停，名额再次空出时继续。
+ *   检查点为 {@link CrawlerProgressContext#yieldPoint()}（HTTP请求前、分页等待前）和批次上报，
+ *   先抓取全部页面再入库的爬虫也能在两次请求之间让出
+ *
+ * 调用方通过 {@link #submitAndWait} 提交并等待结果，原有同步接口的行为不变，只是执行顺序由队列决定。
+ * 分片执行的任务在分片线程中执行，不让出名额。
+ */
+@Slf4j
+@Service
+public class CrawlTaskDispatcher {
+
+    /**
+     * 任务优先级，数值越小越优先
+     */
+    public enum Priority {
+        /** 手动触发 */
+        MANUAL,
+        /** 增量定时任务 */
+        INCREMENTAL,
+        /** 全量/回填定时任务 */
+        BACKFILL
+    }
+
+    /**
+     * 共用同一数据源站点的爬虫 -> 站点，同一站点的任务共用站点名额
+     */
+    static final Map<String, String> SOURCE_HOSTS = Map.ofEntries(
+            entry("US_510K", "api.fda.gov"),
+            entry("US_Recall", "api.fda.gov"),
+            entry("US_Registration", "api.fda.gov"),
+            entry("US_Event", "api.fda.gov"),
+            entry("EU_Recall", "ec.europa.eu"),
+            entry("EU_Registration", "ec.europa.eu"),
+            entry("EU_CustomsCase", "ec.europa.eu"),
+            entry("KR_Recall", "emedi.mfds.go.kr"),
+            entry("KR_Registration", "emedi.mfds.go.kr"),
+            entry("KR_Event", "emedi.mfds.go.kr"),
+            entry("KR_Guidance", "emedi.mfds.go.kr"),
+            entry("TW_Recall", "www.fda.gov.tw"),
+            entry("TW_Guidance", "www.fda.gov.tw"));
+
+    /**
+     * 当前线程正在执行的任务，用于让出名额
+     */
+    private static final ThreadLocal<Ticket> CURRENT = new ThreadLocal<>();
+
+    @Value("${app.dispatch.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${app.dispatch.per-country-slots:2}")
+    private int perCountrySlots;
+
+    @Value("${app.dispatch.per-source-slots:${app.dispatch.per-crawler-slots:1}}")
+    private int perSourceSlots;
+
+    @Value("${app.dispatch.yield-enabled:true}")
+    private boolean yieldEnabled;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 排队中的任务（包括让出名额后等待继续的任务），按优先级和排队顺序排列
+     */
+    private final List<Ticket> waiting = new ArrayList<>();
+
+    /**
+     * 占用名额执行中的任务
+     */
+    private final List<Ticket> running = new ArrayList<>();
+
+    private final Map<String, Integer> countryActive = new HashMap<>();
+    private final Map<String, Integer> sourceActive = new HashMap<>();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        // 线程数由名额控制，让出名额的任务仍占用线程，因此不限制线程池大小
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "crawl-dispatch-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("爬虫任务调度队列: 全局并发={}, 每国家={}, 每站点={}, 让出名额={}",
+                maxConcurrent, perCountrySlots, perSourceSlots, yieldEnabled);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按任务参数确定定时任务的优先级
+     */
+    public static Priority priorityOf(boolean isManual, CrawlerParams params) {
+        if (isManual) {
+            return Priority.MANUAL;
+        }
+        return params != null && Boolean.TRUE.equals(params.getIncremental()) ? Priority.INCREMENTAL : Priority.BACKFILL;
+    }
+
+    /**
+     * 提交任务并等待执行结果
+     *
+     * @param name 任务名称（用于日志和队列查看）
+     * @param priority 优先级
+     * @param countryCode 国家代码，为空时不受国家名额限制
+     * @param crawlerName 爬虫名称，按 {@link #sourceOf} 确定站点名额，为空时不受站点名额限制
+     * @param work 执行内容
+     * @return 执行结果
+     */
+    public CrawlerResult submitAndWait(String name, Priority priority, String countryCode, String crawlerName,
+                                       Callable<CrawlerResult> work) {
+        if (CURRENT.get() != null) {
+            // 已在调度线程中（例如任务内部再触发执行），直接执行，避免占用名额时等待自己
+            try {
+                return work.call();
+            } catch (Exception e) {
+                return CrawlerResult.failure("执行失败: " + e.getMessage(), e);
+            }
+        }
+        Ticket ticket = new Ticket(name, priority, countryCode, crawlerName, work, sequence.incrementAndGet());
+        synchronized (this) {
+            waiting.add(ticket);
+            waiting.sort(Ticket.ORDER);
+            log.info("任务排队: {}, 优先级={}, 国家={}, 爬虫={}, 排队数={}",
+                    name, priority, countryCode, crawlerName, waiting.size());
+            dispatch();
+        }
+        try {
+            return ticket.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (this) {
+                waiting.remove(ticket);
+            }
+            return CrawlerResult.failure("等待执行被中断: " + name);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return CrawlerResult.failure("执行失败: " + cause.getMessage(),
+                    cause instanceof Exception ? (Exception) cause : null);
+        }
+    }
+
+    /**
+     * 爬虫占用的站点名额，未登记共用站点的爬虫按名称单独计算
+     */
+    static String sourceOf(String crawlerName) {
+        return crawlerName != null ? SOURCE_HOSTS.getOrDefault(crawlerName, crawlerName) : null;
+    }
+
+    /**
+     * 让出检查点，由 {@link CrawlerProgressContext} 在请求前、分页等待前和收到批次上报时调用
+     * 返回当前线程任务的检查点，不在调度线程中执行时返回null
+     */
+    static Runnable currentYieldPoint() {
+        Ticket ticket = CURRENT.get();
+        if (ticket == null) {
+            return null;
+        }
+        CrawlTaskDispatcher dispatcher = ticket.dispatcher;
+        return () -> dispatcher.yieldIfPreempted(ticket);
+    }
+
+    /**
+     * 队列状态：排队和执行中的任务、各国家和站点的名额占用
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("maxConcurrent", maxConcurrent);
+        result.put("perCountrySlots", perCountrySlots);
+        result.put("perSourceSlots", perSourceSlots);
+        result.put("yieldEnabled", yieldEnabled);
+        result.put("running", running.stream().map(Ticket::toMap).toList());
+        result.put("waiting", waiting.stream().map(Ticket::toMap).toList());
+        result.put("countryActive", new HashMap<>(countryActive));
+        result.put("sourceActive", new HashMap<>(sourceActive));
+        return result;
+    }
+
+    /**
+     * 按优先级为排队任务分配名额，调用时必须持有锁
+     */
+    private void dispatch() {
+        for (Ticket ticket : new ArrayList<>(waiting)) {
+            if (running.size() >= maxConcurrent) {
+                return;
+            }
+            if (!hasSlots(ticket, null)) {
+                continue;
+            }
+            waiting.remove(ticket);
+            acquire(ticket);
+            if (ticket.yielded) {
+                // 让出名额的任务线程仍在等待，唤醒它继续执行
+                ticket.yielded = false;
+                log.info("任务继续执行: {}", ticket.name);
+                notifyAll();
+            } else {
+                ticket.startTime = LocalDateTime.now();
+                log.info("任务开始执行: {}, 优先级={}, 排队{}ms", ticket.name, ticket.priority,
+                        System.currentTimeMillis() - ticket.queuedAt);
+                executor.execute(() -> run(ticket));
+            }
+        }
+    }
+
+    private void run(Ticket ticket) {
+        CURRENT.set(ticket);
+        try {
+            ticket.future.complete(ticket.work.call());
+        } catch (Throwable e) {
+            ticket.future.completeExceptionally(e);
+        } finally {
+            CURRENT.remove();
+            synchronized (this) {
+                if (ticket.holding) {
+                    release(ticket);
+                }
+                waiting.remove(ticket);
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * 有更高优先级的任务在等待本任务占用的名额时，让出名额并等待名额再次分配
+     */
+    private void yieldIfPreempted(Ticket ticket) {
+        if (!yieldEnabled || ticket.priority == Priority.MANUAL) {
+            return;
+        }
+        CrawlerCancellationToken token = CrawlerCancellationToken.current();
+        synchronized (this) {
+            // 流水线等多线程上报时，其他线程已让出名额的任务同样在这里等待
+            if (!ticket.yielded) {
+                if (!ticket.holding) {
+                    return;
+                }
+                Ticket preemptor = null;
+                for (Ticket candidate : waiting) {
+                    if (candidate.priority.ordinal() < ticket.priority.ordinal() && hasSlots(candidate, ticket)) {
+                        preemptor = candidate;
+                        break;
+                    }
+                }
+                if (preemptor == null) {
+                    return;
+                }
+                log.info("任务让出名额: {} -> {}", ticket.name, preemptor.name);
+                release(ticket);
+                ticket.yielded = true;
+                ticket.yieldCount++;
+                waiting.add(ticket);
+                waiting.sort(Ticket.ORDER);
+                dispatch();
+            }
+            while (ticket.yielded) {
+                if (token.isCancelled()) {
+                    // 已取消的任务不再等待名额，尽快结束
+                    waiting.remove(ticket);
+                    ticket.yielded = false;
+                    return;
+                }
+                try {
+                    wait(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    waiting.remove(ticket);
+                    ticket.yielded = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 名额是否足够：全局、国家、站点三项都有空余
+     *
+     * @param releasing 假设该任务让出名额后再计算，为空时按当前占用计算
+     */
+    private boolean hasSlots(Ticket ticket, Ticket releasing) {
+        int active = running.size() - (releasing != null ? 1 : 0);
+        if (active >= maxConcurrent) {
+            return false;
+        }
+        if (ticket.countryCode != null) {
+            int used = countryActive.getOrDefault(ticket.countryCode, 0)
+                    - (releasing != null && ticket.countryCode.equals(releasing.countryCode) ? 1 : 0);
+            if (used >= perCountrySlots) {
+                return false;
+            }
+        }
+        if (ticket.source != null) {
+            int used = sourceActive.getOrDefault(ticket.source, 0)
+                    - (releasing != null && ticket.source.equals(releasing.source) ? 1 : 0);
+            if (used >= perSourceSlots) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void acquire(Ticket ticket) {
+        running.add(ticket);
+        ticket.holding = true;
+        if (ticket.countryCode != null) {
+            countryActive.merge(ticket.countryCode, 1, Integer::sum);
+        }
+        if (ticket.source != null) {
+            sourceActive.merge(ticket.source, 1, Integer::sum);
+        }
+    }
+
+    private void release(Ticket ticket) {
+        running.remove(ticket);
+        ticket.holding = false;
+        if (ticket.countryCode != null) {
+            countryActive.computeIfPresent(ticket.countryCode, (k, v) -> v > 1 ? v - 1 : null);
+        }
+        if (ticket.source != null) {
+            sourceActive.computeIfPresent(ticket.source, (k, v) -> v > 1 ? v - 1 : null);
+        }
+    }
+
+    /**
+     * 排队任务
+     */
+    private class Ticket {
+        static final Comparator<Ticket> ORDER = Comparator.<Ticket>comparingInt(t -> t.priority.ordinal())
+                .thenComparingLong(t -> t.seq);
+
+        final CrawlTaskDispatcher dispatcher = CrawlTaskDispatcher.this;
+        final String name;
+        final Priority priority;
+        final String countryCode;
+        final String crawlerName;
+        final String source;
+        final Callable<CrawlerResult> work;
+        final long seq;
+        final long queuedAt = System.currentTimeMillis();
+        final CompletableFuture<CrawlerResult> future = new CompletableFuture<>();
+        LocalDateTime startTime;
+        boolean holding;
+        boolean yielded;
+        int yieldCount;
+
+        Ticket(String name, Priority priority, String countryCode, String crawlerName,
+               Callable<CrawlerResult> work, long seq) {
+            this.name = name;
+            this.priority = priority;
+            this.countryCode = countryCode;
+            this.crawlerName = crawlerName;
+            this.source = sourceOf(crawlerName);
+            this.work = work;
+            this.seq = seq;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", name);
+            map.put("priority", priority);
+            map.put("countryCode", countryCode);
+            map.put("crawlerName", crawlerName);
+            map.put("source", source);
+            map.put("waitingSeconds", startTime == null ? (System.currentTimeMillis() - queuedAt) / 1000 : null);
+            map.put("startTime", startTime);
+            map.put("yielded", yielded);
+            map.put("yieldCount", yieldCount);
+            return map;
+        }
+    }
+}
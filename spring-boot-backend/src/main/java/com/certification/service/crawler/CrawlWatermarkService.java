@@ -0,0 +1,226 @@
+package com.certification.service.crawler;
+
+import com.certification.entity.common.CrawlWatermark;
+import com.certification.repository.common.CrawlWatermarkRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 增量爬取水位线服务
+ * 水位线存放在 t_crawl_watermark（{@link CrawlWatermark#getCoveredUntil()}：该时间之前发布的数据都已抓取）：
+ * - 执行前把水位线（减去回溯天数）交给爬虫转换为数据源的日期过滤条件
+ * - 只有明确成功时才推进水位线：
+ *   执行成功（爬虫没有上报吞掉的错误、未被取消，结果文本也不像错误文本）、
+ *   适配器确认按日期范围完整抓取（{@link CrawlerResult#getDateWindowComplete()}）、没有失败记录。
+ *   本次没有抓到数据但满足以上条件时同样推进（数据源在该日期范围内确实没有新数据）
+ * - 执行被 maxRecords 截断时不能确定日期范围内的数据都已抓取：把日期窗口缩小一半（windowDays），
+ *   之后每次只抓取水位线起 windowDays 天内的数据，完整抓取后水位线推进到窗口结束日期，直到追上当前日期；
+ *   单日数据就超过 maxRecords 时水位线无法推进，需调大 maxRecords
+ *
+ * 水位线按任务区分（同一爬虫的不同任务关键词不同，不能共用），
+ * 非任务触发的执行按关键词参数的哈希区分；任务删除时删除其水位线。
+ *
+ * 爬取本身不在事务中执行，只有推进水位线时开启短事务。
+ * 爬虫通过 {@link CrawlerProgressContext} 执行，结果计数以爬虫逐批次上报的累计值为准。
+ */
+@Slf4j
+@Service
+public class CrawlWatermarkService {
+
+    @Autowired
+    private CrawlWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 执行爬虫，增量模式下自动应用并推进水位线
+     *
+     * @param executor 爬虫执行器
+     * @param params 爬取参数
+     * @return 执行结果
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CrawlerResult execute(ICrawlerExecutor executor, CrawlerParams params) {
+        if (!Boolean.TRUE.equals(params.getIncremental())) {
+            return CrawlerProgressContext.execute(executor, params);
+        }
+        if (!executor.supportsIncremental()) {
+            log.warn("爬虫 {} 不支持增量爬取，按普通模式执行", executor.getCrawlerName());
+            return CrawlerProgressContext.execute(executor, params);
+        }
+
+        String key = buildKey(executor, params);
+        LocalDateTime runStartTime = LocalDateTime.now();
+
+        Optional<CrawlWatermark> state = watermarkRepository.findByWatermarkKey(key);
+        LocalDateTime coveredUntil = state.map(CrawlWatermark::getCoveredUntil).orElse(null);
+        Integer windowDays = state.map(CrawlWatermark::getWindowDays).orElse(null);
+        LocalDate windowEnd = null;
+        if (coveredUntil != null) {
+            int overlapDays = params.getIncrementalOverlapDays() != null ? Math.max(params.getIncrementalOverlapDays(), 0) : 1;
+            LocalDate since = coveredUntil.toLocalDate().minusDays(overlapDays);
+            executor.applyWatermark(params, since);
+            if (windowDays != null && coveredUntil.toLocalDate().plusDays(windowDays).isBefore(runStartTime.toLocalDate())) {
+                windowEnd = coveredUntil.toLocalDate().plusDays(windowDays);
+                params.setDateTo(windowEnd.format(DateTimeFormatter.BASIC_ISO_DATE));
+                log.info("增量爬取 {}: 水位线 {}，分段抓取 {} 至 {} 的数据", key, coveredUntil, since, windowEnd);
+            } else {
+                log.info("增量爬取 {}: 水位线 {}，抓取 {} 之后的数据", key, coveredUntil, since);
+            }
+        } else {
+            log.info("增量爬取 {}: 尚无水位线，按任务参数执行首次全量爬取", key);
+        }
+
+        CrawlerResult result = CrawlerProgressContext.execute(executor, params);
+
+        if (!Boolean.TRUE.equals(result.getSuccess())) {
+            log.info("增量爬取 {} 执行失败，水位线保持不变", key);
+            return result;
+        }
+        if (Boolean.TRUE.equals(result.getFailureTextDetected())) {
+            // 爬虫把异常转换成了结果文本（如"爬取失败: ..."），结果按成功记录，但不能据此推进
+            log.info("增量爬取 {} 结果文本包含错误信息，水位线保持不变: {}", key, result.getMessage());
+            return result;
+        }
+        if (!Boolean.TRUE.equals(result.getDateWindowComplete())) {
+            // 适配器没有确认按日期范围完整抓取（例如按CCC号列查询时忽略了日期），不能据此推进
+            log.info("增量爬取 {} 未按水位线日期范围完整执行，水位线保持不变", key);
+            return result;
+        }
+        if (result.getFailedCount() != null && result.getFailedCount() > 0) {
+            log.info("增量爬取 {} 有 {} 条失败记录，水位线保持不变", key, result.getFailedCount());
+            return result;
+        }
+
+        int crawledCount = result.getCrawledCount() != null ? result.getCrawledCount() : 0;
+        Integer maxRecords = params.getMaxRecords();
+        if (maxRecords != null && maxRecords > 0 && crawledCount >= maxRecords) {
+            // 达到数量上限，日期范围内可能还有未抓取的数据：缩小窗口，下次从原水位线分段抓取
+            shrinkWindow(key, coveredUntil, windowEnd, runStartTime, maxRecords);
+            return result;
+        }
+
+        LocalDateTime newCoveredUntil;
+        Integer newWindowDays;
+        if (windowEnd != null) {
+            // 窗口内的数据已完整抓取，推进到窗口结束日期，窗口加倍以尽快追上当前日期
+            newCoveredUntil = windowEnd.plusDays(1).atStartOfDay();
+            newWindowDays = windowDays * 2;
+        } else {
+            newCoveredUntil = runStartTime;
+            newWindowDays = null;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                advance(key, executor, params, state.isPresent(), newCoveredUntil, newWindowDays, crawledCount));
+        return result;
+    }
+
+    /**
+     * 清除水位线，下次增量执行将重新全量爬取
+     */
+    @Transactional
+    public void reset(ICrawlerExecutor executor, CrawlerParams params) {
+        watermarkRepository.findByWatermarkKey(buildKey(executor, params)).ifPresent(watermarkRepository::delete);
+    }
+
+    /**
+     * 删除任务的水位线（任务删除时调用）
+     */
+    @Transactional
+    public void deleteForTask(Long taskId) {
+        int deleted = watermarkRepository.deleteByTaskId(taskId);
+        if (deleted > 0) {
+            log.info("删除任务 {} 的增量爬取水位线 {} 条", taskId, deleted);
+        }
+    }
+
+    /**
+     * 删除所有任务的水位线（清空任务配置时调用）
+     */
+    @Transactional
+    public void deleteAllForTasks() {
+        int deleted = watermarkRepository.deleteByTaskIdIsNotNull();
+        log.info("删除所有任务的增量爬取水位线 {} 条", deleted);
+    }
+
+    private void shrinkWindow(String key, LocalDateTime coveredUntil, LocalDate windowEnd,
+                              LocalDateTime runStartTime, int maxRecords) {
+        if (coveredUntil == null) {
+            // 首次全量爬取没有起始日期，无法分段，下次仍全量爬取
+            log.info("增量爬取 {} 首次执行达到maxRecords上限({})，尚不能建立水位线", key, maxRecords);
+            return;
+        }
+        LocalDate end = windowEnd != null ? windowEnd : runStartTime.toLocalDate();
+        long spanDays = ChronoUnit.DAYS.between(coveredUntil.toLocalDate(), end);
+        if (spanDays <= 1) {
+            log.warn("增量爬取 {} 单日数据超过maxRecords上限({})，水位线无法推进，请调大maxRecords", key, maxRecords);
+            return;
+        }
+        int newWindowDays = (int) Math.max(1, spanDays / 2);
+        transactionTemplate.executeWithoutResult(status ->
+                watermarkRepository.updateWindow(key, newWindowDays, LocalDateTime.now()));
+        log.info("增量爬取 {} 达到maxRecords上限({})，水位线保持 {}，下次分段抓取 {} 天", key, maxRecords, coveredUntil, newWindowDays);
+    }
+
+    private void advance(String key, ICrawlerExecutor executor, CrawlerParams params, boolean exists,
+                         LocalDateTime coveredUntil, Integer windowDays, int crawledCount) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!exists) {
+            CrawlWatermark watermark = new CrawlWatermark();
+            watermark.setWatermarkKey(key);
+            watermark.setCrawlerName(executor.getCrawlerName());
+            watermark.setTaskId(params.getTaskId());
+            watermark.setCoveredUntil(coveredUntil);
+            watermark.setWindowDays(windowDays);
+            watermark.setLastRunTime(now);
+            watermark.setLastCrawledCount(crawledCount);
+            watermark.setTotalCrawledCount((long) crawledCount);
+            watermark.setUpdatedTime(now);
+            watermarkRepository.save(watermark);
+        } else if (watermarkRepository.advance(key, coveredUntil, windowDays, now, crawledCount) == 0) {
+            log.info("增量爬取 {}: 水位线已被更新的执行推进，跳过", key);
+            return;
+        }
+        log.info("增量爬取 {}: 水位线推进到 {}", key, coveredUntil);
+    }
+
+    /**
+     * 水位线标识：任务执行用任务ID，其他执行用关键词参数哈希
+     */
+    private String buildKey(ICrawlerExecutor executor, CrawlerParams params) {
+        if (params.getTaskId() != null) {
+            return executor.getCrawlerName() + "#task-" + params.getTaskId();
+        }
+        String fingerprint = String.valueOf(params.getKeywords()) + "|"
+                + (params.getFieldKeywords() != null ? new TreeMap<>(params.getFieldKeywords()) : null) + "|"
+                + params.getSearchTerm() + "|" + params.getCustomSearch();
+        CRC32 crc = new CRC32();
+        crc.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+        return executor.getCrawlerName() + "#" + Long.toHexString(crc.getValue());
+    }
+}
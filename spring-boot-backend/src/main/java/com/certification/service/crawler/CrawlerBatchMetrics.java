@@ -0,0 +1,63 @@
+package com.certification.service.crawler;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 爬虫单个批次的指标
+ * 由 {@link com.certification.utils.CrawlerDuplicateDetector#recordBatch}、{@link com.certification.crawler.common.CrawlPipeline}
+ * 和 {@link CrawlerProgressContext#reportBatch} 在每个批次处理完成后上报给 {@link CrawlerProgressSink}；
+ * 请求数、下载字节数和请求耗时由 {@link CrawlerProgressContext} 按上一批次之后记录的HTTP请求填入
+ */
+@Data
+@Accessors(chain = true)
+public class CrawlerBatchMetrics {
+
+    /**
+     * 本批次获取的记录数
+     */
+    private int fetched;
+
+    /**
+     * 本批次保存（新增或内容变化）的记录数
+     */
+    private int saved;
+
+    /**
+     * 本批次跳过（重复或未变化）的记录数
+     */
+    private int skipped;
+
+    /**
+     * 本批次处理失败的记录数
+     */
+    private int failed;
+
+    /**
+     * 距上一批次上报的时间（毫秒），即本批次抓取、解析和入库的总耗时；第一个批次从开始执行计时
+     */
+    private long elapsedMs;
+
+    /**
+     * 本批次期间发出的HTTP请求数
+     */
+    private int requests;
+
+    /**
+     * 本批次期间下载的响应字节数
+     */
+    private long bytes;
+
+    /**
+     * 本批次期间HTTP请求的总耗时（毫秒），从发出请求到读完响应体
+     */
+    private long requestMs;
+
+    public static CrawlerBatchMetrics of(int fetched, int saved, int skipped, int failed) {
+        return new CrawlerBatchMetrics()
+                .setFetched(fetched)
+                .setSaved(saved)
+                .setSkipped(skipped)
+                .setFailed(failed);
+    }
+}
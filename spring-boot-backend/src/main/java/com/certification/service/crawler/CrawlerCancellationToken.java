@@ -0,0 +1,234 @@
+package com.certification.service.crawler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 爬虫取消令牌
+ * 爬虫开始执行后只能协作式停止：令牌被取消、超出时间预算或请求预算后，
+ * 爬虫在分页循环和等待时检查令牌并尽快结束，已抓取的数据照常入库。
+ *
+ * 检查点：
+ * - {@link com.certification.utils.CrawlerDuplicateDetector#recordBatch} 在令牌取消后返回"应停止"
+ * - {@link com.certification.crawler.common.CrawlPipeline} 的数据源在令牌取消后停止抓取
+ * - {@link #sleep(long)} 替代爬虫中的 Thread.sleep，令牌取消时立即抛出 InterruptedException，
+ *   爬虫捕获后调用 {@link #restoreInterrupt()}，取消时不设置中断标记，已抓取的数据仍可正常保存
+ * - {@link com.certification.crawler.common.HttpUtils} 等共享HTTP工具每次请求调用 {@link #recordRequest()}
+ *
+ * 令牌随 {@link CrawlerParams#setCancellationToken} 传入，由 {@link CrawlerProgressContext#execute} 绑定到执行线程，
+ * 爬虫内部通过 {@link #current()} 获取。
+ */
+@Slf4j
+public class CrawlerCancellationToken {
+
+    /**
+     * 不会被取消的令牌，未绑定时使用
+     */
+    public static final CrawlerCancellationToken NONE = new CrawlerCancellationToken(0, 0);
+
+    private static final ThreadLocal<CrawlerCancellationToken> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 截止时间（毫秒时间戳），0表示不限
+     */
+    private final long deadlineMillis;
+
+    /**
+     * 最大请求数，0表示不限
+     */
+    private final int maxRequests;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final Object monitor = new Object();
+
+    private volatile String cancelReason;
+
+    private CrawlerCancellationToken(long deadlineMillis, int maxRequests) {
+        this.deadlineMillis = deadlineMillis;
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * 创建令牌
+     *
+     * @param timeBudgetSeconds 时间预算（秒），为空或不大于0时不限
+     * @param requestBudget 请求预算，为空或不大于0时不限
+     */
+    public static CrawlerCancellationToken create(Integer timeBudgetSeconds, Integer requestBudget) {
+        long deadline = timeBudgetSeconds != null && timeBudgetSeconds > 0
+                ? System.currentTimeMillis() + timeBudgetSeconds * 1000L : 0;
+        int maxRequests = requestBudget != null && requestBudget > 0 ? requestBudget : 0;
+        return new CrawlerCancellationToken(deadline, maxRequests);
+    }
+
+    /**
+     * 取消，正在等待的爬虫线程立即被唤醒
+     *
+     * @param reason 取消原因
+     * @return 本次调用是否取消了令牌（已取消时返回false）
+     */
+    public boolean cancel(String reason) {
+        if (this == NONE) {
+            return false;
+        }
+        synchronized (monitor) {
+            if (cancelReason != null) {
+                return false;
+            }
+            cancelReason = reason != null ? reason : "已取消";
+            monitor.notifyAll();
+        }
+        log.info("爬虫任务取消: {}", cancelReason);
+        return true;
+    }
+
+    /**
+     * 是否已取消（包括超出时间预算）
+     */
+    public boolean isCancelled() {
+        if (cancelReason != null) {
+            return true;
+        }
+        if (deadlineMillis > 0 && System.currentTimeMillis() >= deadlineMillis) {
+            cancel("超出时间预算");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 取消原因，未取消时为null
+     */
+    public String getCancelReason() {
+        return isCancelled() ? cancelReason : null;
+    }
+
+    /**
+     * 记录一次请求，超出请求预算时取消令牌
+     *
+     * @return 是否还可以继续请求
+     */
+    public boolean recordRequest() {
+        if (this == NONE) {
+            return true;
+        }
+        int count = requests.incrementAndGet();
+        if (maxRequests > 0 && count > maxRequests) {
+            cancel("超出请求预算(" + maxRequests + "次)");
+        }
+        return !isCancelled();
+    }
+
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * 已取消时抛出 {@link CrawlerCancelledException}，用于没有自然停止出口的循环
+     */
+    public void checkpoint() {
+        if (isCancelled()) {
+            throw new CrawlerCancelledException(cancelReason);
+        }
+    }
+
+    /**
+     * 等待指定时间，令牌取消或到达截止时间时提前结束
+     *
+     * @throws InterruptedException 令牌已取消或线程被中断
+     */
+    public void await(long millis) throws InterruptedException {
+        if (millis <= 0) {
+            if (isCancelled()) {
+                throw new InterruptedException("爬虫任务已取消: " + cancelReason);
+            }
+            return;
+        }
+        long end = System.currentTimeMillis() + millis;
+        synchronized (monitor) {
+            while (true) {
+                if (isCancelled()) {
+                    throw new InterruptedException("爬虫任务已取消: " + cancelReason);
+                }
+                long now = System.currentTimeMillis();
+                long wait = end - now;
+                if (wait <= 0) {
+                    return;
+                }
+                if (deadlineMillis > 0) {
+                    // 到达截止时间时醒来，由 isCancelled 标记超时
+                    wait = Math.min(wait, Math.max(deadlineMillis - now, 1));
+                }
+                monitor.wait(wait);
+            }
+        }
+    }
+
+    // ==================== 线程绑定 ====================
+
+    /**
+     * 绑定当前线程的令牌
+     *
+     * @return 之前的令牌，结束时传给 {@link #restore(CrawlerCancellationToken)}
+     */
+    public static CrawlerCancellationToken bind(CrawlerCancellationToken token) {
+        CrawlerCancellationToken previous = CURRENT.get();
+        CURRENT.set(token);
+        return previous;
+    }
+
+    /**
+     * 恢复之前的令牌
+     */
+    public static void restore(CrawlerCancellationToken previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 当前线程的令牌，未绑定时返回 {@link #NONE}
+     */
+    public static CrawlerCancellationToken current() {
+        CrawlerCancellationToken token = CURRENT.get();
+        return token != null ? token : NONE;
+    }
+
+    /**
+     * 可取消的 Thread.sleep：当前线程的令牌取消时立即抛出 InterruptedException
+     * 等待前经过调度队列的让出检查点（{@link CrawlerProgressContext#yieldPoint()}）
+     */
+    public static void sleep(long millis) throws InterruptedException {
+        CrawlerProgressContext.yieldPoint();
+        CrawlerCancellationToken token = current();
+        if (token == NONE) {
+            Thread.sleep(millis);
+        } else {
+            token.await(millis);
+        }
+    }
+
+    /**
+     * 爬虫捕获 {@link #sleep(long)} 等等待抛出的 InterruptedException 后调用，替代 Thread.currentThread().interrupt()：
+     * 当前令牌已取消时不设置中断标记，爬虫跳出循环后保存已抓取数据时线程不处于中断状态
+     * （Druid获取连接可被中断，中断状态下保存会失败）；只有线程被真正中断时才恢复中断标记。
+     */
+    public static void restoreInterrupt() {
+        if (!current().isCancelled()) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 令牌已取消时由 {@link #checkpoint()} 抛出
+     */
+    public static class CrawlerCancelledException extends RuntimeException {
+        public CrawlerCancelledException(String reason) {
+            super("爬虫任务已取消: " + reason);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.certification.service.crawler;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.ToString;
 import lombok.experimental.Accessors;
 
 import java.util.HashMap;
@@ -58,6 +60,16 @@ public class CrawlerParams {
      */
     private Integer recentDays;
 
+    /**
+     * 是否增量爬取（根据上次成功爬取的水位线只抓取新数据）
+     */
+    private Boolean incremental = false;
+
+    /**
+     * 增量爬取时水位线回溯天数，用于覆盖数据源的发布延迟
+     */
+    private Integer incrementalOverlapDays = 1;
+
     /**
      * 搜索词（单个关键词）
      */
@@ -93,6 +105,31 @@ public class CrawlerParams {
      */
     private String extraParams;
 
+    /**
+     * 进度上报，爬虫每处理完一个批次上报获取、保存、跳过、失败数和耗时
+     * 执行时由 {@link CrawlerProgressContext#execute} 绑定到执行线程；不参与序列化，分片参数中不保存
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    private transient CrawlerProgressSink progressSink;
+
+    /**
+     * 时间预算（秒），超出后爬虫在下一个检查点停止，为空表示不限
+     */
+    private Integer timeBudgetSeconds;
+
+    /**
+     * 请求预算，经共享HTTP工具发出的请求超出后爬虫在下一个检查点停止，为空表示不限
+     */
+    private Integer requestBudget;
+
+    /**
+     * 取消令牌，为空时由 {@link CrawlerProgressContext#execute} 按时间和请求预算创建；不参与序列化
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    private transient CrawlerCancellationToken cancellationToken;
+
     /**
      * 构建器模式：设置关键词列表
      */
@@ -124,6 +161,14 @@ public class CrawlerParams {
         return this;
     }
 
+    /**
+     * 构建器模式：启用增量爬取
+     */
+    public CrawlerParams incremental() {
+        this.incremental = true;
+        return this;
+    }
+
     /**
      * 构建器模式：设置最大记录数和批次大小
      */
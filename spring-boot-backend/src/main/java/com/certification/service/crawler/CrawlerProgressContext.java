@@ -0,0 +1,268 @@
+package com.certification.service.crawler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 爬虫进度上下文
+ * 现有爬虫的内部方法不接收 CrawlerParams，执行期间把上报器绑定到当前线程，
+ * {@link com.certification.utils.CrawlerDuplicateDetector}、{@link com.certification.crawler.common.CrawlPipeline}
+ * 等公共组件通过 {@link #current()} 上报批次。
+ *
+ * 用法：
+ * <pre>
+ * CrawlerResult result = CrawlerProgressContext.execute(executor, params);
+ * </pre>
+ * 执行期间有批次上报时，结果中的爬取、保存、跳过、失败数以上报的累计值为准，
+ * 不再依赖 {@link CrawlerResult#fromString} 从结果文本中解析。
+ * 通过 {@link CrawlTaskDispatcher} 执行时，每个批次上报后和 {@link #yieldPoint()} 是低优先级任务让出执行名额的检查点。
+ * HTTP请求通过 {@link #recordResponse} 记录字节数和耗时，累计到下一个上报的批次中。
+ */
+@Slf4j
+public final class CrawlerProgressContext {
+
+    private static final ThreadLocal<CrawlerProgressSink> CURRENT = new ThreadLocal<>();
+
+    private CrawlerProgressContext() {
+    }
+
+    /**
+     * 绑定当前线程的上报器
+     *
+     * @return 之前的上报器，结束时传给 {@link #restore(CrawlerProgressSink)}
+     */
+    public static CrawlerProgressSink bind(CrawlerProgressSink sink) {
+        CrawlerProgressSink previous = CURRENT.get();
+        CURRENT.set(sink);
+        return previous;
+    }
+
+    /**
+     * 恢复之前的上报器
+     */
+    public static void restore(CrawlerProgressSink previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 当前线程的上报器，未绑定时返回 {@link CrawlerProgressSink#NONE}
+     */
+    public static CrawlerProgressSink current() {
+        CrawlerProgressSink sink = CURRENT.get();
+        return sink != null ? sink : CrawlerProgressSink.NONE;
+    }
+
+    /**
+     * 请求之间的让出检查点，由 {@link com.certification.crawler.common.HttpUtils} 在每次请求前、
+     * {@link CrawlerCancellationToken#sleep(long)} 在分页等待前调用：
+     * 调度队列中有更高优先级的任务在等待当前任务的名额时在这里让出，不必等到下一次批次上报
+     * （有些爬虫抓取完全部页面才入库上报）。不在调度线程中执行时不做任何事。
+     */
+    public static void yieldPoint() {
+        if (CURRENT.get() instanceof Totals totals && totals.yieldPoint != null) {
+            totals.yieldPoint.run();
+        }
+    }
+
+    /**
+     * 记录一次HTTP响应，累计到当前执行的下一个批次（{@link CrawlerBatchMetrics#getRequests()} 等）中；
+     * 由 {@link com.certification.crawler.common.HttpUtils#afterResponse} 调用，不在爬虫执行中时不做任何事
+     *
+     * @param bytes 响应体字节数
+     * @param latencyMs 从发出请求到读完响应体的耗时（毫秒）
+     */
+    public static void recordResponse(long bytes, long latencyMs) {
+        if (CURRENT.get() instanceof Totals totals) {
+            totals.recordResponse(bytes, latencyMs);
+        }
+    }
+
+    /**
+     * 上报一个批次，批次耗时按距上一批次上报（第一个批次从开始执行）的时间计算，
+     * 与 {@link com.certification.utils.CrawlerDuplicateDetector#recordBatch} 一致；
+     * 供自行判断重复、不使用公共组件的爬虫在入库循环中调用
+     */
+    public static void reportBatch(int fetched, int saved, int skipped, int failed) {
+        CrawlerProgressSink sink = current();
+        long elapsedMs = sink instanceof Totals totals ? totals.sinceLastBatchMs() : 0;
+        sink.onBatch(CrawlerBatchMetrics.of(fetched, saved, skipped, failed).setElapsedMs(elapsedMs));
+    }
+
+    /**
+     * 上报当前页码，供按页抓取的爬虫在每页抓取后调用
+     *
+     * @param currentPage 当前页（从1开始）
+     * @param totalPages 总页数，未知时为null
+     */
+    public static void reportPage(int currentPage, Integer totalPages) {
+        current().onPage(currentPage, totalPages);
+    }
+
+    /**
+     * 上报爬虫内部捕获后继续执行的错误，本次执行结果按失败处理（增量爬取不推进水位线，分片可重试）
+     */
+    public static void reportError(String message) {
+        current().onError(message);
+    }
+
+    /**
+     * 检查子步骤（如单个关键词的爬取）返回的结果文本，像失败文本时标记执行结果的
+     * {@link CrawlerResult#getFailureTextDetected()}（关键词启发式判断，不把执行按失败处理，增量爬取据此保持水位线）
+     *
+     * @return 原结果文本
+     */
+    public static String checkStep(String stepResult) {
+        if (CrawlerResult.isFailureMessage(stepResult) && CURRENT.get() instanceof Totals totals) {
+            totals.failureText = stepResult;
+        }
+        return stepResult;
+    }
+
+    /**
+     * 绑定参数中的上报器和取消令牌执行爬虫，并用上报的批次累计值修正结果中的计数
+     *
+     * @param executor 爬虫执行器
+     * @param params 爬取参数，progressSink 为空时只做累计；cancellationToken 为空时按预算创建
+     * @return 执行结果，执行期间令牌被取消时为失败结果
+     */
+    public static CrawlerResult execute(ICrawlerExecutor executor, CrawlerParams params) {
+        Totals totals = new Totals(params.getProgressSink(), CrawlTaskDispatcher.currentYieldPoint());
+        if (params.getCancellationToken() == null) {
+            params.setCancellationToken(CrawlerCancellationToken.create(params.getTimeBudgetSeconds(), params.getRequestBudget()));
+        }
+        CrawlerCancellationToken token = params.getCancellationToken();
+        CrawlerProgressSink previous = bind(totals);
+        CrawlerCancellationToken previousToken = CrawlerCancellationToken.bind(token);
+        CrawlerResult result;
+        try {
+            result = executor.execute(params);
+        } catch (CrawlerCancellationToken.CrawlerCancelledException e) {
+            result = CrawlerResult.failure(e.getMessage());
+        } finally {
+            restore(previous);
+            CrawlerCancellationToken.restore(previousToken);
+            if (token.isCancelled()) {
+                // 可取消的等待在取消时抛出InterruptedException，爬虫捕获后会重新设置中断标记，这里清除，避免影响线程后续的数据库操作
+                Thread.interrupted();
+            }
+        }
+        if (result != null && totals.batches.sum() > 0) {
+            log.info("爬虫 {} 批次上报: {} 批，获取 {} 条，保存 {} 条，跳过 {} 条，失败 {} 条，平均批次耗时 {}ms，请求 {} 次，下载 {} 字节",
+                    executor.getCrawlerName(), totals.batches.sum(), totals.fetched.sum(), totals.saved.sum(),
+                    totals.skipped.sum(), totals.failed.sum(), totals.elapsedMs.sum() / totals.batches.sum(),
+                    totals.requests.sum(), totals.bytes.sum());
+            result.setCrawledCount(totals.fetched.intValue());
+            result.setSavedCount(totals.saved.intValue());
+            result.setSkippedCount(totals.skipped.intValue());
+            result.setFailedCount(totals.failed.intValue());
+        }
+        if (result != null && totals.failureText != null) {
+            log.info("爬虫 {} 子步骤结果像错误文本: {}", executor.getCrawlerName(), totals.failureText);
+            result.setFailureTextDetected(true);
+        }
+        if (result != null && totals.errors.sum() > 0) {
+            // 爬虫内部吞掉的错误：部分数据可能没有抓取，按失败处理
+            log.warn("爬虫 {} 执行中有 {} 个错误，最后一个: {}", executor.getCrawlerName(), totals.errors.sum(), totals.lastError);
+            result.setSuccess(false);
+            result.setFailedCount((result.getFailedCount() != null ? result.getFailedCount() : 0) + totals.errors.intValue());
+            if (result.getErrorMessage() == null) {
+                result.setErrorMessage(totals.errors.sum() + " 个错误，最后一个: " + totals.lastError);
+            }
+        }
+        if (result != null && token.isCancelled()) {
+            // 取消或超出预算的执行只完成了一部分，按失败处理（不推进水位线，分片可重试）
+            log.info("爬虫 {} 已停止: {}", executor.getCrawlerName(), token.getCancelReason());
+            result.setSuccess(false);
+            result.setErrorMessage(token.getCancelReason());
+            result.setMessage("已停止（" + token.getCancelReason() + "）" + (result.getMessage() != null ? ": " + result.getMessage() : ""));
+        }
+        return result;
+    }
+
+    /**
+     * 累计批次计数并转发给调用方的上报器；上一批次之后记录的HTTP请求附加到下一个批次上
+     */
+    private static class Totals implements CrawlerProgressSink {
+        private final CrawlerProgressSink delegate;
+        private final Runnable yieldPoint;
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder fetched = new LongAdder();
+        private final LongAdder saved = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder elapsedMs = new LongAdder();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private volatile String lastError;
+        private volatile String failureText;
+        private final AtomicLong lastBatchMillis = new AtomicLong(System.currentTimeMillis());
+
+        /**
+         * 上一批次之后记录的请求：[请求数, 字节数, 耗时毫秒]
+         */
+        private final long[] pendingRequests = new long[3];
+
+        Totals(CrawlerProgressSink delegate, Runnable yieldPoint) {
+            this.delegate = delegate != null ? delegate : NONE;
+            this.yieldPoint = yieldPoint;
+        }
+
+        void recordResponse(long responseBytes, long latencyMs) {
+            synchronized (pendingRequests) {
+                pendingRequests[0]++;
+                pendingRequests[1] += responseBytes;
+                pendingRequests[2] += latencyMs;
+            }
+        }
+
+        long sinceLastBatchMs() {
+            long now = System.currentTimeMillis();
+            return Math.max(0, now - lastBatchMillis.getAndSet(now));
+        }
+
+        @Override
+        public void onBatch(CrawlerBatchMetrics batch) {
+            if (batch.getRequests() == 0) {
+                synchronized (pendingRequests) {
+                    batch.setRequests((int) pendingRequests[0])
+                            .setBytes(pendingRequests[1])
+                            .setRequestMs(pendingRequests[2]);
+                    Arrays.fill(pendingRequests, 0);
+                }
+            }
+            requests.add(batch.getRequests());
+            bytes.add(batch.getBytes());
+            lastBatchMillis.set(System.currentTimeMillis());
+            batches.increment();
+            fetched.add(batch.getFetched());
+            saved.add(batch.getSaved());
+            skipped.add(batch.getSkipped());
+            failed.add(batch.getFailed());
+            elapsedMs.add(batch.getElapsedMs());
+            delegate.onBatch(batch);
+            if (yieldPoint != null) {
+                yieldPoint.run();
+            }
+        }
+
+        @Override
+        public void onPage(int currentPage, Integer totalPages) {
+            delegate.onPage(currentPage, totalPages);
+        }
+
+        @Override
+        public void onError(String message) {
+            errors.increment();
+            lastError = message;
+            delegate.onError(message);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.certification.service.crawler;
+
+/**
+ * 爬虫进度上报接口
+ * 通过 {@link CrawlerParams#setProgressSink} 传入，爬虫内部方法不接收 CrawlerParams 时，
+ * 通过 {@link CrawlerProgressContext#current()} 获取当前线程绑定的上报器。
+ *
+ * 爬虫每处理完一个批次上报一次：使用 {@link com.certification.utils.CrawlerDuplicateDetector#recordBatch}
+ * 或 {@link com.certification.crawler.common.CrawlPipeline} 的爬虫由公共组件上报，
+ * 其他爬虫在入库循环中调用 {@link CrawlerProgressContext#reportBatch}；分页抓取的爬虫每抓取一页调用 {@link #onPage}。
+ *
+ * 实现需要线程安全：分片和流水线爬虫会从多个线程同时上报。
+ */
+@FunctionalInterface
+public interface CrawlerProgressSink {
+
+    /**
+     * 不做任何处理的上报器
+     */
+    CrawlerProgressSink NONE = batch -> { };
+
+    /**
+     * 上报一个批次
+     */
+    void onBatch(CrawlerBatchMetrics batch);
+
+    /**
+     * 上报当前页码
+     *
+     * @param currentPage 当前页（从1开始）
+     * @param totalPages 总页数，未知时为null
+     */
+    default void onPage(int currentPage, Integer totalPages) {
+    }
+
+    /**
+     * 上报爬虫内部捕获后继续执行的错误（如某个关键词的请求失败）
+     * 通过 {@link CrawlerProgressContext#execute} 执行时，有错误的执行结果按失败处理
+     */
+    default void onError(String message) {
+    }
+}
@@ -73,6 +73,30 @@ public class CrawlerResult {
      */
     private String detailData;
 
+    /**
+     * 适配器确认本次执行的所有查询都按参数中的日期范围（dateFrom/dateTo）过滤，没有忽略日期的查询分支。
+     * 增量爬取只在该标记为true时推进水位线，见 {@link CrawlWatermarkService}
+     */
+    private Boolean dateWindowComplete;
+
+    /**
+     * 结果文本（或子步骤的结果文本）像爬虫捕获异常后返回的错误文本。
+     * 这是按关键词判断的启发式标记，不影响 success，只有增量爬取据此保持水位线，见 {@link CrawlWatermarkService}
+     */
+    private Boolean failureTextDetected;
+
+    /**
+     * 结果文本中的失败标记（爬虫捕获异常后返回的错误文本）
+     */
+    private static final java.util.regex.Pattern FAILURE_PATTERN =
+            java.util.regex.Pattern.compile("失败|错误|❌|(?i:exception|\\berror\\b)");
+
+    /**
+     * 结果文本中的失败数量，如"失败: 3 条"
+     */
+    private static final java.util.regex.Pattern FAILED_COUNT_PATTERN =
+            java.util.regex.Pattern.compile("失败[:：]?\\s*(\\d+)");
+
     /**
      * 创建成功结果
      */
@@ -159,6 +183,8 @@ public class CrawlerResult {
         CrawlerResult result = new CrawlerResult();
         result.setSuccess(true);
         result.setMessage(resultString);
+        // 可能是爬虫内部捕获异常后返回的错误文本，只标记，是否按失败处理由调用方决定
+        result.setFailureTextDetected(isFailureMessage(resultString));
         
         // 尝试从字符串中提取数字信息
         // 例如: "保存成功：10条新记录，跳过重复：5条"
@@ -167,6 +193,9 @@ public class CrawlerResult {
                 "保存成功[:：]?\\s*(\\d+)\\s*条",
                 "新增[:：]?\\s*(\\d+)\\s*条",
                 "入库[:：]?\\s*(\\d+)\\s*条",
+                "总保存[:：]?\\s*(\\d+)",
+                "总共保存[:：]?\\s*(\\d+)",
+                "总计保存[:：]?\\s*(\\d+)",
                 "saved[:：]?\\s*(\\d+)",
                 "成功[:：]?\\s*(\\d+)"
             };
@@ -196,7 +225,12 @@ public class CrawlerResult {
                 }
             }
             
-            result.setCrawledCount(result.getSavedCount() + result.getSkippedCount());
+            java.util.regex.Matcher failed = FAILED_COUNT_PATTERN.matcher(resultString);
+            if (failed.find()) {
+                result.setFailedCount(Integer.parseInt(failed.group(1)));
+            }
+            
+            result.setCrawledCount(result.getSavedCount() + result.getSkippedCount() + result.getFailedCount());
             
         } catch (Exception e) {
             // 解析失败不影响结果
@@ -205,6 +239,18 @@ public class CrawlerResult {
         return result;
     }
 
+    /**
+     * 爬虫返回的结果文本是否表示失败（如"爬取失败: ..."、"❌ ..."）
+     * "失败: N 条"形式的数量统计不算失败文本，N大于0时计入失败数量
+     */
+    public static boolean isFailureMessage(String resultString) {
+        if (resultString == null) {
+            return false;
+        }
+        String withoutCounts = FAILED_COUNT_PATTERN.matcher(resultString).replaceAll("");
+        return FAILURE_PATTERN.matcher(withoutCounts).find();
+    }
+
     /**
      * 获取异常堆栈信息
      */
@@ -2,6 +2,7 @@ package com.certification.service.crawler;
 
 import com.certification.entity.UnifiedTaskConfig;
 import com.certification.repository.UnifiedTaskConfigRepository;
+import com.certification.service.cluster.TaskLeaseService;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +33,9 @@ public class DynamicTaskSchedulerService {
     @Autowired
     private TaskExecutionService taskExecutionService;
     
+    @Autowired
+    private TaskLeaseService taskLeaseService;
+    
     /**
      * 存储所有已调度的任务
      * Key: 任务ID, Value: ScheduledFuture对象
@@ -127,6 +131,7 @@ public class DynamicTaskSchedulerService {
     
     /**
      * 取消定时任务
+     * 只取消后续触发，已开始的执行通过 {@link TaskExecutionService#cancelRunning} 停止
      * 
      * @param taskId 任务ID
      */
@@ -153,10 +158,13 @@ public class DynamicTaskSchedulerService {
         // 取消调度
         cancelTask(taskId);
         
+        // 停止本实例正在进行的执行（爬虫在下一个检查点结束）
+        List<Long> stopped = taskExecutionService.cancelRunningByTask(taskId, "任务已暂停");
+        
         // 保存到暂停列表
         pausedTasks.put(taskId, task);
         
-        log.info("任务已暂停: ID={}, 名称={}", taskId, task.getTaskName());
+        log.info("任务已暂停: ID={}, 名称={}, 停止执行中的日志={}", taskId, task.getTaskName(), stopped);
     }
     
     /**
@@ -183,13 +191,17 @@ public class DynamicTaskSchedulerService {
     }
     
     /**
-     * 执行定时任务
+     * 执行定时任务（多实例部署时每次触发只在一个实例上执行）
      * 
      * @param taskId 任务ID
      */
     private void executeScheduledTask(Long taskId) {
         log.info("定时触发任务执行: ID={}", taskId);
         
+        taskLeaseService.runOnce("unified-task:" + taskId, () -> doExecuteScheduledTask(taskId));
+    }
+    
+    private void doExecuteScheduledTask(Long taskId) {
         try {
             UnifiedTaskConfig task = taskConfigRepository.findById(taskId).orElse(null);
             if (task == null) {
@@ -203,8 +215,8 @@ public class DynamicTaskSchedulerService {
                 return;
             }
             
-            // 调用执行服务
-            taskExecutionService.executeTask(task, false, "SCHEDULER");
+            // 经调度队列执行（增量任务优先于回填任务，手动触发的任务优先于定时任务）
+            taskExecutionService.dispatchTask(task, false, "SCHEDULER");
             
         } catch (Exception e) {
             log.error("定时任务执行失败: ID={}", taskId, e);
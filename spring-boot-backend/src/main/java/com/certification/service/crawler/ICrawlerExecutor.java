@@ -1,5 +1,8 @@
 package com.certification.service.crawler;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
 /**
  * 爬虫执行器统一接口
  * 所有爬虫适配器必须实现此接口，以提供统一的调用方式
@@ -58,6 +61,29 @@ public interface ICrawlerExecutor {
         return true;
     }
 
+    /**
+     * 是否支持增量爬取
+     * 支持的爬虫能把水位线日期转换为数据源自身的日期过滤条件
+     * 
+     * @return 是否支持增量爬取
+     */
+    default boolean supportsIncremental() {
+        return false;
+    }
+
+    /**
+     * 将增量水位线应用到爬取参数
+     * 默认转换为 dateFrom/dateTo（yyyyMMdd），由各爬虫映射到数据源的日期过滤字段
+     * 
+     * @param params 爬取参数
+     * @param since 水位线日期（含）
+     */
+    default void applyWatermark(CrawlerParams params, LocalDate since) {
+        params.setDateFrom(since.format(DateTimeFormatter.BASIC_ISO_DATE));
+        params.setDateTo(LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE));
+        params.setRecentDays(null);
+    }
+
     /**
      * 获取爬虫描述
      * 
@@ -32,6 +32,9 @@ public class ParamPresetService {
     
     @Autowired
     private DynamicTaskSchedulerService schedulerService;
+
+    @Autowired
+    private CrawlWatermarkService watermarkService;
     
     @Autowired
     private ObjectMapper objectMapper;
@@ -186,8 +189,9 @@ public class ParamPresetService {
         // 取消定时任务
         schedulerService.cancelTask(id);
         
-        // 删除配置
+        // 删除配置和增量爬取水位线
         taskConfigRepository.delete(config);
+        watermarkService.deleteForTask(id);
         
         log.info("参数预设删除成功: ID={}", id);
     }
@@ -214,8 +218,9 @@ public class ParamPresetService {
             }
         }
         
-        // 删除所有配置
+        // 删除所有配置和增量爬取水位线
         taskConfigRepository.deleteAll();
+        watermarkService.deleteAllForTasks();
         
         log.info("✅ 所有参数预设已清空");
     }
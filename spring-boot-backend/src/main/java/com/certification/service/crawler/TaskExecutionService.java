@@ -5,23 +5,39 @@ import com.certification.entity.UnifiedTaskLog;
 import com.certification.repository.UnifiedTaskConfigRepository;
 import com.certification.repository.UnifiedTaskLogRepository;
 import com.certification.service.crawler.schema.CrawlerSchemaRegistry;
+import com.certification.service.monitor.DbCallerContext;
+import com.certification.service.monitor.TaskProgressHub;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.net.InetAddress;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 任务执行服务
  * 负责执行爬虫任务、记录日志、更新统计
+ *
+ * 爬取可能持续很久（分页请求、限速等待），因此不在事务中执行：
+ * 执行日志和任务统计各自短事务提交，爬虫数据按批次由仓库方法提交，
+ * 数据库连接只在实际读写时占用。
+ * 执行开始、分片完成和结束时写入 {@link TaskProgressHub}，前端通过SSE获取实时进度。
+ * 每次执行持有一个 {@link CrawlerCancellationToken}（可配置 timeBudgetSeconds、requestBudget 参数），
+ * 可通过 {@link #cancelRunning} 停止本实例正在执行的任务。
  */
 @Slf4j
 @Service
@@ -42,6 +58,34 @@ public class TaskExecutionService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private CrawlWatermarkService watermarkService;
+    
+    @Autowired
+    private TaskShardService taskShardService;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private TaskProgressHub progressHub;
+    
+    @Autowired
+    private CrawlTaskDispatcher taskDispatcher;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    /**
+     * 本实例正在执行的任务（执行日志ID -> 执行信息）
+     */
+    private final Map<Long, RunningExecution> runningExecutions = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
     /**
      * 执行任务
      * 
@@ -50,7 +94,7 @@ public class TaskExecutionService {
      * @param triggeredBy 触发者
      * @return 执行结果
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CrawlerResult executeTask(UnifiedTaskConfig config, boolean isManual, String triggeredBy) {
         log.info("开始执行任务: ID={}, 名称={}, 爬虫={}, 手动触发={}", 
             config.getId(), config.getTaskName(), config.getCrawlerName(), isManual);
@@ -58,7 +102,11 @@ public class TaskExecutionService {
         // 1. 创建执行日志
         UnifiedTaskLog taskLog = createTaskLog(config, isManual, triggeredBy);
         taskLog = taskLogRepository.save(taskLog);
+        String progressKey = TaskProgressHub.crawlerKey(taskLog.getId());
+        progressHub.start(progressKey, TaskProgressHub.TYPE_CRAWLER, config.getTaskName(), config.getCrawlerName());
         
+        // SQL统计按爬虫和执行日志归类
+        DbCallerContext.Frame previousCaller = DbCallerContext.push("crawler:" + config.getCrawlerName(), taskLog.getId());
         try {
             // 2. 检查爬虫是否启用
             if (!crawlerRegistry.isCrawlerEnabled(config.getCrawlerName())) {
@@ -83,13 +131,25 @@ public class TaskExecutionService {
             crawlerParams.setTaskName(config.getTaskName());
             crawlerParams.setIsManual(isManual);
             crawlerParams.setTriggeredBy(triggeredBy);
+            crawlerParams.setProgressSink(progressHub.crawlerSink(taskLog.getId()));
+            if (crawlerParams.getMaxRecords() != null && crawlerParams.getMaxRecords() > 0) {
+                // maxRecords 是本次获取记录数的上限，作为预计总数计算完成比例和剩余时间
+                progressHub.setTotal(progressKey, crawlerParams.getMaxRecords());
+            }
+            crawlerParams.setCancellationToken(register(taskLog.getId(), config.getId(),
+                crawlerParams.getTimeBudgetSeconds(), crawlerParams.getRequestBudget()));
             
-            // 6. 执行爬取
-            CrawlerResult result = executor.execute(crawlerParams);
+            // 6. 执行爬取（增量模式下自动应用并推进水位线；配置了shardSize时按分片执行）
+            TaskShardService.ShardOptions shardOptions = TaskShardService.resolveOptions(params);
+            if (shardOptions != null) {
+                executor = taskShardService.wrap(executor, taskLog.getId(), shardOptions);
+            }
+            CrawlerResult result = watermarkService.execute(executor, crawlerParams);
             
             // 7. 更新日志
+            boolean cancelled = crawlerParams.getCancellationToken().isCancelled();
             taskLog.setEndTime(LocalDateTime.now());
-            taskLog.setStatus(result.getSuccess() ? "SUCCESS" : "FAILED");
+            taskLog.setStatus(result.getSuccess() ? "SUCCESS" : cancelled ? "CANCELLED" : "FAILED");
             taskLog.setCrawledCount(result.getCrawledCount() != null ? result.getCrawledCount() : 0);
             taskLog.setSavedCount(result.getSavedCount() != null ? result.getSavedCount() : 0);
             taskLog.setSkippedCount(result.getSkippedCount() != null ? result.getSkippedCount() : 0);
@@ -97,11 +157,10 @@ public class TaskExecutionService {
             taskLog.setResultMessage(result.getMessage());
             taskLog.calculateDuration();
             taskLogRepository.save(taskLog);
+            publishResult(progressKey, result, cancelled);
             
             // 8. 更新任务配置统计
-            config.updateExecutionStats(result.getSuccess(), result.getMessage());
-            config.setLastExecutionTime(LocalDateTime.now());
-            taskConfigRepository.save(config);
+            recordExecution(config, Boolean.TRUE.equals(result.getSuccess()), result.getMessage());
             
             log.info("任务执行完成: ID={}, 结果={}, 保存={}, 跳过={}", 
                 config.getId(), result.getSuccess() ? "成功" : "失败", 
@@ -118,14 +177,74 @@ public class TaskExecutionService {
             taskLog.setEndTime(LocalDateTime.now());
             taskLog.calculateDuration();
             taskLogRepository.save(taskLog);
+            progressHub.finish(progressKey, TaskProgressHub.STATUS_FAILED, "执行失败: " + e.getMessage());
             
             // 更新任务配置统计
-            config.updateExecutionStats(false, "执行失败: " + e.getMessage());
-            config.setLastExecutionTime(LocalDateTime.now());
-            taskConfigRepository.save(config);
+            recordExecution(config, false, "执行失败: " + e.getMessage());
             
             return CrawlerResult.failure("执行失败: " + e.getMessage(), e);
+        } finally {
+            runningExecutions.remove(taskLog.getId());
+            DbCallerContext.restore(previousCaller);
+        }
+    }
+    
+    /**
+     * 取消本实例正在执行的任务
+     * 爬虫在下一个检查点（批次结束、等待、请求前）停止，已抓取的数据照常保存，执行日志状态为 CANCELLED
+     * 
+     * @param logId 执行日志ID
+     * @param reason 取消原因
+     * @return 是否找到正在执行的任务并取消
+     */
+    public boolean cancelRunning(Long logId, String reason) {
+        RunningExecution execution = runningExecutions.get(logId);
+        if (execution == null) {
+            return false;
         }
+        log.info("取消任务执行: 日志ID={}, 任务ID={}, 原因={}", logId, execution.taskId, reason);
+        execution.token.cancel(reason);
+        return true;
+    }
+    
+    /**
+     * 取消指定任务在本实例正在执行的全部执行
+     * 
+     * @param taskId 任务ID
+     * @param reason 取消原因
+     * @return 被取消的执行日志ID
+     */
+    public List<Long> cancelRunningByTask(Long taskId, String reason) {
+        List<Long> cancelled = new ArrayList<>();
+        runningExecutions.forEach((logId, execution) -> {
+            if (taskId.equals(execution.taskId) && cancelRunning(logId, reason)) {
+                cancelled.add(logId);
+            }
+        });
+        return cancelled;
+    }
+    
+    /**
+     * 本实例正在执行的执行日志ID
+     */
+    public List<Long> getRunningLogIds() {
+        return new ArrayList<>(runningExecutions.keySet());
+    }
+    
+    /**
+     * 经调度队列执行任务：按优先级（手动 > 增量 > 回填）和国家、爬虫名额排队，等待执行结束
+     * 
+     * @param config 任务配置
+     * @param isManual 是否手动触发
+     * @param triggeredBy 触发者
+     * @return 执行结果
+     */
+    public CrawlerResult dispatchTask(UnifiedTaskConfig config, boolean isManual, String triggeredBy) {
+        CrawlerParams params = new CrawlerParams()
+            .setIncremental(Boolean.TRUE.equals(parseParams(config.getParameters()).get("incremental")));
+        return taskDispatcher.submitAndWait("task:" + config.getId() + " " + config.getTaskName(),
+            CrawlTaskDispatcher.priorityOf(isManual, params), config.getCountryCode(), config.getCrawlerName(),
+            () -> executeTask(config, isManual, triggeredBy));
     }
     
     /**
@@ -135,19 +254,22 @@ public class TaskExecutionService {
      * @param triggeredBy 触发者
      * @return 执行结果
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CrawlerResult triggerTask(Long taskId, String triggeredBy) {
         UnifiedTaskConfig config = taskConfigRepository.findById(taskId)
             .orElseThrow(() -> new IllegalArgumentException("任务不存在: " + taskId));
         
-        return executeTask(config, true, triggeredBy);
+        return dispatchTask(config, true, triggeredBy);
     }
     
     /**
      * 重试失败的任务
+     * 分片执行的任务只重新执行失败的分片，并更新原执行日志
      * 
      * @param logId 日志ID
      * @return 执行结果
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CrawlerResult retryFailedTask(Long logId) {
         UnifiedTaskLog log = taskLogRepository.findById(logId)
             .orElseThrow(() -> new IllegalArgumentException("日志不存在: " + logId));
@@ -155,7 +277,90 @@ public class TaskExecutionService {
         UnifiedTaskConfig config = taskConfigRepository.findById(log.getTaskId())
             .orElseThrow(() -> new IllegalArgumentException("任务不存在: " + log.getTaskId()));
         
-        return executeTask(config, true, "RETRY");
+        if (taskShardService.hasFailedShards(logId)) {
+            return taskDispatcher.submitAndWait("retry:" + logId + " " + config.getTaskName(), CrawlTaskDispatcher.Priority.MANUAL,
+                config.getCountryCode(), config.getCrawlerName(), () -> retryFailedShards(config, log));
+        }
+        
+        return dispatchTask(config, true, "RETRY");
+    }
+    
+    /**
+     * 重新执行失败的分片，汇总结果写回原执行日志
+     */
+    private CrawlerResult retryFailedShards(UnifiedTaskConfig config, UnifiedTaskLog taskLog) {
+        Map<String, Object> params = parseParams(config.getParameters());
+        TaskShardService.ShardOptions shardOptions = TaskShardService.resolveOptions(params);
+        int parallelism = shardOptions != null ? shardOptions.getParallelism() : 2;
+        CrawlerParams budget = convertToCrawlerParams(params, config);
+        
+        taskLog.setStatus("RUNNING");
+        taskLog.setTriggeredBy("RETRY");
+        taskLogRepository.save(taskLog);
+        String progressKey = TaskProgressHub.crawlerKey(taskLog.getId());
+        progressHub.start(progressKey, TaskProgressHub.TYPE_CRAWLER, config.getTaskName(), config.getCrawlerName());
+        
+        CrawlerResult result;
+        CrawlerCancellationToken token = register(taskLog.getId(), config.getId(), budget.getTimeBudgetSeconds(), budget.getRequestBudget());
+        DbCallerContext.Frame previousCaller = DbCallerContext.push("crawler:" + config.getCrawlerName(), taskLog.getId());
+        try {
+            result = taskShardService.retryFailedShards(taskLog.getId(), parallelism, token);
+        } finally {
+            runningExecutions.remove(taskLog.getId());
+            DbCallerContext.restore(previousCaller);
+        }
+        
+        boolean cancelled = token.isCancelled();
+        taskLog.setEndTime(LocalDateTime.now());
+        taskLog.setStatus(result.getSuccess() ? "SUCCESS" : cancelled ? "CANCELLED" : "FAILED");
+        taskLog.setCrawledCount(result.getCrawledCount() != null ? result.getCrawledCount() : 0);
+        taskLog.setSavedCount(result.getSavedCount() != null ? result.getSavedCount() : 0);
+        taskLog.setSkippedCount(result.getSkippedCount() != null ? result.getSkippedCount() : 0);
+        taskLog.setFailedCount(result.getFailedCount() != null ? result.getFailedCount() : 0);
+        taskLog.setResultMessage(result.getMessage());
+        taskLog.setErrorMessage(result.getErrorMessage());
+        taskLog.calculateDuration();
+        taskLogRepository.save(taskLog);
+        publishResult(progressKey, result, cancelled);
+        
+        recordExecution(config, Boolean.TRUE.equals(result.getSuccess()), result.getMessage());
+        
+        return result;
+    }
+    
+    /**
+     * 登记正在执行的任务，返回其取消令牌
+     */
+    private CrawlerCancellationToken register(Long logId, Long taskId, Integer timeBudgetSeconds, Integer requestBudget) {
+        CrawlerCancellationToken token = CrawlerCancellationToken.create(timeBudgetSeconds, requestBudget);
+        runningExecutions.put(logId, new RunningExecution(taskId, token));
+        return token;
+    }
+    
+    /**
+     * 用最终结果覆盖执行过程中的进度计数并结束进度
+     */
+    private void publishResult(String progressKey, CrawlerResult result, boolean cancelled) {
+        progressHub.setCounts(progressKey,
+            result.getCrawledCount() != null ? result.getCrawledCount() : 0,
+            result.getSavedCount() != null ? result.getSavedCount() : 0,
+            result.getSkippedCount() != null ? result.getSkippedCount() : 0,
+            result.getFailedCount() != null ? result.getFailedCount() : 0);
+        progressHub.finish(progressKey,
+            Boolean.TRUE.equals(result.getSuccess()) ? TaskProgressHub.STATUS_SUCCESS
+                : cancelled ? TaskProgressHub.STATUS_CANCELLED : TaskProgressHub.STATUS_FAILED,
+            result.getMessage());
+    }
+    
+    /**
+     * 记录任务执行统计
+     * 以条件更新在独立短事务中提交，不保存执行开始时读取的整条配置，避免覆盖执行期间的配置修改
+     */
+    private void recordExecution(UnifiedTaskConfig config, boolean success, String message) {
+        config.updateExecutionStats(success, message);
+        transactionTemplate.executeWithoutResult(status -> taskConfigRepository.recordExecution(
+            config.getId(), success ? 1 : 0, success ? 0 : 1,
+            config.getLastExecutionTime(), config.getLastExecutionStatus(), message));
     }
     
     /**
@@ -222,6 +427,16 @@ public class TaskExecutionService {
         crawlerParams.setDateFrom((String) params.get("dateFrom"));
         crawlerParams.setDateTo((String) params.get("dateTo"));
         crawlerParams.setRecentDays((Integer) params.get("recentDays"));
+        crawlerParams.setIncremental(Boolean.TRUE.equals(params.get("incremental")));
+        if (params.get("incrementalOverlapDays") instanceof Integer) {
+            crawlerParams.setIncrementalOverlapDays((Integer) params.get("incrementalOverlapDays"));
+        }
+        if (params.get("timeBudgetSeconds") instanceof Integer) {
+            crawlerParams.setTimeBudgetSeconds((Integer) params.get("timeBudgetSeconds"));
+        }
+        if (params.get("requestBudget") instanceof Integer) {
+            crawlerParams.setRequestBudget((Integer) params.get("requestBudget"));
+        }
         
         // 处理fieldKeywords参数
         Object fieldKeywordsObj = params.get("fieldKeywords");
@@ -243,5 +458,17 @@ public class TaskExecutionService {
         
         return crawlerParams;
     }
+    
+    /**
+     * 正在执行的任务
+     */
+    private static class RunningExecution {
+        private final Long taskId;
+        private final CrawlerCancellationToken token;
+        
+        RunningExecution(Long taskId, CrawlerCancellationToken token) {
+            this.taskId = taskId;
+            this.token = token;
+        }
+    }
 }
-
@@ -0,0 +1,649 @@
+package com.certification.service.crawler;
+
+import com.certification.entity.UnifiedTaskShard;
+import com.certification.repository.UnifiedTaskShardRepository;
+import com.certification.service.cluster.TaskLeaseService;
+import com.certification.service.monitor.DbCallerContext;
+import com.certification.service.monitor.TaskProgressHub;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 任务分片执行服务
+ * 关键词/编码列表较长的任务（如按TARIC编码、公司名称逐个检索的爬虫）拆分为多个分片：
+ * - 选取任务参数中最长的关键词列表，按 shardSize 切分，其他参数每个分片相同
+ * - 分片写入 t_unified_task_shard，由本实例的线程并行领取执行；
+ *   启用 app.cluster.shard-worker-enabled 的其他实例也会领取等待中的分片
+ * - maxRecords 按分片数均分，整个任务抓取的记录数不超过原 maxRecords（maxRecords 小于分片数时每个分片至少1条）
+ * - 分片的成败以 {@link CrawlerProgressContext#execute} 的结果为准：爬虫上报了吞掉的错误或被取消时为失败；失败后回到等待状态重试，超过 shardMaxAttempts 次标记为失败，不影响其他分片
+ * - 取消执行时尚未领取的分片标记为失败，正在执行的分片打上取消标记，
+ *   执行分片的实例在分片心跳中读取标记并取消本地令牌（其他实例的分片按分片参数中的时间/请求预算创建令牌）
+ * - 全部分片结束后汇总为一个结果，写入同一条执行日志；所有分片都完整覆盖了日期范围
+ *   （且未被各自的 maxRecords 截断）时汇总结果才标记 dateWindowComplete，水位线据此推进
+ *
+ * 任务参数：shardSize（每个分片的关键词数，未配置时不分片）、shardParallelism（本实例并行数，默认2）、
+ * shardMaxAttempts（每个分片最多执行次数，默认2）。
+ */
+@Slf4j
+@Service
+public class TaskShardService {
+
+    @Autowired
+    private UnifiedTaskShardRepository shardRepository;
+
+    @Autowired
+    private CrawlerRegistryService crawlerRegistry;
+
+    @Autowired
+    private TaskLeaseService taskLeaseService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TaskProgressHub progressHub;
+
+    @Value("${app.cluster.shard-worker-enabled:false}")
+    private boolean remoteWorkerEnabled;
+
+    @Value("${app.cluster.shard-threads:4}")
+    private int shardThreads;
+
+    @Value("${app.cluster.shard-stale-seconds:300}")
+    private long staleSeconds;
+
+    /**
+     * 本实例正在执行的分片ID -> 分片的取消令牌
+     */
+    private final Map<Long, CrawlerCancellationToken> runningShards = new ConcurrentHashMap<>();
+
+    private ExecutorService shardExecutor;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        shardExecutor = Executors.newFixedThreadPool(Math.max(1, shardThreads), r -> {
+            Thread t = new Thread(r, "task-shard-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // 分片状态独立提交，其他实例和协调线程才能及时看到
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shardExecutor.shutdownNow();
+    }
+
+    /**
+     * 分片选项，任务参数未配置 shardSize 时返回null
+     */
+    public static ShardOptions resolveOptions(Map<String, Object> params) {
+        if (!(params.get("shardSize") instanceof Integer) || (Integer) params.get("shardSize") <= 0) {
+            return null;
+        }
+        ShardOptions options = new ShardOptions();
+        options.shardSize = (Integer) params.get("shardSize");
+        if (params.get("shardParallelism") instanceof Integer) {
+            options.parallelism = Math.max(1, (Integer) params.get("shardParallelism"));
+        }
+        if (params.get("shardMaxAttempts") instanceof Integer) {
+            options.maxAttempts = Math.max(1, (Integer) params.get("shardMaxAttempts"));
+        }
+        return options;
+    }
+
+    /**
+     * 包装爬虫执行器：执行时按分片执行，结果写入指定的执行日志
+     * 水位线等其他逻辑仍作用于包装后的执行器，分片参数继承已应用水位线的日期范围
+     */
+    public ICrawlerExecutor wrap(ICrawlerExecutor executor, Long taskLogId, ShardOptions options) {
+        return new ShardedExecutor(executor, taskLogId, options);
+    }
+
+    /**
+     * 执行日志是否有失败的分片
+     */
+    public boolean hasFailedShards(Long taskLogId) {
+        return shardRepository.countByTaskLogIdAndStatus(taskLogId, UnifiedTaskShard.STATUS_FAILED) > 0;
+    }
+
+    /**
+     * 只重新执行失败的分片，返回整个执行日志的汇总结果
+     *
+     * @param token 取消令牌，取消后不再领取新的分片
+     */
+    public CrawlerResult retryFailedShards(Long taskLogId, int parallelism, CrawlerCancellationToken token) {
+        List<UnifiedTaskShard> failed = shardRepository.findByTaskLogIdAndStatusOrderByShardIndexAsc(
+                taskLogId, UnifiedTaskShard.STATUS_FAILED);
+        if (failed.isEmpty()) {
+            return aggregate(taskLogId);
+        }
+        ICrawlerExecutor executor = crawlerRegistry.getCrawler(failed.get(0).getCrawlerName());
+        if (executor == null) {
+            return CrawlerResult.failure("爬虫不存在: " + failed.get(0).getCrawlerName());
+        }
+        inNewTransaction(() -> shardRepository.resetFailed(taskLogId));
+        log.info("重试失败分片: 日志ID={}, 分片数={}", taskLogId, failed.size());
+        return awaitShards(executor, taskLogId, parallelism, token);
+    }
+
+    /**
+     * 查询执行日志的分片列表
+     */
+    public List<UnifiedTaskShard> getShards(Long taskLogId) {
+        return shardRepository.findByTaskLogIdOrderByShardIndexAsc(taskLogId);
+    }
+
+    /**
+     * 领取其他实例创建的等待中分片
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void pollPendingShards() {
+        if (!remoteWorkerEnabled) {
+            return;
+        }
+        try {
+            releaseStaleShards();
+            for (UnifiedTaskShard shard : shardRepository.findTop20ByStatusOrderByIdAsc(UnifiedTaskShard.STATUS_PENDING)) {
+                if (runningShards.size() >= shardThreads) {
+                    return;
+                }
+                ICrawlerExecutor executor = crawlerRegistry.getCrawler(shard.getCrawlerName());
+                if (executor == null || !claim(shard.getId())) {
+                    continue;
+                }
+                shardExecutor.execute(() -> runShard(executor, shard, null));
+            }
+        } catch (Exception e) {
+            log.warn("领取等待中的分片失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 续约本实例正在执行的分片，已请求取消的分片取消其本地令牌
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void heartbeat() {
+        if (runningShards.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> ids = new ArrayList<>(runningShards.keySet());
+            inNewTransaction(() -> shardRepository.heartbeat(ids, taskLeaseService.getNodeId(), LocalDateTime.now()));
+            for (Long shardId : shardRepository.findCancelRequested(ids)) {
+                CrawlerCancellationToken token = runningShards.get(shardId);
+                if (token != null && token.cancel("执行已取消")) {
+                    log.info("分片已请求取消，停止执行: 分片ID={}", shardId);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("分片心跳失败: {}", e.getMessage());
+        }
+    }
+
+    private CrawlerResult execute(ICrawlerExecutor executor, Long taskLogId, CrawlerParams params, ShardOptions options) {
+        ShardPlan plan = split(params, options.shardSize);
+        if (plan == null) {
+            return executor.execute(params);
+        }
+
+        List<UnifiedTaskShard> shards = new ArrayList<>();
+        for (int i = 0; i < plan.shards.size(); i++) {
+            UnifiedTaskShard shard = new UnifiedTaskShard();
+            shard.setTaskLogId(taskLogId);
+            shard.setTaskId(params.getTaskId());
+            shard.setCrawlerName(executor.getCrawlerName());
+            shard.setShardIndex(i);
+            shard.setShardCount(plan.shards.size());
+            shard.setShardField(plan.field);
+            shard.setShardParams(toJson(plan.shards.get(i)));
+            shard.setMaxAttempts(options.maxAttempts);
+            shards.add(shard);
+        }
+        inNewTransaction(() -> shardRepository.saveAll(shards));
+        log.info("任务按分片执行: 爬虫={}, 日志ID={}, 拆分字段={}, 分片数={}, 本实例并行数={}",
+                executor.getCrawlerName(), taskLogId, plan.field, shards.size(), options.parallelism);
+
+        CrawlerCancellationToken token = params.getCancellationToken() != null ? params.getCancellationToken() : CrawlerCancellationToken.NONE;
+        return awaitShards(executor, taskLogId, options.parallelism, token);
+    }
+
+    /**
+     * 本实例并行执行等待中的分片，直到所有分片结束（包括其他实例领取的分片）
+     * 令牌取消后各分片在下一个检查点停止，尚未领取的分片标记为失败
+     */
+    private CrawlerResult awaitShards(ICrawlerExecutor executor, Long taskLogId, int parallelism, CrawlerCancellationToken token) {
+        while (true) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(parallelism, shardThreads); i++) {
+                workers.add(shardExecutor.submit(() -> drain(executor, taskLogId, token)));
+            }
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return CrawlerResult.failure("等待分片执行被中断");
+                } catch (Exception e) {
+                    log.warn("分片执行线程异常: {}", e.getMessage());
+                }
+            }
+
+            if (token.isCancelled()) {
+                Integer cancelled = inNewTransaction(() -> shardRepository.failPending(taskLogId, token.getCancelReason(), LocalDateTime.now()));
+                Integer stopping = inNewTransaction(() -> shardRepository.requestCancelRunning(taskLogId));
+                log.info("分片执行已停止: 日志ID={}, 未执行分片={}, 通知停止的执行中分片={}, 原因={}",
+                        taskLogId, cancelled, stopping, token.getCancelReason());
+                return aggregate(taskLogId);
+            }
+
+            releaseStaleShards();
+            long pending = shardRepository.countByTaskLogIdAndStatus(taskLogId, UnifiedTaskShard.STATUS_PENDING);
+            long running = shardRepository.countByTaskLogIdAndStatus(taskLogId, UnifiedTaskShard.STATUS_RUNNING);
+            if (pending == 0 && running == 0) {
+                return aggregate(taskLogId);
+            }
+            if (pending == 0) {
+                // 其他实例仍在执行，等待其结束
+                try {
+                    token.await(2000);
+                } catch (InterruptedException e) {
+                    if (token.isCancelled()) {
+                        continue;
+                    }
+                    Thread.currentThread().interrupt();
+                    return CrawlerResult.failure("等待分片执行被中断");
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐个领取并执行执行日志中等待中的分片，没有可领取的分片时返回
+     */
+    private void drain(ICrawlerExecutor executor, Long taskLogId, CrawlerCancellationToken token) {
+        while (!token.isCancelled()) {
+            UnifiedTaskShard claimed = null;
+            for (UnifiedTaskShard shard : shardRepository.findByTaskLogIdAndStatusOrderByShardIndexAsc(
+                    taskLogId, UnifiedTaskShard.STATUS_PENDING)) {
+                if (claim(shard.getId())) {
+                    claimed = shard;
+                    break;
+                }
+            }
+            if (claimed == null) {
+                return;
+            }
+            runShard(executor, claimed, token);
+        }
+    }
+
+    private boolean claim(Long shardId) {
+        Integer updated = inNewTransaction(() -> shardRepository.claim(shardId, taskLeaseService.getNodeId(), LocalDateTime.now()));
+        if (updated != null && updated == 1) {
+            // 令牌在执行分片时确定
+            runningShards.put(shardId, CrawlerCancellationToken.NONE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param token 所属执行的取消令牌；为空时（其他实例创建的分片）按分片参数中的 timeBudgetSeconds、requestBudget 创建，
+     *              分片被请求取消时由 {@link #heartbeat} 取消
+     */
+    private void runShard(ICrawlerExecutor executor, UnifiedTaskShard shard, CrawlerCancellationToken token) {
+        CrawlerResult result;
+        CrawlerParams params = null;
+        String progressKey = TaskProgressHub.crawlerKey(shard.getTaskLogId());
+        CrawlerProgressSink progressSink = progressHub.crawlerSink(shard.getTaskLogId());
+        AtomicBoolean reported = new AtomicBoolean(false);
+        DbCallerContext.Frame previousCaller = DbCallerContext.push("crawler:" + shard.getCrawlerName(), shard.getTaskLogId());
+        try {
+            log.info("执行分片: 爬虫={}, 日志ID={}, 分片={}/{}", shard.getCrawlerName(), shard.getTaskLogId(),
+                    shard.getShardIndex() + 1, shard.getShardCount());
+            params = fromJson(shard.getShardParams());
+            CrawlerCancellationToken shardToken = token != null ? token
+                    : CrawlerCancellationToken.create(params.getTimeBudgetSeconds(), params.getRequestBudget());
+            runningShards.put(shard.getId(), shardToken);
+            params.setCancellationToken(shardToken);
+            params.setProgressSink(batch -> {
+                reported.set(true);
+                progressSink.onBatch(batch);
+            });
+            result = CrawlerProgressContext.execute(executor, params);
+            if (result == null) {
+                result = CrawlerResult.failure("爬虫未返回执行结果");
+            }
+        } catch (Exception e) {
+            log.error("分片执行异常: 日志ID={}, 分片={}", shard.getTaskLogId(), shard.getShardIndex(), e);
+            result = CrawlerResult.failure("分片执行异常: " + e.getMessage(), e);
+        }
+        try {
+            boolean cancelled = params != null && params.getCancellationToken() != null && params.getCancellationToken().isCancelled();
+            UnifiedTaskShard finished = finish(shard.getId(), result, cancelled, isWindowComplete(result, params));
+            if (finished != null && !UnifiedTaskShard.STATUS_PENDING.equals(finished.getStatus())) {
+                // 分片最终结束时累计进度（爬虫已逐批次上报的不再重复累计），当前页为已完成分片数
+                if (!reported.get()) {
+                    progressHub.addCounts(progressKey, valueOf(result.getCrawledCount()), valueOf(result.getSavedCount()),
+                            valueOf(result.getSkippedCount()), valueOf(result.getFailedCount()));
+                }
+                progressHub.advancePage(progressKey, shard.getShardCount());
+            }
+        } finally {
+            runningShards.remove(shard.getId());
+            DbCallerContext.restore(previousCaller);
+        }
+    }
+
+    /**
+     * 分片是否完整覆盖了日期范围：适配器确认按日期范围抓取，结果文本不像错误文本，且没有被分片的 maxRecords 截断
+     */
+    private static boolean isWindowComplete(CrawlerResult result, CrawlerParams params) {
+        if (!Boolean.TRUE.equals(result.getDateWindowComplete()) || Boolean.TRUE.equals(result.getFailureTextDetected())) {
+            return false;
+        }
+        Integer maxRecords = params != null ? params.getMaxRecords() : null;
+        return maxRecords == null || maxRecords <= 0 || valueOf(result.getCrawledCount()) < maxRecords;
+    }
+
+    /**
+     * 记录分片结果：成功、回到等待状态重试、或最终失败（被取消的分片不自动重试）
+     */
+    private UnifiedTaskShard finish(Long shardId, CrawlerResult result, boolean cancelled, boolean windowComplete) {
+        return inNewTransaction(() -> {
+            UnifiedTaskShard shard = shardRepository.findById(shardId).orElse(null);
+            if (shard == null || !taskLeaseService.getNodeId().equals(shard.getOwner())) {
+                log.warn("分片已被其他实例回收，忽略本次结果: 分片ID={}", shardId);
+                return null;
+            }
+            shard.setEndTime(LocalDateTime.now());
+            shard.setCrawledCount(valueOf(result.getCrawledCount()));
+            shard.setSavedCount(valueOf(result.getSavedCount()));
+            shard.setSkippedCount(valueOf(result.getSkippedCount()));
+            shard.setFailedCount(valueOf(result.getFailedCount()));
+            shard.setResultMessage(result.getMessage());
+            shard.setDateWindowComplete(windowComplete);
+
+            if (Boolean.TRUE.equals(result.getSuccess())) {
+                shard.setStatus(UnifiedTaskShard.STATUS_SUCCESS);
+                shard.setErrorMessage(null);
+            } else {
+                shard.setErrorMessage(result.getErrorMessage());
+                if (!cancelled && shard.getAttempts() < shard.getMaxAttempts()) {
+                    shard.setStatus(UnifiedTaskShard.STATUS_PENDING);
+                    shard.setOwner(null);
+                    log.warn("分片执行失败，等待重试: 日志ID={}, 分片={}, 第{}次, 错误={}",
+                            shard.getTaskLogId(), shard.getShardIndex(), shard.getAttempts(), result.getErrorMessage());
+                } else {
+                    shard.setStatus(UnifiedTaskShard.STATUS_FAILED);
+                    log.error("分片执行失败: 日志ID={}, 分片={}, 已执行{}次, 错误={}",
+                            shard.getTaskLogId(), shard.getShardIndex(), shard.getAttempts(), result.getErrorMessage());
+                }
+            }
+            return shardRepository.save(shard);
+        });
+    }
+
+    private void releaseStaleShards() {
+        Integer released = inNewTransaction(() -> shardRepository.releaseStale(LocalDateTime.now().minusSeconds(staleSeconds)));
+        if (released != null && released > 0) {
+            log.warn("回收{}个长时间没有心跳的分片", released);
+        }
+    }
+
+    /**
+     * 汇总执行日志的全部分片结果
+     */
+    private CrawlerResult aggregate(Long taskLogId) {
+        List<UnifiedTaskShard> shards = shardRepository.findByTaskLogIdOrderByShardIndexAsc(taskLogId);
+        CrawlerResult result = new CrawlerResult();
+        List<Integer> failedShards = new ArrayList<>();
+        int crawled = 0, saved = 0, skipped = 0, failed = 0;
+        boolean windowComplete = !shards.isEmpty();
+        for (UnifiedTaskShard shard : shards) {
+            windowComplete &= Boolean.TRUE.equals(shard.getDateWindowComplete());
+            crawled += valueOf(shard.getCrawledCount());
+            saved += valueOf(shard.getSavedCount());
+            skipped += valueOf(shard.getSkippedCount());
+            failed += valueOf(shard.getFailedCount());
+            if (!UnifiedTaskShard.STATUS_SUCCESS.equals(shard.getStatus())) {
+                failedShards.add(shard.getShardIndex());
+            }
+        }
+        result.setCrawledCount(crawled);
+        result.setSavedCount(saved);
+        result.setSkippedCount(skipped);
+        result.setFailedCount(failed);
+        result.setEndTime(LocalDateTime.now());
+        result.setSuccess(failedShards.isEmpty());
+        result.setDateWindowComplete(windowComplete);
+        result.setMessage(String.format("分片执行完成: 成功 %d/%d，爬取 %d 条，保存 %d 条，跳过 %d 条",
+                shards.size() - failedShards.size(), shards.size(), crawled, saved, skipped));
+        if (!failedShards.isEmpty()) {
+            result.setErrorMessage("失败分片: " + failedShards + "，可通过重试只重新执行失败分片");
+        }
+        return result;
+    }
+
+    /**
+     * 按最长的关键词列表切分参数，列表长度不超过 shardSize 时返回null
+     */
+    private ShardPlan split(CrawlerParams params, int shardSize) {
+        String field = null;
+        List<String> values = null;
+        if (params.getFieldKeywords() != null) {
+            for (Map.Entry<String, List<String>> entry : params.getFieldKeywords().entrySet()) {
+                if (entry.getValue() != null && (values == null || entry.getValue().size() > values.size())) {
+                    field = entry.getKey();
+                    values = entry.getValue();
+                }
+            }
+        }
+        if (params.getKeywords() != null && (values == null || params.getKeywords().size() > values.size())) {
+            field = null;
+            values = params.getKeywords();
+        }
+        if (values == null || values.size() <= shardSize) {
+            return null;
+        }
+
+        ShardPlan plan = new ShardPlan();
+        plan.field = field != null ? field : "keywords";
+        int shardCount = (values.size() + shardSize - 1) / shardSize;
+        Integer maxRecords = params.getMaxRecords();
+        for (int from = 0, index = 0; from < values.size(); from += shardSize, index++) {
+            List<String> chunk = new ArrayList<>(values.subList(from, Math.min(values.size(), from + shardSize)));
+            CrawlerParams shardParams = fromJson(toJson(params));
+            if (maxRecords != null && maxRecords > 0) {
+                // 均分 maxRecords，余数分给前面的分片
+                int share = maxRecords / shardCount + (index < maxRecords % shardCount ? 1 : 0);
+                shardParams.setMaxRecords(Math.max(1, share));
+            }
+            if (field != null) {
+                shardParams.getFieldKeywords().put(field, chunk);
+            } else {
+                shardParams.setKeywords(chunk);
+            }
+            plan.shards.add(shardParams);
+        }
+        return plan;
+    }
+
+    /**
+     * 分片参数序列化（只保留执行需要的字段）
+     */
+    private String toJson(CrawlerParams params) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("keywords", params.getKeywords());
+        map.put("fieldKeywords", params.getFieldKeywords());
+        map.put("maxRecords", params.getMaxRecords());
+        map.put("batchSize", params.getBatchSize());
+        map.put("dateFrom", params.getDateFrom());
+        map.put("dateTo", params.getDateTo());
+        map.put("recentDays", params.getRecentDays());
+        map.put("incremental", params.getIncremental());
+        map.put("incrementalOverlapDays", params.getIncrementalOverlapDays());
+        map.put("searchTerm", params.getSearchTerm());
+        map.put("customSearch", params.getCustomSearch());
+        map.put("taskId", params.getTaskId());
+        map.put("taskName", params.getTaskName());
+        map.put("isManual", params.getIsManual());
+        map.put("triggeredBy", params.getTriggeredBy());
+        map.put("extraParams", params.getExtraParams());
+        map.put("timeBudgetSeconds", params.getTimeBudgetSeconds());
+        map.put("requestBudget", params.getRequestBudget());
+        try {
+            return objectMapper.writeValueAsString(map);
+        } catch (Exception e) {
+            throw new IllegalStateException("分片参数序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CrawlerParams fromJson(String json) {
+        Map<String, Object> map;
+        try {
+            map = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("分片参数解析失败: " + e.getMessage(), e);
+        }
+        CrawlerParams params = new CrawlerParams();
+        params.setKeywords(map.get("keywords") != null ? new ArrayList<>((List<String>) map.get("keywords")) : null);
+        Map<String, List<String>> fieldKeywords = new HashMap<>();
+        if (map.get("fieldKeywords") instanceof Map) {
+            ((Map<String, List<String>>) map.get("fieldKeywords")).forEach((k, v) -> fieldKeywords.put(k, new ArrayList<>(v)));
+        }
+        params.setFieldKeywords(fieldKeywords);
+        params.setMaxRecords(toInteger(map.get("maxRecords"), -1));
+        params.setBatchSize(toInteger(map.get("batchSize"), 100));
+        params.setDateFrom((String) map.get("dateFrom"));
+        params.setDateTo((String) map.get("dateTo"));
+        params.setRecentDays(toInteger(map.get("recentDays"), null));
+        params.setIncremental(Boolean.TRUE.equals(map.get("incremental")));
+        params.setIncrementalOverlapDays(toInteger(map.get("incrementalOverlapDays"), 1));
+        params.setSearchTerm((String) map.get("searchTerm"));
+        params.setCustomSearch((String) map.get("customSearch"));
+        params.setTaskId(map.get("taskId") instanceof Number ? ((Number) map.get("taskId")).longValue() : null);
+        params.setTaskName((String) map.get("taskName"));
+        params.setIsManual(Boolean.TRUE.equals(map.get("isManual")));
+        params.setTriggeredBy((String) map.get("triggeredBy"));
+        params.setExtraParams((String) map.get("extraParams"));
+        params.setTimeBudgetSeconds(toInteger(map.get("timeBudgetSeconds"), null));
+        params.setRequestBudget(toInteger(map.get("requestBudget"), null));
+        return params;
+    }
+
+    private static Integer toInteger(Object value, Integer defaultValue) {
+        return value instanceof Number ? Integer.valueOf(((Number) value).intValue()) : defaultValue;
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private <T> T inNewTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    /**
+     * 分片选项
+     */
+    public static class ShardOptions {
+        private int shardSize;
+        private int parallelism = 2;
+        private int maxAttempts = 2;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+    }
+
+    private static class ShardPlan {
+        private String field;
+        private final List<CrawlerParams> shards = new ArrayList<>();
+    }
+
+    /**
+     * 分片执行器：对外表现为原爬虫，执行时按分片执行
+     */
+    private class ShardedExecutor implements ICrawlerExecutor {
+
+        private final ICrawlerExecutor delegate;
+        private final Long taskLogId;
+        private final ShardOptions options;
+
+        ShardedExecutor(ICrawlerExecutor delegate, Long taskLogId, ShardOptions options) {
+            this.delegate = delegate;
+            this.taskLogId = taskLogId;
+            this.options = options;
+        }
+
+        @Override
+        public String getCrawlerName() {
+            return delegate.getCrawlerName();
+        }
+
+        @Override
+        public String getCountryCode() {
+            return delegate.getCountryCode();
+        }
+
+        @Override
+        public String getCrawlerType() {
+            return delegate.getCrawlerType();
+        }
+
+        @Override
+        public CrawlerResult execute(CrawlerParams params) {
+            return TaskShardService.this.execute(delegate, taskLogId, params, options);
+        }
+
+        @Override
+        public boolean validate(CrawlerParams params) {
+            return delegate.validate(params);
+        }
+
+        @Override
+        public boolean supportsIncremental() {
+            return delegate.supportsIncremental();
+        }
+
+        @Override
+        public void applyWatermark(CrawlerParams params, LocalDate since) {
+            delegate.applyWatermark(params, since);
+        }
+    }
+}
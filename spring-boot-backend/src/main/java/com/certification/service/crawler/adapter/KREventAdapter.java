@@ -70,6 +70,7 @@ public class KREventAdapter implements ICrawlerExecutor {
             result.setMessage(resultMsg);
             
             return CrawlerResult.fromString(resultMsg)
+                .setDateWindowComplete(true)
                 .setStartTime(result.getStartTime())
                 .setEndTime(result.getEndTime())
                 .setDurationSeconds(result.getDurationSeconds());
@@ -81,6 +82,14 @@ public class KREventAdapter implements ICrawlerExecutor {
         }
     }
     
+    /**
+     * 水位线通过 dateFrom/dateTo 映射为报告日期 searchRptDateStart/searchRptDateEnd
+     */
+    @Override
+    public boolean supportsIncremental() {
+        return true;
+    }
+    
     @Override
     public boolean validate(CrawlerParams params) {
         if (params == null) return false;
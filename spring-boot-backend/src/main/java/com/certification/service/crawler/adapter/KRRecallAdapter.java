@@ -108,6 +108,7 @@ public class KRRecallAdapter implements ICrawlerExecutor {
             result.setMessage(resultMsg);
             
             return CrawlerResult.fromString(resultMsg)
+                .setDateWindowComplete(true)
                 .setStartTime(result.getStartTime())
                 .setEndTime(result.getEndTime())
                 .setDurationSeconds(result.getDurationSeconds());
@@ -119,6 +120,14 @@ public class KRRecallAdapter implements ICrawlerExecutor {
         }
     }
     
+    /**
+     * 水位线通过 dateFrom/dateTo 映射为回收计划提交日期 startPlanSbmsnDt/endPlanSbmsnDt
+     */
+    @Override
+    public boolean supportsIncremental() {
+        return true;
+    }
+    
     @Override
     public boolean validate(CrawlerParams params) {
         if (params == null) return false;
@@ -87,6 +87,8 @@ public class KRRegistrationAdapter implements ICrawlerExecutor {
             result.setMessage(resultMsg);
             
             return CrawlerResult.fromString(resultMsg)
+                // 只使用了第一个搜索关键词，其余关键词没有抓取
+                .setDateWindowComplete(searchQueries.size() <= 1)
                 .setStartTime(result.getStartTime())
                 .setEndTime(result.getEndTime())
                 .setDurationSeconds(result.getDurationSeconds());
@@ -98,6 +100,14 @@ public class KRRegistrationAdapter implements ICrawlerExecutor {
         }
     }
     
+    /**
+     * 水位线通过 dateFrom/dateTo 映射为产品许可日期 prdlPrmDtFrom/prdlPrmDtTo
+     */
+    @Override
+    public boolean supportsIncremental() {
+        return true;
+    }
+    
     @Override
     public boolean validate(CrawlerParams params) {
         if (params == null) return false;
@@ -38,6 +38,8 @@ public class TwCustomsCaseAdapter implements ICrawlerExecutor {
             int maxRecords = params.getMaxRecords() != null ? params.getMaxRecords() : 100;
             
             String resultMsg;
+            // 只有按日期范围查询时才使用了参数中的日期，CCC号列查询和默认查询不受水位线约束
+            boolean dateWindowApplied = false;
 
             if (!cccCodes.isEmpty()) {
                 // 按CCC号列搜索
@@ -64,6 +66,7 @@ public class TwCustomsCaseAdapter implements ICrawlerExecutor {
             } else if (params.getDateFrom() != null && params.getDateTo() != null) {
                 // 按日期范围搜索
                 resultMsg = crawler.crawlByDateRange(params.getDateFrom(), params.getDateTo(), maxRecords);
+                dateWindowApplied = true;
             } else {
                 // 默认：最近30天
                 String endDate = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
@@ -76,6 +79,7 @@ public class TwCustomsCaseAdapter implements ICrawlerExecutor {
             result.setMessage(resultMsg);
 
             return CrawlerResult.fromString(resultMsg)
+                    .setDateWindowComplete(dateWindowApplied)
                     .setStartTime(result.getStartTime())
                     .setEndTime(result.getEndTime())
                     .setDurationSeconds(result.getDurationSeconds());
@@ -111,5 +115,12 @@ public class TwCustomsCaseAdapter implements ICrawlerExecutor {
     public boolean isAvailable() {
         return true;
     }
-}
 
+    /**
+     * 水位线通过 dateFrom/dateTo 映射为按日期范围查询海关判例
+     */
+    @Override
+    public boolean supportsIncremental() {
+        return true;
+    }
+}
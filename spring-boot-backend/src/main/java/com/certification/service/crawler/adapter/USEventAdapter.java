@@ -72,6 +72,7 @@ public class USEventAdapter implements ICrawlerExecutor {
             
             // 从返回字符串解析结果
             return CrawlerResult.fromString(resultMsg)
+                .setDateWindowComplete(true)
                 .setStartTime(result.getStartTime())
                 .setEndTime(result.getEndTime())
                 .setDurationSeconds(result.getDurationSeconds());
@@ -83,6 +84,14 @@ public class USEventAdapter implements ICrawlerExecutor {
         }
     }
     
+    /**
+     * 水位线通过 dateFrom/dateTo 映射为openFDA date_received 范围过滤
+     */
+    @Override
+    public boolean supportsIncremental() {
+        return true;
+    }
+    
     @Override
     public boolean validate(CrawlerParams params) {
         if (params == null) return false;
@@ -71,6 +71,7 @@ public class USRecallAdapter implements ICrawlerExecutor {
             result.setMessage(resultMsg);
             
             return CrawlerResult.fromString(resultMsg)
+                .setDateWindowComplete(true)
                 .setStartTime(result.getStartTime())
                 .setEndTime(result.getEndTime())
                 .setDurationSeconds(result.getDurationSeconds());
@@ -82,6 +83,14 @@ public class USRecallAdapter implements ICrawlerExecutor {
         }
     }
     
+    /**
+     * 水位线通过 dateFrom/dateTo 映射为openFDA event_date_initiated 范围过滤
+     */
+    @Override
+    public boolean supportsIncremental() {
+        return true;
+    }
+    
     @Override
     public boolean validate(CrawlerParams params) {
         if (params == null) return false;
@@ -0,0 +1,314 @@
+package com.certification.service.crawler.delta;
+
+import com.certification.config.MedcertCrawlerConfig;
+import com.certification.entity.common.BaseDeviceEntity;
+import com.certification.service.ai.AIJudgeQueueService;
+import com.certification.service.cache.DataVersionService;
+import com.certification.utils.DeviceContentFingerprint;
+import jakarta.persistence.Column;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备数据JDBC批量写入
+ * 设备实体都使用IDENTITY主键，Hibernate会因此关闭JDBC批处理，saveAll 实际是逐行INSERT。
+ * 这里按实体的 @Table/@Column 映射拼接多行 INSERT ... ON DUPLICATE KEY UPDATE，
+ * 一条语句写入一批记录，用于回填等大批量写入场景。
+ *
+ * 说明：
+ * - 不经过Hibernate，实体回调和监听器不会自动触发，这里显式补上它们的效果：
+ *   实体（含子类，如 GuidanceDocument 的文档类型、数据源默认值）的 @PrePersist 方法在写入前逐条调用；
+ *   审计监听器（AuditingEntityListener）填充的创建/更新时间在这里设置
+ * - 重复记录走 ON DUPLICATE KEY UPDATE，不调用 @PreUpdate（设备实体的 @PreUpdate 目前没有逻辑），update_time 在语句中一并更新
+ * - 存在唯一键（如 k_number、report_number）的表，重复记录只更新数据源内容字段和爬取时间，
+ *   风险等级、关键词、备注等由系统或人工维护的字段保持不变；没有唯一键的表等同于普通插入
+ * - 写入后实体不会回填主键ID
+ * - 实体监听器 {@link com.certification.service.ai.AIJudgeEnqueueListener} 同样不会触发，
+ *   启用自动AI判断时按 id 大于写入前最大ID 且 create_time 等于本次写入时间找回新插入的记录，显式加入AI判断队列
+ * - 通过 medcert.crawler.batch.bulk-write-enabled 开启，未开启时回退到 Repository.saveAll
+ */
+@Slf4j
+@Service
+public class DeviceBulkWriter {
+
+    /**
+     * MySQL单条语句的占位符上限
+     */
+    private static final int MAX_PLACEHOLDERS = 65535;
+
+    /**
+     * 重复记录时保留原值的基类字段
+     */
+    private static final Set<String> PRESERVED_ON_DUPLICATE = Set.of(
+            "riskLevel", "keywords", "jdCountry", "dataSource", "remark", "dataStatus", "createTime");
+
+    private static final Map<Class<?>, TableMapping> MAPPINGS = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MedcertCrawlerConfig crawlerConfig;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private AIJudgeQueueService aiJudgeQueueService;
+
+    /**
+     * 是否启用JDBC批量写入
+     */
+    public boolean isEnabled() {
+        return crawlerConfig.getBatch().isBulkWriteEnabled();
+    }
+
+    /**
+     * 保存一批新记录：启用批量写入时走JDBC多行INSERT，否则回退到 saveAll
+     *
+     * @param repository 实体Repository（回退时使用）
+     * @param records 待保存的记录
+     * @return 写入的记录数
+     */
+    @Transactional
+    public <T extends BaseDeviceEntity> int saveAll(JpaRepository<T, ?> repository, List<T> records) {
+        if (records == null || records.isEmpty()) {
+            return 0;
+        }
+        if (!isEnabled()) {
+            repository.saveAll(records);
+            return records.size();
+        }
+        insert(records);
+        return records.size();
+    }
+
+    /**
+     * 多行 INSERT ... ON DUPLICATE KEY UPDATE 写入
+     *
+     * @param records 同一实体类型的记录
+     * @return 数据库返回的影响行数（MySQL：插入计1，重复记录更新计2）
+     */
+    @Transactional
+    public <T extends BaseDeviceEntity> int insert(List<T> records) {
+        if (records == null || records.isEmpty()) {
+            return 0;
+        }
+        TableMapping mapping = MAPPINGS.computeIfAbsent(records.get(0).getClass(), DeviceBulkWriter::buildMapping);
+
+        int columnCount = mapping.fields.size();
+        int rowsPerStatement = Math.max(1, Math.min(crawlerConfig.getBatch().getBulkWriteRows(), MAX_PLACEHOLDERS / columnCount));
+
+        // 与DATETIME列精度一致，写入后可按创建时间找回本次新插入的记录
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Long maxIdBefore = aiJudgeQueueService.isEnabled() ? maxId(mapping.table) : null;
+        int affected = 0;
+        for (int i = 0; i < records.size(); i += rowsPerStatement) {
+            List<T> chunk = records.subList(i, Math.min(i + rowsPerStatement, records.size()));
+            List<Object> args = new ArrayList<>(chunk.size() * columnCount);
+            for (T record : chunk) {
+                invokePrePersist(mapping, record);
+                applyAuditFields(record, now);
+                for (Field field : mapping.fields) {
+                    args.add(toJdbcValue(field, read(field, record)));
+                }
+            }
+            affected += jdbcTemplate.update(mapping.sql(chunk.size()), args.toArray());
+        }
+        // JdbcTemplate不经过Hibernate，需要自行通知统计缓存，并代替实体监听器加入AI判断队列
+        dataVersionService.bump(DataVersionService.DEVICE);
+        if (maxIdBefore != null) {
+            List<Long> insertedIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM " + mapping.table + " WHERE id > ? AND create_time = ?", Long.class, maxIdBefore, now);
+            aiJudgeQueueService.onInserted(records.get(0).getClass(), insertedIds);
+        }
+        log.debug("批量写入 {}: {} 条记录，影响行数 {}", mapping.table, records.size(), affected);
+        return affected;
+    }
+
+    private long maxId(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return maxId != null ? maxId : 0L;
+    }
+
+    /**
+     * 代替Hibernate调用实体的 @PrePersist 方法
+     */
+    private static void invokePrePersist(TableMapping mapping, BaseDeviceEntity record) {
+        if (mapping.prePersist == null) {
+            return;
+        }
+        try {
+            mapping.prePersist.invoke(record);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法调用 @PrePersist 方法: " + mapping.prePersist.getName(), e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new IllegalStateException("@PrePersist 方法执行失败: " + mapping.prePersist.getName(), cause);
+        }
+    }
+
+    /**
+     * 补齐审计监听器填充的字段，@PrePersist 没有设置的默认值同样在这里补齐
+     */
+    private void applyAuditFields(BaseDeviceEntity record, LocalDateTime now) {
+        if (record.getCrawlTime() == null) {
+            record.setCrawlTime(now);
+        }
+        if (record.getDataStatus() == null || record.getDataStatus().isBlank()) {
+            record.setDataStatus("ACTIVE");
+        }
+        if (record.getContentHash() == null) {
+            record.setContentHash(DeviceContentFingerprint.compute(record));
+        }
+        if (record.getCreateTime() == null) {
+            record.setCreateTime(now);
+        }
+        record.setUpdateTime(now);
+    }
+
+    private static Object toJdbcValue(Field field, Object value) {
+        if (value instanceof Enum<?>) {
+            Enumerated enumerated = field.getAnnotation(Enumerated.class);
+            return enumerated != null && enumerated.value() == EnumType.STRING
+                    ? ((Enum<?>) value).name()
+                    : ((Enum<?>) value).ordinal();
+        }
+        return value;
+    }
+
+    private static Object read(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法读取字段: " + field.getName(), e);
+        }
+    }
+
+    private static TableMapping buildMapping(Class<?> type) {
+        Table table = type.getAnnotation(Table.class);
+        if (table == null || table.name().isEmpty()) {
+            throw new IllegalArgumentException("实体缺少@Table映射: " + type.getName());
+        }
+
+        List<Field> fields = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        List<String> updateColumns = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                        || field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(Transient.class)) {
+                    continue;
+                }
+                Column column = field.getAnnotation(Column.class);
+                if (column != null && !column.insertable()) {
+                    continue;
+                }
+                String columnName = column != null && !column.name().isEmpty()
+                        ? column.name()
+                        : toSnakeCase(field.getName());
+                field.setAccessible(true);
+                fields.add(field);
+                columns.add(columnName);
+                if ((column == null || column.updatable()) && !PRESERVED_ON_DUPLICATE.contains(field.getName())) {
+                    updateColumns.add(columnName);
+                }
+            }
+        }
+        return new TableMapping(table.name(), fields, columns, updateColumns, findPrePersist(type));
+    }
+
+    /**
+     * 实体类层次中最下层的 @PrePersist 方法（子类覆盖父类的回调时调用子类方法，子类方法内部自行调用父类）
+     */
+    private static Method findPrePersist(Class<?> type) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PrePersist.class) && method.getParameterCount() == 0) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 与Spring Boot默认命名策略（CamelCaseToUnderscoresNamingStrategy）一致
+     */
+    private static String toSnakeCase(String name) {
+        StringBuilder sb = new StringBuilder(name.length() + 8);
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (Character.isUpperCase(ch) && i > 0) {
+                sb.append('_');
+            }
+            sb.append(Character.toLowerCase(ch));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 实体到表的列映射，按行数缓存生成的SQL
+     */
+    private static class TableMapping {
+        private final String table;
+        private final List<Field> fields;
+        private final Method prePersist;
+        private final String insertPrefix;
+        private final String rowPlaceholders;
+        private final String updateClause;
+        private final Map<Integer, String> sqlByRows = new ConcurrentHashMap<>();
+
+        TableMapping(String table, List<Field> fields, List<String> columns, List<String> updateColumns, Method prePersist) {
+            this.table = table;
+            this.fields = fields;
+            this.prePersist = prePersist;
+            this.insertPrefix = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+            this.rowPlaceholders = "(" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+            List<String> assignments = new ArrayList<>(updateColumns.size());
+            for (String column : updateColumns) {
+                assignments.add(column + " = VALUES(" + column + ")");
+            }
+            this.updateClause = " ON DUPLICATE KEY UPDATE " + String.join(", ", assignments);
+        }
+
+        String sql(int rows) {
+            return sqlByRows.computeIfAbsent(rows, n -> {
+                StringBuilder sb = new StringBuilder(insertPrefix.length() + n * (rowPlaceholders.length() + 2) + updateClause.length());
+                sb.append(insertPrefix);
+                for (int i = 0; i < n; i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(rowPlaceholders);
+                }
+                return sb.append(updateClause).toString();
+            });
+        }
+    }
+}
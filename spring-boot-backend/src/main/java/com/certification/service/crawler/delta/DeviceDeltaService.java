@@ -0,0 +1,164 @@
+package com.certification.service.crawler.delta;
+
+import com.certification.entity.common.BaseDeviceEntity;
+import com.certification.utils.DeviceContentFingerprint;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 设备数据增量写入服务
+ * 按业务主键批量查询已有记录并比较内容指纹：
+ * - 不存在的记录插入
+ * - 指纹相同的记录跳过
+ * - 指纹不同的记录只更新业务字段，并发布 {@link DeviceRecordChangedEvent}
+ *
+ * 风险等级、关键词、备注等由系统或人工维护的字段不会被覆盖。
+ * 变化事件由 {@link DeviceRecordChangeListener} 记录到 t_device_record_change，状态迁移的记录重新加入AI判断队列。
+ *
+ * 使用范围：FDA召回、注册、510K（US_recall_api、US_registration、US_510K）和FDA不良事件API（US_event_api），
+ * 这些数据源有稳定的业务主键（cfresId、注册号、K号、报告编号）。
+ * EU/KR/TW等爬虫的记录没有稳定主键（按标题或抓取时生成的编号去重），或把源站内容写入备注字段（TwEvent、TwCustomsCase），
+ * 仍按原有的存在即跳过/就地更新处理，不产生变化事件；这些爬虫有稳定主键后按同样方式接入 {@link #upsert}。
+ */
+@Slf4j
+@Service
+public class DeviceDeltaService {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DeviceBulkWriter bulkWriter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 增量写入一批记录
+     *
+     * @param repository 实体Repository
+     * @param incoming 本次抓取并转换后的记录
+     * @param naturalKey 业务主键提取函数（返回null的记录直接插入）
+     * @param existingLookup 按业务主键批量查询已有记录
+     * @return 写入结果
+     */
+    @Transactional
+    public <T extends BaseDeviceEntity, K> DeltaResult upsert(JpaRepository<T, ?> repository,
+                                                              List<T> incoming,
+                                                              Function<T, K> naturalKey,
+                                                              Function<Collection<K>, List<T>> existingLookup) {
+        DeltaResult result = new DeltaResult();
+        if (incoming == null || incoming.isEmpty()) {
+            return result;
+        }
+
+        Set<K> keys = new LinkedHashSet<>();
+        for (T record : incoming) {
+            K key = naturalKey.apply(record);
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+
+        Map<K, T> existingByKey = new HashMap<>();
+        if (!keys.isEmpty()) {
+            for (T existing : existingLookup.apply(keys)) {
+                existingByKey.putIfAbsent(naturalKey.apply(existing), existing);
+            }
+        }
+
+        List<T> inserts = new ArrayList<>();
+        List<T> updates = new ArrayList<>();
+        List<DeviceRecordChangedEvent> events = new ArrayList<>();
+        Set<K> seen = new LinkedHashSet<>();
+
+        for (T record : incoming) {
+            K key = naturalKey.apply(record);
+            String hash = DeviceContentFingerprint.compute(record);
+            record.setContentHash(hash);
+
+            if (key == null) {
+                inserts.add(record);
+                continue;
+            }
+            if (!seen.add(key)) {
+                // 同一批次内重复的业务主键
+                result.unchanged++;
+                continue;
+            }
+
+            T existing = existingByKey.get(key);
+            if (existing == null) {
+                inserts.add(record);
+                continue;
+            }
+
+            // 历史数据没有指纹时按当前内容计算
+            String existingHash = existing.getContentHash() != null
+                    ? existing.getContentHash()
+                    : DeviceContentFingerprint.compute(existing);
+            if (hash.equals(existingHash)) {
+                result.unchanged++;
+                continue;
+            }
+
+            Map<String, Object[]> changes = DeviceContentFingerprint.diff(existing, record);
+            DeviceContentFingerprint.copyContent(record, existing);
+            existing.setContentHash(hash);
+            existing.setCrawlTime(LocalDateTime.now());
+            updates.add(existing);
+            Object id = entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(existing);
+            events.add(new DeviceRecordChangedEvent(existing.getEntityType(), id, key, changes));
+        }
+
+        if (!inserts.isEmpty()) {
+            bulkWriter.saveAll(repository, inserts);
+        }
+        if (!updates.isEmpty()) {
+            repository.saveAll(updates);
+        }
+        result.inserted = inserts.size();
+        result.updated = updates.size();
+
+        for (DeviceRecordChangedEvent event : events) {
+            log.info("检测到{}内容变化: {} 字段 {}", event.getEntityType(), event.getNaturalKey(), event.getChanges().keySet());
+            eventPublisher.publishEvent(event);
+        }
+
+        return result;
+    }
+
+    /**
+     * 增量写入结果
+     */
+    @Getter
+    public static class DeltaResult {
+        private int inserted;
+        private int updated;
+        private int unchanged;
+
+        /**
+         * 新增或更新的记录数（用于连续重复批次检测）
+         */
+        public int getChanged() {
+            return inserted + updated;
+        }
+    }
+}
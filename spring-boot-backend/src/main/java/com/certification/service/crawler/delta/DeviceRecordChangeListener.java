@@ -0,0 +1,103 @@
+package com.certification.service.crawler.delta;
+
+import com.certification.entity.common.DeviceRecordChange;
+import com.certification.repository.common.DeviceRecordChangeRepository;
+import com.certification.service.ai.AIJudgeQueueService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 设备记录内容变化监听
+ * 处理 {@link DeviceDeltaService} 发布的 {@link DeviceRecordChangedEvent}（写入事务提交后执行，回滚的更新不会记录）：
+ * - 每次变化写入 t_device_record_change，字段名包含 status 的字段（recallStatus、guidanceStatus、statusCode等）
+ *   单独记录状态迁移前后的值
+ * - 状态发生迁移的记录重新加入AI判断队列（app.device-change.rejudge-on-any-change=true 时任何内容变化都重新判断）；
+ *   AI判断按次计费，仍需开启 crawler.device.enable-auto-ai
+ *
+ * 记录失败只打日志，不影响爬虫。
+ */
+@Slf4j
+@Component
+public class DeviceRecordChangeListener {
+
+    @Autowired
+    private DeviceRecordChangeRepository changeRepository;
+
+    @Autowired
+    private AIJudgeQueueService aiJudgeQueueService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.device-change.rejudge-on-any-change:false}")
+    private boolean rejudgeOnAnyChange;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        // 事件在爬虫事务提交后处理，变更日志需要独立事务才能提交
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRecordChanged(DeviceRecordChangedEvent event) {
+        try {
+            String moduleName = event.getEntityType().toLowerCase();
+            Long entityId = event.getEntityId() instanceof Number ? ((Number) event.getEntityId()).longValue() : null;
+
+            DeviceRecordChange change = new DeviceRecordChange();
+            change.setModuleName(moduleName);
+            change.setEntityId(entityId);
+            change.setNaturalKey(event.getNaturalKey() != null ? truncate(String.valueOf(event.getNaturalKey())) : null);
+            change.setChangedFields(objectMapper.writeValueAsString(event.getChanges()));
+            change.setDetectedTime(event.getDetectedTime());
+            for (Map.Entry<String, Object[]> entry : event.getChanges().entrySet()) {
+                if (entry.getKey().toLowerCase().contains("status")) {
+                    change.setStatusField(entry.getKey());
+                    change.setStatusFrom(toText(entry.getValue()[0]));
+                    change.setStatusTo(toText(entry.getValue()[1]));
+                    log.info("{}状态变化: {} {} {} -> {}", event.getEntityType(), event.getNaturalKey(),
+                            entry.getKey(), change.getStatusFrom(), change.getStatusTo());
+                    break;
+                }
+            }
+
+            boolean rejudge = entityId != null && aiJudgeQueueService.isEnabled()
+                    && AIJudgeQueueService.MODULES.contains(moduleName)
+                    && (rejudgeOnAnyChange || change.getStatusField() != null);
+            if (rejudge) {
+                aiJudgeQueueService.enqueue(moduleName, List.of(entityId));
+            }
+            change.setRejudgeQueued(rejudge);
+
+            transactionTemplate.executeWithoutResult(status -> changeRepository.save(change));
+        } catch (Exception e) {
+            log.warn("记录设备数据变化失败: {} {}, {}", event.getEntityType(), event.getNaturalKey(), e.getMessage());
+        }
+    }
+
+    private static String toText(Object value) {
+        return value != null ? truncate(String.valueOf(value)) : null;
+    }
+
+    private static String truncate(String value) {
+        return value.length() > 255 ? value.substring(0, 255) : value;
+    }
+}
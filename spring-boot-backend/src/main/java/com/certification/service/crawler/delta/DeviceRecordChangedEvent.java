@@ -0,0 +1,47 @@
+package com.certification.service.crawler.delta;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 设备记录内容变化事件
+ * 重复爬取发现已有记录的业务字段发生变化（如召回状态变为Terminated）并更新后发布
+ */
+@Getter
+public class DeviceRecordChangedEvent {
+
+    /**
+     * 实体类型（如 DeviceRecallRecord）
+     */
+    private final String entityType;
+
+    /**
+     * 记录主键
+     */
+    private final Object entityId;
+
+    /**
+     * 业务主键（如 cfresId）
+     */
+    private final Object naturalKey;
+
+    /**
+     * 变化的字段：字段名 -> [旧值, 新值]
+     */
+    private final Map<String, Object[]> changes;
+
+    /**
+     * 检测时间
+     */
+    private final LocalDateTime detectedTime;
+
+    public DeviceRecordChangedEvent(String entityType, Object entityId, Object naturalKey, Map<String, Object[]> changes) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.naturalKey = naturalKey;
+        this.changes = changes;
+        this.detectedTime = LocalDateTime.now();
+    }
+}
@@ -117,5 +117,15 @@ public class CrawlerParameterField {
             .setFieldLabel(fieldLabel)
             .setFieldType(FieldType.DATE_RANGE);
     }
+    
+    /**
+     * 创建布尔字段
+     */
+    public static CrawlerParameterField bool(String fieldName, String fieldLabel, Boolean defaultValue) {
+        return new CrawlerParameterField()
+            .setFieldName(fieldName)
+            .setFieldLabel(fieldLabel)
+            .setFieldType(FieldType.BOOLEAN)
+            .setDefaultValue(defaultValue);
+    }
 }
-
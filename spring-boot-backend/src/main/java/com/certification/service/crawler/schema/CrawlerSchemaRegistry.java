@@ -675,6 +675,9 @@ public class CrawlerSchemaRegistry {
         schema.addCommonField(CrawlerParameterField.text("dateTo", "结束日期")
             .setDescription("日期格式：yyyyMMdd")
             .setPlaceholder("20241231"));
+        
+        schema.addCommonField(CrawlerParameterField.bool("incremental", "增量爬取", false)
+            .setDescription("只爬取上次成功执行之后的新数据（仅支持日期过滤的爬虫生效）"));
     }
     
     /**
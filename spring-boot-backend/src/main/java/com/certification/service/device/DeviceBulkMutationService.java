@@ -0,0 +1,231 @@
+package com.certification.service.device;
+
+import com.certification.entity.common.BaseDeviceEntity;
+import com.certification.entity.common.CertNewsData.RiskLevel;
+import com.certification.entity.common.CustomsCase;
+import com.certification.entity.common.Device510K;
+import com.certification.entity.common.DeviceEventReport;
+import com.certification.entity.common.DeviceRecallRecord;
+import com.certification.entity.common.DeviceRegistrationRecord;
+import com.certification.entity.common.GuidanceDocument;
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.monitor.TaskProgressHub;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.Table;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 设备数据批量更新
+ * 管理端的"全部重置为中风险"、"全部设为普通数据"、"全部标记已查看"等操作不再 findAll 后逐条修改再 saveAll，
+ * 而是按主键区间分段执行 UPDATE ... WHERE id BETWEEN ? AND ?：
+ * - 每段 app.bulk-mutation.chunk-size 个ID，独立事务提交，锁持有时间短，不会把整张表读入内存
+ * - 每段提交后写入 {@link TaskProgressHub}（类型 BULK_UPDATE），前端可通过SSE查看进度
+ * - JdbcTemplate不经过Hibernate，整个操作结束后实际更新了数据时调用一次 {@link DataVersionService#bump(String)}
+ *   使统计缓存失效；没有更新任何数据（如页面加载时的自动标记已查看）时不失效缓存
+ *
+ * 说明：不触发实体监听器，update_time 在语句中一并设置；单张表失败时记录日志并继续处理其他表，
+ * 已提交的分段不回滚（操作均可重复执行）。
+ */
+@Slf4j
+@Service
+public class DeviceBulkMutationService {
+
+    /**
+     * 六类设备数据
+     */
+    public static final List<Class<? extends BaseDeviceEntity>> DEVICE_ENTITIES = List.of(
+            Device510K.class, DeviceEventReport.class, DeviceRecallRecord.class,
+            DeviceRegistrationRecord.class, GuidanceDocument.class, CustomsCase.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Autowired
+    private TaskProgressHub progressHub;
+
+    @Value("${app.bulk-mutation.chunk-size:5000}")
+    private int chunkSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong operationSequence = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // 每段独立提交，不加入调用方事务
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 全部数据重置为指定风险等级并清空关键词
+     *
+     * @return 实体类型 -> 更新条数
+     */
+    public Map<Class<?>, Integer> resetRiskLevel(RiskLevel riskLevel) {
+        return execute("重置为" + riskLevel.name() + "风险", DEVICE_ENTITIES,
+                "risk_level = ?, keywords = '[]'", null, riskLevel.name());
+    }
+
+    /**
+     * 取消全部新增标记
+     */
+    public Map<Class<?>, Integer> clearNewFlag() {
+        return execute("全部设为普通数据", DEVICE_ENTITIES,
+                "is_new = ?", "is_new = ?", false, true);
+    }
+
+    /**
+     * 全部新增数据标记为已查看
+     */
+    public Map<Class<?>, Integer> markNewDataViewed() {
+        return execute("新增数据标记已查看", DEVICE_ENTITIES,
+                "new_data_viewed = ?", "is_new = ? AND (new_data_viewed IS NULL OR new_data_viewed = ?)", true, true, false);
+    }
+
+    /**
+     * 已查看的新增数据取消新增标记
+     */
+    public Map<Class<?>, Integer> clearViewedNewFlag() {
+        return execute("清理已查看新增标记", DEVICE_ENTITIES,
+                "is_new = ?", "is_new = ? AND new_data_viewed = ?", false, true, true);
+    }
+
+    /**
+     * 按主键区间分段更新多张表
+     *
+     * @param operation 操作名称，用于日志和进度
+     * @param entityClasses 实体类型（按 @Table 取表名）
+     * @param setClause SET 子句（不含 update_time）
+     * @param condition 附加WHERE条件，为空时更新全部
+     * @param args SET 子句和附加条件中的参数，按出现顺序
+     * @return 实体类型 -> 更新条数，失败的表为已提交分段的条数
+     */
+    public Map<Class<?>, Integer> execute(String operation, List<Class<? extends BaseDeviceEntity>> entityClasses,
+                                          String setClause, String condition, Object... args) {
+        String progressKey = TaskProgressHub.bulkUpdateKey(System.currentTimeMillis() + "-" + operationSequence.incrementAndGet());
+        progressHub.start(progressKey, TaskProgressHub.TYPE_BULK_UPDATE, operation, "device");
+        long startTime = System.currentTimeMillis();
+        Timestamp updateTime = Timestamp.valueOf(LocalDateTime.now());
+        int setParams = (int) setClause.chars().filter(c -> c == '?').count();
+        int step = Math.max(1, chunkSize);
+        List<String> failedTables = new ArrayList<>();
+
+        // 先取各表主键范围，进度总数按ID跨度计算
+        Map<Class<?>, long[]> ranges = new LinkedHashMap<>();
+        long total = 0;
+        for (Class<?> entityClass : entityClasses) {
+            long[] range = null;
+            try {
+                range = idRange(tableName(entityClass));
+            } catch (Exception e) {
+                log.error("{} - 获取表 {} 主键范围失败: {}", operation, tableName(entityClass), e.getMessage());
+                failedTables.add(tableName(entityClass));
+            }
+            ranges.put(entityClass, range);
+            if (range != null) {
+                total += range[1] - range[0] + 1;
+            }
+        }
+        progressHub.setTotal(progressKey, total);
+
+        Map<Class<?>, Integer> result = new LinkedHashMap<>();
+        long scanned = 0;
+        long updated = 0;
+        for (Map.Entry<Class<?>, long[]> entry : ranges.entrySet()) {
+            String table = tableName(entry.getKey());
+            long[] range = entry.getValue();
+            int count = 0;
+            if (range != null) {
+                progressHub.setMessage(progressKey, "正在更新 " + table);
+                String sql = "UPDATE " + table + " SET " + setClause + ", update_time = ? WHERE id BETWEEN ? AND ?"
+                        + (condition != null ? " AND (" + condition + ")" : "");
+                try {
+                    for (long from = range[0]; from <= range[1]; from += step) {
+                        long to = Math.min(from + step - 1, range[1]);
+                        Object[] params = chunkParams(args, setParams, updateTime, from, to);
+                        Integer rows = transactionTemplate.execute(status -> jdbcTemplate.update(sql, params));
+                        count += rows != null ? rows : 0;
+                        scanned += to - from + 1;
+                        progressHub.setCounts(progressKey, scanned, updated + count, 0, failedTables.size());
+                    }
+                } catch (Exception e) {
+                    log.error("{} - 更新表 {} 失败，已更新 {} 条: {}", operation, table, count, e.getMessage());
+                    failedTables.add(table);
+                }
+            }
+            updated += count;
+            result.put(entry.getKey(), count);
+            log.info("{} - {}: 更新 {} 条", operation, table, count);
+        }
+
+        if (updated > 0) {
+            dataVersionService.bump(DataVersionService.DEVICE);
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        progressHub.setCounts(progressKey, total, updated, 0, failedTables.size());
+        if (failedTables.isEmpty()) {
+            progressHub.finish(progressKey, TaskProgressHub.STATUS_SUCCESS, "更新 " + updated + " 条，耗时 " + elapsed + "ms");
+        } else {
+            progressHub.finish(progressKey, TaskProgressHub.STATUS_FAILED, "以下表更新失败: " + String.join(", ", failedTables));
+        }
+        log.info("{}完成: 共更新 {} 条，耗时 {}ms", operation, updated, elapsed);
+        return result;
+    }
+
+    /**
+     * 单段语句的参数：SET 参数、update_time、区间起止、附加条件参数
+     */
+    private static Object[] chunkParams(Object[] args, int setParams, Timestamp updateTime, long from, long to) {
+        Object[] params = new Object[args.length + 3];
+        System.arraycopy(args, 0, params, 0, setParams);
+        params[setParams] = updateTime;
+        params[setParams + 1] = from;
+        params[setParams + 2] = to;
+        System.arraycopy(args, setParams, params, setParams + 3, args.length - setParams);
+        return params;
+    }
+
+    /**
+     * 表的主键范围 [最小ID, 最大ID]，空表返回null
+     */
+    private long[] idRange(String table) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM " + table);
+        Object min = row.get("min_id");
+        Object max = row.get("max_id");
+        if (min == null || max == null) {
+            return null;
+        }
+        return new long[]{((Number) min).longValue(), ((Number) max).longValue()};
+    }
+
+    private static String tableName(Class<?> entityClass) {
+        Table table = entityClass.getAnnotation(Table.class);
+        if (table == null || table.name().isEmpty()) {
+            throw new IllegalArgumentException(entityClass.getSimpleName() + " 没有 @Table 表名");
+        }
+        return table.name();
+    }
+}
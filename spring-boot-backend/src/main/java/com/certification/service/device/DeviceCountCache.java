@@ -0,0 +1,165 @@
+package com.certification.service.device;
+
+import com.certification.service.cache.DataVersionService;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Table;
+import jakarta.persistence.TypedQuery;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 设备数据总数缓存
+ * 列表接口不再每次请求都执行 COUNT(*)：
+ * - 命中缓存直接返回，过期或设备数据版本（{@link DataVersionService#DEVICE}）变化后先返回旧值，同时在后台重新统计；
+ *   新增、删除、批量写入都会递增版本号，写入后的下一次查询即触发重新统计，不必等到过期
+ * - 首次查询无国家过滤时使用 information_schema 的估算行数，后台再统计精确值
+ * - 首次查询带国家过滤时同步统计一次
+ */
+@Slf4j
+@Component
+public class DeviceCountCache {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataVersionService dataVersionService;
+
+    @Value("${device.count-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private final Map<String, CountSnapshot> cache = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "device-count-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 获取记录总数
+     *
+     * @param entityClass 实体类型
+     * @param countryCode 国家代码（为空表示全部）
+     */
+    public CountSnapshot get(Class<?> entityClass, String countryCode) {
+        String key = entityClass.getSimpleName() + "|" + (countryCode != null ? countryCode : "");
+        String version = dataVersionService.version(DataVersionService.DEVICE);
+        CountSnapshot cached = cache.get(key);
+        if (cached != null) {
+            if (cached.isApproximate() || cached.isOlderThan(ttlSeconds) || !version.equals(cached.getVersion())) {
+                refreshAsync(key, entityClass, countryCode);
+            }
+            return cached;
+        }
+
+        if (countryCode == null) {
+            Long estimate = estimateRows(entityClass);
+            if (estimate != null) {
+                CountSnapshot snapshot = new CountSnapshot(estimate, true, version);
+                cache.put(key, snapshot);
+                refreshAsync(key, entityClass, null);
+                return snapshot;
+            }
+        }
+
+        CountSnapshot snapshot = new CountSnapshot(countExact(entityClass, countryCode), false, version);
+        cache.put(key, snapshot);
+        return snapshot;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void refreshAsync(String key, Class<?> entityClass, String countryCode) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // 统计前取版本号，统计期间有写入时下一次查询会再次刷新
+                    String version = dataVersionService.version(DataVersionService.DEVICE);
+                    cache.put(key, new CountSnapshot(countExact(entityClass, countryCode), false, version));
+                } catch (Exception e) {
+                    log.warn("刷新{}记录总数失败: {}", entityClass.getSimpleName(), e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (Exception e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private long countExact(Class<?> entityClass, String countryCode) {
+        String jpql = "SELECT COUNT(e) FROM " + entityClass.getSimpleName() + " e"
+                + (countryCode != null ? " WHERE e.jdCountry = :country" : "");
+        TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
+        if (countryCode != null) {
+            query.setParameter("country", countryCode);
+        }
+        return query.getSingleResult();
+    }
+
+    /**
+     * InnoDB统计信息中的估算行数，不扫描数据
+     */
+    private Long estimateRows(Class<?> entityClass) {
+        Table table = entityClass.getAnnotation(Table.class);
+        if (table == null) {
+            return null;
+        }
+        try {
+            Object rows = entityManager.createNativeQuery(
+                            "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?1")
+                    .setParameter(1, table.name())
+                    .getSingleResult();
+            return rows instanceof Number ? ((Number) rows).longValue() : null;
+        } catch (Exception e) {
+            log.debug("获取{}估算行数失败: {}", table.name(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 总数快照
+     */
+    @Getter
+    public static class CountSnapshot {
+        private final long count;
+        private final boolean approximate;
+        private final LocalDateTime refreshedTime;
+
+        /**
+         * 统计时的设备数据版本号
+         */
+        private final String version;
+
+        CountSnapshot(long count, boolean approximate, String version) {
+            this.count = count;
+            this.approximate = approximate;
+            this.version = version;
+            this.refreshedTime = LocalDateTime.now();
+        }
+
+        boolean isOlderThan(long seconds) {
+            return refreshedTime.isBefore(LocalDateTime.now().minusSeconds(seconds));
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.certification.service.device;
 import com.certification.entity.common.*;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -10,6 +13,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -43,6 +47,29 @@ public class DeviceDataSearchService {
     @Autowired
     private FDAGuidanceDocumentRepository guidanceDocumentRepository;
 
+    @Autowired
+    private DeviceCountCache countCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 游标分页单页最大条数
+     */
+    private static final int MAX_SCROLL_SIZE = 200;
+
+    /**
+     * 游标分页支持的实体类型
+     */
+    private static final Map<String, Class<? extends BaseDeviceEntity>> ENTITY_CLASSES = Map.of(
+            "DeviceEventReport", DeviceEventReport.class,
+            "DeviceRegistrationRecord", DeviceRegistrationRecord.class,
+            "DeviceRecallRecord", DeviceRecallRecord.class,
+            "Device510K", Device510K.class,
+            "CustomsCase", CustomsCase.class,
+            "GuidanceDocument", GuidanceDocument.class
+    );
+
     /**
      * 关键词搜索
      * 支持多实体类型、黑名单关键词过滤、搜索模式选择
@@ -402,6 +429,87 @@ public class DeviceDataSearchService {
         }
     }
 
+    /**
+     * 游标分页（keyset）获取设备记录
+     * 按ID倒序，用上一页最后一条记录的ID作为游标，翻到多深都只扫描一页数据；
+     * 总数来自 {@link DeviceCountCache}，不在每次请求时执行 COUNT(*)
+     *
+     * @param entityType 实体类型（见 {@link #getSupportedEntityTypes()}）
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @param size 每页大小
+     * @param countryCode 国家代码
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> scrollRecords(
+            String entityType, Long cursor, int size, String countryCode) {
+
+        log.info("游标分页获取设备记录: entityType={}, cursor={}, size={}, countryCode={}",
+                entityType, cursor, size, countryCode);
+
+        Map<String, Object> result = new HashMap<>();
+
+        Class<? extends BaseDeviceEntity> entityClass = ENTITY_CLASSES.get(entityType);
+        if (entityClass == null) {
+            result.put("success", false);
+            result.put("message", "不支持的实体类型: " + entityType);
+            return ResponseEntity.badRequest().body(result);
+        }
+
+        try {
+            int pageSize = Math.max(1, Math.min(size, MAX_SCROLL_SIZE));
+            String normalizedCountryCode = (countryCode != null && !countryCode.trim().isEmpty())
+                ? countryCode.trim() : null;
+
+            StringBuilder jpql = new StringBuilder("SELECT e FROM ").append(entityClass.getSimpleName()).append(" e");
+            List<String> conditions = new ArrayList<>();
+            if (cursor != null) {
+                conditions.add("e.id < :cursor");
+            }
+            if (normalizedCountryCode != null) {
+                conditions.add("e.jdCountry = :country");
+            }
+            if (!conditions.isEmpty()) {
+                jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+            }
+            jpql.append(" ORDER BY e.id DESC");
+
+            TypedQuery<? extends BaseDeviceEntity> query = entityManager.createQuery(jpql.toString(), entityClass);
+            if (cursor != null) {
+                query.setParameter("cursor", cursor);
+            }
+            if (normalizedCountryCode != null) {
+                query.setParameter("country", normalizedCountryCode);
+            }
+            // 多取一条用于判断是否还有下一页
+            List<? extends BaseDeviceEntity> rows = query.setMaxResults(pageSize + 1).getResultList();
+
+            boolean hasMore = rows.size() > pageSize;
+            List<? extends BaseDeviceEntity> content = hasMore ? rows.subList(0, pageSize) : rows;
+            Object nextCursor = hasMore
+                ? entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(content.get(content.size() - 1))
+                : null;
+
+            DeviceCountCache.CountSnapshot total = countCache.get(entityClass, normalizedCountryCode);
+
+            result.put("success", true);
+            result.put("data", content);
+            result.put("pageSize", pageSize);
+            result.put("hasMore", hasMore);
+            result.put("nextCursor", nextCursor);
+            result.put("totalElements", total.getCount());
+            result.put("totalApproximate", total.isApproximate());
+            result.put("totalRefreshedTime", total.getRefreshedTime());
+
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            log.error("游标分页获取设备记录失败: {}", e.getMessage(), e);
+            result.put("success", false);
+            result.put("message", "获取设备记录失败: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(result);
+        }
+    }
+
     /**
      * 获取支持的实体类型列表
      */
@@ -3,6 +3,8 @@ package com.certification.service.device;
 import com.certification.entity.common.*;
 import com.certification.entity.common.CertNewsData.RiskLevel;
 import com.certification.repository.common.*;
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.cache.TwoTierCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -39,10 +41,18 @@ public class DeviceDataStatisticsService {
     @Autowired
     private FDAGuidanceDocumentRepository guidanceDocumentRepository;
 
+    @Autowired
+    private TwoTierCache twoTierCache;
+
     /**
-     * 获取设备数据总览统计
+     * 获取设备数据总览统计（设备数据变化前使用缓存结果）
      */
     public ResponseEntity<Map<String, Object>> getOverview() {
+        return ResponseEntity.ok(twoTierCache.get("deviceOverview",
+                new String[]{DataVersionService.DEVICE}, this::computeOverview));
+    }
+
+    private Map<String, Object> computeOverview() {
         log.info("获取设备数据总览统计");
 
         Map<String, Object> result = new HashMap<>();
@@ -79,7 +89,7 @@ public class DeviceDataStatisticsService {
             result.put("message", "获取统计数据失败: " + e.getMessage());
         }
 
-        return ResponseEntity.ok(result);
+        return result;
     }
 
     /**
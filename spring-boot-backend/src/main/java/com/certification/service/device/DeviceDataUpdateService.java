@@ -42,6 +42,9 @@ public class DeviceDataUpdateService {
     @Autowired
     private FDAGuidanceDocumentRepository guidanceDocumentRepository;
 
+    @Autowired
+    private DeviceBulkMutationService bulkMutationService;
+
     /**
      * 更新单个实体的风险等级和关键词
      */
@@ -145,41 +148,24 @@ public class DeviceDataUpdateService {
 
     /**
      * 重置所有数据为中等风险
+     * 由 {@link DeviceBulkMutationService} 按主键区间分段更新，不加载实体
      */
-    @Transactional
     public ResponseEntity<Map<String, Object>> resetAllToMedium() {
         log.info("重置所有数据为中等风险");
 
         Map<String, Object> result = new HashMap<>();
 
         try {
-            Map<String, Integer> details = new HashMap<>();
-            int totalUpdated = 0;
-
-            // 重置各种实体类型的数据
-            int device510KCount = resetDevice510KToMediumRisk();
-            details.put("device510K", device510KCount);
-            totalUpdated += device510KCount;
-
-            int eventReportCount = resetDeviceEventReportToMediumRisk();
-            details.put("eventReport", eventReportCount);
-            totalUpdated += eventReportCount;
+            Map<Class<?>, Integer> counts = bulkMutationService.resetRiskLevel(RiskLevel.MEDIUM);
 
-            int recallRecordCount = resetDeviceRecallRecordToMediumRisk();
-            details.put("recallRecord", recallRecordCount);
-            totalUpdated += recallRecordCount;
-
-            int registrationRecordCount = resetDeviceRegistrationRecordToMediumRisk();
-            details.put("registrationRecord", registrationRecordCount);
-            totalUpdated += registrationRecordCount;
-
-            int customsCaseCount = resetCustomsCaseToMediumRisk();
-            details.put("customsCase", customsCaseCount);
-            totalUpdated += customsCaseCount;
-
-            int guidanceDocumentCount = resetGuidanceDocumentToMediumRisk();
-            details.put("guidanceDocument", guidanceDocumentCount);
-            totalUpdated += guidanceDocumentCount;
+            Map<String, Integer> details = new HashMap<>();
+            details.put("device510K", counts.getOrDefault(Device510K.class, 0));
+            details.put("eventReport", counts.getOrDefault(DeviceEventReport.class, 0));
+            details.put("recallRecord", counts.getOrDefault(DeviceRecallRecord.class, 0));
+            details.put("registrationRecord", counts.getOrDefault(DeviceRegistrationRecord.class, 0));
+            details.put("customsCase", counts.getOrDefault(CustomsCase.class, 0));
+            details.put("guidanceDocument", counts.getOrDefault(GuidanceDocument.class, 0));
+            int totalUpdated = details.values().stream().mapToInt(Integer::intValue).sum();
 
             result.put("success", true);
             result.put("message", "所有数据已重置为中等风险");
@@ -408,98 +394,6 @@ public class DeviceDataUpdateService {
         return savedDocuments.size();
     }
 
-    // ========== 私有方法：重置为中风险 ==========
-
-    private int resetDevice510KToMediumRisk() {
-        try {
-            List<Device510K> devices = device510KRepository.findAll();
-            devices.forEach(device -> {
-                device.setRiskLevel(RiskLevel.MEDIUM);
-                device.setKeywords("[]");
-            });
-            device510KRepository.saveAll(devices);
-            return devices.size();
-        } catch (Exception e) {
-            log.error("重置Device510K失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetDeviceEventReportToMediumRisk() {
-        try {
-            List<DeviceEventReport> events = deviceEventReportRepository.findAll();
-            events.forEach(event -> {
-                event.setRiskLevel(RiskLevel.MEDIUM);
-                event.setKeywords("[]");
-            });
-            deviceEventReportRepository.saveAll(events);
-            return events.size();
-        } catch (Exception e) {
-            log.error("重置DeviceEventReport失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetDeviceRecallRecordToMediumRisk() {
-        try {
-            List<DeviceRecallRecord> recalls = deviceRecallRecordRepository.findAll();
-            recalls.forEach(recall -> {
-                recall.setRiskLevel(RiskLevel.MEDIUM);
-                recall.setKeywords("[]");
-            });
-            deviceRecallRecordRepository.saveAll(recalls);
-            return recalls.size();
-        } catch (Exception e) {
-            log.error("重置DeviceRecallRecord失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetDeviceRegistrationRecordToMediumRisk() {
-        try {
-            List<DeviceRegistrationRecord> registrations = deviceRegistrationRecordRepository.findAll();
-            registrations.forEach(registration -> {
-                registration.setRiskLevel(RiskLevel.MEDIUM);
-                registration.setKeywords("[]");
-            });
-            deviceRegistrationRecordRepository.saveAll(registrations);
-            return registrations.size();
-        } catch (Exception e) {
-            log.error("重置DeviceRegistrationRecord失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetCustomsCaseToMediumRisk() {
-        try {
-            List<CustomsCase> cases = customsCaseRepository.findAll();
-            cases.forEach(caseItem -> {
-                caseItem.setRiskLevel(RiskLevel.MEDIUM);
-                caseItem.setKeywords("[]");
-            });
-            customsCaseRepository.saveAll(cases);
-            return cases.size();
-        } catch (Exception e) {
-            log.error("重置CustomsCase失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
-    private int resetGuidanceDocumentToMediumRisk() {
-        try {
-            List<GuidanceDocument> documents = guidanceDocumentRepository.findAll();
-            documents.forEach(document -> {
-                document.setRiskLevel(RiskLevel.MEDIUM);
-                document.setKeywords("[]");
-            });
-            guidanceDocumentRepository.saveAll(documents);
-            return documents.size();
-        } catch (Exception e) {
-            log.error("重置GuidanceDocument失败: {}", e.getMessage());
-            return 0;
-        }
-    }
-
     // ========== 辅助方法 ==========
 
     /**
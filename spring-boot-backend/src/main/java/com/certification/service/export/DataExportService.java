@@ -0,0 +1,454 @@
+package com.certification.service.export;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.alibaba.excel.write.metadata.WriteSheet;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 数据流式导出服务
+ * 通过MySQL流式结果集逐行读取，边读边写入HTTP响应，导出整表也不会把数据全部加载到内存：
+ * - CSV：逐行写出（UTF-8带BOM，Excel直接打开不乱码），可选gzip压缩
+ * - Excel：EasyExcel流式写入，超过单表行数上限自动分sheet
+ * - 按列投影查询，LONGTEXT等大字段只有明确指定时才读取
+ *
+ * 导出使用独立的非池化连接（每次导出新建、结束后关闭），不占用Druid连接池：
+ * - 流式导出可能持续超过 remove-abandoned-timeout，池化连接会被当作泄漏回收，导致导出中断
+ * - 客户端读取较慢时通过会话级 net_write_timeout 避免服务端中断流式读取（连接导出后即关闭，无需恢复原值）
+ * 同时进行的导出数量受 app.export.max-concurrent 限制。
+ */
+@Slf4j
+@Service
+public class DataExportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_XLSX = "xlsx";
+
+    /**
+     * xlsx单个sheet的最大数据行数（不含表头）
+     */
+    private static final int XLSX_MAX_ROWS_PER_SHEET = 1_048_575;
+
+    /**
+     * xlsx单元格最大字符数
+     */
+    private static final int XLSX_MAX_CELL_LENGTH = 32_767;
+
+    /**
+     * Excel每批写入的行数
+     */
+    private static final int XLSX_BATCH_SIZE = 1000;
+
+    /**
+     * 可导出的数据集
+     */
+    private static final Map<String, ExportDataset> DATASETS = new LinkedHashMap<>();
+
+    static {
+        register(new ExportDataset("device-event", "设备不良事件", "t_device_event", "jd_country", null, List.of(
+                new ExportColumn("id", "ID", false),
+                new ExportColumn("report_number", "报告编号", false),
+                new ExportColumn("date_of_event", "事件日期", false),
+                new ExportColumn("date_received", "接收日期", false),
+                new ExportColumn("brand_name", "品牌名称", false),
+                new ExportColumn("generic_name", "通用名称", false),
+                new ExportColumn("manufacturer_name", "制造商", false),
+                new ExportColumn("device_class", "设备类别", false),
+                new ExportColumn("risk_level", "风险等级", false),
+                new ExportColumn("keywords", "关键词", true),
+                new ExportColumn("jd_country", "国家", false),
+                new ExportColumn("data_source", "数据源", false),
+                new ExportColumn("remark", "备注", true),
+                new ExportColumn("crawl_time", "爬取时间", false),
+                new ExportColumn("data_status", "数据状态", false),
+                new ExportColumn("create_time", "创建时间", false),
+                new ExportColumn("update_time", "更新时间", false)
+        )));
+        register(new ExportDataset("crawler-data", "认证新闻", "t_crawler_data", "country", "deleted = 0", List.of(
+                new ExportColumn("id", "ID", false),
+                new ExportColumn("source_name", "来源", false),
+                new ExportColumn("title", "标题", false),
+                new ExportColumn("url", "链接", false),
+                new ExportColumn("summary", "摘要", true),
+                new ExportColumn("content", "内容", true),
+                new ExportColumn("country", "国家", false),
+                new ExportColumn("type", "类型", false),
+                new ExportColumn("product", "产品", false),
+                new ExportColumn("publish_date", "发布日期", false),
+                new ExportColumn("release_date", "发布时间", false),
+                new ExportColumn("execution_date", "执行时间", false),
+                new ExportColumn("crawl_time", "爬取时间", false),
+                new ExportColumn("status", "状态", false),
+                new ExportColumn("is_processed", "是否已处理", false),
+                new ExportColumn("remarks", "备注", true),
+                new ExportColumn("related", "是否相关", false),
+                new ExportColumn("matched_keywords", "匹配关键词", true),
+                new ExportColumn("risk_level", "风险等级", false),
+                new ExportColumn("created_at", "创建时间", false),
+                new ExportColumn("updated_at", "更新时间", false)
+        )));
+    }
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${app.export.net-write-timeout-seconds:600}")
+    private int netWriteTimeoutSeconds;
+
+    @Value("${app.export.max-concurrent:4}")
+    private int maxConcurrent;
+
+    /**
+     * 导出专用的非池化连接
+     */
+    private JdbcTemplate exportJdbcTemplate;
+
+    private Semaphore exportPermits;
+
+    @PostConstruct
+    public void init() {
+        exportJdbcTemplate = new JdbcTemplate(dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build());
+        exportPermits = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    private static void register(ExportDataset dataset) {
+        DATASETS.put(dataset.name(), dataset);
+    }
+
+    /**
+     * 可导出的数据集及字段
+     */
+    public List<Map<String, Object>> getDatasets() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (ExportDataset dataset : DATASETS.values()) {
+            List<Map<String, Object>> columns = new ArrayList<>();
+            for (ExportColumn column : dataset.columns()) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("name", column.name());
+                item.put("header", column.header());
+                item.put("large", column.large());
+                columns.add(item);
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", dataset.name());
+            item.put("description", dataset.description());
+            item.put("columns", columns);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 校验导出参数并生成导出计划，参数非法时抛出 IllegalArgumentException（此时尚未写出任何响应内容）
+     *
+     * @param datasetName 数据集名称
+     * @param format 导出格式：csv / xlsx
+     * @param gzip 是否gzip压缩（仅CSV）
+     * @param columns 导出字段，逗号分隔；为空时导出除大字段外的全部字段
+     * @param country 国家过滤
+     */
+    public ExportPlan plan(String datasetName, String format, boolean gzip, String columns, String country) {
+        ExportDataset dataset = DATASETS.get(datasetName);
+        if (dataset == null) {
+            throw new IllegalArgumentException("不支持的导出数据集: " + datasetName + "，可选: " + DATASETS.keySet());
+        }
+        String normalizedFormat = format == null ? FORMAT_CSV : format.trim().toLowerCase();
+        if (!FORMAT_CSV.equals(normalizedFormat) && !FORMAT_XLSX.equals(normalizedFormat)) {
+            throw new IllegalArgumentException("不支持的导出格式: " + format + "，可选: csv, xlsx");
+        }
+
+        List<ExportColumn> selected = new ArrayList<>();
+        if (columns == null || columns.trim().isEmpty()) {
+            for (ExportColumn column : dataset.columns()) {
+                if (!column.large()) {
+                    selected.add(column);
+                }
+            }
+        } else {
+            for (String name : columns.split(",")) {
+                String trimmed = name.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                ExportColumn column = dataset.column(trimmed);
+                if (column == null) {
+                    throw new IllegalArgumentException("数据集 " + datasetName + " 不包含字段: " + trimmed);
+                }
+                if (!selected.contains(column)) {
+                    selected.add(column);
+                }
+            }
+            if (selected.isEmpty()) {
+                throw new IllegalArgumentException("导出字段不能为空");
+            }
+        }
+
+        String normalizedCountry = (country != null && !country.trim().isEmpty()) ? country.trim() : null;
+        return new ExportPlan(dataset, normalizedFormat, gzip && FORMAT_CSV.equals(normalizedFormat), selected, normalizedCountry);
+    }
+
+    /**
+     * 按导出计划流式写出数据
+     *
+     * @param plan 导出计划
+     * @param out 输出流（调用方负责关闭）
+     * @return 导出行数
+     * @throws ExportLimitExceededException 同时进行的导出过多（此时尚未写出任何响应内容）
+     */
+    public long export(ExportPlan plan, OutputStream out) {
+        if (!exportPermits.tryAcquire()) {
+            throw new ExportLimitExceededException("当前同时进行的导出已达上限(" + maxConcurrent + ")，请稍后重试");
+        }
+        long startTime = System.currentTimeMillis();
+        Long rows;
+        try {
+            rows = exportJdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (Statement session = connection.createStatement()) {
+                    session.execute("SET SESSION net_write_timeout = " + netWriteTimeoutSeconds);
+                }
+                try (PreparedStatement statement = connection.prepareStatement(plan.sql(),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    // MySQL驱动以 Integer.MIN_VALUE 作为逐行流式读取的标志
+                    statement.setFetchSize(Integer.MIN_VALUE);
+                    if (plan.country() != null) {
+                        statement.setString(1, plan.country());
+                    }
+                    try (ResultSet rs = statement.executeQuery()) {
+                        return FORMAT_XLSX.equals(plan.format()) ? writeXlsx(plan, rs, out) : writeCsv(plan, rs, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } finally {
+            exportPermits.release();
+        }
+        long count = rows != null ? rows : 0L;
+        log.info("数据导出完成: 数据集={}, 格式={}, 国家={}, 字段数={}, 行数={}, 耗时={}ms",
+                plan.dataset().name(), plan.format(), plan.country(), plan.columns().size(), count,
+                System.currentTimeMillis() - startTime);
+        return count;
+    }
+
+    private long writeCsv(ExportPlan plan, ResultSet rs, OutputStream out) throws IOException, SQLException {
+        GZIPOutputStream gzipOut = plan.gzip() ? new GZIPOutputStream(out, 64 * 1024) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzipOut != null ? gzipOut : out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+
+        int columnCount = plan.columns().size();
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(plan.columns().get(i).header()));
+        }
+        writer.write("\r\n");
+
+        long count = 0;
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                writer.write(escapeCsv(rs.getString(i)));
+            }
+            writer.write("\r\n");
+            count++;
+        }
+        writer.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        return count;
+    }
+
+    private long writeXlsx(ExportPlan plan, ResultSet rs, OutputStream out) throws SQLException {
+        List<List<String>> head = new ArrayList<>();
+        for (ExportColumn column : plan.columns()) {
+            head.add(List.of(column.header()));
+        }
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = plan.columns().size();
+        boolean[] numeric = new boolean[columnCount + 1];
+        for (int i = 1; i <= columnCount; i++) {
+            numeric[i] = isNumeric(metaData.getColumnType(i));
+        }
+
+        long count = 0;
+        ExcelWriter excelWriter = EasyExcel.write(out)
+                .excelType(ExcelTypeEnum.XLSX)
+                .head(head)
+                .autoCloseStream(false)
+                .build();
+        try {
+            int sheetNo = 0;
+            int sheetRows = 0;
+            WriteSheet sheet = EasyExcel.writerSheet(sheetNo, plan.dataset().description()).build();
+            List<List<Object>> batch = new ArrayList<>(XLSX_BATCH_SIZE);
+            while (rs.next()) {
+                if (sheetRows == XLSX_MAX_ROWS_PER_SHEET) {
+                    excelWriter.write(batch, sheet);
+                    batch.clear();
+                    sheetNo++;
+                    sheetRows = 0;
+                    sheet = EasyExcel.writerSheet(sheetNo, plan.dataset().description() + "_" + (sheetNo + 1)).build();
+                }
+                List<Object> row = new ArrayList<>(columnCount);
+                for (int i = 1; i <= columnCount; i++) {
+                    row.add(numeric[i] ? rs.getObject(i) : truncateCell(rs.getString(i)));
+                }
+                batch.add(row);
+                sheetRows++;
+                count++;
+                if (batch.size() >= XLSX_BATCH_SIZE) {
+                    excelWriter.write(batch, sheet);
+                    batch.clear();
+                }
+            }
+            excelWriter.write(batch, sheet);
+        } finally {
+            excelWriter.finish();
+        }
+        return count;
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        return sqlType == Types.BIGINT || sqlType == Types.INTEGER || sqlType == Types.SMALLINT
+                || sqlType == Types.TINYINT || sqlType == Types.DECIMAL || sqlType == Types.NUMERIC
+                || sqlType == Types.DOUBLE || sqlType == Types.FLOAT || sqlType == Types.REAL;
+    }
+
+    private static String truncateCell(String value) {
+        if (value == null || value.length() <= XLSX_MAX_CELL_LENGTH) {
+            return value;
+        }
+        return value.substring(0, XLSX_MAX_CELL_LENGTH);
+    }
+
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * 导出字段
+     *
+     * @param name 数据库列名
+     * @param header 表头
+     * @param large 是否为大字段（TEXT/LONGTEXT），未指定字段时不导出
+     */
+    public record ExportColumn(String name, String header, boolean large) {
+    }
+
+    /**
+     * 导出数据集
+     *
+     * @param name 数据集名称
+     * @param description 描述（同时作为sheet名称）
+     * @param table 表名
+     * @param countryColumn 国家过滤列
+     * @param condition 固定过滤条件
+     * @param columns 可导出字段
+     */
+    public record ExportDataset(String name, String description, String table, String countryColumn,
+                                String condition, List<ExportColumn> columns) {
+
+        ExportColumn column(String columnName) {
+            for (ExportColumn column : columns) {
+                if (column.name().equalsIgnoreCase(columnName)) {
+                    return column;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 同时进行的导出数量达到上限
+     */
+    public static class ExportLimitExceededException extends IllegalStateException {
+        public ExportLimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 导出计划
+     */
+    public record ExportPlan(ExportDataset dataset, String format, boolean gzip,
+                             List<ExportColumn> columns, String country) {
+
+        /**
+         * 下载文件名
+         */
+        public String fileName() {
+            String suffix = FORMAT_XLSX.equals(format) ? ".xlsx" : (gzip ? ".csv.gz" : ".csv");
+            return dataset.name() + (country != null ? "_" + country : "") + "_"
+                    + LocalDate.now() + suffix;
+        }
+
+        /**
+         * 响应内容类型
+         */
+        public String contentType() {
+            if (FORMAT_XLSX.equals(format)) {
+                return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+            }
+            return gzip ? "application/gzip" : "text/csv;charset=UTF-8";
+        }
+
+        String sql() {
+            List<String> names = new ArrayList<>();
+            for (ExportColumn column : columns) {
+                names.add(column.name());
+            }
+            List<String> conditions = new ArrayList<>();
+            if (dataset.condition() != null) {
+                conditions.add(dataset.condition());
+            }
+            if (country != null) {
+                conditions.add(dataset.countryColumn() + " = ?");
+            }
+            return "SELECT " + String.join(", ", names) + " FROM " + dataset.table()
+                    + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                    + " ORDER BY id";
+        }
+    }
+}
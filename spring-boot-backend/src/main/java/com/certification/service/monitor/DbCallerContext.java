@@ -0,0 +1,100 @@
+package com.certification.service.monitor;
+
+/**
+ * 数据库调用方上下文
+ * 记录当前线程正在执行的接口方法、定时任务或爬虫任务，SQL统计按调用方归类。
+ *
+ * 用法：
+ * <pre>
+ * DbCallerContext.Frame previous = DbCallerContext.push("crawler:US_510K", taskLogId);
+ * try {
+ *     ...
+ * } finally {
+ *     DbCallerContext.restore(previous);
+ * }
+ * </pre>
+ * 未设置调用方的线程按线程名（去掉末尾编号）归类，如 thread:AIJudge-
+ */
+public final class DbCallerContext {
+
+    private static final ThreadLocal<Frame> CURRENT = new ThreadLocal<>();
+
+    private DbCallerContext() {
+    }
+
+    /**
+     * 设置当前线程的调用方
+     *
+     * @param caller 调用方名称，取值范围需有限（不含ID等可变内容），用作监控指标标签
+     * @param taskLogId 统一任务执行日志ID，非任务执行时为null
+     * @return 之前的上下文，结束时传给 {@link #restore(Frame)}
+     */
+    public static Frame push(String caller, Long taskLogId) {
+        Frame previous = CURRENT.get();
+        Long logId = taskLogId != null ? taskLogId : (previous != null ? previous.taskLogId() : null);
+        CURRENT.set(new Frame(caller, logId));
+        return previous;
+    }
+
+    /**
+     * 当前线程的上下文，用于传递给线程池中的工作线程
+     */
+    public static Frame current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在工作线程上绑定调用方线程的上下文
+     *
+     * @return 之前的上下文，结束时传给 {@link #restore(Frame)}
+     */
+    public static Frame bind(Frame frame) {
+        Frame previous = CURRENT.get();
+        restore(frame);
+        return previous;
+    }
+
+    /**
+     * 恢复之前的上下文
+     */
+    public static void restore(Frame previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 当前调用方
+     */
+    public static String currentCaller() {
+        Frame frame = CURRENT.get();
+        if (frame != null) {
+            return frame.caller();
+        }
+        String threadName = Thread.currentThread().getName();
+        int end = threadName.length();
+        while (end > 0 && Character.isDigit(threadName.charAt(end - 1))) {
+            end--;
+        }
+        return "thread:" + threadName.substring(0, end);
+    }
+
+    /**
+     * 当前统一任务执行日志ID
+     */
+    public static Long currentTaskLogId() {
+        Frame frame = CURRENT.get();
+        return frame != null ? frame.taskLogId() : null;
+    }
+
+    /**
+     * 调用方上下文
+     *
+     * @param caller 调用方名称
+     * @param taskLogId 统一任务执行日志ID
+     */
+    public record Frame(String caller, Long taskLogId) {
+    }
+}
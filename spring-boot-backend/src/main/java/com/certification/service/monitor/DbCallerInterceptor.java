@@ -0,0 +1,49 @@
+package com.certification.service.monitor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * 把当前请求的Controller方法设置为数据库调用方，SQL统计按接口归类
+ * 异步请求（如SSE）在请求线程释放时恢复，避免调用方残留在容器线程上
+ */
+public class DbCallerInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PREVIOUS_ATTRIBUTE = DbCallerInterceptor.class.getName() + ".previous";
+
+    /**
+     * 请求开始前没有调用方上下文时的占位
+     */
+    private static final Object NONE = new Object();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            DbCallerContext.Frame previous = DbCallerContext.push(
+                    "http:" + method.getBeanType().getSimpleName() + "#" + method.getMethod().getName(), null);
+            request.setAttribute(PREVIOUS_ATTRIBUTE, previous != null ? previous : NONE);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        restore(request);
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        restore(request);
+    }
+
+    private void restore(HttpServletRequest request) {
+        Object previous = request.getAttribute(PREVIOUS_ATTRIBUTE);
+        if (previous != null) {
+            request.removeAttribute(PREVIOUS_ATTRIBUTE);
+            DbCallerContext.restore(previous instanceof DbCallerContext.Frame ? (DbCallerContext.Frame) previous : null);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.certification.service.monitor;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Druid连接池指标
+ * 注册到Micrometer（标签 pool）：
+ * - db.pool.active / db.pool.idle / db.pool.max / db.pool.active.peak：活跃、空闲、最大、峰值连接数
+ * - db.pool.waiting：正在等待连接的线程数
+ * - db.pool.wait：获取连接发生等待的次数和累计等待时间
+ * - db.pool.abandoned：被强制回收的泄漏连接数
+ * 连接占用时间按调用方见 {@link SqlHotspotRegistry}。
+ */
+@Slf4j
+@Component
+public class DruidPoolMetrics implements MeterBinder {
+
+    private final ObjectProvider<DataSource> dataSourceProvider;
+
+    public DruidPoolMetrics(ObjectProvider<DataSource> dataSourceProvider) {
+        this.dataSourceProvider = dataSourceProvider;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        DruidDataSource pool = resolvePool();
+        if (pool == null) {
+            log.info("数据源不是Druid连接池，跳过连接池指标注册");
+            return;
+        }
+        String name = pool.getName();
+        Gauge.builder("db.pool.active", pool, DruidDataSource::getActiveCount)
+                .tag("pool", name).description("活跃连接数").register(registry);
+        Gauge.builder("db.pool.idle", pool, DruidDataSource::getPoolingCount)
+                .tag("pool", name).description("空闲连接数").register(registry);
+        Gauge.builder("db.pool.max", pool, DruidDataSource::getMaxActive)
+                .tag("pool", name).description("最大连接数").register(registry);
+        Gauge.builder("db.pool.active.peak", pool, DruidDataSource::getActivePeak)
+                .tag("pool", name).description("活跃连接数峰值").register(registry);
+        Gauge.builder("db.pool.waiting", pool, DruidDataSource::getWaitThreadCount)
+                .tag("pool", name).description("等待获取连接的线程数").register(registry);
+        FunctionTimer.builder("db.pool.wait", pool,
+                        DruidDataSource::getNotEmptyWaitCount,
+                        DruidDataSource::getNotEmptyWaitMillis,
+                        TimeUnit.MILLISECONDS)
+                .tag("pool", name).description("获取连接的等待").register(registry);
+        FunctionCounter.builder("db.pool.abandoned", pool, DruidDataSource::getRemoveAbandonedCount)
+                .tag("pool", name).description("强制回收的泄漏连接数").register(registry);
+    }
+
+    /**
+     * 当前连接池状态
+     */
+    public Map<String, Object> getPoolStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        DruidDataSource pool = resolvePool();
+        if (pool == null) {
+            return status;
+        }
+        status.put("name", pool.getName());
+        status.put("activeCount", pool.getActiveCount());
+        status.put("idleCount", pool.getPoolingCount());
+        status.put("maxActive", pool.getMaxActive());
+        status.put("activePeak", pool.getActivePeak());
+        status.put("waitThreadCount", pool.getWaitThreadCount());
+        status.put("waitCount", pool.getNotEmptyWaitCount());
+        status.put("waitTimeMs", pool.getNotEmptyWaitMillis());
+        status.put("removeAbandonedCount", pool.getRemoveAbandonedCount());
+        return status;
+    }
+
+    private DruidDataSource resolvePool() {
+        DataSource dataSource = dataSourceProvider.getIfAvailable();
+        if (dataSource == null) {
+            return null;
+        }
+        if (dataSource instanceof DruidDataSource) {
+            return (DruidDataSource) dataSource;
+        }
+        try {
+            return dataSource.isWrapperFor(DruidDataSource.class) ? dataSource.unwrap(DruidDataSource.class) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
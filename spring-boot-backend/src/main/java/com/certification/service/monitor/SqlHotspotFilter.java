@@ -0,0 +1,126 @@
+package com.certification.service.monitor;
+
+import com.alibaba.druid.filter.FilterChain;
+import com.alibaba.druid.filter.FilterEventAdapter;
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.pool.DruidPooledConnection;
+import com.alibaba.druid.proxy.jdbc.ResultSetProxy;
+import com.alibaba.druid.proxy.jdbc.StatementProxy;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Druid过滤器：采集SQL耗时、行数和连接占用时间，交给 {@link SqlHotspotRegistry} 按调用方统计
+ * druid-spring-boot-starter 会把容器中的Filter Bean自动加入数据源的过滤器链。
+ */
+@Component
+public class SqlHotspotFilter extends FilterEventAdapter {
+
+    private final SqlHotspotRegistry registry;
+
+    /**
+     * 当前线程正在执行的语句开始时间（同一线程的JDBC调用不会嵌套）
+     */
+    private final ThreadLocal<Long> executeStart = new ThreadLocal<>();
+
+    /**
+     * 借出中的连接及借出时间
+     */
+    private final Map<DruidPooledConnection, Long> borrowedAt = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    public SqlHotspotFilter(SqlHotspotRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public DruidPooledConnection dataSource_getConnection(FilterChain chain, DruidDataSource dataSource,
+                                                          long maxWaitMillis) throws SQLException {
+        long start = System.nanoTime();
+        DruidPooledConnection connection = chain.dataSource_connect(dataSource, maxWaitMillis);
+        long now = System.nanoTime();
+        registry.recordAcquire(now - start);
+        if (connection != null) {
+            borrowedAt.put(connection, now);
+        }
+        return connection;
+    }
+
+    @Override
+    public void dataSource_releaseConnection(FilterChain chain, DruidPooledConnection connection) throws SQLException {
+        Long start = borrowedAt.remove(connection);
+        if (start != null) {
+            registry.recordHold(System.nanoTime() - start);
+        }
+        chain.dataSource_recycle(connection);
+    }
+
+    @Override
+    protected void statementExecuteQueryBefore(StatementProxy statement, String sql) {
+        executeStart.set(System.nanoTime());
+    }
+
+    @Override
+    protected void statementExecuteQueryAfter(StatementProxy statement, String sql, ResultSetProxy resultSet) {
+        record(sql, "query", -1, false);
+    }
+
+    @Override
+    protected void statementExecuteUpdateBefore(StatementProxy statement, String sql) {
+        executeStart.set(System.nanoTime());
+    }
+
+    @Override
+    protected void statementExecuteUpdateAfter(StatementProxy statement, String sql, int updateCount) {
+        record(sql, "update", updateCount, false);
+    }
+
+    @Override
+    protected void statementExecuteBefore(StatementProxy statement, String sql) {
+        executeStart.set(System.nanoTime());
+    }
+
+    @Override
+    protected void statementExecuteAfter(StatementProxy statement, String sql, boolean firstResult) {
+        record(sql, "execute", -1, false);
+    }
+
+    @Override
+    protected void statementExecuteBatchBefore(StatementProxy statement) {
+        executeStart.set(System.nanoTime());
+    }
+
+    @Override
+    protected void statementExecuteBatchAfter(StatementProxy statement, int[] result) {
+        long rows = 0;
+        if (result != null) {
+            for (int count : result) {
+                rows += Math.max(count, 0);
+            }
+        }
+        record(statement.getBatchSql(), "batch", rows, false);
+    }
+
+    @Override
+    protected void statement_executeErrorAfter(StatementProxy statement, String sql, Throwable error) {
+        record(sql, "error", -1, true);
+    }
+
+    @Override
+    public void resultSet_close(FilterChain chain, ResultSetProxy resultSet) throws SQLException {
+        chain.resultSet_close(resultSet);
+        registry.recordRows(resultSet.getSql(), resultSet.getFetchRowCount());
+    }
+
+    private void record(String sql, String type, long rows, boolean error) {
+        Long start = executeStart.get();
+        executeStart.remove();
+        if (start == null) {
+            return;
+        }
+        registry.recordExecution(sql, type, System.nanoTime() - start, rows, error);
+    }
+}
@@ -0,0 +1,306 @@
+package com.certification.service.monitor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL热点统计
+ * 按"调用方 + SQL"累计执行次数、耗时、行数，用于定位某个接口、爬虫或任务引入的慢查询和全表读取；
+ * 同时把SQL耗时、行数和连接占用时间按调用方注册到Micrometer：
+ * - db.sql（Timer，标签 caller、type）
+ * - db.sql.rows（DistributionSummary，标签 caller）
+ * - db.connection.acquire / db.connection.hold（Timer，标签 caller）
+ *
+ * 调用方和SQL数量有上限，超出后归入 (other)，统计常驻内存也不会无限增长。
+ */
+@Slf4j
+@Component
+public class SqlHotspotRegistry {
+
+    private static final int MAX_CALLERS = 500;
+    private static final int MAX_SQL_PER_CALLER = 300;
+    private static final int MAX_TASK_LOGS = 200;
+    private static final int MAX_SQL_LENGTH = 1000;
+    private static final String OTHER = "(other)";
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private volatile MeterRegistry meterRegistry;
+    private volatile boolean meterRegistryResolved;
+
+    /**
+     * Key: 调用方, Value: (Key: SQL, Value: 统计)
+     */
+    private final Map<String, Map<String, SqlStat>> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 最近的统一任务执行日志的SQL汇总，Key: 日志ID
+     */
+    private final Map<Long, TaskSqlSummary> taskSummaries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TaskSqlSummary> eldest) {
+            return size() > MAX_TASK_LOGS;
+        }
+    };
+
+    public SqlHotspotRegistry(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        // 数据源创建时就会用到本类，MeterRegistry在首次记录时再获取，避免启动时的循环依赖
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    /**
+     * 记录一次SQL执行
+     *
+     * @param sql SQL语句
+     * @param type 执行类型：query / update / execute / batch
+     * @param nanos 执行耗时
+     * @param rows 影响行数，未知时为-1（查询行数在结果集关闭时通过 {@link #recordRows} 补充）
+     * @param error 是否执行失败
+     */
+    public void recordExecution(String sql, String type, long nanos, long rows, boolean error) {
+        String caller = DbCallerContext.currentCaller();
+        SqlStat stat = statFor(caller, sql);
+        stat.count.increment();
+        stat.totalNanos.add(nanos);
+        stat.maxNanos.accumulate(nanos);
+        if (rows > 0) {
+            stat.rows.add(rows);
+        }
+        if (error) {
+            stat.errors.increment();
+        }
+        MeterRegistry meterRegistry = meterRegistry();
+        if (meterRegistry != null) {
+            Timer.builder("db.sql")
+                    .tag("caller", caller)
+                    .tag("type", type)
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            if (rows >= 0) {
+                recordRowsMetric(meterRegistry, caller, rows);
+            }
+        }
+
+        Long taskLogId = DbCallerContext.currentTaskLogId();
+        if (taskLogId != null) {
+            synchronized (taskSummaries) {
+                TaskSqlSummary summary = taskSummaries.computeIfAbsent(taskLogId, id -> new TaskSqlSummary());
+                summary.count++;
+                summary.totalNanos += nanos;
+                summary.rows += Math.max(rows, 0);
+            }
+        }
+    }
+
+    /**
+     * 记录查询返回的行数（结果集关闭时）
+     */
+    public void recordRows(String sql, long rows) {
+        if (rows <= 0) {
+            return;
+        }
+        String caller = DbCallerContext.currentCaller();
+        statFor(caller, sql).rows.add(rows);
+        MeterRegistry meterRegistry = meterRegistry();
+        if (meterRegistry != null) {
+            recordRowsMetric(meterRegistry, caller, rows);
+        }
+        Long taskLogId = DbCallerContext.currentTaskLogId();
+        if (taskLogId != null) {
+            synchronized (taskSummaries) {
+                TaskSqlSummary summary = taskSummaries.get(taskLogId);
+                if (summary != null) {
+                    summary.rows += rows;
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录获取连接的等待时间
+     */
+    public void recordAcquire(long nanos) {
+        MeterRegistry meterRegistry = meterRegistry();
+        if (meterRegistry != null) {
+            Timer.builder("db.connection.acquire")
+                    .tag("caller", DbCallerContext.currentCaller())
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 记录连接的占用时间（从借出到归还）
+     */
+    public void recordHold(long nanos) {
+        MeterRegistry meterRegistry = meterRegistry();
+        if (meterRegistry != null) {
+            Timer.builder("db.connection.hold")
+                    .tag("caller", DbCallerContext.currentCaller())
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+        Long taskLogId = DbCallerContext.currentTaskLogId();
+        if (taskLogId != null) {
+            synchronized (taskSummaries) {
+                TaskSqlSummary summary = taskSummaries.computeIfAbsent(taskLogId, id -> new TaskSqlSummary());
+                summary.connectionHoldNanos += nanos;
+            }
+        }
+    }
+
+    /**
+     * 按调用方列出总耗时最高的SQL
+     *
+     * @param limit 每个调用方返回的SQL条数
+     * @param callerFilter 调用方过滤（包含匹配），为空时返回全部调用方
+     */
+    public List<Map<String, Object>> getHotspots(int limit, String callerFilter) {
+        int topN = Math.max(1, limit);
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Map<String, SqlStat>> entry : stats.entrySet()) {
+            String caller = entry.getKey();
+            if (callerFilter != null && !callerFilter.isEmpty() && !caller.contains(callerFilter)) {
+                continue;
+            }
+            long count = 0;
+            long totalNanos = 0;
+            long rows = 0;
+            List<Map.Entry<String, SqlStat>> statements = new ArrayList<>(entry.getValue().entrySet());
+            for (Map.Entry<String, SqlStat> statement : statements) {
+                count += statement.getValue().count.sum();
+                totalNanos += statement.getValue().totalNanos.sum();
+                rows += statement.getValue().rows.sum();
+            }
+            statements.sort(Comparator.comparingLong((Map.Entry<String, SqlStat> e) -> e.getValue().totalNanos.sum()).reversed());
+
+            List<Map<String, Object>> top = new ArrayList<>();
+            for (Map.Entry<String, SqlStat> statement : statements.subList(0, Math.min(topN, statements.size()))) {
+                top.add(statement.getValue().toMap(statement.getKey()));
+            }
+
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("caller", caller);
+            item.put("executeCount", count);
+            item.put("totalTimeMs", TimeUnit.NANOSECONDS.toMillis(totalNanos));
+            item.put("rows", rows);
+            item.put("statementCount", statements.size());
+            item.put("topStatements", top);
+            result.add(item);
+        }
+        result.sort(Comparator.comparingLong((Map<String, Object> m) -> (Long) m.get("totalTimeMs")).reversed());
+        return result;
+    }
+
+    /**
+     * 统一任务执行日志的SQL汇总，日志不在最近记录中时返回null
+     */
+    public Map<String, Object> getTaskSummary(Long taskLogId) {
+        synchronized (taskSummaries) {
+            TaskSqlSummary summary = taskSummaries.get(taskLogId);
+            if (summary == null) {
+                return null;
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("taskLogId", taskLogId);
+            result.put("executeCount", summary.count);
+            result.put("totalTimeMs", TimeUnit.NANOSECONDS.toMillis(summary.totalNanos));
+            result.put("rows", summary.rows);
+            result.put("connectionHoldMs", TimeUnit.NANOSECONDS.toMillis(summary.connectionHoldNanos));
+            return result;
+        }
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        stats.clear();
+        synchronized (taskSummaries) {
+            taskSummaries.clear();
+        }
+    }
+
+    private MeterRegistry meterRegistry() {
+        if (!meterRegistryResolved) {
+            try {
+                meterRegistry = meterRegistryProvider.getIfAvailable();
+            } catch (Exception e) {
+                log.debug("MeterRegistry尚不可用: {}", e.getMessage());
+                return null;
+            }
+            meterRegistryResolved = true;
+        }
+        return meterRegistry;
+    }
+
+    private void recordRowsMetric(MeterRegistry meterRegistry, String caller, long rows) {
+        DistributionSummary.builder("db.sql.rows")
+                .tag("caller", caller)
+                .register(meterRegistry)
+                .record(rows);
+    }
+
+    private SqlStat statFor(String caller, String sql) {
+        String callerKey = caller;
+        if (!stats.containsKey(callerKey) && stats.size() >= MAX_CALLERS) {
+            callerKey = OTHER;
+        }
+        Map<String, SqlStat> callerStats = stats.computeIfAbsent(callerKey, key -> new ConcurrentHashMap<>());
+        String sqlKey = normalize(sql);
+        if (!callerStats.containsKey(sqlKey) && callerStats.size() >= MAX_SQL_PER_CALLER) {
+            sqlKey = OTHER;
+        }
+        return callerStats.computeIfAbsent(sqlKey, key -> new SqlStat());
+    }
+
+    private static String normalize(String sql) {
+        if (sql == null) {
+            return OTHER;
+        }
+        String normalized = sql.replaceAll("\\s+", " ").trim();
+        return normalized.length() > MAX_SQL_LENGTH ? normalized.substring(0, MAX_SQL_LENGTH) + "..." : normalized;
+    }
+
+    private static class SqlStat {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        Map<String, Object> toMap(String sql) {
+            long executions = count.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sql", sql);
+            map.put("executeCount", executions);
+            map.put("totalTimeMs", TimeUnit.NANOSECONDS.toMillis(total));
+            map.put("avgTimeMs", executions > 0 ? Math.round(total / 1_000_000.0 / executions * 100) / 100.0 : 0);
+            map.put("maxTimeMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            map.put("rows", rows.sum());
+            map.put("errorCount", errors.sum());
+            return map;
+        }
+    }
+
+    private static class TaskSqlSummary {
+        private long count;
+        private long totalNanos;
+        private long rows;
+        private long connectionHoldNanos;
+    }
+}
@@ -0,0 +1,559 @@
+package com.certification.service.monitor;
+
+import com.certification.service.crawler.CrawlerBatchMetrics;
+import com.certification.service.crawler.CrawlerProgressSink;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 任务实时进度
+ * 爬虫执行（含爬虫逐批次上报，见 {@link #crawlerSink}）、分片、AI判断和批量更新任务把进度写入内存，
+ * 由定时推送线程通过SSE推送给订阅的前端，前端不再需要轮询执行日志表。
+ *
+ * 写入只修改内存中的计数并标记变化，不做任何网络IO；定时线程按 app.progress.push-interval-ms
+ * 合并变化的任务，交给独立的推送线程池（app.progress.send-threads）写入各订阅连接：
+ * - 定时线程不做网络IO，慢客户端不会占用共享的 @Scheduled 线程池，也不会拖慢爬虫和AI判断线程
+ * - 每个订阅同一时间只有一个推送在执行，推送期间的变化按任务合并，下一次只推送最新状态
+ * - 一次推送超过 app.progress.slow-subscriber-ms 仍未完成的订阅视为慢客户端，直接移除，不再推送
+ * 进度只记录本实例执行的任务，结束的任务保留 app.progress.retain-finished-seconds 后移除。
+ */
+@Slf4j
+@Component
+public class TaskProgressHub {
+
+    public static final String TYPE_CRAWLER = "CRAWLER";
+    public static final String TYPE_AI_JUDGE = "AI_JUDGE";
+    public static final String TYPE_BULK_UPDATE = "BULK_UPDATE";
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    private static final int MAX_ENTRIES = 1000;
+    private static final long HEARTBEAT_INTERVAL_MS = 15000;
+
+    @Value("${app.progress.emitter-timeout-minutes:30}")
+    private long emitterTimeoutMinutes;
+
+    @Value("${app.progress.retain-finished-seconds:300}")
+    private long retainFinishedSeconds;
+
+    @Value("${app.progress.send-threads:2}")
+    private int sendThreads;
+
+    @Value("${app.progress.slow-subscriber-ms:30000}")
+    private long slowSubscriberMs;
+
+    /**
+     * Key: 进度Key（crawler:日志ID / ai-judge:任务ID / bulk-update:操作ID）
+     */
+    private final Map<String, TaskProgress> progresses = new ConcurrentHashMap<>();
+
+    /**
+     * 上次推送后有变化的进度Key
+     */
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private ExecutorService sendExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        sendExecutor = Executors.newFixedThreadPool(Math.max(1, sendThreads), r -> {
+            Thread t = new Thread(r, "progress-push-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * 爬虫执行日志的进度Key
+     */
+    public static String crawlerKey(Long taskLogId) {
+        return "crawler:" + taskLogId;
+    }
+
+    /**
+     * AI判断任务的进度Key
+     */
+    public static String aiJudgeKey(String taskId) {
+        return "ai-judge:" + taskId;
+    }
+
+    /**
+     * 批量更新操作的进度Key
+     */
+    public static String bulkUpdateKey(String operationId) {
+        return "bulk-update:" + operationId;
+    }
+
+    /**
+     * 开始记录一个任务的进度，同一Key已存在时重新开始（如重试失败分片）
+     *
+     * @param key 进度Key
+     * @param type 任务类型：CRAWLER / AI_JUDGE / BULK_UPDATE
+     * @param name 任务名称
+     * @param source 爬虫名称或数据源
+     */
+    public void start(String key, String type, String name, String source) {
+        if (progresses.size() >= MAX_ENTRIES) {
+            evictFinished(0);
+        }
+        progresses.put(key, new TaskProgress(key, type, name, source));
+        changed.add(key);
+    }
+
+    /**
+     * 设置预计处理总数（未知时不设置，不计算剩余时间）
+     */
+    public void setTotal(String key, long total) {
+        TaskProgress progress = progresses.get(key);
+        if (progress != null) {
+            progress.setTotal(total);
+            changed.add(key);
+        }
+    }
+
+    /**
+     * 覆盖当前计数
+     *
+     * @param fetched 已获取（AI判断为已处理）
+     * @param saved 已保存（AI判断为相关/保留）
+     * @param skipped 已跳过（AI判断为不相关/降级）
+     * @param failed 失败
+     */
+    public void setCounts(String key, long fetched, long saved, long skipped, long failed) {
+        TaskProgress progress = progresses.get(key);
+        if (progress != null) {
+            progress.setCounts(fetched, saved, skipped, failed);
+            changed.add(key);
+        }
+    }
+
+    /**
+     * 累加计数，用于多个分片并行写入同一任务
+     */
+    public void addCounts(String key, long fetched, long saved, long skipped, long failed) {
+        TaskProgress progress = progresses.get(key);
+        if (progress != null) {
+            progress.addCounts(fetched, saved, skipped, failed);
+            changed.add(key);
+        }
+    }
+
+    /**
+     * 爬虫执行日志的进度上报器，爬虫上报的批次和页码写入该执行日志的进度
+     */
+    public CrawlerProgressSink crawlerSink(Long taskLogId) {
+        String key = crawlerKey(taskLogId);
+        return new CrawlerProgressSink() {
+            @Override
+            public void onBatch(CrawlerBatchMetrics batch) {
+                TaskProgress progress = progresses.get(key);
+                if (progress != null) {
+                    progress.addBatch(batch);
+                    changed.add(key);
+                }
+            }
+
+            @Override
+            public void onPage(int currentPage, Integer totalPages) {
+                setPage(key, currentPage, totalPages);
+            }
+        };
+    }
+
+    /**
+     * 设置当前页和总页数，总页数未知时传null
+     */
+    public void setPage(String key, int currentPage, Integer totalPages) {
+        TaskProgress progress = progresses.get(key);
+        if (progress != null) {
+            progress.setPage(currentPage, totalPages);
+            changed.add(key);
+        }
+    }
+
+    /**
+     * 完成一页（或一个分片）
+     */
+    public void advancePage(String key, Integer totalPages) {
+        TaskProgress progress = progresses.get(key);
+        if (progress != null) {
+            progress.advancePage(totalPages);
+            changed.add(key);
+        }
+    }
+
+    /**
+     * 设置当前阶段说明，如正在处理的数据类型
+     */
+    public void setMessage(String key, String message) {
+        TaskProgress progress = progresses.get(key);
+        if (progress != null) {
+            progress.setMessage(message);
+            changed.add(key);
+        }
+    }
+
+    /**
+     * 任务结束
+     *
+     * @param status SUCCESS / FAILED / CANCELLED
+     */
+    public void finish(String key, String status, String message) {
+        TaskProgress progress = progresses.get(key);
+        if (progress != null) {
+            progress.finish(status, message);
+            changed.add(key);
+        }
+    }
+
+    /**
+     * 当前进度快照，按开始时间倒序
+     *
+     * @param type 任务类型过滤，为空时返回全部
+     */
+    public List<Map<String, Object>> getSnapshot(String type) {
+        List<TaskProgress> matched = new ArrayList<>();
+        for (TaskProgress progress : progresses.values()) {
+            if (type == null || type.isEmpty() || type.equalsIgnoreCase(progress.type)) {
+                matched.add(progress);
+            }
+        }
+        matched.sort(Comparator.comparingLong((TaskProgress p) -> p.startMillis).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (TaskProgress progress : matched) {
+            result.add(progress.toMap());
+        }
+        return result;
+    }
+
+    /**
+     * 订阅进度推送
+     * 订阅后先推送一次 snapshot 事件（当前全部匹配的任务），之后推送 progress 事件（有变化的任务列表）
+     *
+     * @param type 任务类型过滤，为空时不过滤
+     * @param key 进度Key过滤，为空时不过滤
+     */
+    public SseEmitter subscribe(String type, String key) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(emitterTimeoutMinutes));
+        Subscriber subscriber = new Subscriber(emitter, type, key);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        List<Map<String, Object>> snapshot = new ArrayList<>();
+        for (Map<String, Object> progress : getSnapshot(type)) {
+            if (subscriber.accepts(progress)) {
+                snapshot.add(progress);
+            }
+        }
+        send(subscriber, SseEmitter.event().name("snapshot").data(snapshot));
+        log.debug("新增进度订阅: type={}, key={}, 当前订阅数={}", type, key, subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * 当前订阅数
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 把变化的任务进度交给推送线程池，没有变化时定期发送心跳保持连接；本方法不做网络IO
+     */
+    @Scheduled(fixedDelayString = "${app.progress.push-interval-ms:1000}")
+    public void push() {
+        List<Map<String, Object>> updates = new ArrayList<>();
+        Iterator<String> iterator = changed.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            iterator.remove();
+            TaskProgress progress = progresses.get(key);
+            if (progress != null) {
+                updates.add(progress.toMap());
+            }
+        }
+        evictFinished(TimeUnit.SECONDS.toMillis(retainFinishedSeconds));
+
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            for (Map<String, Object> update : updates) {
+                if (subscriber.accepts(update)) {
+                    subscriber.pending.put((String) update.get("key"), update);
+                }
+            }
+            if (subscriber.sending.get()) {
+                if (now - subscriber.sendStartMillis > slowSubscriberMs) {
+                    // 推送阻塞在网络写入上，不再等待，阻塞的写入由连接超时结束
+                    subscribers.remove(subscriber);
+                    log.warn("进度订阅推送超过{}ms未完成，移除慢客户端: type={}, key={}", slowSubscriberMs, subscriber.type, subscriber.key);
+                }
+                continue;
+            }
+            if (!subscriber.pending.isEmpty() || now - subscriber.lastSentMillis >= HEARTBEAT_INTERVAL_MS) {
+                dispatch(subscriber);
+            }
+        }
+    }
+
+    /**
+     * 在推送线程池中发送订阅的待推送进度（没有时发送心跳），同一订阅同一时间只有一个推送
+     */
+    private void dispatch(Subscriber subscriber) {
+        if (!subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        subscriber.sendStartMillis = System.currentTimeMillis();
+        try {
+            sendExecutor.execute(() -> {
+                try {
+                    List<Map<String, Object>> matched = new ArrayList<>();
+                    for (String key : new ArrayList<>(subscriber.pending.keySet())) {
+                        Map<String, Object> update = subscriber.pending.remove(key);
+                        if (update != null) {
+                            matched.add(update);
+                        }
+                    }
+                    if (!matched.isEmpty()) {
+                        send(subscriber, SseEmitter.event().name("progress").data(matched));
+                    } else {
+                        send(subscriber, SseEmitter.event().comment("heartbeat"));
+                    }
+                } finally {
+                    subscriber.sending.set(false);
+                }
+            });
+        } catch (Exception e) {
+            // 推送线程池已关闭
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        synchronized (subscriber) {
+            try {
+                subscriber.emitter.send(event);
+                subscriber.lastSentMillis = System.currentTimeMillis();
+            } catch (Exception e) {
+                // 客户端已断开
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void evictFinished(long retainMillis) {
+        long threshold = System.currentTimeMillis() - retainMillis;
+        progresses.values().removeIf(progress -> progress.endMillis > 0 && progress.endMillis <= threshold);
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final String type;
+        private final String key;
+        private volatile long lastSentMillis = System.currentTimeMillis();
+
+        /**
+         * 待推送的进度，按进度Key只保留最新状态
+         */
+        private final Map<String, Map<String, Object>> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        private volatile long sendStartMillis;
+
+        Subscriber(SseEmitter emitter, String type, String key) {
+            this.emitter = emitter;
+            this.type = type;
+            this.key = key;
+        }
+
+        boolean accepts(Map<String, Object> progress) {
+            if (type != null && !type.isEmpty() && !type.equalsIgnoreCase((String) progress.get("type"))) {
+                return false;
+            }
+            return key == null || key.isEmpty() || key.equals(progress.get("key"));
+        }
+    }
+
+    /**
+     * 单个任务的进度，计数可能被多个分片线程同时写入
+     */
+    private static class TaskProgress {
+        private final String key;
+        private final String type;
+        private final String name;
+        private final String source;
+        private final long startMillis = System.currentTimeMillis();
+        private String status = STATUS_RUNNING;
+        private String message;
+        private long total;
+        private long fetched;
+        private long saved;
+        private long skipped;
+        private long failed;
+        private int currentPage;
+        private Integer totalPages;
+        private long batchCount;
+        private long batchElapsedMs;
+        private double lastBatchRate;
+        private long requests;
+        private long bytes;
+        private long requestMs;
+        private long updateMillis = startMillis;
+        private volatile long endMillis;
+
+        TaskProgress(String key, String type, String name, String source) {
+            this.key = key;
+            this.type = type;
+            this.name = name;
+            this.source = source;
+        }
+
+        synchronized void setTotal(long total) {
+            this.total = total;
+            updateMillis = System.currentTimeMillis();
+        }
+
+        synchronized void setCounts(long fetched, long saved, long skipped, long failed) {
+            this.fetched = fetched;
+            this.saved = saved;
+            this.skipped = skipped;
+            this.failed = failed;
+            updateMillis = System.currentTimeMillis();
+        }
+
+        synchronized void addCounts(long fetched, long saved, long skipped, long failed) {
+            this.fetched += fetched;
+            this.saved += saved;
+            this.skipped += skipped;
+            this.failed += failed;
+            updateMillis = System.currentTimeMillis();
+        }
+
+        synchronized void addBatch(CrawlerBatchMetrics batch) {
+            addCounts(batch.getFetched(), batch.getSaved(), batch.getSkipped(), batch.getFailed());
+            batchCount++;
+            batchElapsedMs += batch.getElapsedMs();
+            requests += batch.getRequests();
+            bytes += batch.getBytes();
+            requestMs += batch.getRequestMs();
+            if (batch.getElapsedMs() > 0) {
+                lastBatchRate = batch.getFetched() * 1000.0 / batch.getElapsedMs();
+            }
+        }
+
+        synchronized void setPage(int currentPage, Integer totalPages) {
+            this.currentPage = currentPage;
+            if (totalPages != null) {
+                this.totalPages = totalPages;
+            }
+            updateMillis = System.currentTimeMillis();
+        }
+
+        synchronized void advancePage(Integer totalPages) {
+            setPage(currentPage + 1, totalPages);
+        }
+
+        synchronized void setMessage(String message) {
+            this.message = message;
+            updateMillis = System.currentTimeMillis();
+        }
+
+        synchronized void finish(String status, String message) {
+            this.status = status;
+            if (message != null) {
+                this.message = message;
+            }
+            updateMillis = System.currentTimeMillis();
+            endMillis = updateMillis;
+        }
+
+        synchronized Map<String, Object> toMap() {
+            long elapsedMillis = (endMillis > 0 ? endMillis : System.currentTimeMillis()) - startMillis;
+            double elapsedSeconds = Math.max(elapsedMillis, 1) / 1000.0;
+            double rate = fetched / elapsedSeconds;
+
+            // 剩余时间：优先按总数和处理速率估算，总数未知时按页数（分片数）估算
+            Long etaSeconds = null;
+            Double percent = null;
+            if (endMillis == 0) {
+                if (total > 0 && fetched > 0) {
+                    etaSeconds = Math.round(Math.max(total - fetched, 0) / rate);
+                    percent = Math.min(100.0, Math.round(fetched * 10000.0 / total) / 100.0);
+                } else if (totalPages != null && totalPages > 0 && currentPage > 0) {
+                    etaSeconds = Math.round(elapsedSeconds * Math.max(totalPages - currentPage, 0) / currentPage);
+                    percent = Math.min(100.0, Math.round(currentPage * 10000.0 / totalPages) / 100.0);
+                }
+            } else if (STATUS_SUCCESS.equals(status)) {
+                percent = 100.0;
+            }
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("key", key);
+            map.put("type", type);
+            map.put("name", name);
+            map.put("source", source);
+            map.put("status", status);
+            map.put("message", message);
+            map.put("total", total > 0 ? total : null);
+            map.put("fetched", fetched);
+            map.put("saved", saved);
+            map.put("skipped", skipped);
+            map.put("failed", failed);
+            map.put("currentPage", currentPage);
+            map.put("totalPages", totalPages);
+            map.put("percent", percent);
+            map.put("ratePerSecond", Math.round(rate * 100) / 100.0);
+            map.put("batchCount", batchCount);
+            map.put("avgBatchElapsedMs", batchCount > 0 ? batchElapsedMs / batchCount : null);
+            map.put("lastBatchRatePerSecond", batchCount > 0 ? Math.round(lastBatchRate * 100) / 100.0 : null);
+            map.put("requests", requests);
+            map.put("bytes", bytes);
+            map.put("avgRequestLatencyMs", requests > 0 ? requestMs / requests : null);
+            map.put("etaSeconds", etaSeconds);
+            map.put("elapsedSeconds", elapsedMillis / 1000);
+            map.put("startTime", toDateTime(startMillis));
+            map.put("updateTime", toDateTime(updateMillis));
+            map.put("endTime", endMillis > 0 ? toDateTime(endMillis) : null);
+            return map;
+        }
+
+        private static LocalDateTime toDateTime(long millis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.certification.entity.UnifiedTaskConfig;
 import com.certification.entity.UnifiedTaskLog;
 import com.certification.repository.UnifiedTaskConfigRepository;
 import com.certification.repository.UnifiedTaskLogRepository;
+import com.certification.service.crawler.CrawlWatermarkService;
 import com.certification.service.crawler.CrawlerParams;
 import com.certification.service.crawler.CrawlerResult;
 import com.certification.service.crawler.CrawlerRegistryService;
@@ -43,6 +44,7 @@ public class UnifiedCrawlerServiceImpl implements UnifiedCrawlerService {
     private final UnifiedTaskConfigRepository taskConfigRepository;
     private final UnifiedTaskLogRepository taskLogRepository;
     private final ObjectMapper objectMapper;
+    private final CrawlWatermarkService watermarkService;
     private final ExecutorService executorService = Executors.newFixedThreadPool(10);
     
     @Override
@@ -111,7 +113,6 @@ public class UnifiedCrawlerServiceImpl implements UnifiedCrawlerService {
     }
     
     @Override
-    @Transactional
     public CrawlerResult executeCrawler(String crawlerName, CrawlerParams params) {
         log.info("执行爬虫任务: {}, 参数: {}", crawlerName, params);
         
@@ -121,7 +122,7 @@ public class UnifiedCrawlerServiceImpl implements UnifiedCrawlerService {
         }
         
         try {
-            CrawlerResult result = executor.execute(params);
+            CrawlerResult result = watermarkService.execute(executor, params);
             log.info("爬虫执行完成: {}, 结果: {}", crawlerName, result);
             return result;
         } catch (Exception e) {
@@ -131,7 +132,6 @@ public class UnifiedCrawlerServiceImpl implements UnifiedCrawlerService {
     }
     
     @Override
-    @Transactional
     public BatchResult batchExecute(List<String> crawlerNames, CrawlerParams params) {
         log.info("批量执行爬虫任务: {}, 参数: {}", crawlerNames, params);
         
@@ -185,7 +185,6 @@ public class UnifiedCrawlerServiceImpl implements UnifiedCrawlerService {
     }
     
     @Override
-    @Transactional
     public BatchResult batchTest(List<String> crawlerNames) {
         log.info("批量测试爬虫: {}", crawlerNames);
         
@@ -262,7 +261,6 @@ public class UnifiedCrawlerServiceImpl implements UnifiedCrawlerService {
     }
     
     @Override
-    @Transactional
     public TaskExecutionResult executeTask(Long taskId) {
         log.info("执行任务: {}", taskId);
         
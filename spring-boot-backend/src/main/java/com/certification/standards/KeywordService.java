@@ -4,6 +4,8 @@ import com.certification.entity.common.Keyword;
 import com.certification.entity.common.CertNewsData;
 import com.certification.repository.KeywordRepository;
 import com.certification.repository.CrawlerDataRepository;
+import com.certification.service.cache.DataVersionService;
+import com.certification.service.cache.TwoTierCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -24,6 +26,9 @@ public class KeywordService {
     @Autowired
     private CrawlerDataRepository crawlerDataRepository;
 
+    @Autowired
+    private TwoTierCache twoTierCache;
+
     /**
      * 设置当前关键词为默认关键词
      */
@@ -1270,10 +1275,11 @@ public class KeywordService {
     }
 
     /**
-     * 获取所有启用的关键词字符串列表
+     * 获取所有启用的关键词字符串列表（关键词变化前使用缓存结果）
      */
     public List<String> getAllEnabledKeywords() {
-        return keywordRepository.findAllEnabledKeywords();
+        return twoTierCache.get("enabledKeywords", new String[]{DataVersionService.KEYWORD},
+                () -> new ArrayList<>(keywordRepository.findAllEnabledKeywords()));
     }
 
     /**
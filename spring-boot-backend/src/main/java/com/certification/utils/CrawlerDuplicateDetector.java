@@ -1,11 +1,16 @@
 package com.certification.utils;
 
+import com.certification.service.crawler.CrawlerBatchMetrics;
+import com.certification.service.crawler.CrawlerCancellationToken;
+import com.certification.service.crawler.CrawlerProgressContext;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * 爬虫连续重复批次检测工具类
  * 用于检测连续多个批次数据是否全部重复，以决定是否停止爬取
+ * 每个批次同时上报给当前线程的爬虫进度上报器（{@link CrawlerProgressContext}），批次耗时为距上一批次的时间；
+ * 当前线程的取消令牌（{@link CrawlerCancellationToken}）已取消或超出预算时，记录批次后同样返回应停止
  */
 @Slf4j
 @Data
@@ -36,6 +41,16 @@ public class CrawlerDuplicateDetector {
      */
     private int totalSkipped = 0;
 
+    /**
+     * 总失败数量
+     */
+    private int totalFailed = 0;
+
+    /**
+     * 上一批次结束时间（创建检测器时开始计时）
+     */
+    private long lastBatchMillis = System.currentTimeMillis();
+
     /**
      * 构造函数
      */
@@ -58,9 +73,31 @@ public class CrawlerDuplicateDetector {
      * @return 是否应该停止爬取
      */
     public boolean recordBatch(int batchSize, int savedCount) {
+        return recordBatch(batchSize, savedCount, 0);
+    }
+
+    /**
+     * 记录批次结果
+     * @param batchSize 批次大小（获取的数据总数）
+     * @param savedCount 本批次保存的新数据数量
+     * @param failedCount 本批次处理失败的数量（计入获取数，不计入跳过数）
+     * @return 是否应该停止爬取
+     */
+    public boolean recordBatch(int batchSize, int savedCount, int failedCount) {
+        int skippedCount = Math.max(batchSize - savedCount - failedCount, 0);
         totalFetched += batchSize;
         totalSaved += savedCount;
-        totalSkipped += (batchSize - savedCount);
+        totalSkipped += skippedCount;
+        totalFailed += failedCount;
+
+        long now = System.currentTimeMillis();
+        CrawlerProgressContext.current().onBatch(CrawlerBatchMetrics.of(batchSize, savedCount, skippedCount, failedCount)
+            .setElapsedMs(now - lastBatchMillis));
+        lastBatchMillis = now;
+
+        if (isCancelled()) {
+            return true;
+        }
 
         // 如果本批次没有保存任何新数据
         if (savedCount == 0 && batchSize > 0) {
@@ -76,7 +113,7 @@ public class CrawlerDuplicateDetector {
         } else if (savedCount > 0) {
             // 有新数据，重置计数器
             log.info("✅ 批次统计 - 本批次: 获取{}条, 新增{}条, 重复{}条 | 连续重复批次已重置",
-                batchSize, savedCount, (batchSize - savedCount));
+                batchSize, savedCount, skippedCount);
             consecutiveDuplicateBatches = 0;
         }
 
@@ -107,6 +144,18 @@ public class CrawlerDuplicateDetector {
             consecutiveDuplicateBatches = 0;
         }
 
+        return isCancelled();
+    }
+
+    /**
+     * 当前执行是否已取消或超出预算
+     */
+    private boolean isCancelled() {
+        CrawlerCancellationToken token = CrawlerCancellationToken.current();
+        if (token.isCancelled()) {
+            log.warn("⚠️ 爬虫任务已停止: {}", token.getCancelReason());
+            return true;
+        }
         return false;
     }
 
@@ -134,6 +183,7 @@ public class CrawlerDuplicateDetector {
         log.info("   总获取: {} 条", totalFetched);
         log.info("   总保存: {} 条", totalSaved);
         log.info("   总跳过: {} 条", totalSkipped);
+        log.info("   总失败: {} 条", totalFailed);
         log.info("   连续重复批次: {} 次", consecutiveDuplicateBatches);
         log.info("=" + "=".repeat(60));
     }
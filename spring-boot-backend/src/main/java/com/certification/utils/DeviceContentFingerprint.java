@@ -0,0 +1,133 @@
+package com.certification.utils;
+
+import com.certification.entity.common.BaseDeviceEntity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Transient;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备数据内容指纹工具类
+ * 对子类实体声明的业务字段计算SHA-256，用于重复爬取时判断记录内容是否变化。
+ *
+ * 不参与指纹计算的字段：
+ * - 主键和 @Transient 字段
+ * - BaseDeviceEntity 中的字段（风险等级、关键词、备注等由系统或人工维护，不是数据源内容）
+ * - 查看状态等本地标记字段
+ */
+public final class DeviceContentFingerprint {
+
+    private static final Set<String> IGNORED_FIELDS = Set.of("isNew", "newDataViewed", "articleIndex");
+
+    private static final Map<Class<?>, List<Field>> CONTENT_FIELDS = new ConcurrentHashMap<>();
+
+    private DeviceContentFingerprint() {
+    }
+
+    /**
+     * 计算内容指纹
+     */
+    public static String compute(BaseDeviceEntity entity) {
+        StringBuilder sb = new StringBuilder();
+        for (Field field : contentFields(entity.getClass())) {
+            sb.append(field.getName()).append('=').append(normalize(read(field, entity))).append('\u001F');
+        }
+        return sha256(sb.toString());
+    }
+
+    /**
+     * 比较两条记录的业务字段
+     * @return 变化的字段：字段名 -> [旧值, 新值]
+     */
+    public static Map<String, Object[]> diff(BaseDeviceEntity oldEntity, BaseDeviceEntity newEntity) {
+        Map<String, Object[]> changes = new LinkedHashMap<>();
+        for (Field field : contentFields(oldEntity.getClass())) {
+            Object oldValue = read(field, oldEntity);
+            Object newValue = read(field, newEntity);
+            if (!Objects.equals(normalize(oldValue), normalize(newValue))) {
+                changes.put(field.getName(), new Object[]{oldValue, newValue});
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 将业务字段从新抓取的记录复制到已有记录
+     */
+    public static void copyContent(BaseDeviceEntity from, BaseDeviceEntity to) {
+        for (Field field : contentFields(to.getClass())) {
+            try {
+                field.set(to, field.get(from));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("无法写入字段: " + field.getName(), e);
+            }
+        }
+    }
+
+    private static List<Field> contentFields(Class<?> type) {
+        return CONTENT_FIELDS.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != BaseDeviceEntity.class && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                            || field.isAnnotationPresent(Id.class) || field.isAnnotationPresent(Transient.class)
+                            || IGNORED_FIELDS.contains(field.getName())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            fields.sort(Comparator.comparing(Field::getName));
+            return fields;
+        });
+    }
+
+    private static Object read(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法读取字段: " + field.getName(), e);
+        }
+    }
+
+    private static String normalize(Object value) {
+        if (value == null) {
+            return "\u0000";
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+        }
+        if (value instanceof String) {
+            return ((String) value).trim();
+        }
+        return String.valueOf(value);
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
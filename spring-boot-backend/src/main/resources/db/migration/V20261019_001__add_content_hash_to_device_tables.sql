@@ -0,0 +1,22 @@
+-- 为设备数据表添加内容指纹字段
+-- 创建时间: 2026-10-19
+-- 说明: 存储业务字段的SHA-256，重复爬取时比较指纹，只更新内容发生变化的记录
+--       已有数据的指纹为空，首次比较时按记录内容现场计算
+
+ALTER TABLE common_db.t_device_510k
+ADD COLUMN content_hash VARCHAR(64) COMMENT '内容指纹（业务字段SHA-256）';
+
+ALTER TABLE common_db.t_device_recall
+ADD COLUMN content_hash VARCHAR(64) COMMENT '内容指纹（业务字段SHA-256）';
+
+ALTER TABLE common_db.t_device_event
+ADD COLUMN content_hash VARCHAR(64) COMMENT '内容指纹（业务字段SHA-256）';
+
+ALTER TABLE common_db.t_device_registration
+ADD COLUMN content_hash VARCHAR(64) COMMENT '内容指纹（业务字段SHA-256）';
+
+ALTER TABLE common_db.t_guidance_document
+ADD COLUMN content_hash VARCHAR(64) COMMENT '内容指纹（业务字段SHA-256）';
+
+ALTER TABLE common_db.t_customs_case
+ADD COLUMN content_hash VARCHAR(64) COMMENT '内容指纹（业务字段SHA-256）';
@@ -0,0 +1,111 @@
+-- 为设备数据表添加游标分页索引
+-- 创建时间: 2026-10-19
+-- 说明: 游标分页按 id 倒序并可按 jd_country 过滤，(jd_country, id) 索引使按国家翻页同样只扫描一页数据
+
+SET @index_exists = (
+    SELECT COUNT(*)
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = 'common_db'
+    AND TABLE_NAME = 't_device_510k'
+    AND INDEX_NAME = 'idx_510k_country_id'
+);
+
+SET @sql_index = IF(
+    @index_exists = 0,
+    'CREATE INDEX idx_510k_country_id ON common_db.t_device_510k(jd_country, id)',
+    'SELECT "索引 idx_510k_country_id 已存在，跳过创建" AS message'
+);
+
+PREPARE stmt FROM @sql_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (
+    SELECT COUNT(*)
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = 'common_db'
+    AND TABLE_NAME = 't_device_recall'
+    AND INDEX_NAME = 'idx_recall_country_id'
+);
+
+SET @sql_index = IF(
+    @index_exists = 0,
+    'CREATE INDEX idx_recall_country_id ON common_db.t_device_recall(jd_country, id)',
+    'SELECT "索引 idx_recall_country_id 已存在，跳过创建" AS message'
+);
+
+PREPARE stmt FROM @sql_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (
+    SELECT COUNT(*)
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = 'common_db'
+    AND TABLE_NAME = 't_device_event'
+    AND INDEX_NAME = 'idx_event_country_id'
+);
+
+SET @sql_index = IF(
+    @index_exists = 0,
+    'CREATE INDEX idx_event_country_id ON common_db.t_device_event(jd_country, id)',
+    'SELECT "索引 idx_event_country_id 已存在，跳过创建" AS message'
+);
+
+PREPARE stmt FROM @sql_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (
+    SELECT COUNT(*)
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = 'common_db'
+    AND TABLE_NAME = 't_device_registration'
+    AND INDEX_NAME = 'idx_registration_country_id'
+);
+
+SET @sql_index = IF(
+    @index_exists = 0,
+    'CREATE INDEX idx_registration_country_id ON common_db.t_device_registration(jd_country, id)',
+    'SELECT "索引 idx_registration_country_id 已存在，跳过创建" AS message'
+);
+
+PREPARE stmt FROM @sql_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (
+    SELECT COUNT(*)
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = 'common_db'
+    AND TABLE_NAME = 't_guidance_document'
+    AND INDEX_NAME = 'idx_guidance_country_id'
+);
+
+SET @sql_index = IF(
+    @index_exists = 0,
+    'CREATE INDEX idx_guidance_country_id ON common_db.t_guidance_document(jd_country, id)',
+    'SELECT "索引 idx_guidance_country_id 已存在，跳过创建" AS message'
+);
+
+PREPARE stmt FROM @sql_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (
+    SELECT COUNT(*)
+    FROM INFORMATION_SCHEMA.STATISTICS
+    WHERE TABLE_SCHEMA = 'common_db'
+    AND TABLE_NAME = 't_customs_case'
+    AND INDEX_NAME = 'idx_customs_case_country_id'
+);
+
+SET @sql_index = IF(
+    @index_exists = 0,
+    'CREATE INDEX idx_customs_case_country_id ON common_db.t_customs_case(jd_country, id)',
+    'SELECT "索引 idx_customs_case_country_id 已存在，跳过创建" AS message'
+);
+
+PREPARE stmt FROM @sql_index;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
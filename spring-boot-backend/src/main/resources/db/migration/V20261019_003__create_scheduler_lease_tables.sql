@@ -0,0 +1,24 @@
+-- 创建定时任务租约表和调度节点表
+-- 创建时间: 2026-10-19
+-- 说明: 多实例部署时，每次定时触发通过租约保证只在一个实例上执行；
+--       节点表记录存活实例，用于把不同任务分散到不同实例
+
+CREATE TABLE IF NOT EXISTS common_db.t_scheduler_lease (
+    task_name VARCHAR(150) NOT NULL COMMENT '任务名称',
+    owner VARCHAR(100) NOT NULL DEFAULT '' COMMENT '当前持有租约的节点',
+    fire_time DATETIME NOT NULL DEFAULT '1970-01-01 00:00:00' COMMENT '最近一次被领取的触发时间',
+    expires_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '租约到期时间',
+    heartbeat_at DATETIME(3) NULL COMMENT '最近心跳时间',
+    acquired_at DATETIME(3) NULL COMMENT '领取时间',
+    PRIMARY KEY (task_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='定时任务租约表';
+
+CREATE TABLE IF NOT EXISTS common_db.t_scheduler_node (
+    node_id VARCHAR(100) NOT NULL COMMENT '节点标识',
+    host_name VARCHAR(255) COMMENT '主机名',
+    running_tasks INT NOT NULL DEFAULT 0 COMMENT '正在执行的任务数',
+    started_at DATETIME(3) NOT NULL COMMENT '启动时间',
+    heartbeat_at DATETIME(3) NOT NULL COMMENT '最近心跳时间',
+    PRIMARY KEY (node_id),
+    INDEX idx_heartbeat_at (heartbeat_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='调度节点表';
@@ -0,0 +1,32 @@
+-- 创建统一任务分片表
+-- 创建时间: 2026-10-19
+-- 说明: 关键词/编码列表较长的任务按分片执行，每个分片一行，
+--       分片可由本实例线程或其他实例领取执行，失败时只重试该分片，结果汇总到 t_unified_task_log
+
+CREATE TABLE IF NOT EXISTS t_unified_task_shard (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '分片ID',
+    task_log_id BIGINT NOT NULL COMMENT '所属执行日志ID',
+    task_id BIGINT COMMENT '任务ID',
+    crawler_name VARCHAR(50) NOT NULL COMMENT '爬虫名称',
+    shard_index INT NOT NULL COMMENT '分片序号（从0开始）',
+    shard_count INT NOT NULL COMMENT '分片总数',
+    shard_field VARCHAR(100) COMMENT '拆分的参数字段',
+    shard_params TEXT NOT NULL COMMENT '分片参数 (JSON格式)',
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING/RUNNING/SUCCESS/FAILED',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已执行次数',
+    max_attempts INT NOT NULL DEFAULT 2 COMMENT '最大执行次数',
+    owner VARCHAR(100) COMMENT '执行节点',
+    heartbeat_at DATETIME COMMENT '最近心跳时间',
+    start_time DATETIME COMMENT '开始时间',
+    end_time DATETIME COMMENT '结束时间',
+    crawled_count INT DEFAULT 0 COMMENT '爬取数量',
+    saved_count INT DEFAULT 0 COMMENT '保存数量',
+    skipped_count INT DEFAULT 0 COMMENT '跳过数量',
+    failed_count INT DEFAULT 0 COMMENT '失败数量',
+    date_window_complete TINYINT(1) COMMENT '是否完整覆盖日期范围',
+    result_message TEXT COMMENT '执行结果',
+    error_message TEXT COMMENT '错误信息',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY uk_log_shard (task_log_id, shard_index),
+    INDEX idx_status (status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='统一任务分片表';
@@ -0,0 +1,20 @@
+-- 创建AI判断队列表
+-- 创建时间: 2026-10-19
+-- 说明: 爬虫新增的设备数据只把 (模块, 实体ID) 写入队列，由独立的AI判断线程池领取处理，
+--       爬虫线程不再同步等待AI判断；队列持久化，重启或AI服务不可用时不会丢失
+
+CREATE TABLE IF NOT EXISTS t_ai_judge_queue (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '队列ID',
+    module_name VARCHAR(50) NOT NULL COMMENT '模块名称: device510k/deviceeventreport/devicerecallrecord/deviceregistrationrecord/guidancedocument/customscase',
+    entity_id BIGINT NOT NULL COMMENT '实体ID',
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING/RUNNING/DONE/FAILED',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已处理次数',
+    owner VARCHAR(100) COMMENT '领取批次（节点标识#序号）',
+    enqueued_at DATETIME(3) NOT NULL COMMENT '入队时间',
+    started_at DATETIME(3) COMMENT '最近领取时间',
+    finished_at DATETIME(3) COMMENT '完成时间',
+    error_message VARCHAR(500) COMMENT '最近一次错误信息',
+    UNIQUE KEY uk_module_entity (module_name, entity_id),
+    INDEX idx_status_id (status, id),
+    INDEX idx_owner (owner)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='AI判断队列表';
@@ -0,0 +1,7 @@
+-- 为统一任务分片表添加取消标记
+-- 创建时间: 2026-10-19
+-- 说明: 执行被取消时协调实例给正在执行的分片打上取消标记，
+--       执行分片的实例在分片心跳中读取该标记并取消本地的取消令牌
+
+ALTER TABLE t_unified_task_shard
+ADD COLUMN cancel_requested TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否已请求取消';
@@ -0,0 +1,19 @@
+-- 创建设备记录变更日志表
+-- 创建时间: 2026-10-19
+-- 说明: 重复爬取发现已有设备记录的业务字段发生变化并更新后，记录变化的字段；
+--       召回状态、指导文件状态、注册状态等状态字段的变化单独记录迁移前后的值
+
+CREATE TABLE IF NOT EXISTS common_db.t_device_record_change (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '变更ID',
+    module_name VARCHAR(50) NOT NULL COMMENT '模块名称: device510k/deviceeventreport/devicerecallrecord/deviceregistrationrecord/guidancedocument/customscase',
+    entity_id BIGINT COMMENT '实体ID',
+    natural_key VARCHAR(255) COMMENT '业务主键',
+    changed_fields TEXT COMMENT '变化的字段: 字段名 -> [旧值, 新值] (JSON格式)',
+    status_field VARCHAR(50) COMMENT '发生变化的状态字段',
+    status_from VARCHAR(255) COMMENT '变化前的状态',
+    status_to VARCHAR(255) COMMENT '变化后的状态',
+    rejudge_queued TINYINT(1) DEFAULT 0 COMMENT '是否已提交AI重新判断',
+    detected_time DATETIME NOT NULL COMMENT '检测时间',
+    INDEX idx_module_entity (module_name, entity_id),
+    INDEX idx_status_change (status_field, detected_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='设备记录变更日志表';
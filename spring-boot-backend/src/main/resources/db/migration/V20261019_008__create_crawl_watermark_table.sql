@@ -0,0 +1,36 @@
+-- 创建增量爬取水位线表
+-- 创建时间: 2026-10-19
+-- 说明: 水位线原先以"爬虫名#task-任务ID"为名写在 t_crawler_state.last_crawled_publish_time 中，
+--       每个任务一行，混在爬虫运行状态里；改为独立的表，covered_until 表示已完整覆盖到的时间，
+--       window_days 为执行被 maxRecords 截断后分段推进的日期窗口。已有水位线迁移后从 t_crawler_state 删除
+
+CREATE TABLE IF NOT EXISTS common_db.t_crawl_watermark (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '水位线ID',
+    watermark_key VARCHAR(150) NOT NULL COMMENT '水位线标识（爬虫名#task-任务ID 或 爬虫名#关键词哈希）',
+    crawler_name VARCHAR(50) NOT NULL COMMENT '爬虫名称',
+    task_id BIGINT COMMENT '任务ID',
+    covered_until DATETIME COMMENT '已完整覆盖到的时间',
+    window_days INT COMMENT '分段推进的日期窗口（天）',
+    last_run_time DATETIME COMMENT '最近一次推进水位线的执行时间',
+    last_crawled_count INT DEFAULT 0 COMMENT '最近一次推进时的爬取数量',
+    total_crawled_count BIGINT DEFAULT 0 COMMENT '累计爬取数量',
+    updated_time DATETIME COMMENT '更新时间',
+    UNIQUE KEY uk_watermark_key (watermark_key),
+    INDEX idx_task_id (task_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='增量爬取水位线表';
+
+INSERT INTO common_db.t_crawl_watermark
+    (watermark_key, crawler_name, task_id, covered_until, last_run_time, last_crawled_count, total_crawled_count, updated_time)
+SELECT crawler_name,
+       SUBSTRING_INDEX(crawler_name, '#', 1),
+       IF(crawler_name LIKE '%#task-%', CAST(SUBSTRING_INDEX(crawler_name, '#task-', -1) AS UNSIGNED), NULL),
+       last_crawled_publish_time,
+       last_crawl_time,
+       IFNULL(last_crawled_count, 0),
+       IFNULL(total_crawled_count, 0),
+       updated_time
+FROM common_db.t_crawler_state
+WHERE crawler_name LIKE '%#%'
+ON DUPLICATE KEY UPDATE covered_until = VALUES(covered_until);
+
+DELETE FROM common_db.t_crawler_state WHERE crawler_name LIKE '%#%';
@@ -0,0 +1,121 @@
+package com.certification.crawler;
+
+import com.certification.crawler.countrydata.tw.TwCaptchaOcrEngine;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 台湾FDA验证码OCR基准测试
+ * 读取 logs/captcha 下保存的验证码样本（或命令行指定目录），统计预处理/识别耗时和结果分布。
+ * 文件名以4位数字开头（如 1234_xxx.png）视为已标注样本，同时统计准确率。
+ */
+public class TwCaptchaOcrBenchmark {
+
+    private static final Pattern LABEL_PATTERN = Pattern.compile("^(\\d{4})[_.].*");
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "logs/captcha");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".png") && !name.contains("processed"));
+        if (files == null || files.length == 0) {
+            System.out.println("未找到验证码样本: " + dir.getAbsolutePath());
+            return;
+        }
+        Arrays.sort(files);
+
+        List<BufferedImage> images = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for (File file : files) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                continue;
+            }
+            images.add(image);
+            Matcher m = LABEL_PATTERN.matcher(file.getName());
+            labels.add(m.matches() ? m.group(1) : null);
+        }
+        System.out.println("样本数: " + images.size() + "，轮数: " + rounds);
+
+        TwCaptchaOcrEngine engine = new TwCaptchaOcrEngine();
+        engine.init();
+        try {
+            // 预热一轮，排除句柄初始化耗时
+            for (BufferedImage image : images) {
+                engine.recognize(TwCaptchaOcrEngine.preprocess(image));
+            }
+
+            long[] preprocessNanos = new long[images.size() * rounds];
+            long[] recognizeNanos = new long[images.size() * rounds];
+            Map<String, Integer> strategyCounts = new TreeMap<>();
+            int recognized = 0;
+            int labelled = 0;
+            int correct = 0;
+
+            int n = 0;
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < images.size(); i++) {
+                    long t0 = System.nanoTime();
+                    TwCaptchaOcrEngine.OcrImage processed = TwCaptchaOcrEngine.preprocess(images.get(i));
+                    long t1 = System.nanoTime();
+                    TwCaptchaOcrEngine.OcrResult result = engine.recognize(processed);
+                    long t2 = System.nanoTime();
+
+                    preprocessNanos[n] = t1 - t0;
+                    recognizeNanos[n] = t2 - t1;
+                    n++;
+
+                    if (round > 0) {
+                        continue;
+                    }
+                    String strategy = result != null ? result.getStrategy() : "failed";
+                    strategyCounts.merge(strategy, 1, Integer::sum);
+                    if (result != null) {
+                        recognized++;
+                    }
+                    if (labels.get(i) != null) {
+                        labelled++;
+                        if (result != null && labels.get(i).equals(result.getText())) {
+                            correct++;
+                        }
+                    }
+                }
+            }
+
+            System.out.println("识别成功: " + recognized + "/" + images.size());
+            System.out.println("结果分布(策略): " + strategyCounts);
+            if (labelled > 0) {
+                System.out.printf("准确率: %d/%d (%.1f%%)%n", correct, labelled, correct * 100.0 / labelled);
+            }
+            printLatency("预处理", preprocessNanos);
+            printLatency("识别", recognizeNanos);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static void printLatency(String name, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double avg = Arrays.stream(sorted).average().orElse(0) / 1_000_000.0;
+        System.out.printf("%s耗时(ms): avg=%.2f p50=%.2f p95=%.2f max=%.2f%n", name, avg,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
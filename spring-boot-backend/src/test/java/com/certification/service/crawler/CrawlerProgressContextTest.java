@@ -0,0 +1,99 @@
+package com.certification.service.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 取消后已抓取的数据仍能入库
+ */
+class CrawlerProgressContextTest {
+
+    @Test
+    void cancelledRunStillSavesFetchedRows() {
+        List<String> saved = new ArrayList<>();
+        FakeCrawler crawler = new FakeCrawler(saved);
+
+        CrawlerParams params = new CrawlerParams();
+        CrawlerCancellationToken token = CrawlerCancellationToken.create(null, null);
+        params.setCancellationToken(token);
+
+        ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor();
+        try {
+            canceller.schedule(() -> token.cancel("测试取消"), 200, TimeUnit.MILLISECONDS);
+            CrawlerResult result = CrawlerProgressContext.execute(crawler, params);
+
+            assertFalse(result.getSuccess());
+            assertTrue(crawler.fetched > 0, "取消前应已抓取数据");
+            assertEquals(crawler.fetched, saved.size(), "取消前抓取的数据应全部入库");
+            assertFalse(Thread.currentThread().isInterrupted());
+        } finally {
+            canceller.shutdownNow();
+        }
+    }
+
+    /**
+     * 模拟爬虫：每页之间用可取消的等待，取消后跳出循环再保存；
+     * 保存时线程处于中断状态则像Druid获取连接一样失败
+     */
+    private static class FakeCrawler implements ICrawlerExecutor {
+        private final List<String> saved;
+        private int fetched;
+
+        FakeCrawler(List<String> saved) {
+            this.saved = saved;
+        }
+
+        @Override
+        public String getCrawlerName() {
+            return "FakeCrawler";
+        }
+
+        @Override
+        public String getCountryCode() {
+            return "XX";
+        }
+
+        @Override
+        public String getCrawlerType() {
+            return "TEST";
+        }
+
+        @Override
+        public CrawlerResult execute(CrawlerParams params) {
+            List<String> rows = new ArrayList<>();
+            for (int page = 0; page < 1000; page++) {
+                rows.add("row-" + page);
+                fetched++;
+                try {
+                    CrawlerCancellationToken.sleep(50);
+                } catch (InterruptedException e) {
+                    CrawlerCancellationToken.restoreInterrupt();
+                    break;
+                }
+            }
+            try {
+                save(rows);
+            } catch (SQLException e) {
+                return CrawlerResult.failure(e.getMessage());
+            }
+            return CrawlerResult.success("保存 " + rows.size() + " 条");
+        }
+
+        private void save(List<String> rows) throws SQLException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new SQLException("interrupt");
+            }
+            saved.addAll(rows);
+        }
+    }
+}